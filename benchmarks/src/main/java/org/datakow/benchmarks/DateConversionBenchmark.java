@@ -0,0 +1,112 @@
+package org.datakow.benchmarks;
+
+import org.datakow.core.components.DateConversion;
+import org.datakow.core.components.DotNotationMap;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares building a {@link DotNotationMap} from a record that was read from
+ * Mongo or parsed from JSON with eager and lazy date conversion. The records
+ * look like catalog documents: mostly strings, a few dates and numbers and a
+ * list of geocodes.
+ * <p>
+ * Run with: java -jar benchmarks/target/benchmarks.jar DateConversionBenchmark
+ *
+ * @author kevin.off
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DateConversionBenchmark {
+
+    /**
+     * The approximate size of the record as JSON in bytes
+     */
+    @Param({"2048", "5120"})
+    public int recordSize;
+
+    private Map<String, Object> record;
+    private String json;
+
+    @Setup
+    public void setup() throws IOException{
+        record = makeRecord(recordSize);
+        json = new ObjectMapper().writeValueAsString(record);
+    }
+
+    private static Map<String, Object> makeRecord(int size) throws IOException{
+        ObjectMapper mapper = new ObjectMapper();
+        Map<String, Object> doc = new LinkedHashMap<>();
+        doc.put("productIdentifier", "WFUS54KOUN");
+        doc.put("issueTime", "2017-04-24T12:00:00Z");
+        doc.put("expireTime", "2017-04-24T18:00:00Z");
+        doc.put("office", "KOUN");
+        doc.put("phenomena", "TO");
+        doc.put("significance", "W");
+        doc.put("eventNumber", 12);
+        List<Map<String, Object>> geocodes = new ArrayList<>();
+        doc.put("geocode", geocodes);
+        int i = 0;
+        while(mapper.writeValueAsString(doc).length() < size){
+            Map<String, Object> geocode = new LinkedHashMap<>();
+            geocode.put("valueName", i % 2 == 0 ? "UGC" : "FIPS6");
+            geocode.put("value", "OKC" + (100 + i));
+            geocode.put("name", "County number " + i + " in the warned area");
+            geocodes.add(geocode);
+            if (i % 4 == 0){
+                doc.put("text" + i, "...A TORNADO WARNING REMAINS IN EFFECT UNTIL 600 PM CDT FOR CENTRAL OKLAHOMA...");
+            }
+            i++;
+        }
+        return doc;
+    }
+
+    @Benchmark
+    public DotNotationMap fromMapEager(){
+        return new DotNotationMap(record, DateConversion.EAGER);
+    }
+
+    @Benchmark
+    public DotNotationMap fromMapLazy(){
+        return new DotNotationMap(record, DateConversion.LAZY);
+    }
+
+    @Benchmark
+    public void fromMapLazyReadingDates(Blackhole blackhole){
+        DotNotationMap map = new DotNotationMap(record, DateConversion.LAZY);
+        blackhole.consume(map.getDate("issueTime"));
+        blackhole.consume(map.getDate("expireTime"));
+    }
+
+    @Benchmark
+    public DotNotationMap fromJsonEager() throws IOException{
+        return DotNotationMap.fromJson(json, DateConversion.EAGER);
+    }
+
+    @Benchmark
+    public DotNotationMap fromJsonLazy() throws IOException{
+        return DotNotationMap.fromJson(json, DateConversion.LAZY);
+    }
+
+}
@@ -0,0 +1,82 @@
+package org.datakow.benchmarks;
+
+import org.datakow.core.components.DateUtil;
+import org.datakow.core.components.IsoDateUtil;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the SimpleDateFormat based {@link DateUtil} with the java.time
+ * based {@link IsoDateUtil}. The strings cover the common forms, an odd
+ * offset and a string that is not a date at all, which is what most Strings
+ * stored in a {@link org.datakow.core.components.DotNotationMap} are.
+ * <p>
+ * Run with: java -jar benchmarks/target/benchmarks.jar DateUtilBenchmark
+ *
+ * @author kevin.off
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DateUtilBenchmark {
+
+    @Param({"2016-01-12T02:10:15Z", "20160111 201015-600", "2016-01-11T20:10:15.123-06:00", "KOUN"})
+    public String dateString;
+
+    private Date date;
+    private Calendar calendar;
+
+    @Setup
+    public void setup(){
+        date = new Date(1452564615000L);
+        calendar = Calendar.getInstance(TimeZone.getTimeZone("America/Chicago"));
+        calendar.setTime(date);
+    }
+
+    @Benchmark
+    public Date parseSimpleDateFormat(){
+        return DateUtil.parseString(dateString);
+    }
+
+    @Benchmark
+    public Date parseJavaTime(){
+        return IsoDateUtil.parseString(dateString);
+    }
+
+    @Benchmark
+    public String utcStringSimpleDateFormat(){
+        return DateUtil.dateToUTCString(date);
+    }
+
+    @Benchmark
+    public String utcStringJavaTime(){
+        return IsoDateUtil.dateToUTCString(date);
+    }
+
+    @Benchmark
+    public String calendarToStringSimpleDateFormat(){
+        return DateUtil.calendarToString(calendar);
+    }
+
+    @Benchmark
+    public String calendarToStringJavaTime(){
+        return IsoDateUtil.calendarToString(calendar);
+    }
+
+}
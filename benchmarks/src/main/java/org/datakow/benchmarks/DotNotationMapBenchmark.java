@@ -0,0 +1,89 @@
+package org.datakow.benchmarks;
+
+import org.datakow.core.components.DotNotationMap;
+import org.datakow.core.components.PropertyPath;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures reading, writing and flattening properties of a
+ * {@link DotNotationMap} by dot notation.
+ * <p>
+ * Run with: java -jar benchmarks/target/benchmarks.jar DotNotationMapBenchmark
+ *
+ * @author kevin.off
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DotNotationMapBenchmark {
+
+    private static final String DEEP_PATH = "geocode.3.value";
+
+    @Param({"10", "100"})
+    public int geocodes;
+
+    private DotNotationMap document;
+    private PropertyPath deepPath;
+
+    @Setup
+    public void setup(){
+        document = new RecordGenerator().document(geocodes);
+        deepPath = new PropertyPath(DEEP_PATH);
+    }
+
+    @Benchmark
+    public Object getTopLevel(){
+        return document.getProperty("office");
+    }
+
+    @Benchmark
+    public Object getNested(){
+        return document.getProperty(DEEP_PATH);
+    }
+
+    @Benchmark
+    public Object getNestedByPropertyPath(){
+        return document.getProperty(deepPath);
+    }
+
+    @Benchmark
+    public boolean containsNested(){
+        return document.containsKey(DEEP_PATH);
+    }
+
+    @Benchmark
+    public DotNotationMap setNested(){
+        DotNotationMap map = new DotNotationMap();
+        map.setProperty("source.station", "KOUN");
+        map.setProperty("source.sequence", 12);
+        map.setProperty("headline", "...A TORNADO WARNING REMAINS IN EFFECT...");
+        map.setProperty("issueTime", "2017-04-24T12:00:00Z");
+        return map;
+    }
+
+    @Benchmark
+    public DotNotationMap copy(){
+        return new DotNotationMap((Map<String, ?>)document);
+    }
+
+    @Benchmark
+    public Map<String, Object> flatten(){
+        return document.flatten();
+    }
+
+}
@@ -0,0 +1,75 @@
+package org.datakow.benchmarks;
+
+import org.datakow.fiql.MongoFiqlParser;
+import org.datakow.fiql.SubscriptionCriteria;
+import org.datakow.fiql.SubscriptionFiqlParser;
+import org.datakow.fiql.SubscriptionPredicate;
+import org.bson.Document;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures turning FIQL queries into Mongo criteria documents and into
+ * subscription criteria and predicates.
+ * <p>
+ * Run with: java -jar benchmarks/target/benchmarks.jar FiqlParseBenchmark
+ *
+ * @author kevin.off
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FiqlParseBenchmark {
+
+    @Param({"128"})
+    public int queryCount;
+
+    private String[] queries;
+    private String[] subscriptionQueries;
+    private int next;
+
+    @Setup
+    public void setup(){
+        RecordGenerator generator = new RecordGenerator();
+        queries = new String[queryCount];
+        subscriptionQueries = new String[queryCount];
+        for(int i = 0; i < queryCount; i++){
+            queries[i] = generator.query();
+            subscriptionQueries[i] = generator.subscriptionQuery();
+        }
+    }
+
+    private int nextIndex(){
+        next = (next + 1) % queryCount;
+        return next;
+    }
+
+    @Benchmark
+    public Document mongoCriteria(){
+        return new MongoFiqlParser().parse(queries[nextIndex()]).getCriteriaObject();
+    }
+
+    @Benchmark
+    public SubscriptionCriteria subscriptionCriteria(){
+        return new SubscriptionFiqlParser().parse(subscriptionQueries[nextIndex()]);
+    }
+
+    @Benchmark
+    public SubscriptionPredicate subscriptionPredicate(){
+        return new SubscriptionFiqlParser().compile(subscriptionQueries[nextIndex()]);
+    }
+
+}
@@ -0,0 +1,167 @@
+package org.datakow.benchmarks;
+
+import org.datakow.core.components.IteratorToInputStream;
+import org.datakow.core.components.JsonProducer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures copying an {@link IteratorToInputStream} of one million values
+ * one byte at a time and in 8KB chunks with different batch sizes.
+ * <p>
+ * The values are cycled from a small set of prepared JSON records so the
+ * iterator itself costs next to nothing. The bytes counter is reported
+ * per second, so divide it by 1,000,000 for MB/s.
+ * <p>
+ * Run with: java -jar benchmarks/target/benchmarks.jar IteratorToInputStreamBenchmark
+ *
+ * @author kevin.off
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class IteratorToInputStreamBenchmark {
+
+    /**
+     * The number of values in each stream
+     */
+    @Param({"1000000"})
+    public int elementCount;
+
+    /**
+     * The number of geocodes in each record which sets its size.
+     * 0 is about 400 bytes and 10 is about 1KB.
+     */
+    @Param({"0", "10"})
+    public int geocodes;
+
+    /**
+     * The number of values loaded per refill
+     */
+    @Param({"1", "16", "128"})
+    public int batchSize;
+
+    private String[] json;
+    private JsonProducer[] producers;
+
+    @Setup
+    public void setup() throws IOException{
+        RecordGenerator generator = new RecordGenerator();
+        json = new String[1000];
+        producers = new JsonProducer[json.length];
+        for(int i = 0; i < json.length; i++){
+            String record = generator.record(geocodes).toJson();
+            json[i] = record;
+            producers[i] = () -> record;
+        }
+    }
+
+    /**
+     * Counts the bytes that were read so JMH reports them per second
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Bytes {
+
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset(){
+            bytes = 0;
+        }
+
+    }
+
+    @Benchmark
+    public long singleByteReads(Bytes counter) throws IOException{
+        long total = 0;
+        try(InputStream in = stringStream()){
+            while(in.read() != -1){
+                total++;
+            }
+        }
+        counter.bytes += total;
+        return total;
+    }
+
+    @Benchmark
+    public long bulkReads(Bytes counter) throws IOException{
+        long total = copy(stringStream());
+        counter.bytes += total;
+        return total;
+    }
+
+    @Benchmark
+    public long bulkReadsOfJsonProducers(Bytes counter) throws IOException{
+        long total = copy(IteratorToInputStream.jsonProducerIteratorToJsonArrayInputStream(
+                new Cycle<>(producers, elementCount)).setBatchSize(batchSize));
+        counter.bytes += total;
+        return total;
+    }
+
+    private InputStream stringStream(){
+        return IteratorToInputStream.jsonObjectIteratorToJsonArrayInputStream(
+                new Cycle<>(json, elementCount)).setBatchSize(batchSize);
+    }
+
+    private static long copy(InputStream stream) throws IOException{
+        long total = 0;
+        byte[] buffer = new byte[8192];
+        int read;
+        try(InputStream in = stream){
+            while((read = in.read(buffer, 0, buffer.length)) != -1){
+                total += read;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Returns the values of an array over and over until the count is reached
+     */
+    private static class Cycle<T> implements Iterator<T>{
+
+        private final T[] values;
+        private final int count;
+        private int index = 0;
+
+        Cycle(T[] values, int count){
+            this.values = values;
+            this.count = count;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return index < count;
+        }
+
+        @Override
+        public T next() {
+            if (index >= count){
+                throw new NoSuchElementException();
+            }
+            return values[index++ % values.length];
+        }
+
+    }
+
+}
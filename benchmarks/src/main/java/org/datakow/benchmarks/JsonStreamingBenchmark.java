@@ -0,0 +1,80 @@
+package org.datakow.benchmarks;
+
+import org.datakow.catalogs.metadata.MetadataCatalogRecord;
+import org.datakow.core.components.IteratorToInputStream;
+import org.datakow.core.components.JsonInputStreamToIterator;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import org.apache.commons.io.IOUtils;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures streaming many records out as a JSON array with
+ * {@link IteratorToInputStream} and reading a JSON array back one record at
+ * a time with {@link JsonInputStreamToIterator}.
+ * <p>
+ * Run with: java -jar benchmarks/target/benchmarks.jar JsonStreamingBenchmark
+ *
+ * @author kevin.off
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonStreamingBenchmark {
+
+    @Param({"1000"})
+    public int recordCount;
+
+    private List<MetadataCatalogRecord> records;
+    private byte[] json;
+
+    @Setup
+    public void setup() throws IOException{
+        records = new RecordGenerator().records(recordCount, 10);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        IOUtils.copy(IteratorToInputStream.jsonProducerIteratorToJsonArrayInputStream(records.iterator()), out);
+        json = out.toByteArray();
+    }
+
+    @Benchmark
+    public long write() throws IOException{
+        InputStream in = IteratorToInputStream.jsonProducerIteratorToJsonArrayInputStream(records.iterator());
+        byte[] buffer = new byte[8192];
+        long total = 0;
+        int read;
+        while((read = in.read(buffer)) != -1){
+            total += read;
+        }
+        return total;
+    }
+
+    @Benchmark
+    public int read() throws IOException{
+        int count = 0;
+        try(JsonInputStreamToIterator<MetadataCatalogRecord> iterator = JsonInputStreamToIterator.makeIterator(new ByteArrayInputStream(json), MetadataCatalogRecord.class)){
+            while(iterator.hasNext()){
+                iterator.next();
+                count++;
+            }
+        }
+        return count;
+    }
+
+}
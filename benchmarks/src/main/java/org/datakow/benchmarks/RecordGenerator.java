@@ -0,0 +1,200 @@
+package org.datakow.benchmarks;
+
+import org.datakow.catalogs.metadata.MetadataCatalogRecord;
+import org.datakow.catalogs.metadata.MetadataCatalogRecordStorage;
+import org.datakow.catalogs.subscription.QueryStringSubscription;
+import org.datakow.core.components.CatalogIdentity;
+import org.datakow.core.components.CatalogIdentityCollection;
+import org.datakow.core.components.DotNotationMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Creates synthetic records, subscriptions and queries for the benchmarks.
+ * <p>
+ * The records look like the warning products stored in the catalogs: a few
+ * identifying strings, some dates and numbers, a list of geocodes and some
+ * free text. Every generator is seeded so the same seed always produces the
+ * same data and benchmark runs can be compared with each other.
+ *
+ * @author kevin.off
+ */
+public class RecordGenerator {
+
+    /**
+     * The seed used when one is not given
+     */
+    public static final long DEFAULT_SEED = 20170424L;
+
+    private static final String[] OFFICES = {"KOUN", "KTLX", "KFWD", "KDDC", "KICT", "KTSA", "KAMA", "KLUB"};
+    private static final String[] PHENOMENA = {"TO", "SV", "FF", "WS", "BZ", "HT", "FW"};
+    private static final String[] SIGNIFICANCE = {"W", "A", "Y", "S"};
+    private static final String[] STATES = {"OK", "TX", "KS", "NM", "AR"};
+    private static final long BASE_TIME = 1493035200000L;
+
+    private final Random random;
+
+    /**
+     * Creates a generator with the default seed
+     */
+    public RecordGenerator(){
+        this(DEFAULT_SEED);
+    }
+
+    /**
+     * Creates a generator with the given seed
+     *
+     * @param seed The seed of the random numbers
+     */
+    public RecordGenerator(long seed){
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Creates the Doc part of a record
+     *
+     * @param geocodes The number of geocodes in the record
+     * @return The document
+     */
+    public DotNotationMap document(int geocodes){
+        DotNotationMap doc = new DotNotationMap();
+        String office = pick(OFFICES);
+        doc.setProperty("productIdentifier", "WFUS54" + office);
+        doc.setProperty("office", office);
+        doc.setProperty("phenomena", pick(PHENOMENA));
+        doc.setProperty("significance", pick(SIGNIFICANCE));
+        doc.setProperty("eventNumber", random.nextInt(500));
+        doc.setProperty("severity", random.nextDouble() * 10);
+        doc.setProperty("active", random.nextBoolean());
+        Date issueTime = new Date(BASE_TIME + random.nextInt(86400) * 1000L);
+        doc.setProperty("issueTime", issueTime);
+        doc.setProperty("expireTime", new Date(issueTime.getTime() + 3600000L * (1 + random.nextInt(6))));
+        doc.setProperty("source.station", office);
+        doc.setProperty("source.sequence", random.nextInt(100000));
+        List<DotNotationMap> geocodeList = new ArrayList<>();
+        for(int i = 0; i < geocodes; i++){
+            DotNotationMap geocode = new DotNotationMap();
+            boolean ugc = random.nextBoolean();
+            geocode.setProperty("valueName", ugc ? "UGC" : "FIPS6");
+            geocode.setProperty("value", ugc ? pick(STATES) + "C" + (100 + random.nextInt(100)) : String.valueOf(40000 + random.nextInt(1000)));
+            geocodeList.add(geocode);
+        }
+        doc.setProperty("geocode", geocodeList);
+        doc.setProperty("headline", "...A " + doc.getProperty("phenomena") + " WARNING REMAINS IN EFFECT UNTIL "
+                + (1 + random.nextInt(12)) + "00 PM CDT FOR " + pick(STATES) + "...");
+        return doc;
+    }
+
+    /**
+     * Creates the Doc part of a record whose JSON is about the given size
+     *
+     * @param bytes The approximate size of the JSON
+     * @return The document
+     */
+    public DotNotationMap documentOfSize(int bytes){
+        //each geocode adds about 40 bytes to a 400 byte record
+        return document(Math.max(1, (bytes - 400) / 40));
+    }
+
+    /**
+     * Creates a whole record with storage information
+     *
+     * @param geocodes The number of geocodes in the record
+     * @return The record
+     */
+    public MetadataCatalogRecord record(int geocodes){
+        MetadataCatalogRecordStorage storage = new MetadataCatalogRecordStorage();
+        storage.setId(new UUID(random.nextLong(), random.nextLong()).toString());
+        storage.setRealm("public");
+        storage.setPublisher(pick(OFFICES).toLowerCase());
+        storage.setPublishDate(new Date(BASE_TIME + random.nextInt(86400) * 1000L));
+        storage.setTags(Arrays.asList(pick(PHENOMENA), pick(STATES)));
+        storage.setObjectIdentities(new CatalogIdentityCollection(
+                new CatalogIdentity("TEXT", new UUID(random.nextLong(), random.nextLong()).toString())));
+        MetadataCatalogRecord record = new MetadataCatalogRecord();
+        record.setStorage(storage);
+        record.setDocument(document(geocodes));
+        return record;
+    }
+
+    /**
+     * Creates many records
+     *
+     * @param count The number of records
+     * @param geocodes The number of geocodes in each record
+     * @return The records
+     */
+    public List<MetadataCatalogRecord> records(int count, int geocodes){
+        List<MetadataCatalogRecord> records = new ArrayList<>(count);
+        for(int i = 0; i < count; i++){
+            records.add(record(geocodes));
+        }
+        return records;
+    }
+
+    /**
+     * Creates a FIQL query that could be run against the catalog
+     *
+     * @return The query
+     */
+    public String query(){
+        switch(random.nextInt(5)){
+            case 0:
+                return "Doc.office==" + pick(OFFICES) + ";Doc.phenomena=in=(" + pick(PHENOMENA) + "," + pick(PHENOMENA) + ")";
+            case 1:
+                return "Doc.eventNumber=gt=" + random.nextInt(500) + ";Doc.issueTime=ge=2017-04-24T12:00:00Z";
+            case 2:
+                return "(Doc.significance==W,Doc.significance==A);Doc.severity=lt=" + random.nextInt(10) + ".5";
+            case 3:
+                return "Doc.geocode=matches=\"valueName==UGC;value=like='^" + pick(STATES) + ".*'\"";
+            default:
+                return "Doc.office=out=(" + pick(OFFICES) + "," + pick(OFFICES) + ");Doc.active==true;Storage.Tags==" + pick(PHENOMENA);
+        }
+    }
+
+    /**
+     * Creates a FIQL query for a subscription. Subscription queries are
+     * matched against the Doc part of a record.
+     *
+     * @return The query
+     */
+    public String subscriptionQuery(){
+        switch(random.nextInt(6)){
+            case 0:
+                return "office==" + pick(OFFICES) + ";phenomena==" + pick(PHENOMENA);
+            case 1:
+                return "office=in=(" + pick(OFFICES) + "," + pick(OFFICES) + ");significance==" + pick(SIGNIFICANCE);
+            case 2:
+                return "phenomena==" + pick(PHENOMENA) + ";eventNumber=ge=" + random.nextInt(500);
+            case 3:
+                return "severity=gt=" + random.nextInt(10) + ";severity=lt=" + (5 + random.nextInt(6));
+            case 4:
+                return "source.station==" + pick(OFFICES) + ";source.sequence=lt=" + random.nextInt(100000);
+            default:
+                return "geocode=matches=\"valueName==UGC;value=like='^" + pick(STATES) + ".*'\";active==true";
+        }
+    }
+
+    /**
+     * Creates many subscriptions to the same catalog
+     *
+     * @param count The number of subscriptions
+     * @return The subscriptions
+     */
+    public List<QueryStringSubscription> subscriptions(int count){
+        List<QueryStringSubscription> subscriptions = new ArrayList<>(count);
+        for(int i = 0; i < count; i++){
+            subscriptions.add(new QueryStringSubscription("subscription-" + i, subscriptionQuery(), "WARNINGS", "create", "benchmark", "endpoint-" + (i % 10)));
+        }
+        return subscriptions;
+    }
+
+    private String pick(String[] values){
+        return values[random.nextInt(values.length)];
+    }
+
+}
@@ -0,0 +1,56 @@
+package org.datakow.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.datakow.catalogs.metadata.MetadataCatalogRecord;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures writing a {@link MetadataCatalogRecord} to JSON and reading it
+ * back.
+ * <p>
+ * Run with: java -jar benchmarks/target/benchmarks.jar RecordJsonBenchmark
+ *
+ * @author kevin.off
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecordJsonBenchmark {
+
+    @Param({"10", "100"})
+    public int geocodes;
+
+    private MetadataCatalogRecord record;
+    private String json;
+
+    @Setup
+    public void setup() throws JsonProcessingException{
+        record = new RecordGenerator().record(geocodes);
+        json = record.toJson();
+    }
+
+    @Benchmark
+    public String toJson() throws JsonProcessingException{
+        return record.toJson();
+    }
+
+    @Benchmark
+    public MetadataCatalogRecord fromJson() throws JsonProcessingException{
+        return MetadataCatalogRecord.fromJson(json);
+    }
+
+}
@@ -0,0 +1,90 @@
+package org.datakow.benchmarks;
+
+import org.datakow.core.components.DotNotationMap;
+import org.datakow.fiql.SubscriptionCriteria;
+import org.datakow.fiql.SubscriptionFiqlParser;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares evaluating =like= and =matches= criteria with the pattern and sub
+ * query compiled once against compiling them on every evaluation, which is
+ * what {@link SubscriptionCriteria} used to do.
+ * <p>
+ * Run with: java -jar benchmarks/target/benchmarks.jar SubscriptionCriteriaBenchmark
+ *
+ * @author kevin.off
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SubscriptionCriteriaBenchmark {
+
+    private static final String REGEX = "^(LC|LE|LH|LO|LM|LS|SL).*";
+    private static final String SUB_QUERY = "valueName==UGC;value=like='" + REGEX + "'";
+
+    @Param({"10", "100"})
+    public int elements;
+
+    private DotNotationMap doc;
+    private SubscriptionCriteria likeCriteria;
+    private SubscriptionCriteria matchesCriteria;
+
+    @Setup
+    public void setup(){
+        doc = new DotNotationMap();
+        doc.setProperty("Doc.code", "SLBanana");
+        doc.setProperty("Doc.geocode", new ArrayList());
+        for(int i = 0; i < elements; i++){
+            doc.setProperty("Doc.geocode." + i + ".valueName", i == elements - 1 ? "UGC" : "FIPS");
+            doc.setProperty("Doc.geocode." + i + ".value", "LE" + i);
+        }
+        SubscriptionFiqlParser parser = new SubscriptionFiqlParser();
+        likeCriteria = parser.parse("Doc.code=like='" + REGEX + "'");
+        matchesCriteria = parser.parse("Doc.geocode=matches=\"" + SUB_QUERY + "\"");
+    }
+
+    @Benchmark
+    public boolean likeCached(){
+        return likeCriteria.meetsCriteria(doc);
+    }
+
+    @Benchmark
+    public boolean likeCompiledPerEvaluation(){
+        return Pattern.compile(REGEX).matcher((String)doc.getProperty("Doc.code")).matches();
+    }
+
+    @Benchmark
+    public boolean matchesCached(){
+        return matchesCriteria.meetsCriteria(doc);
+    }
+
+    @Benchmark
+    public boolean matchesParsedPerEvaluation(){
+        Collection<DotNotationMap> subDocs = doc.getProperty("Doc.geocode");
+        SubscriptionCriteria subCriteria = new SubscriptionFiqlParser().parse(SUB_QUERY);
+        for(DotNotationMap subDoc : subDocs){
+            if (subCriteria.meetsCriteria(subDoc)){
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
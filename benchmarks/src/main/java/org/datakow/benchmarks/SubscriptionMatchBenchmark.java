@@ -0,0 +1,107 @@
+package org.datakow.benchmarks;
+
+import org.datakow.catalogs.subscription.QueryStringSubscription;
+import org.datakow.catalogs.subscription.SimpleSubscription;
+import org.datakow.catalogs.subscription.SubscriptionIndex;
+import org.datakow.catalogs.subscription.SubscriptionMatcher;
+import org.datakow.core.components.DotNotationMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures matching one record against N subscriptions by interpreting the
+ * criteria, by the compiled predicates, through the {@link SubscriptionIndex}
+ * and through the parallel {@link SubscriptionMatcher}.
+ * <p>
+ * Run with: java -jar benchmarks/target/benchmarks.jar SubscriptionMatchBenchmark
+ *
+ * @author kevin.off
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SubscriptionMatchBenchmark {
+
+    private static final int RECORD_COUNT = 64;
+
+    @Param({"100", "1000", "10000"})
+    public int subscriptionCount;
+
+    private List<QueryStringSubscription> subscriptions;
+    private SubscriptionIndex index;
+    private SubscriptionMatcher matcher;
+    private DotNotationMap[] records;
+    private int next;
+
+    @Setup
+    public void setup(){
+        RecordGenerator generator = new RecordGenerator();
+        subscriptions = generator.subscriptions(subscriptionCount);
+        index = new SubscriptionIndex(subscriptions);
+        matcher = new SubscriptionMatcher();
+        records = new DotNotationMap[RECORD_COUNT];
+        for(int i = 0; i < RECORD_COUNT; i++){
+            records[i] = generator.document(10);
+        }
+    }
+
+    private DotNotationMap nextRecord(){
+        next = (next + 1) % RECORD_COUNT;
+        return records[next];
+    }
+
+    @Benchmark
+    public List<String> interpreted(){
+        DotNotationMap record = nextRecord();
+        List<String> ids = new ArrayList<>();
+        for(SimpleSubscription subscription : subscriptions){
+            if (subscription.getCriteria().meetsCriteria(record)){
+                ids.add(subscription.getId());
+            }
+        }
+        return ids;
+    }
+
+    @Benchmark
+    public List<String> compiled(){
+        DotNotationMap record = nextRecord();
+        List<String> ids = new ArrayList<>();
+        for(SimpleSubscription subscription : subscriptions){
+            if (subscription.meetsCriteria(record)){
+                ids.add(subscription.getId());
+            }
+        }
+        return ids;
+    }
+
+    @Benchmark
+    public List<SimpleSubscription> indexed(){
+        return index.getMatches(nextRecord());
+    }
+
+    @Benchmark
+    public List<String> parallel(){
+        return matcher.matchAll(nextRecord(), subscriptions);
+    }
+
+    @Benchmark
+    public List<String> indexedParallel(){
+        return matcher.matchAll(nextRecord(), index);
+    }
+
+}
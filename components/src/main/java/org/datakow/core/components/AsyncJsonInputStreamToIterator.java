@@ -0,0 +1,304 @@
+package org.datakow.core.components;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Reads the records of a JSON array on its own thread so that waiting on the
+ * network and binding the JSON happen while the caller is still working on
+ * the records that were already read.
+ * <p>
+ * The reading thread stays at most prefetch records ahead of the caller. 
+ * When the buffer is full it stops reading, which leaves the rest of the
+ * response in the socket and lets TCP slow the sender down.
+ * <p>
+ * The records can be taken either as a {@link CloseableIterator} or by
+ * subscribing a {@link Flow.Subscriber}, but not both. Errors from the
+ * reading thread are thrown by next() or passed to onError once the records
+ * before them have been delivered. Closing the iterator or cancelling the
+ * subscription stops the thread and closes the stream.
+ * 
+ * @author kevin.off
+ * @param <T> The type of the records
+ */
+public class AsyncJsonInputStreamToIterator<T> implements CloseableIterator<T>, Flow.Publisher<T>{
+    
+    /**
+     * The number of records that are read ahead when a prefetch is not given
+     */
+    public static final int DEFAULT_PREFETCH = 256;
+    
+    private static final Object END = new Object();
+    private static final Object NULL = new Object();
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+    
+    private final CloseableIterator<T> source;
+    private final BlockingQueue<Object> buffer;
+    private final Thread reader;
+    private final AtomicBoolean consumed = new AtomicBoolean(false);
+    private volatile boolean closed = false;
+    private Object pending = null;
+    
+    /**
+     * Starts reading the JSON array in the stream on a new thread.
+     * The start of the array is read on the calling thread so a stream that
+     * is not JSON fails right away.
+     * 
+     * @param <T> The type of the records
+     * @param is The stream of the JSON array
+     * @param clazz The type of the records
+     * @param prefetch The number of records to read ahead
+     * @return The iterator
+     * @throws IOException If the stream cannot be read
+     * @throws JsonParseException If the stream is not JSON
+     */
+    public static <T> AsyncJsonInputStreamToIterator<T> makeIterator(InputStream is, Class<T> clazz, int prefetch) throws IOException, JsonParseException{
+        return new AsyncJsonInputStreamToIterator<>(JsonInputStreamToIterator.makeIterator(is, clazz), prefetch);
+    }
+    
+    /**
+     * Starts reading the source iterator on a new thread
+     * 
+     * @param source The iterator to read from
+     * @param prefetch The number of records to read ahead
+     */
+    public AsyncJsonInputStreamToIterator(CloseableIterator<T> source, int prefetch){
+        if (prefetch < 1){
+            throw new IllegalArgumentException("The prefetch must be at least 1");
+        }
+        this.source = source;
+        this.buffer = new ArrayBlockingQueue<>(prefetch);
+        this.reader = new Thread(this::readAll, "json-stream-reader-" + THREAD_COUNT.incrementAndGet());
+        this.reader.setDaemon(true);
+        this.reader.start();
+    }
+    
+    private void readAll(){
+        try{
+            try{
+                while(!closed && source.hasNext()){
+                    T record = source.next();
+                    buffer.put(record == null ? NULL : record);
+                }
+                buffer.put(END);
+            }catch(IOException | RuntimeException | Error ex){
+                if (!closed){
+                    buffer.put(new Failure(ex));
+                }
+            }
+        }catch(InterruptedException ex){
+            //closed
+        }finally{
+            IOUtils.closeQuietly(source);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        consumed.set(true);
+        if (pending == null){
+            if (closed){
+                return false;
+            }
+            try{
+                pending = buffer.take();
+            }catch(InterruptedException ex){
+                Thread.currentThread().interrupt();
+                pending = new Failure(new InterruptedIOException("Interrupted while waiting for the next record"));
+            }
+        }
+        return pending != END;
+    }
+
+    @Override
+    public T next() throws IOException, JsonProcessingException {
+        if (!hasNext()){
+            throw new NoSuchElementException();
+        }
+        Object item = pending;
+        pending = null;
+        if (item instanceof Failure){
+            pending = END;
+            close();
+            ((Failure)item).rethrow();
+        }
+        return item == NULL ? null : (T)item;
+    }
+
+    @Override
+    public List<T> toList() throws IOException, JsonProcessingException {
+        List<T> list = new ArrayList<>();
+        while(hasNext()){
+            list.add(next());
+        }
+        return list;
+    }
+    
+    /**
+     * Gets the number of records that have been read but not taken yet
+     * 
+     * @return The number of buffered records
+     */
+    public int getBufferedCount(){
+        return buffer.size();
+    }
+
+    /**
+     * Stops the reading thread and closes the stream. Records that were
+     * already read are dropped.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        reader.interrupt();
+        IOUtils.closeQuietly(source);
+        buffer.clear();
+        //wake up a caller that is waiting in hasNext()
+        buffer.offer(END);
+    }
+    
+    /**
+     * Delivers the records to the subscriber on its own thread as they are
+     * requested. Only one subscriber is allowed and not after the records
+     * have been taken with next().
+     * 
+     * @param subscriber The subscriber
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+        if (!consumed.compareAndSet(false, true)){
+            subscriber.onSubscribe(new Flow.Subscription(){
+                @Override
+                public void request(long n) {
+                }
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("The records have already been subscribed to"));
+            return;
+        }
+        new RecordSubscription(subscriber).start();
+    }
+    
+    /**
+     * Delivers records as the subscriber asks for them
+     */
+    private class RecordSubscription implements Flow.Subscription{
+        
+        private final Flow.Subscriber<? super T> subscriber;
+        private long demand = 0;
+        private boolean cancelled = false;
+        private Throwable invalidRequest = null;
+        
+        RecordSubscription(Flow.Subscriber<? super T> subscriber){
+            this.subscriber = subscriber;
+        }
+        
+        void start(){
+            Thread publisher = new Thread(this::deliver, reader.getName() + "-publisher");
+            publisher.setDaemon(true);
+            publisher.start();
+        }
+        
+        @Override
+        public synchronized void request(long n) {
+            if (n <= 0){
+                invalidRequest = new IllegalArgumentException("The number of records requested must be positive");
+            }else{
+                demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+            }
+            notifyAll();
+        }
+
+        @Override
+        public synchronized void cancel() {
+            cancelled = true;
+            notifyAll();
+        }
+        
+        /**
+         * Waits until a record is wanted
+         * 
+         * @return false if the subscription was cancelled or is invalid
+         */
+        private synchronized boolean awaitDemand() throws InterruptedException{
+            while(demand == 0 && !cancelled && invalidRequest == null){
+                wait();
+            }
+            if (cancelled || invalidRequest != null){
+                return false;
+            }
+            demand--;
+            return true;
+        }
+        
+        private void deliver(){
+            subscriber.onSubscribe(this);
+            try{
+                while(awaitDemand()){
+                    if (!hasNext()){
+                        subscriber.onComplete();
+                        return;
+                    }
+                    subscriber.onNext(next());
+                }
+                Throwable error;
+                synchronized(this){
+                    error = cancelled ? null : invalidRequest;
+                }
+                if (error != null){
+                    subscriber.onError(error);
+                }
+            }catch(InterruptedException ex){
+                //the process is shutting down
+            }catch(IOException | RuntimeException ex){
+                subscriber.onError(ex);
+            }finally{
+                close();
+            }
+        }
+        
+    }
+    
+    /**
+     * An error thrown by the reading thread
+     */
+    private static class Failure{
+        
+        private final Throwable exception;
+        
+        Failure(Throwable exception){
+            this.exception = exception;
+        }
+        
+        void rethrow() throws IOException{
+            if (exception instanceof IOException){
+                throw (IOException)exception;
+            }else if (exception instanceof UncheckedIOException){
+                throw ((UncheckedIOException)exception).getCause();
+            }else if (exception instanceof RuntimeException){
+                throw (RuntimeException)exception;
+            }else if (exception instanceof Error){
+                throw (Error)exception;
+            }else{
+                throw new IOException(exception);
+            }
+        }
+        
+    }
+    
+}
@@ -27,7 +27,7 @@ public class CalendarSerializer extends JsonSerializer<Calendar>{
     @Override
     public void serialize(Calendar t, JsonGenerator jg, SerializerProvider sp) throws IOException, JsonProcessingException {
 
-        jg.writeString(DateUtil.calendarToString(t));
+        jg.writeString(IsoDateUtil.calendarToString(t));
 
     }
         
@@ -0,0 +1,150 @@
+package org.datakow.core.components;
+
+import java.lang.reflect.Method;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.apache.logging.log4j.ThreadContext;
+
+/**
+ * Creates the executors that run the blocking web service clients in the
+ * background and turns their calls into CompletableFutures.
+ * <p>
+ * On JDK 21 and later every call can run on its own virtual thread so
+ * thousands of requests can wait on the network without holding a platform
+ * thread each. The project is built for Java 11 so virtual threads are
+ * looked up by reflection. On older JDKs, or when virtual threads are turned
+ * off, a fixed pool of daemon threads is used instead.
+ *
+ * @author kevin.off
+ */
+public class ClientExecutors {
+
+    private static final Method NEW_VIRTUAL_THREAD_EXECUTOR = findVirtualThreadExecutor();
+    private static final AtomicInteger POOL_NUMBER = new AtomicInteger();
+
+    private ClientExecutors(){
+
+    }
+
+    /**
+     * Checks whether the running JDK can create virtual threads
+     *
+     * @return true if virtual threads are available
+     */
+    public static boolean isVirtualThreadsAvailable(){
+        return NEW_VIRTUAL_THREAD_EXECUTOR != null;
+    }
+
+    /**
+     * Creates an executor for running blocking web service calls.
+     * <p>
+     * When virtual threads are used every task gets its own thread and the
+     * number of calls in flight is limited by the HTTP connection pool.
+     * Otherwise the executor has exactly the given number of threads.
+     *
+     * @param name The prefix of the thread names
+     * @param threads The number of platform threads when virtual threads are not used
+     * @param useVirtualThreads Whether to use virtual threads when the JDK has them
+     * @return The executor
+     */
+    public static ExecutorService newExecutor(String name, int threads, boolean useVirtualThreads){
+        if (threads <= 0){
+            throw new IllegalArgumentException("The number of client threads must be greater than 0");
+        }
+        if (useVirtualThreads && NEW_VIRTUAL_THREAD_EXECUTOR != null){
+            try{
+                return (ExecutorService)NEW_VIRTUAL_THREAD_EXECUTOR.invoke(null);
+            }catch(ReflectiveOperationException ex){
+                Logger.getLogger(ClientExecutors.class.getName()).log(
+                        Level.WARNING, "Could not create a virtual thread executor for " + name + ". Using platform threads.", ex);
+            }
+        }
+        String prefix = name + "-" + POOL_NUMBER.incrementAndGet() + "-";
+        AtomicInteger threadNumber = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, prefix + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Runs a blocking call on the executor.
+     * <p>
+     * Unlike {@link CompletableFuture#supplyAsync} the call may throw checked
+     * exceptions. Whatever it throws completes the future as is, so
+     * {@link java.util.concurrent.ExecutionException#getCause()} is the
+     * exception the blocking client would have thrown.
+     *
+     * @param <T> The type of the result
+     * @param call The blocking call
+     * @param executor The executor to run it on
+     * @return The future result of the call
+     */
+    public static <T> CompletableFuture<T> supplyAsync(Callable<T> call, Executor executor){
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try{
+            executor.execute(() -> {
+                if (future.isDone()){
+                    return;
+                }
+                try{
+                    future.complete(call.call());
+                }catch(Throwable t){
+                    future.completeExceptionally(t);
+                }
+            });
+        }catch(RejectedExecutionException ex){
+            future.completeExceptionally(ex);
+        }
+        return future;
+    }
+
+    /**
+     * Runs a blocking web service call on the executor with the correlation
+     * id of the calling thread, like {@link #supplyAsync(Callable, Executor)}.
+     * <p>
+     * The correlationId of the log4j ThreadContext is put on the thread that
+     * runs the call and removed when it is done, so the request carries the
+     * same X-Correlation-ID as the caller's. When the caller does not have
+     * one it is given a new one first.
+     *
+     * @param <T> The type of the result
+     * @param call The blocking call
+     * @param executor The executor to run it on
+     * @return The future result of the call
+     */
+    public static <T> CompletableFuture<T> supplyAsyncWithCorrelationId(Callable<T> call, Executor executor){
+        String correlationId = ThreadContext.get("correlationId");
+        if (correlationId == null || correlationId.isEmpty()){
+            correlationId = UUID.randomUUID().toString();
+            ThreadContext.put("correlationId", correlationId);
+        }
+        String requestCorrelationId = correlationId;
+        return supplyAsync(() -> {
+            ThreadContext.put("correlationId", requestCorrelationId);
+            try{
+                return call.call();
+            }finally{
+                ThreadContext.remove("correlationId");
+            }
+        }, executor);
+    }
+
+    private static Method findVirtualThreadExecutor(){
+        try{
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        }catch(NoSuchMethodException ex){
+            return null;
+        }
+    }
+
+}
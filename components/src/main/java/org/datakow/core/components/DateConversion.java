@@ -0,0 +1,29 @@
+package org.datakow.core.components;
+
+/**
+ * Decides when String values stored in a {@link DotNotationMap} or
+ * {@link DotNotationList} are converted to Date objects.
+ *
+ * @author kevin.off
+ */
+public enum DateConversion {
+
+    /**
+     * Every String that {@link DateUtil} can parse is converted to a Date as
+     * soon as it is stored.
+     */
+    EAGER,
+
+    /**
+     * Strings are stored as they are and are only converted to a Date when
+     * they are read with getDate().
+     * <p>
+     * This saves checking every String of records that are only passed
+     * through, but anything that reads the values directly will see the
+     * original String instead of a Date. Only use it for maps that are
+     * passed through, never for records that are stored or matched against
+     * subscriptions. Maps created without a mode are always EAGER.
+     */
+    LAZY
+
+}
@@ -101,6 +101,23 @@ public class DateUtil {
         }
     }
     
+    /**
+     * Gets the value as a Date. Dates are returned as they are and Strings
+     * are parsed.
+     * 
+     * @param value The value to convert
+     * @return The date or null if the value is not a date
+     */
+    public static Date toDate(Object value){
+        if (value instanceof Date){
+            return (Date)value;
+        }else if (value instanceof String){
+            return IsoDateUtil.parseString((String)value);
+        }else{
+            return null;
+        }
+    }
+    
     /**
      * Formats a string by parsing its parts and re-assembling it in a way
      * that the date parser can convert it to a Date Object.
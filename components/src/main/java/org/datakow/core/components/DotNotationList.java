@@ -19,16 +19,41 @@ import java.util.logging.Logger;
  */
 public class DotNotationList<T> extends LinkedList<T> implements JsonProducer{
     
+    private final DateConversion dateConversion;
+    
     /**
      * Creates a new instance
      */
-    public DotNotationList(){}
+    public DotNotationList(){
+        this.dateConversion = DateConversion.EAGER;
+    }
+    
+    /**
+     * Creates a new instance that converts dates the given way
+     * 
+     * @param dateConversion When to convert Strings to Dates
+     */
+    public DotNotationList(DateConversion dateConversion){
+        this.dateConversion = dateConversion;
+    }
     
     /**
      * Creates a new instance by copying the contents of the given list
      * @param l The list to copy
      */
     public DotNotationList(List<T> l){
+        this(l, DateConversion.EAGER);
+    }
+    
+    /**
+     * Creates a new instance by copying the contents of the given list and
+     * converting dates the given way
+     * 
+     * @param l The list to copy
+     * @param dateConversion When to convert Strings to Dates
+     */
+    public DotNotationList(List<T> l, DateConversion dateConversion){
+        this.dateConversion = dateConversion;
         if (l != null){
             for(int i = 0; i < l.size(); i++){
                 this.setValueInternal(i, l.get(i));
@@ -48,34 +73,74 @@ public class DotNotationList<T> extends LinkedList<T> implements JsonProducer{
      */
     public <T> T getProperty(String propertyPath){
         //Example: myList.getProperty("1.thing.2.thing2");
-        
-        String[] path = propertyPath.split("\\.");
-        String token = path[0];
-        
+        return getProperty(new PropertyPath(propertyPath));
+    }
+    
+    /**
+     * Gets the value from this and sub lists by a property path that has
+     * already been split into its segments.
+     * 
+     * @param <T> The return type to cast the value to
+     * @param propertyPath The property path
+     * @return The data at that location or null
+     */
+    public <T> T getProperty(PropertyPath propertyPath){
+        return getProperty(propertyPath, 0);
+    }
+    
+    /**
+     * Gets the value from this list starting at the given segment of the path.
+     * 
+     * @param <T> The return type to cast the value to
+     * @param propertyPath The property path
+     * @param segment The position of the segment that is an index in this list
+     * @return The data at that location or null
+     */
+    <T> T getProperty(PropertyPath propertyPath, int segment){
+        int index = propertyPath.getIndex(segment);
         //if it is a number
-        if (token.matches("^\\d+$")){
-            //if the entire path is only 1 token then return the value
-            Object val = super.get(Integer.parseInt(token));
-            if (path.length == 1){
+        if (index >= 0){
+            Object val = super.get(index);
+            //if there are no more tokens then return the value
+            if (propertyPath.isLast(segment)){
                 return (T)val;
             }
-            String nextPath = propertyPath.replaceFirst(token + "\\.", "");
             if (val instanceof DotNotationList){
-                return (T)((DotNotationList)val).getProperty(nextPath);
+                return (T)((DotNotationList)val).getProperty(propertyPath, segment + 1);
             }else if (val instanceof DotNotationMap){
-                return ((DotNotationMap)val).getProperty(nextPath);
+                return ((DotNotationMap)val).getProperty(propertyPath, segment + 1);
             }else{
                 return null;
             }
         }else{
             if (super.size() == 1 && super.get(0) instanceof DotNotationMap){
-                return ((DotNotationMap)super.get(0)).getProperty(propertyPath);
+                return ((DotNotationMap)super.get(0)).getProperty(propertyPath, segment);
             }
-            Logger.getLogger(this.getClass().getName()).log(Level.SEVERE, "You cannot traverse a list with a the token {0} because it is not an integer", token);
+            Logger.getLogger(this.getClass().getName()).log(Level.SEVERE, "You cannot traverse a list with a the token {0} because it is not an integer", propertyPath.getSegment(segment));
             return null;
         }
     }
    
+    /**
+     * Gets the way that this list converts dates
+     * 
+     * @return When to convert Strings to Dates
+     */
+    public DateConversion getDateConversion(){
+        return dateConversion;
+    }
+    
+    /**
+     * Gets a value as a Date. A String value is parsed by {@link DateUtil}
+     * which is how the value is read from a list that converts dates lazily.
+     * 
+     * @param propertyPath The dot notation key to retrieve the data by
+     * @return The date or null if the value is not a date
+     */
+    public Date getDate(String propertyPath){
+        return DateUtil.toDate(getProperty(propertyPath));
+    }
+    
     /**
      * Sets the value in this list at the given path
      * 
@@ -95,11 +160,11 @@ public class DotNotationList<T> extends LinkedList<T> implements JsonProducer{
                 String nextToken = path[1];
                 if (index > this.size() - 1 || super.get(index) == null){
                     if (nextToken.matches("^\\d+$")){
-                        DotNotationList list = new DotNotationList();
+                        DotNotationList list = new DotNotationList(dateConversion);
                         list.setProperty(propertyPath.replaceFirst(token + "\\.", ""), propertyValue);
                         this.setValueInternal(index, (T)list);
                     }else{
-                        DotNotationMap map = new DotNotationMap();
+                        DotNotationMap map = new DotNotationMap(dateConversion);
                         map.setProperty(propertyPath.replaceFirst(token + "\\.", ""), propertyValue);
                         this.setValueInternal(index, (T)map);
                     }
@@ -149,14 +214,14 @@ public class DotNotationList<T> extends LinkedList<T> implements JsonProducer{
                 if (value instanceof DotNotationMap){
                     valueToAdd = value;
                 }else{
-                    valueToAdd = new DotNotationMap((Map)value);
+                    valueToAdd = new DotNotationMap((Map)value, dateConversion);
                 }
             }
         }else if (value instanceof List){
             if (value instanceof DotNotationList){
                 valueToAdd = value;
             }else{
-                valueToAdd = new DotNotationList((List)value);
+                valueToAdd = new DotNotationList((List)value, dateConversion);
             }
         }else{
             valueToAdd = convertValue(value);
@@ -174,41 +239,71 @@ public class DotNotationList<T> extends LinkedList<T> implements JsonProducer{
         String key = (String)k;
         
         if (key.contains(".")){
-            String[] path = key.split("\\.");
-            String token = path[0];
-            if (token.matches("^\\d+$")){
-                int index = Integer.valueOf(token);
-                if (index < this.size()){
-                    Object val = super.get(index);
-                    if (val instanceof DotNotationMap){
-                        return ((DotNotationMap)val).containsKey(key.replaceFirst(token + "\\.", ""));
-                    }else if (val instanceof DotNotationList){
-                        return ((DotNotationList)val).containsKey(key.replaceFirst(token + "\\.", ""));
-                    }else{
-                        return false;
-                    }
+            return containsKey(new PropertyPath(key), 0);
+        }else{
+            int index = Integer.valueOf(key);
+            return index < this.size();
+        }
+    }
+    
+    /**
+     * Determines if this list contains a value by a property path that has
+     * already been split into its segments.
+     * 
+     * @param propertyPath The property path
+     * @return true if the value exists
+     */
+    public boolean containsKey(PropertyPath propertyPath){
+        return containsKey(propertyPath, 0);
+    }
+    
+    /**
+     * Determines if this list contains a value starting at the given segment
+     * of the path.
+     * 
+     * @param propertyPath The property path
+     * @param segment The position of the segment that is an index in this list
+     * @return true if the value exists
+     */
+    boolean containsKey(PropertyPath propertyPath, int segment){
+        String token = propertyPath.getSegment(segment);
+        int index = propertyPath.getIndex(segment);
+        if (propertyPath.isLast(segment)){
+            if (index < 0){
+                //not an integer so let it fail the same way as a String key
+                index = Integer.valueOf(token);
+            }
+            return index < this.size();
+        }
+        if (index >= 0){
+            if (index < this.size()){
+                Object val = super.get(index);
+                if (val instanceof DotNotationMap){
+                    return ((DotNotationMap)val).containsKey(propertyPath, segment + 1);
+                }else if (val instanceof DotNotationList){
+                    return ((DotNotationList)val).containsKey(propertyPath, segment + 1);
                 }else{
                     return false;
                 }
             }else{
-                throw new IllegalArgumentException("You cannot access a list with the tocken " + token + ". It must be an integer");
+                return false;
             }
         }else{
-            int index = Integer.valueOf(key);
-            return index < this.size();
+            throw new IllegalArgumentException("You cannot access a list with the tocken " + token + ". It must be an integer");
         }
     }
     
     /**
      * Check to see if the value is a string and that it can be parsed by the
-     * {@link DateUtil}, it it is then it parses the string into a Date object.
+     * {@link IsoDateUtil}, it it is then it parses the string into a Date object.
+     * Strings are left alone when this list converts dates lazily.
      * 
      * @param value The object to convert
      * @return The converted value
      */
     public Object convertValue(Object value){
-        if (value instanceof String){
-            Date date = DateUtil.parseString((String)value);
+        if (value instanceof String && dateConversion == DateConversion.EAGER){
+            Date date = IsoDateUtil.parseString((String)value);
             if (date != null){
                 return date;
             }else{
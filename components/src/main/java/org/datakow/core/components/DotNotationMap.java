@@ -15,14 +15,31 @@ import java.util.Map;
  * then you can just call dotNotationMap.getProperty("Doc.Property.SubProperty") and the 
  * method will recursively descend and retrieve the property. The DotNotationMap.setProperty() 
  * method will also create properties at any depth using dot notation.
+ * <p>
+ * By default any String value that looks like a date is converted to a Date
+ * when it is stored. See {@link DateConversion} to keep the Strings as they
+ * are and only convert them when they are read with {@link #getDate(String)}.
  * @author kevin.off
  */
 public class DotNotationMap extends LinkedHashMap<String, Object> implements JsonProducer {
+    
+    private final DateConversion dateConversion;
      
     /**
      * Creates an instance
      */
-    public DotNotationMap(){}
+    public DotNotationMap(){
+        this.dateConversion = DateConversion.EAGER;
+    }
+    
+    /**
+     * Creates an instance that converts dates the given way
+     * 
+     * @param dateConversion When to convert Strings to Dates
+     */
+    public DotNotationMap(DateConversion dateConversion){
+        this.dateConversion = dateConversion;
+    }
     
     /**
      * Creates an instance by copying the values from the given map
@@ -30,6 +47,18 @@ public class DotNotationMap extends LinkedHashMap<String, Object> implements Jso
      * @param vals The map to copy
      */
     public DotNotationMap(Map<String, ?> vals){
+        this(vals, DateConversion.EAGER);
+    }
+    
+    /**
+     * Creates an instance by copying the values from the given map and
+     * converting dates the given way
+     * 
+     * @param vals The map to copy
+     * @param dateConversion When to convert Strings to Dates
+     */
+    public DotNotationMap(Map<String, ?> vals, DateConversion dateConversion){
+        this.dateConversion = dateConversion;
         this.putAll(vals);
     }
     
@@ -39,9 +68,19 @@ public class DotNotationMap extends LinkedHashMap<String, Object> implements Jso
      * @param map The map to copy
      */
     public DotNotationMap(DotNotationMap map){
+        this.dateConversion = map.dateConversion;
         super.putAll(map);
     }
     
+    /**
+     * Gets the way that this map converts dates
+     * 
+     * @return When to convert Strings to Dates
+     */
+    public DateConversion getDateConversion(){
+        return dateConversion;
+    }
+    
     /**
      * Gets a property from the map by a given dot notation string.
      * 
@@ -50,22 +89,51 @@ public class DotNotationMap extends LinkedHashMap<String, Object> implements Jso
      * @return The value or null
      */
     public <T> T getProperty(String propertyPath){
-        String[] path = propertyPath.split("\\.");
-        
-        String token = path[0];
+        if (propertyPath.indexOf('.') < 0){
+            //a single token does not need to be split
+            return (T)super.get(propertyPath);
+        }
+        return getProperty(new PropertyPath(propertyPath));
+    }
+    
+    /**
+     * Gets a property from the map by a property path that has already been
+     * split into its segments.
+     * <p>
+     * Use this when the same property is read from many maps so the path is
+     * only split once.
+     * 
+     * @param <T> the assumed return type
+     * @param propertyPath The property path
+     * @return The value or null
+     */
+    public <T> T getProperty(PropertyPath propertyPath){
+        return getProperty(propertyPath, 0);
+    }
+    
+    /**
+     * Gets a property from the map starting at the given segment of the path.
+     * 
+     * @param <T> the assumed return type
+     * @param propertyPath The property path
+     * @param segment The position of the segment that is a key in this map
+     * @return The value or null
+     */
+    <T> T getProperty(PropertyPath propertyPath, int segment){
+        String token = propertyPath.getSegment(segment);
         //If the base token exists
-        if (this.containsKey(token)){
+        if (super.containsKey(token)){
             //Get the value of the base token
             Object val = super.get(token);
-            //if the entire path is only 1 token then return the value
-            if (path.length == 1){
+            //if there are no more tokens then return the value
+            if (propertyPath.isLast(segment)){
                 return (T)val;            
             }else if (val instanceof DotNotationMap){
                 //if the value is an instance of a DotNotationMap then get the property from it
-                return ((DotNotationMap)val).getProperty(propertyPath.replaceFirst(token + "\\.", "")); 
+                return ((DotNotationMap)val).getProperty(propertyPath, segment + 1); 
             }else if(val instanceof DotNotationList){
-                //If the value is a list then we can create a new Dot Notation List with the remaining path
-                return (T)((DotNotationList)val).getProperty(propertyPath.replaceFirst(token + "\\.", ""));
+                //If the value is a list then get the property from the list with the remaining path
+                return (T)((DotNotationList)val).getProperty(propertyPath, segment + 1);
             }else{
                 //if the value was not a list or a map and there are more tokens to parse then this is the end of the road
                 return null;
@@ -75,6 +143,28 @@ public class DotNotationMap extends LinkedHashMap<String, Object> implements Jso
         }
     }
     
+    /**
+     * Gets a property as a Date. A String value is parsed by {@link DateUtil}
+     * which is how the value is read from a map that converts dates lazily.
+     * 
+     * @param propertyPath The dot notation string
+     * @return The date or null if the value is not a date
+     */
+    public Date getDate(String propertyPath){
+        return DateUtil.toDate(getProperty(propertyPath));
+    }
+    
+    /**
+     * Gets a property as a Date by a property path that has already been
+     * split into its segments.
+     * 
+     * @param propertyPath The property path
+     * @return The date or null if the value is not a date
+     */
+    public Date getDate(PropertyPath propertyPath){
+        return DateUtil.toDate(getProperty(propertyPath));
+    }
+    
     /**
      * Sets a property in the map using a dot notation string
      * 
@@ -90,7 +180,7 @@ public class DotNotationMap extends LinkedHashMap<String, Object> implements Jso
             this.setValueInternal(token, propertyValue);
         }else{
             if (!this.containsKey(token)){
-                DotNotationMap map = new DotNotationMap();
+                DotNotationMap map = new DotNotationMap(dateConversion);
                 map.setProperty(propertyPath.replaceFirst(token + "\\.", ""), propertyValue);
                 this.setValueInternal(token, map);
             }else{
@@ -130,14 +220,14 @@ public class DotNotationMap extends LinkedHashMap<String, Object> implements Jso
                 if (value instanceof DotNotationMap){
                     super.put(key, value);
                 }else{
-                    super.put(key, new DotNotationMap((Map)value));
+                    super.put(key, new DotNotationMap((Map)value, dateConversion));
                 }
             }
         }else if (value instanceof List){
             if (value instanceof DotNotationList){
                 super.put(key, value);
             }else{
-                super.put(key, new DotNotationList((List)value));
+                super.put(key, new DotNotationList((List)value, dateConversion));
             }
         }else{
             super.put(key, convertValue(key, value));
@@ -146,7 +236,8 @@ public class DotNotationMap extends LinkedHashMap<String, Object> implements Jso
     
     /**
      * Check to see if the value is a string and that it can be parsed by the
-     * {@link DateUtil}, it it is then it parses the string into a Date object.
+     * {@link IsoDateUtil}, it it is then it parses the string into a Date object.
+     * Strings are left alone when this map converts dates lazily.
      * 
      * @param key The property name
      * @param value The object to convert
@@ -154,8 +245,8 @@ public class DotNotationMap extends LinkedHashMap<String, Object> implements Jso
      */
     public Object convertValue(String key, Object value){
        
-        if (value instanceof String){
-            Date date = DateUtil.parseString((String)value);
+        if (value instanceof String && dateConversion == DateConversion.EAGER){
+            Date date = IsoDateUtil.parseString((String)value);
             if (date != null){
                 return date;
             }else{
@@ -191,22 +282,47 @@ public class DotNotationMap extends LinkedHashMap<String, Object> implements Jso
     public boolean containsKey(Object k) {
         String key = (String)k;
         if (key.contains(".")){
-            String[] path = key.split("\\.");
-            String token = path[0];
-            if (super.containsKey(token)){
-                Object val = super.get(token);
-                if (val instanceof DotNotationMap){
-                    return ((DotNotationMap)val).containsKey(key.replaceFirst(token + "\\.", ""));
-                }else if (val instanceof DotNotationList){
-                    return ((DotNotationList)val).containsKey(key.replaceFirst(token + "\\.", ""));
-                }else{
-                    throw new IllegalStateException("The next value in the chain after " + token + " should be a DotNotationMap or a DotNotationList");
-                }
+            return containsKey(new PropertyPath(key), 0);
+        }else{
+            return super.containsKey(k);
+        }
+    }
+    
+    /**
+     * Determines if the map contains a property by a property path that has
+     * already been split into its segments.
+     * 
+     * @param propertyPath The property path
+     * @return true if the property exists
+     */
+    public boolean containsKey(PropertyPath propertyPath){
+        return containsKey(propertyPath, 0);
+    }
+    
+    /**
+     * Determines if the map contains a property starting at the given segment
+     * of the path.
+     * 
+     * @param propertyPath The property path
+     * @param segment The position of the segment that is a key in this map
+     * @return true if the property exists
+     */
+    boolean containsKey(PropertyPath propertyPath, int segment){
+        String token = propertyPath.getSegment(segment);
+        if (propertyPath.isLast(segment)){
+            return super.containsKey(token);
+        }
+        if (super.containsKey(token)){
+            Object val = super.get(token);
+            if (val instanceof DotNotationMap){
+                return ((DotNotationMap)val).containsKey(propertyPath, segment + 1);
+            }else if (val instanceof DotNotationList){
+                return ((DotNotationList)val).containsKey(propertyPath, segment + 1);
             }else{
-                return false;
+                throw new IllegalStateException("The next value in the chain after " + token + " should be a DotNotationMap or a DotNotationList");
             }
         }else{
-            return super.containsKey(k);
+            return false;
         }
     }
     
@@ -224,6 +340,19 @@ public class DotNotationMap extends LinkedHashMap<String, Object> implements Jso
         
     }
     
+    /**
+     * Parses the JSON into a map that converts dates the given way
+     * 
+     * @param json The JSON object
+     * @param dateConversion When to convert Strings to Dates
+     * @return The parsed map
+     * @throws JsonProcessingException On a parse exception
+     */
+    public static DotNotationMap fromJson(String json, DateConversion dateConversion) throws JsonProcessingException {
+        DatakowObjectMapper mapper = DatakowObjectMapper.getDatakowObjectMapper();
+        return mapper.readerForUpdating(new DotNotationMap(dateConversion)).readValue(json);
+    }
+    
     @Override
     public Object remove(Object key){
         if (((String)key).contains(".")){
@@ -0,0 +1,285 @@
+package org.datakow.core.components;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+/**
+ * A java.time implementation of {@link DateUtil} that accepts and produces
+ * exactly the same strings.
+ * <p>
+ * Date strings are read by a scanner that walks the characters once and
+ * fills in the fields directly instead of matching a regex, rebuilding the
+ * string and handing it to a new SimpleDateFormat. Dates are written with
+ * DateTimeFormatters that are created once and shared by every thread.
+ * <p>
+ * Anything the scanner does not handle the same way as SimpleDateFormat is
+ * passed to {@link DateUtil}. That is out of range fields that
+ * SimpleDateFormat rolls over (2016-02-30), unusual offsets such as +130,
+ * and dates before the Gregorian calendar was adopted.
+ *
+ * @author kevin.off
+ */
+public class IsoDateUtil {
+
+    private static final DateTimeFormatter UTC_FORMATTER =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss'Z'").withZone(ZoneOffset.UTC);
+    private static final DateTimeFormatter OFFSET_FORMATTER =
+            DateTimeFormatter.ofPattern(DateUtil.simpleDateFormatString);
+
+    /**
+     * The earliest time that SimpleDateFormat and java.time agree on.
+     * Before it SimpleDateFormat uses the Julian calendar.
+     */
+    private static final long GREGORIAN_CUTOVER = new GregorianCalendar().getGregorianChange().getTime();
+    /**
+     * The first instant of the year 10000 which SimpleDateFormat and
+     * DateTimeFormatter write differently
+     */
+    private static final long YEAR_10000 = 253402300800000L;
+
+    private static final Date NOT_HANDLED = new Date(Long.MIN_VALUE);
+
+    /**
+     * Parses a date, converts the time to UTC, and returns a formatted string.
+     *
+     * @param date The date object to convert
+     * @return The formatted date string: yyyy-MM-dd'T'HH:mm:ssZ
+     */
+    public static String dateToUTCString(Date date){
+        long time = date.getTime();
+        if (!isFormattable(time)){
+            return DateUtil.dateToUTCString(date);
+        }
+        return UTC_FORMATTER.format(Instant.ofEpochMilli(time));
+    }
+
+    /**
+     * Parses the Date object and moves the time to the given time zone then serializes the string.
+     *
+     * @param date The date to parse
+     * @param timeZone The time zone to convert to
+     * @return The formatted date string: yyyy-MM-dd'T'HH:mm:ssZ
+     */
+    public static String dateToString(Date date, TimeZone timeZone){
+        return format(date.getTime(), timeZone);
+    }
+
+    /**
+     * Parses a Calendar object and returns a formatted string in its time zone.
+     *
+     * @param calendar The date object to convert
+     * @return The formatted date string: yyyy-MM-dd'T'HH:mm:ssZ
+     */
+    public static String calendarToString(Calendar calendar){
+        return format(calendar.getTimeInMillis(), calendar.getTimeZone());
+    }
+
+    private static String format(long time, TimeZone timeZone){
+        if (!isFormattable(time)){
+            Calendar calendar = Calendar.getInstance(timeZone);
+            calendar.setTimeInMillis(time);
+            return DateUtil.calendarToString(calendar);
+        }
+        //use the offset of the TimeZone because its history can differ from the ZoneId's
+        ZoneOffset offset = ZoneOffset.ofTotalSeconds(timeZone.getOffset(time) / 1000);
+        String returnString = OFFSET_FORMATTER.format(Instant.ofEpochMilli(time).atOffset(offset));
+        if (returnString.endsWith("+0000")){
+            returnString = returnString.substring(0, returnString.length() - 5) + "Z";
+        }
+        return returnString;
+    }
+
+    private static boolean isFormattable(long time){
+        //a day either side so the local date is in range in any time zone
+        return time >= GREGORIAN_CUTOVER + 86400000L && time < YEAR_10000 - 86400000L;
+    }
+
+    /**
+     * Parses a string that represents a date and converts it to a Date object.
+     *
+     * @param date The date string
+     * @return The converted Date object or null if it won't parse
+     */
+    public static Date parseString(String date){
+        String trimmed = date.trim();
+        Date parsed = scan(trimmed);
+        if (parsed == NOT_HANDLED){
+            return DateUtil.parseString(trimmed);
+        }
+        return parsed;
+    }
+
+    /**
+     * Reads the string the same way as the {@link DateUtil} regex:
+     * ^(\d{4})-?(\d{2})-?(\d{2})[T ]?(\d{2}):?(\d{2}):?(\d{2})(\.\d{3})?(Z|[+-][\d:]{1,5})?$
+     *
+     * @param s The trimmed date string
+     * @return The date, null if it does not match or NOT_HANDLED if it
+     * has to be parsed by DateUtil
+     */
+    private static Date scan(String s){
+        int length = s.length();
+        //the shortest match is yyyyMMddHHmmss
+        if (length < 14){
+            return null;
+        }
+        int pos = 0;
+        int year = digits(s, pos, 4);
+        if (year < 0){
+            return null;
+        }
+        pos += 4;
+        if (s.charAt(pos) == '-'){
+            pos++;
+        }
+        int month = digits(s, pos, 2);
+        if (month < 0){
+            return null;
+        }
+        pos += 2;
+        if (pos < length && s.charAt(pos) == '-'){
+            pos++;
+        }
+        int day = digits(s, pos, 2);
+        if (day < 0){
+            return null;
+        }
+        pos += 2;
+        if (pos < length && (s.charAt(pos) == 'T' || s.charAt(pos) == ' ')){
+            pos++;
+        }
+        int hour = digits(s, pos, 2);
+        if (hour < 0){
+            return null;
+        }
+        pos += 2;
+        if (pos < length && s.charAt(pos) == ':'){
+            pos++;
+        }
+        int minute = digits(s, pos, 2);
+        if (minute < 0){
+            return null;
+        }
+        pos += 2;
+        if (pos < length && s.charAt(pos) == ':'){
+            pos++;
+        }
+        int second = digits(s, pos, 2);
+        if (second < 0){
+            return null;
+        }
+        pos += 2;
+        if (pos < length && s.charAt(pos) == '.'){
+            //the milliseconds have to be there but they are not used
+            if (digits(s, pos + 1, 3) < 0){
+                return null;
+            }
+            pos += 4;
+        }
+
+        int offsetSeconds = 0;
+        if (pos < length){
+            char c = s.charAt(pos);
+            if (c == 'Z'){
+                pos++;
+            }else if (c == '+' || c == '-'){
+                int end = pos + 1;
+                while(end < length && end - pos <= 5 && (isDigit(s.charAt(end)) || s.charAt(end) == ':')){
+                    end++;
+                }
+                if (end == pos + 1 || end != length){
+                    return null;
+                }
+                offsetSeconds = offsetSeconds(s, pos + 1, end);
+                if (offsetSeconds == Integer.MIN_VALUE){
+                    return NOT_HANDLED;
+                }
+                if (c == '-'){
+                    offsetSeconds = -offsetSeconds;
+                }
+                pos = end;
+            }
+        }
+        if (pos != length){
+            return null;
+        }
+
+        if (year < 1583 || month < 1 || month > 12 || day < 1 || hour > 23 || minute > 59 || second > 59){
+            return NOT_HANDLED;
+        }
+        if (day > 28 && day > LocalDate.of(year, month, 1).lengthOfMonth()){
+            return NOT_HANDLED;
+        }
+        long epochSecond = LocalDate.of(year, month, day).toEpochDay() * 86400L + hour * 3600 + minute * 60 + second - offsetSeconds;
+        return new Date(epochSecond * 1000L);
+    }
+
+    /**
+     * Reads the offset the same way that DateUtil formats it for parsing.
+     * The colons are ignored and what is left is read as hhmm, h00, 0h or h.
+     *
+     * @return The offset in seconds or Integer.MIN_VALUE if it is some other form
+     */
+    private static int offsetSeconds(String s, int from, int to){
+        int value = 0;
+        int count = 0;
+        char first = 0;
+        for(int i = from; i < to; i++){
+            char c = s.charAt(i);
+            if (c != ':'){
+                if (count == 0){
+                    first = c;
+                }
+                value = value * 10 + (c - '0');
+                count++;
+            }
+        }
+        int hours;
+        int minutes;
+        if (count == 4){
+            hours = value / 100;
+            minutes = value % 100;
+        }else if (count == 3 && value % 100 == 0){
+            hours = value / 100;
+            minutes = 0;
+        }else if (count == 2 && first == '0'){
+            hours = value;
+            minutes = 0;
+        }else if (count == 1){
+            hours = value;
+            minutes = 0;
+        }else{
+            return Integer.MIN_VALUE;
+        }
+        if (hours > 23 || minutes > 59){
+            return Integer.MIN_VALUE;
+        }
+        return hours * 3600 + minutes * 60;
+    }
+
+    private static int digits(String s, int from, int count){
+        if (from + count > s.length()){
+            return -1;
+        }
+        int value = 0;
+        for(int i = from; i < from + count; i++){
+            char c = s.charAt(i);
+            if (!isDigit(c)){
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static boolean isDigit(char c){
+        return c >= '0' && c <= '9';
+    }
+
+}
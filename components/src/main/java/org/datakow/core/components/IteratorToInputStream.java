@@ -1,22 +1,55 @@
 package org.datakow.core.components;
 
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
 import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 /**
  * Class used to convert an Iterator or strings to an input stream. 
  * <p>
  * During the conversion it is also possible to supply a prefix, suffix, and
  * a separator string.
+ * <p>
+ * The values are encoded as UTF-8 into a byte buffer that is reused for the
+ * whole stream and taken from a shared pool, so reading through it does not
+ * create a byte array per value. By default one value is loaded at a time.
+ * {@link #setBatchSize(int)} loads several small values per refill.
+ * Close the stream, or read it to the end, to give the buffer back to the pool.
  * 
  * @author kevin.off
  */
 public class IteratorToInputStream extends InputStream {
 
+        /**
+         * The size of the pooled buffers
+         */
+        public static final int BUFFER_SIZE = 8192;
+        
+        /**
+         * Buffers that grow past this size to hold a large value are not pooled
+         */
+        private static final int MAX_POOLED_BUFFER_SIZE = 256 * 1024;
+        private static final BlockingQueue<byte[]> BUFFER_POOL = new ArrayBlockingQueue<>(32);
+        
         private Iterator iterator;
         private byte[] buf = null;
         private int pos = 0;
         private int count = 0;
+        private boolean started = false;
+        private boolean finished = false;
+        private boolean afterValue = false;
+        private int batchSize = 1;
+        private final StringBuilder chars = new StringBuilder();
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
         
         protected String prefix = "";
         protected String separator = "";
@@ -71,45 +104,130 @@ public class IteratorToInputStream extends InputStream {
             this.isJsonProducer = true;
         }
         
+        /**
+         * Sets the number of values that are loaded into the buffer each time
+         * it runs out. Fewer values are loaded once the buffer is full.
+         * A larger batch means fewer refills for small values but the first
+         * bytes are not available until the whole batch has been read from
+         * the iterator.
+         * 
+         * @param batchSize The number of values per refill. The default is 1
+         * @return This stream
+         */
+        public IteratorToInputStream setBatchSize(int batchSize){
+            if (batchSize < 1){
+                throw new IllegalArgumentException("The batch size must be at least 1");
+            }
+            this.batchSize = batchSize;
+            return this;
+        }
+        
+        /**
+         * Gets the number of values that are loaded into the buffer each time
+         * it runs out
+         * 
+         * @return The batch size
+         */
+        public int getBatchSize(){
+            return batchSize;
+        }
+        
         @Override
         public int read() {
-            reloadIfNeeded();
-            return (pos < count) ? (buf[pos++] & 0xff) : -1;
+            if (!reloadIfNeeded()){
+                return -1;
+            }
+            return buf[pos++] & 0xff;
+        }
+        
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (off < 0 || len < 0 || len > b.length - off){
+                throw new IndexOutOfBoundsException();
+            }
+            if (len == 0){
+                return 0;
+            }
+            int total = 0;
+            while(total < len && reloadIfNeeded()){
+                int n = Math.min(len - total, count - pos);
+                System.arraycopy(buf, pos, b, off + total, n);
+                pos += n;
+                total += n;
+            }
+            return total == 0 ? -1 : total;
+        }
+        
+        @Override
+        public int available() {
+            return count - pos;
         }
         
         /**
-         * Checks to see if we are out of bytes to read on the current item
+         * Gives the buffer back to the pool. The iterator is not closed.
+         */
+        @Override
+        public void close() {
+            finished = true;
+            pos = 0;
+            count = 0;
+            releaseBuffer();
+        }
+        
+        /**
+         * Checks to see if we are out of bytes to read on the current items
          * gathered from the iterator. 
-         * If we are out of bytes then the next item is loaded into the buffer.
+         * If we are out of bytes then the next items are loaded into the buffer.
+         * 
+         * @return false when the end of the stream has been reached
          */
-        private void reloadIfNeeded(){
-            StringBuilder tmp;
-            if (buf == null && prefix != null && !prefix.isEmpty()){
-                initBuffer(prefix);
-            }else if (pos >= count){
-                if (iterator.hasNext()){
-                    if (quotedStrings){
-                        tmp = new StringBuilder("\"" + getNext(this.iterator) + "\"");
-                    }else{
-                        if (isJsonProducer){
-                            try{
-                                tmp =  new StringBuilder(((JsonProducer)getNext(iterator)).toJson());
-                            }catch(Exception ex){
-                                throw new IllegalArgumentException("Problem converting object to JSON", ex);
-                            }
-                        }else{
-                            tmp = new StringBuilder((String)getNext(iterator));
-                        }
-                        
+        private boolean reloadIfNeeded(){
+            while(pos >= count){
+                if (finished){
+                    releaseBuffer();
+                    return false;
+                }
+                chars.setLength(0);
+                if (!started){
+                    started = true;
+                    if (prefix != null){
+                        chars.append(prefix);
+                    }
+                }
+                int loaded = 0;
+                while(loaded < batchSize && chars.length() < BUFFER_SIZE && iterator.hasNext()){
+                    if (afterValue){
+                        chars.append(this.separator);
+                    }
+                    appendNext();
+                    loaded++;
+                }
+                if (!iterator.hasNext()){
+                    if (suffix != null){
+                        chars.append(this.suffix);
                     }
-                    if (iterator.hasNext()){
-                        tmp.append(this.separator);
-                    }else{
-                        tmp.append(this.suffix);
+                    finished = true;
+                }
+                initBuffer(chars);
+            }
+            return true;
+        }
+        
+        private void appendNext(){
+            if (quotedStrings){
+                chars.append('"').append(getNext(this.iterator)).append('"');
+            }else{
+                if (isJsonProducer){
+                    try{
+                        chars.append(((JsonProducer)getNext(iterator)).toJson());
+                    }catch(Exception ex){
+                        throw new IllegalArgumentException("Problem converting object to JSON", ex);
                     }
-                    initBuffer(tmp.toString());
+                }else{
+                    chars.append((String)getNext(iterator));
                 }
             }
+            afterValue = true;
         }
 
         protected Object getNext(Iterator it){
@@ -117,14 +235,45 @@ public class IteratorToInputStream extends InputStream {
         }
         
         /**
-         * Initialize the byte buffer to read from.
+         * Encodes the characters as UTF-8 into the byte buffer.
+         * If they do not fit the buffer is replaced by one that is big enough
+         * and kept for the rest of the stream.
          * 
-         * @param s The string to initialize the buffer with
+         * @param s The characters to initialize the buffer with
          */
-        private void initBuffer(String s){
-            buf = s.getBytes();
-            count = buf.length;
+        private void initBuffer(CharSequence s){
+            if (buf == null){
+                buf = acquireBuffer();
+            }
+            ByteBuffer out = ByteBuffer.wrap(buf);
+            encoder.reset();
+            CoderResult result = encoder.encode(CharBuffer.wrap(s), out, true);
+            if (result.isUnderflow()){
+                result = encoder.flush(out);
+            }
+            if (result.isOverflow()){
+                //every char encodes to at most 3 bytes
+                releaseBuffer();
+                buf = new byte[(int)Math.min(Integer.MAX_VALUE - 8, Math.max(2L * BUFFER_SIZE, (long)s.length() * 3))];
+                out = ByteBuffer.wrap(buf);
+                encoder.reset();
+                encoder.encode(CharBuffer.wrap(s), out, true);
+                encoder.flush(out);
+            }
+            count = out.position();
             pos = 0;
         }
         
+        private static byte[] acquireBuffer(){
+            byte[] pooled = BUFFER_POOL.poll();
+            return pooled != null ? pooled : new byte[BUFFER_SIZE];
+        }
+        
+        private void releaseBuffer(){
+            if (buf != null && buf.length >= BUFFER_SIZE && buf.length <= MAX_POOLED_BUFFER_SIZE){
+                BUFFER_POOL.offer(buf);
+            }
+            buf = null;
+        }
+        
     }
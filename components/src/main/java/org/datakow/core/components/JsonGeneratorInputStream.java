@@ -0,0 +1,195 @@
+package org.datakow.core.components;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * An InputStream of a JSON array of the items of an Iterator.
+ * <p>
+ * Unlike {@link IteratorToInputStream} the items are never turned into
+ * Strings. Each item is written by a {@link JsonItemWriter} to one
+ * JsonGenerator that writes UTF-8 into a byte buffer, and reads are served
+ * straight from that buffer. The buffer is reused for every item and only
+ * grows to the size of the largest one.
+ * 
+ * @author kevin.off
+ * @param <T> The type of the items
+ */
+public class JsonGeneratorInputStream<T> extends InputStream {
+    
+    private static final JsonFactory JSON_FACTORY = new JsonFactory()
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+            .disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+    
+    private final Iterator<T> items;
+    private final JsonItemWriter<T> writer;
+    private final Closeable source;
+    private final ReusableBuffer buffer = new ReusableBuffer();
+    private final JsonGenerator generator;
+    private int pos = 0;
+    private boolean started = false;
+    private boolean finished = false;
+    
+    /**
+     * Creates a stream of the items of the iterator
+     * 
+     * @param items The items to write
+     * @param writer Writes one item to the generator
+     */
+    public JsonGeneratorInputStream(Iterator<T> items, JsonItemWriter<T> writer){
+        this(items, writer, null);
+    }
+    
+    /**
+     * Creates a stream of the items of the iterator
+     * 
+     * @param items The items to write
+     * @param writer Writes one item to the generator
+     * @param source Closed when this stream is closed. May be null
+     */
+    public JsonGeneratorInputStream(Iterator<T> items, JsonItemWriter<T> writer, Closeable source){
+        this.items = items;
+        this.writer = writer;
+        this.source = source;
+        try{
+            this.generator = JSON_FACTORY.createGenerator(buffer, JsonEncoding.UTF8);
+        }catch(IOException ex){
+            //the buffer never throws
+            throw new IllegalStateException(ex);
+        }
+    }
+    
+    /**
+     * Creates a stream that writes each item with the generator's codec.
+     * Use an ObjectMapper such as {@link DatakowObjectMapper#getDatakowDateAwareObjectMapper()}.
+     * 
+     * @param <T> The type of the items
+     * @param items The items to write
+     * @param mapper The mapper used to write each item
+     * @param source Closed when this stream is closed. May be null
+     * @return The stream
+     */
+    public static <T> JsonGeneratorInputStream<T> ofObjects(Iterator<T> items, ObjectMapper mapper, Closeable source){
+        return new JsonGeneratorInputStream<>(items, (item, generator) -> mapper.writeValue(generator, item), source);
+    }
+    
+    @Override
+    public int read() throws IOException {
+        if (!fill()){
+            return -1;
+        }
+        return buffer.bytes[pos++] & 0xff;
+    }
+    
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0){
+            return 0;
+        }
+        if (!fill()){
+            return -1;
+        }
+        int n = Math.min(len, buffer.count - pos);
+        System.arraycopy(buffer.bytes, pos, b, off, n);
+        pos += n;
+        return n;
+    }
+    
+    @Override
+    public int available() {
+        return buffer.count - pos;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        finished = true;
+        pos = buffer.count;
+        if (source != null){
+            source.close();
+        }
+    }
+    
+    /**
+     * Writes the next item into the buffer if the current one has been read
+     * 
+     * @return false when there is nothing left to read
+     */
+    private boolean fill() throws IOException{
+        while(pos >= buffer.count){
+            if (finished){
+                return false;
+            }
+            buffer.count = 0;
+            pos = 0;
+            if (!started){
+                generator.writeStartArray();
+                started = true;
+            }
+            if (items.hasNext()){
+                writer.write(items.next(), generator);
+            }else{
+                generator.writeEndArray();
+                finished = true;
+            }
+            generator.flush();
+        }
+        return true;
+    }
+    
+    /**
+     * Writes an item to a JsonGenerator
+     * 
+     * @param <T> The type of the item
+     */
+    @FunctionalInterface
+    public interface JsonItemWriter<T>{
+        
+        /**
+         * Writes one item
+         * 
+         * @param item The item to write
+         * @param generator The generator to write to
+         * @throws IOException If the item cannot be written
+         */
+        void write(T item, JsonGenerator generator) throws IOException;
+        
+    }
+    
+    /**
+     * An output stream whose bytes can be read without copying them
+     */
+    private static class ReusableBuffer extends OutputStream{
+        
+        byte[] bytes = new byte[8192];
+        int count = 0;
+        
+        @Override
+        public void write(int b) {
+            ensureCapacity(count + 1);
+            bytes[count++] = (byte)b;
+        }
+        
+        @Override
+        public void write(byte[] b, int off, int len) {
+            ensureCapacity(count + len);
+            System.arraycopy(b, off, bytes, count, len);
+            count += len;
+        }
+        
+        private void ensureCapacity(int capacity){
+            if (capacity > bytes.length){
+                bytes = Arrays.copyOf(bytes, Math.max(capacity, bytes.length * 2));
+            }
+        }
+        
+    }
+    
+}
@@ -0,0 +1,135 @@
+package org.datakow.core.components;
+
+/**
+ * A dot notation property path that has been split into its segments once
+ * so that it can be used to look up the same property in many
+ * {@link DotNotationMap}s and {@link DotNotationList}s.
+ * <p>
+ * Looking up a property by a String splits the path and copies what is
+ * left of it at every level. Looking it up by a PropertyPath walks the
+ * segments that were split when the path was created.
+ * <p>
+ * For example:
+ * <pre>
+ * PropertyPath path = new PropertyPath("Doc.geocode.0.value");
+ * for(DotNotationMap record : records){
+ *     Object value = record.getProperty(path);
+ * }
+ * </pre>
+ * Instances are immutable and may be shared between threads.
+ *
+ * @author kevin.off
+ */
+public final class PropertyPath {
+
+    private final String path;
+    private final String[] segments;
+    private final int[] indexes;
+
+    /**
+     * Creates an instance by splitting the dot notation string into its segments
+     *
+     * @param path The dot notation string
+     */
+    public PropertyPath(String path){
+        if (path == null){
+            throw new IllegalArgumentException("The property path cannot be null");
+        }
+        this.path = path;
+        this.segments = path.split("\\.");
+        this.indexes = new int[segments.length];
+        for(int i = 0; i < segments.length; i++){
+            indexes[i] = parseIndex(segments[i]);
+        }
+    }
+
+    /**
+     * Gets the dot notation string that this path was created from
+     *
+     * @return The dot notation string
+     */
+    public String getPath(){
+        return path;
+    }
+
+    /**
+     * Gets the number of segments in the path
+     *
+     * @return The number of segments
+     */
+    public int size(){
+        return segments.length;
+    }
+
+    /**
+     * Gets the segment at the given position
+     *
+     * @param i The position of the segment
+     * @return The segment
+     */
+    public String getSegment(int i){
+        return segments[i];
+    }
+
+    /**
+     * Gets the list index of the segment at the given position.
+     * <p>
+     * A segment that is too large to fit in an int is returned as
+     * Integer.MAX_VALUE which is never a valid index.
+     *
+     * @param i The position of the segment
+     * @return The index or -1 if the segment is not an integer
+     */
+    public int getIndex(int i){
+        return indexes[i];
+    }
+
+    /**
+     * Determines if the segment at the given position is the last one
+     *
+     * @param i The position of the segment
+     * @return true if it is the last segment
+     */
+    boolean isLast(int i){
+        return i == segments.length - 1;
+    }
+
+    private static int parseIndex(String segment){
+        if (segment.isEmpty()){
+            return -1;
+        }
+        long index = 0;
+        for(int i = 0; i < segment.length(); i++){
+            char c = segment.charAt(i);
+            if (c < '0' || c > '9'){
+                return -1;
+            }
+            if (index < Integer.MAX_VALUE){
+                index = index * 10 + (c - '0');
+            }
+        }
+        return (int)Math.min(index, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj){
+            return true;
+        }
+        if (!(obj instanceof PropertyPath)){
+            return false;
+        }
+        return path.equals(((PropertyPath)obj).path);
+    }
+
+    @Override
+    public int hashCode() {
+        return path.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+
+}
@@ -0,0 +1,138 @@
+package org.datakow.core.components;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author kevin.off
+ */
+public class AsyncJsonInputStreamToIteratorTest {
+    
+    public AsyncJsonInputStreamToIteratorTest() {
+    }
+    
+    private static ByteArrayInputStream records(int count){
+        StringBuilder json = new StringBuilder("[");
+        for(int i = 0; i < count; i++){
+            if (i > 0){
+                json.append(",");
+            }
+            json.append("{\"index\":").append(i).append("}");
+        }
+        json.append("]");
+        return new ByteArrayInputStream(json.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testIterator() throws IOException {
+        try(AsyncJsonInputStreamToIterator<DotNotationMap> iterator = AsyncJsonInputStreamToIterator.makeIterator(records(5000), DotNotationMap.class, 16)){
+            int count = 0;
+            while(iterator.hasNext()){
+                assertEquals(Integer.valueOf(count), iterator.next().getProperty("index"));
+                count++;
+            }
+            assertEquals(5000, count);
+        }
+    }
+
+    @Test
+    public void testEmptyArray() throws IOException {
+        AsyncJsonInputStreamToIterator<DotNotationMap> iterator = AsyncJsonInputStreamToIterator.makeIterator(records(0), DotNotationMap.class, 4);
+        assertTrue(iterator.toList().isEmpty());
+    }
+
+    @Test
+    public void testErrorAfterRecords() throws IOException {
+        ByteArrayInputStream stream = new ByteArrayInputStream("[{\"index\":0},{\"index\":1},{\"index\":".getBytes(StandardCharsets.UTF_8));
+        AsyncJsonInputStreamToIterator<DotNotationMap> iterator = AsyncJsonInputStreamToIterator.makeIterator(stream, DotNotationMap.class, 8);
+        List<DotNotationMap> read = new ArrayList<>();
+        try{
+            while(iterator.hasNext()){
+                read.add(iterator.next());
+            }
+            fail("The truncated record should have thrown");
+        }catch(IOException ex){
+            assertEquals(2, read.size());
+        }
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void testClose() throws Exception {
+        AsyncJsonInputStreamToIterator<DotNotationMap> iterator = AsyncJsonInputStreamToIterator.makeIterator(records(1000), DotNotationMap.class, 2);
+        assertEquals(Integer.valueOf(0), iterator.next().getProperty("index"));
+        iterator.close();
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void testPublisher() throws Exception {
+        AsyncJsonInputStreamToIterator<DotNotationMap> publisher = AsyncJsonInputStreamToIterator.makeIterator(records(1000), DotNotationMap.class, 4);
+        List<Object> received = new ArrayList<>();
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(1);
+        publisher.subscribe(new Flow.Subscriber<DotNotationMap>() {
+            private Flow.Subscription subscription;
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(3);
+            }
+            @Override
+            public void onNext(DotNotationMap item) {
+                received.add(item.getProperty("index"));
+                if (received.size() % 3 == 0){
+                    subscription.request(3);
+                }
+            }
+            @Override
+            public void onError(Throwable throwable) {
+                error.set(throwable);
+                done.countDown();
+            }
+            @Override
+            public void onComplete() {
+                done.countDown();
+            }
+        });
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertNull(error.get());
+        assertEquals(1000, received.size());
+        assertEquals(999, received.get(999));
+    }
+
+    @Test
+    public void testSubscribeAfterIterating() throws Exception {
+        AsyncJsonInputStreamToIterator<DotNotationMap> publisher = AsyncJsonInputStreamToIterator.makeIterator(records(10), DotNotationMap.class, 4);
+        publisher.next();
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        publisher.subscribe(new Flow.Subscriber<DotNotationMap>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+            }
+            @Override
+            public void onNext(DotNotationMap item) {
+            }
+            @Override
+            public void onError(Throwable throwable) {
+                error.set(throwable);
+            }
+            @Override
+            public void onComplete() {
+            }
+        });
+        assertTrue(error.get() instanceof IllegalStateException);
+        publisher.close();
+    }
+    
+}
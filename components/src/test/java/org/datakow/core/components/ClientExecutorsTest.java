@@ -0,0 +1,105 @@
+package org.datakow.core.components;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.apache.logging.log4j.ThreadContext;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author kevin.off
+ */
+public class ClientExecutorsTest {
+
+    public ClientExecutorsTest() {
+    }
+
+    @Test
+    public void testPlatformThreads() throws Exception {
+        ExecutorService executor = ClientExecutors.newExecutor("client-test", 2, false);
+        try{
+            Thread thread = ClientExecutors.supplyAsync(Thread::currentThread, executor).get(10, TimeUnit.SECONDS);
+            assertTrue(thread.isDaemon());
+            assertTrue(thread.getName().startsWith("client-test-"));
+        }finally{
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testVirtualThreads() throws Exception {
+        assertEquals(Runtime.version().feature() >= 21, ClientExecutors.isVirtualThreadsAvailable());
+        ExecutorService executor = ClientExecutors.newExecutor("client-test", 1, true);
+        try{
+            assertEquals("done", ClientExecutors.supplyAsync(() -> "done", executor).get(10, TimeUnit.SECONDS));
+        }finally{
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testCheckedExceptionIsTheCause() throws Exception {
+        ExecutorService executor = ClientExecutors.newExecutor("client-test", 1, false);
+        try{
+            CompletableFuture<String> future = ClientExecutors.supplyAsync(() -> {
+                throw new IOException("no connection");
+            }, executor);
+            try{
+                future.get(10, TimeUnit.SECONDS);
+                fail("The call threw an exception");
+            }catch(ExecutionException ex){
+                assertTrue(ex.getCause() instanceof IOException);
+                assertEquals("no connection", ex.getCause().getMessage());
+            }
+        }finally{
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testRejected() throws Exception {
+        ExecutorService executor = ClientExecutors.newExecutor("client-test", 1, false);
+        executor.shutdown();
+        CompletableFuture<String> future = ClientExecutors.supplyAsync(() -> "never", executor);
+        assertTrue(future.isCompletedExceptionally());
+        try{
+            future.get();
+            fail("The executor was shut down");
+        }catch(ExecutionException ex){
+            assertTrue(ex.getCause() instanceof RejectedExecutionException);
+        }
+    }
+
+    @Test
+    public void testCorrelationIdIsPropagated() throws Exception {
+        ExecutorService executor = ClientExecutors.newExecutor("client-test", 1, false);
+        try{
+            ThreadContext.put("correlationId", "caller");
+            assertEquals("caller", ClientExecutors.supplyAsyncWithCorrelationId(
+                    () -> ThreadContext.get("correlationId"), executor).get(10, TimeUnit.SECONDS));
+            //the id is removed from the client thread after the call
+            assertNull(ClientExecutors.supplyAsync(() -> ThreadContext.get("correlationId"), executor).get(10, TimeUnit.SECONDS));
+            
+            //a caller without one is given a new one
+            ThreadContext.remove("correlationId");
+            String correlationId = ClientExecutors.supplyAsyncWithCorrelationId(
+                    () -> ThreadContext.get("correlationId"), executor).get(10, TimeUnit.SECONDS);
+            assertNotNull(correlationId);
+            assertEquals(ThreadContext.get("correlationId"), correlationId);
+        }finally{
+            ThreadContext.remove("correlationId");
+            executor.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoThreads(){
+        ClientExecutors.newExecutor("client-test", 0, false);
+    }
+
+}
@@ -48,6 +48,41 @@ public class DotNotationMapTest {
         
     }
     
+    @Test
+    public void testPropertyPath(){
+        
+        DotNotationMap map = new DotNotationMap();
+        map.setProperty("Sub.Prop", "value");
+        map.setProperty("property", new ArrayList());
+        map.setProperty("property.0.arrayproperty", "someValue");
+        
+        PropertyPath path = new PropertyPath("Sub.Prop");
+        assertEquals("value", map.getProperty(path));
+        assertTrue(map.containsKey(path));
+        
+        path = new PropertyPath("property.0.arrayproperty");
+        assertEquals("someValue", map.getProperty(path));
+        assertTrue(map.containsKey(path));
+        
+        //a list holding a single object can be accessed as the object
+        path = new PropertyPath("property.arrayproperty");
+        assertEquals("someValue", map.getProperty(path));
+        
+        path = new PropertyPath("Sub.Missing");
+        assertNull(map.getProperty(path));
+        assertFalse(map.containsKey(path));
+        
+        path = new PropertyPath("Missing.Prop");
+        assertNull(map.getProperty(path));
+        assertFalse(map.containsKey(path));
+        
+        DotNotationList list = map.getProperty("property");
+        assertEquals("someValue", list.getProperty(new PropertyPath("0.arrayproperty")));
+        assertTrue(list.containsKey(new PropertyPath("0.arrayproperty")));
+        assertFalse(list.containsKey(new PropertyPath("1.arrayproperty")));
+        
+    }
+    
     @Test
     public void testDateConversion() throws JsonProcessingException{
  
@@ -66,6 +101,26 @@ public class DotNotationMapTest {
         
     }
     
+    @Test
+    public void testLazyDateConversion() throws JsonProcessingException{
+        
+        String json = "{\"Date\":\"2016-01-12T02:10:15Z\",\"Sub\":{\"Dates\":[\"2016-01-12T02:10:15Z\"]}}";
+        DotNotationMap eager = DotNotationMap.fromJson(json, DateConversion.EAGER);
+        DotNotationMap lazy = DotNotationMap.fromJson(json, DateConversion.LAZY);
+        
+        assertTrue(eager.getProperty("Date") instanceof Date);
+        assertEquals("2016-01-12T02:10:15Z", lazy.getProperty("Date"));
+        assertEquals("2016-01-12T02:10:15Z", lazy.getProperty("Sub.Dates.0"));
+        assertEquals(eager.getProperty("Date"), lazy.getDate("Date"));
+        assertEquals(eager.getProperty("Sub.Dates.0"), lazy.getDate("Sub.Dates.0"));
+        
+        lazy.setProperty("New.Date", "2016-01-12T02:10:15Z");
+        assertEquals("2016-01-12T02:10:15Z", lazy.getProperty("New.Date"));
+        assertEquals(DateConversion.LAZY, ((DotNotationMap)lazy.getProperty("New")).getDateConversion());
+        assertNull(lazy.getDate("Sub"));
+        
+    }
+    
     @Test
     public void testFlatten(){
         DotNotationMap map = new DotNotationMap();
@@ -0,0 +1,90 @@
+package org.datakow.core.components;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author kevin.off
+ */
+public class IsoDateUtilTest {
+    
+    public IsoDateUtilTest() {
+    }
+
+    private final String outputString = "2016-01-12T02:10:15Z";
+    
+    @Test
+    public void testDateConversion() {
+        List<String> testStrings = Arrays.asList(
+                            "2016-01-12T02:10:15Z",
+                            "2016-01-12T02:10:15.123Z",
+                            "2016-01-11T20:10:15-0600",
+                            "2016-01-11T20:10:15-06:00",
+                            "2016-01-11T20:10:15-600",
+                            "2016-01-11 20:10:15-06:00",
+                            "2016-01-11 20:10:15-6:00",
+                            "2016-01-12 02:10:15",
+                            "20160112T021015Z",
+                            "20160112 021015",
+                            "20160112021015",
+                            "20160112T021015",
+                            "20160111T201015-0600",
+                            "20160111T201015-06",
+                            "20160111 201015-0600",
+                            "20160111 201015-6",
+                            "20160111T201015-06:00",
+                            " 2016-01-12T02:10:15Z ");
+        testStrings.stream().forEach(s->{
+        
+            Date d = IsoDateUtil.parseString(s);
+            Assert.assertNotNull(s, d);
+            Assert.assertEquals(s, DateUtil.parseString(s), d);
+            Assert.assertEquals(s, outputString, IsoDateUtil.dateToUTCString(d));
+            
+        });
+        
+    }
+    
+    @Test
+    public void testSameAsDateUtil() {
+        List<String> testStrings = Arrays.asList(
+                            "2016-02-30T02:10:15Z",
+                            "2016-01-12T24:10:15Z",
+                            "1500-01-12T02:10:15Z",
+                            "2016-01-12T02:10:15+1:30",
+                            "2016-01-12T02:10:15.12Z",
+                            "2016-01-12T02:10:15+123456",
+                            "2016-01-12",
+                            "Not a date");
+        testStrings.stream().forEach(s->{
+            Assert.assertEquals(s, DateUtil.parseString(s), IsoDateUtil.parseString(s));
+        });
+    }
+    
+    @Test
+    public void testCalendarToString(){
+        Calendar cal = Calendar.getInstance(TimeZone.getTimeZone("CST"));
+        cal.set(2017, 6, 19, 14, 53, 40);
+        
+        Assert.assertEquals("2017-07-19T14:53:40-0500", IsoDateUtil.calendarToString(cal));
+        Assert.assertEquals(DateUtil.calendarToString(cal), IsoDateUtil.calendarToString(cal));
+        
+        cal = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        cal.set(2017, 6, 19, 14, 53, 40);
+        Assert.assertEquals("2017-07-19T14:53:40Z", IsoDateUtil.calendarToString(cal));
+    }
+
+    @Test
+    public void testDateToString() {
+        Date d = DateUtil.parseString(outputString);
+        TimeZone timeZone = TimeZone.getTimeZone("America/Chicago");
+        Assert.assertEquals(DateUtil.dateToString(d, timeZone), IsoDateUtil.dateToString(d, timeZone));
+    }
+    
+}
@@ -1,8 +1,13 @@
 package org.datakow.core.components;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import org.apache.commons.io.IOUtils;
 import org.junit.Test;
 import static org.junit.Assert.*;
@@ -57,4 +62,49 @@ public class IteratorToInputStreamTest {
         assertEquals(list.toJson(), string);
     }
     
+    @Test
+    public void testEmptyIterator() throws IOException {
+        IteratorToInputStream stream = IteratorToInputStream.iteratorToJsonArrayInputStream(Collections.<String>emptyIterator());
+        assertEquals("[]", IOUtils.toString(stream));
+        assertEquals(-1, stream.read());
+    }
+
+    @Test
+    public void testUtf8() throws IOException {
+        IteratorToInputStream stream = IteratorToInputStream.iteratorToJsonArrayInputStream(Arrays.asList("caf\u00e9", "\u6771\u4eac", "\ud83c\udf2a").iterator());
+        assertEquals("[\"caf\u00e9\",\"\u6771\u4eac\",\"\ud83c\udf2a\"]", new String(IOUtils.toByteArray(stream), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testBatchedBulkReadMatchesSingleByteRead() throws IOException {
+        List<String> values = new ArrayList<>();
+        StringBuilder large = new StringBuilder();
+        for(int i = 0; i < 5000; i++){
+            large.append("large");
+        }
+        for(int i = 0; i < 2000; i++){
+            values.add(i % 500 == 0 ? large.toString() : "value" + i);
+        }
+        
+        IteratorToInputStream single = IteratorToInputStream.iteratorToJsonArrayInputStream(values.iterator());
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        int b;
+        while((b = single.read()) != -1){
+            expected.write(b);
+        }
+        assertEquals(new DotNotationList<>(values).toJson(), new String(expected.toByteArray(), StandardCharsets.UTF_8));
+        
+        for(int batchSize : new int[]{1, 7, 100, 10000}){
+            IteratorToInputStream bulk = IteratorToInputStream.iteratorToJsonArrayInputStream(values.iterator()).setBatchSize(batchSize);
+            ByteArrayOutputStream actual = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1000];
+            int read;
+            while((read = bulk.read(buffer, 0, buffer.length)) != -1){
+                actual.write(buffer, 0, read);
+            }
+            bulk.close();
+            assertArrayEquals("Batch size " + batchSize, expected.toByteArray(), actual.toByteArray());
+        }
+    }
+    
 }
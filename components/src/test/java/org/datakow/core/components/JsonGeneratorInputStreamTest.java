@@ -0,0 +1,67 @@
+package org.datakow.core.components;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author kevin.off
+ */
+public class JsonGeneratorInputStreamTest {
+    
+    public JsonGeneratorInputStreamTest() {
+    }
+
+    @Test
+    public void testObjectsMatchToJson() throws IOException {
+        DotNotationList<DotNotationMap> list = new DotNotationList<>(
+                Arrays.asList(
+                        DotNotationMap.fromJson("{\"prop\":123}"), 
+                        DotNotationMap.fromJson("{\"prop2\":\"stuff\",\"date\":\"2017-04-24T12:00:00Z\"}"), 
+                        DotNotationMap.fromJson("{\"stuff\":[1,2,3]}")));
+        InputStream stream = JsonGeneratorInputStream.ofObjects(list.iterator(), DatakowObjectMapper.getDatakowDateAwareObjectMapper(), null);
+        String string = IOUtils.toString(stream, StandardCharsets.UTF_8);
+        assertEquals(list.toJson(), string);
+    }
+
+    @Test
+    public void testEmptyIterator() throws IOException {
+        InputStream stream = new JsonGeneratorInputStream<String>(Collections.<String>emptyIterator(), (item, generator) -> generator.writeString(item));
+        assertEquals("[]", IOUtils.toString(stream, StandardCharsets.UTF_8));
+        assertEquals(-1, stream.read());
+    }
+
+    @Test
+    public void testSingleByteReadsOfLargeItems() throws IOException {
+        char[] chars = new char[20000];
+        Arrays.fill(chars, 'x');
+        String big = new String(chars) + "\u00e9";
+        InputStream stream = new JsonGeneratorInputStream<>(Arrays.asList(big, "small", big).iterator(), (item, generator) -> generator.writeString(item));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int b;
+        while((b = stream.read()) != -1){
+            out.write(b);
+        }
+        String expected = "[\"" + big + "\",\"small\",\"" + big + "\"]";
+        assertEquals(expected, new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testCloseClosesSource() throws IOException {
+        AtomicBoolean closed = new AtomicBoolean(false);
+        InputStream stream = new JsonGeneratorInputStream<>(Arrays.asList("one", "two").iterator(), (item, generator) -> generator.writeString(item), () -> closed.set(true));
+        assertEquals('[', stream.read());
+        stream.close();
+        assertTrue(closed.get());
+        assertEquals(-1, stream.read());
+    }
+    
+}
@@ -18,4 +18,7 @@ public class ComparisonOperator {
     public static final String LIKE = "like";
     public static final String EXISTS = "exists";
     public static final String MATCH = "matches";
+    public static final String WITHIN = "within";
+    public static final String INTERSECTS = "intersects";
+    public static final String NEAR = "near";
 }
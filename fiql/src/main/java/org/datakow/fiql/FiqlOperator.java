@@ -63,6 +63,9 @@ public abstract class FiqlOperator extends RSQLOperators {
         set.add(LIKE);
         set.add(EXISTS);
         set.add(MATCH);
+        set.add(WITHIN);
+        set.add(INTERSECT);
+        set.add(NEAR);
         return set;
     }
     
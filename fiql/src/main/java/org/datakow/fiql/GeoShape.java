@@ -0,0 +1,751 @@
+package org.datakow.fiql;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import org.springframework.data.geo.Point;
+import org.springframework.data.mongodb.core.geo.GeoJson;
+import org.springframework.data.mongodb.core.geo.GeoJsonLineString;
+import org.springframework.data.mongodb.core.geo.GeoJsonMultiPoint;
+import org.springframework.data.mongodb.core.geo.GeoJsonMultiPolygon;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.data.mongodb.core.geo.GeoJsonPolygon;
+
+/**
+ * A point, polygon or collection of them that is used to evaluate the
+ * =within=, =intersects= and =near= comparisons of a subscription without
+ * a database.
+ * <p>
+ * Shapes are created from the same Well Known Text that the Mongo queries
+ * use, see {@link MongoCriteriaOperatorAppender#parseWKT(String)}, or from
+ * the GeoJSON objects and legacy [x, y] pairs found in records.
+ * <p>
+ * Coordinates are longitude and latitude in degrees. =within= and
+ * =intersects= treat them as a flat plane, so edges are straight lines in
+ * degrees rather than the great circles Mongo uses. =near= distances are in
+ * meters on a sphere the same as $nearSphere with a GeoJSON point.
+ * Boundaries are part of the shape.
+ * <p>
+ * Shapes are immutable and may be shared between threads.
+ *
+ * @author kevin.off
+ */
+public final class GeoShape {
+
+    /**
+     * The radius of the earth in meters that Mongo uses for spherical queries
+     */
+    public static final double EARTH_RADIUS = 6378100;
+
+    private static final MongoCriteriaOperatorAppender WKT_PARSER = new MongoCriteriaOperatorAppender();
+
+    /**
+     * The points as x, y pairs
+     */
+    private final double[] points;
+    /**
+     * Every polygon is a list of rings, the first is the outside and the rest
+     * are holes. Each ring is x, y pairs.
+     */
+    private final double[][][] polygons;
+    private final double minX;
+    private final double minY;
+    private final double maxX;
+    private final double maxY;
+
+    private GeoShape(double[] points, double[][][] polygons){
+        this.points = points;
+        this.polygons = polygons;
+        double lowX = Double.POSITIVE_INFINITY;
+        double lowY = Double.POSITIVE_INFINITY;
+        double highX = Double.NEGATIVE_INFINITY;
+        double highY = Double.NEGATIVE_INFINITY;
+        for(int i = 0; i < points.length; i += 2){
+            lowX = Math.min(lowX, points[i]);
+            highX = Math.max(highX, points[i]);
+            lowY = Math.min(lowY, points[i + 1]);
+            highY = Math.max(highY, points[i + 1]);
+        }
+        for(double[][] polygon : polygons){
+            //the holes are inside the outer ring
+            double[] ring = polygon[0];
+            for(int i = 0; i < ring.length; i += 2){
+                lowX = Math.min(lowX, ring[i]);
+                highX = Math.max(highX, ring[i]);
+                lowY = Math.min(lowY, ring[i + 1]);
+                highY = Math.max(highY, ring[i + 1]);
+            }
+        }
+        this.minX = lowX;
+        this.minY = lowY;
+        this.maxX = highX;
+        this.maxY = highY;
+    }
+
+    /**
+     * Creates a shape of a single point
+     *
+     * @param x The longitude
+     * @param y The latitude
+     * @return The shape
+     */
+    public static GeoShape point(double x, double y){
+        return new GeoShape(new double[]{x, y}, new double[0][][]);
+    }
+
+    /**
+     * Parses Well Known Text into a shape. POINT, POLYGON and MULTIPOLYGON
+     * are supported.
+     *
+     * @param wkt The Well Known Text
+     * @return The shape
+     * @throws IllegalArgumentException If the text is not a supported shape
+     */
+    public static GeoShape parseWKT(String wkt){
+        GeoJson geoJson;
+        try{
+            geoJson = wkt.indexOf('(') < 0 ? null : WKT_PARSER.parseWKT(wkt.trim());
+        }catch(RuntimeException e){
+            throw new IllegalArgumentException("The shape " + wkt + " is not valid Well Known Text", e);
+        }
+        GeoShape shape = geoJson == null ? null : fromGeoJson(geoJson);
+        if (shape == null){
+            throw new IllegalArgumentException("The shape " + wkt + " must be a POINT, POLYGON or MULTIPOLYGON");
+        }
+        return shape;
+    }
+
+    /**
+     * Creates the shape from the argument of a =within= or =intersects= query
+     *
+     * @param argument The Well Known Text of the shape or a shape
+     * @return The shape
+     * @throws IllegalArgumentException If the argument is not a supported shape
+     */
+    public static GeoShape fromArgument(Object argument){
+        if (argument instanceof GeoShape){
+            return (GeoShape)argument;
+        }else if (argument instanceof String){
+            return parseWKT((String)argument);
+        }
+        throw new IllegalArgumentException("Your shape argument must be a string");
+    }
+
+    /**
+     * Converts a Spring GeoJson object into a shape
+     *
+     * @param geoJson The GeoJson object
+     * @return The shape or null if the type is not supported or it is empty
+     */
+    public static GeoShape fromGeoJson(GeoJson geoJson){
+        ShapeBuilder builder = new ShapeBuilder();
+        if (geoJson instanceof GeoJsonPoint){
+            builder.addPoint(((GeoJsonPoint)geoJson).getX(), ((GeoJsonPoint)geoJson).getY());
+        }else if (geoJson instanceof GeoJsonPolygon){
+            builder.addPolygon((GeoJsonPolygon)geoJson);
+        }else if (geoJson instanceof GeoJsonMultiPolygon){
+            for(GeoJsonPolygon polygon : ((GeoJsonMultiPolygon)geoJson).getCoordinates()){
+                builder.addPolygon(polygon);
+            }
+        }else if (geoJson instanceof GeoJsonMultiPoint && !(geoJson instanceof GeoJsonLineString)){
+            for(Point point : ((GeoJsonMultiPoint)geoJson).getCoordinates()){
+                builder.addPoint(point.getX(), point.getY());
+            }
+        }else{
+            return null;
+        }
+        return builder.build();
+    }
+
+    /**
+     * Reads the value of a record property as a shape.
+     * <p>
+     * The value can be a GeoJSON object with a type of Point, MultiPoint,
+     * Polygon, MultiPolygon or GeometryCollection, a legacy [x, y] pair,
+     * a Well Known Text string or a shape.
+     *
+     * @param value The value from the record
+     * @return The shape or null if the value is not a supported shape
+     */
+    public static GeoShape fromValue(Object value){
+        if (value instanceof GeoShape){
+            return (GeoShape)value;
+        }else if (value instanceof GeoJson){
+            return fromGeoJson((GeoJson)value);
+        }else if (value instanceof String){
+            try{
+                return parseWKT((String)value);
+            }catch(IllegalArgumentException e){
+                return null;
+            }
+        }else if (value instanceof Map || isCoordinatePair(value)){
+            ShapeBuilder builder = new ShapeBuilder();
+            return builder.add(value) ? builder.build() : null;
+        }
+        return null;
+    }
+
+    /**
+     * Tests the shapes in a record value. A collection of shapes passes when
+     * any one of them passes, the same way Mongo treats an array of locations.
+     *
+     * @param value The value from the record
+     * @param test The test to apply to each shape
+     * @return true if a shape passed the test
+     */
+    public static boolean anyShape(Object value, Predicate<GeoShape> test){
+        if (value instanceof Collection && !isCoordinatePair(value)){
+            for(Object element : (Collection)value){
+                if (anyShape(element, test)){
+                    return true;
+                }
+            }
+            return false;
+        }
+        GeoShape shape = fromValue(value);
+        return shape != null && test.test(shape);
+    }
+
+    /**
+     * Gets the western edge of the bounding box
+     *
+     * @return The lowest longitude
+     */
+    public double getMinX(){
+        return minX;
+    }
+
+    /**
+     * Gets the southern edge of the bounding box
+     *
+     * @return The lowest latitude
+     */
+    public double getMinY(){
+        return minY;
+    }
+
+    /**
+     * Gets the eastern edge of the bounding box
+     *
+     * @return The highest longitude
+     */
+    public double getMaxX(){
+        return maxX;
+    }
+
+    /**
+     * Gets the northern edge of the bounding box
+     *
+     * @return The highest latitude
+     */
+    public double getMaxY(){
+        return maxY;
+    }
+
+    /**
+     * Determines if the shape is completely inside this shape. Only the
+     * polygons of this shape can contain anything.
+     *
+     * @param other The shape that should be within this one
+     * @return true if the other shape is within this one
+     */
+    public boolean contains(GeoShape other){
+        if (polygons.length == 0 || other.minX < minX || other.maxX > maxX || other.minY < minY || other.maxY > maxY){
+            return false;
+        }
+        for(int i = 0; i < other.points.length; i += 2){
+            if (!containsPoint(other.points[i], other.points[i + 1])){
+                return false;
+            }
+        }
+        for(double[][] otherPolygon : other.polygons){
+            boolean inside = false;
+            for(double[][] polygon : polygons){
+                if (polygonWithin(otherPolygon, polygon)){
+                    inside = true;
+                    break;
+                }
+            }
+            if (!inside){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Determines if the shapes share at least one point
+     *
+     * @param other The other shape
+     * @return true if they intersect
+     */
+    public boolean intersects(GeoShape other){
+        if (other.maxX < minX || other.minX > maxX || other.maxY < minY || other.minY > maxY){
+            return false;
+        }
+        for(int i = 0; i < other.points.length; i += 2){
+            if (coversPoint(other.points[i], other.points[i + 1])){
+                return true;
+            }
+        }
+        for(int i = 0; i < points.length; i += 2){
+            if (other.coversPoint(points[i], points[i + 1])){
+                return true;
+            }
+        }
+        for(double[][] polygon : polygons){
+            for(double[][] otherPolygon : other.polygons){
+                if (edgesCross(polygon, otherPolygon, false)
+                        || containsPoint(otherPolygon, polygon[0][0], polygon[0][1])
+                        || containsPoint(polygon, otherPolygon[0][0], otherPolygon[0][1])){
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the distance in meters from the point to the nearest part of this
+     * shape. The nearest point of a polygon edge is found on a plane centered
+     * on the point and the distance to it is measured on the sphere, so it is
+     * close for the short distances used with =near=.
+     *
+     * @param x The longitude of the point
+     * @param y The latitude of the point
+     * @return The distance in meters or 0 if the point is inside
+     */
+    public double distance(double x, double y){
+        double distance = Double.POSITIVE_INFINITY;
+        for(int i = 0; i < points.length; i += 2){
+            distance = Math.min(distance, sphericalDistance(x, y, points[i], points[i + 1]));
+        }
+        if (polygons.length > 0){
+            if (containsPoint(x, y)){
+                return 0;
+            }
+            double scaleX = Math.cos(Math.toRadians(y)) * Math.toRadians(EARTH_RADIUS);
+            double scaleY = Math.toRadians(EARTH_RADIUS);
+            for(double[][] polygon : polygons){
+                for(double[] ring : polygon){
+                    for(int i = 0; i < ring.length; i += 2){
+                        int j = (i + 2) % ring.length;
+                        double ax = longitudeDelta(ring[i], x);
+                        //Shift the whole edge so it is not split by the antimeridian
+                        double bx = ax + ring[j] - ring[i];
+                        double t = nearestOnSegment(ax * scaleX, (ring[i + 1] - y) * scaleY,
+                                bx * scaleX, (ring[j + 1] - y) * scaleY);
+                        distance = Math.min(distance, sphericalDistance(x, y,
+                                x + ax + t * (bx - ax), ring[i + 1] + t * (ring[j + 1] - ring[i + 1])));
+                    }
+                }
+            }
+        }
+        return distance;
+    }
+
+    /**
+     * Gets the box of longitudes and latitudes that holds every point within
+     * the distance of the point. It spans every longitude when it would cross
+     * a pole or the antimeridian.
+     *
+     * @param x The longitude of the point
+     * @param y The latitude of the point
+     * @param meters The distance
+     * @return The box as minX, minY, maxX, maxY
+     */
+    public static double[] nearBounds(double x, double y, double meters){
+        double degrees = Math.toDegrees(meters / EARTH_RADIUS);
+        double minY = y - degrees;
+        double maxY = y + degrees;
+        if (minY <= -90 || maxY >= 90){
+            return new double[]{-180, Math.max(minY, -90), 180, Math.min(maxY, 90)};
+        }
+        //The widest part of a circle on a sphere is not at its center latitude
+        double sinLongitude = Math.sin(meters / EARTH_RADIUS) / Math.cos(Math.toRadians(y));
+        double longitudeDegrees = sinLongitude >= 1 ? 180 : Math.toDegrees(Math.asin(sinLongitude));
+        if (x - longitudeDegrees < -180 || x + longitudeDegrees > 180){
+            return new double[]{-180, minY, 180, maxY};
+        }
+        return new double[]{x - longitudeDegrees, minY, x + longitudeDegrees, maxY};
+    }
+
+    /**
+     * Gets the great circle distance between two points
+     *
+     * @return The distance in meters
+     */
+    static double sphericalDistance(double x1, double y1, double x2, double y2){
+        double latitude1 = Math.toRadians(y1);
+        double latitude2 = Math.toRadians(y2);
+        double sinLatitude = Math.sin((latitude2 - latitude1) / 2);
+        double sinLongitude = Math.sin(Math.toRadians(x2 - x1) / 2);
+        double a = sinLatitude * sinLatitude + Math.cos(latitude1) * Math.cos(latitude2) * sinLongitude * sinLongitude;
+        return 2 * EARTH_RADIUS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    private static double longitudeDelta(double x, double origin){
+        double delta = x - origin;
+        if (delta > 180){
+            delta -= 360;
+        }else if (delta < -180){
+            delta += 360;
+        }
+        return delta;
+    }
+
+    /**
+     * Finds the point of the segment nearest to the origin
+     *
+     * @return How far along the segment the point is from 0 to 1
+     */
+    private static double nearestOnSegment(double ax, double ay, double bx, double by){
+        double dx = bx - ax;
+        double dy = by - ay;
+        double lengthSquared = dx * dx + dy * dy;
+        return lengthSquared == 0 ? 0 : Math.max(0, Math.min(1, -(ax * dx + ay * dy) / lengthSquared));
+    }
+
+    private boolean coversPoint(double x, double y){
+        for(int i = 0; i < points.length; i += 2){
+            if (points[i] == x && points[i + 1] == y){
+                return true;
+            }
+        }
+        return containsPoint(x, y);
+    }
+
+    private boolean containsPoint(double x, double y){
+        if (x < minX || x > maxX || y < minY || y > maxY){
+            return false;
+        }
+        for(double[][] polygon : polygons){
+            if (containsPoint(polygon, x, y)){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean containsPoint(double[][] polygon, double x, double y){
+        if (!ringContains(polygon[0], x, y, true)){
+            return false;
+        }
+        for(int i = 1; i < polygon.length; i++){
+            if (ringContains(polygon[i], x, y, false)){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Determines if the point is inside the ring using the even-odd rule
+     *
+     * @param boundary Whether a point on an edge is inside
+     */
+    private static boolean ringContains(double[] ring, double x, double y, boolean boundary){
+        boolean inside = false;
+        for(int i = 0, j = ring.length - 2; i < ring.length; j = i, i += 2){
+            double xi = ring[i];
+            double yi = ring[i + 1];
+            double xj = ring[j];
+            double yj = ring[j + 1];
+            if (onSegment(xj, yj, xi, yi, x, y)){
+                return boundary;
+            }
+            if ((yi > y) != (yj > y) && x < (xj - xi) * (y - yi) / (yj - yi) + xi){
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+
+    /**
+     * Determines if a polygon is inside another. Every vertex has to be
+     * inside, no edges may cross and no hole may be inside the polygon.
+     */
+    private static boolean polygonWithin(double[][] inner, double[][] outer){
+        double[] ring = inner[0];
+        for(int i = 0; i < ring.length; i += 2){
+            if (!containsPoint(outer, ring[i], ring[i + 1])){
+                return false;
+            }
+        }
+        if (edgesCross(inner, outer, true)){
+            return false;
+        }
+        for(int h = 1; h < outer.length; h++){
+            double[] hole = outer[h];
+            for(int i = 0; i < hole.length; i += 2){
+                if (ringContains(ring, hole[i], hole[i + 1], false)){
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Determines if any edge of one polygon crosses an edge of the other
+     *
+     * @param proper Whether edges that only touch are ignored
+     */
+    private static boolean edgesCross(double[][] a, double[][] b, boolean proper){
+        for(double[] ringA : a){
+            for(int i = 0; i < ringA.length; i += 2){
+                int i2 = (i + 2) % ringA.length;
+                for(double[] ringB : b){
+                    for(int j = 0; j < ringB.length; j += 2){
+                        int j2 = (j + 2) % ringB.length;
+                        if (segmentsCross(ringA[i], ringA[i + 1], ringA[i2], ringA[i2 + 1],
+                                ringB[j], ringB[j + 1], ringB[j2], ringB[j2 + 1], proper)){
+                            return true;
+                        }
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean segmentsCross(double ax, double ay, double bx, double by,
+            double cx, double cy, double dx, double dy, boolean proper){
+        double o1 = orientation(ax, ay, bx, by, cx, cy);
+        double o2 = orientation(ax, ay, bx, by, dx, dy);
+        double o3 = orientation(cx, cy, dx, dy, ax, ay);
+        double o4 = orientation(cx, cy, dx, dy, bx, by);
+        if (((o1 > 0 && o2 < 0) || (o1 < 0 && o2 > 0)) && ((o3 > 0 && o4 < 0) || (o3 < 0 && o4 > 0))){
+            return true;
+        }
+        if (proper){
+            return false;
+        }
+        return (o1 == 0 && onSegment(ax, ay, bx, by, cx, cy))
+                || (o2 == 0 && onSegment(ax, ay, bx, by, dx, dy))
+                || (o3 == 0 && onSegment(cx, cy, dx, dy, ax, ay))
+                || (o4 == 0 && onSegment(cx, cy, dx, dy, bx, by));
+    }
+
+    private static double orientation(double ax, double ay, double bx, double by, double cx, double cy){
+        return (bx - ax) * (cy - ay) - (by - ay) * (cx - ax);
+    }
+
+    private static boolean onSegment(double ax, double ay, double bx, double by, double x, double y){
+        return orientation(ax, ay, bx, by, x, y) == 0
+                && x >= Math.min(ax, bx) && x <= Math.max(ax, bx)
+                && y >= Math.min(ay, by) && y <= Math.max(ay, by);
+    }
+
+    private static boolean isCoordinatePair(Object value){
+        if (value instanceof List){
+            List list = (List)value;
+            return list.size() == 2 && list.get(0) instanceof Number && list.get(1) instanceof Number;
+        }
+        return false;
+    }
+
+    /**
+     * Describes the points and polygons of the shape. Shapes with the same
+     * coordinates have the same description.
+     *
+     * @return The description
+     */
+    @Override
+    public String toString(){
+        return "GeoShape(" + Arrays.toString(points) + Arrays.deepToString(polygons) + ")";
+    }
+
+    /**
+     * The =near= comparison of a subscription. Holds the point and the
+     * maximum distance in meters.
+     */
+    public static final class Near {
+        private final double x;
+        private final double y;
+        private final double maxDistance;
+
+        /**
+         * Creates the comparison
+         *
+         * @param x The longitude of the point
+         * @param y The latitude of the point
+         * @param maxDistance The maximum distance in meters
+         */
+        public Near(double x, double y, double maxDistance){
+            this.x = x;
+            this.y = y;
+            this.maxDistance = maxDistance;
+        }
+
+        /**
+         * Creates the comparison from the arguments of a =near= query
+         *
+         * @param argument A list of the longitude, latitude and distance in meters
+         * @return The comparison
+         * @throws IllegalArgumentException If the argument is not three numbers
+         */
+        public static Near fromArgument(Object argument){
+            if (argument instanceof Near){
+                return (Near)argument;
+            }
+            if (!(argument instanceof List) || ((List)argument).size() != 3){
+                throw new IllegalArgumentException("You must specify 3 arguments in a NEAR query");
+            }
+            List values = (List)argument;
+            for(Object value : values){
+                if (!(value instanceof Number)){
+                    throw new IllegalArgumentException("All three arguments to a near query must be numbers.");
+                }
+            }
+            return new Near(((Number)values.get(0)).doubleValue(), ((Number)values.get(1)).doubleValue(), ((Number)values.get(2)).doubleValue());
+        }
+
+        /**
+         * Determines if any shape in the record value is within the distance
+         *
+         * @param value The value from the record
+         * @return true if it is near
+         */
+        public boolean test(Object value){
+            return anyShape(value, (shape) -> shape.distance(x, y) <= maxDistance);
+        }
+
+        /**
+         * Gets the box that holds every point within the distance
+         *
+         * @return The box as minX, minY, maxX, maxY
+         */
+        public double[] getBounds(){
+            return nearBounds(x, y, maxDistance);
+        }
+
+        @Override
+        public String toString(){
+            return "Near(" + x + "," + y + "," + maxDistance + ")";
+        }
+    }
+
+    /**
+     * Collects the points and polygons of a shape
+     */
+    private static final class ShapeBuilder {
+        private final List<Double> points = new ArrayList<>();
+        private final List<double[][]> polygons = new ArrayList<>();
+
+        void addPoint(double x, double y){
+            points.add(x);
+            points.add(y);
+        }
+
+        void addPolygon(GeoJsonPolygon polygon){
+            List<GeoJsonLineString> lines = polygon.getCoordinates();
+            double[][] rings = new double[lines.size()][];
+            for(int i = 0; i < rings.length; i++){
+                List<Point> ringPoints = lines.get(i).getCoordinates();
+                double[] ring = new double[ringPoints.size() * 2];
+                for(int p = 0; p < ringPoints.size(); p++){
+                    ring[p * 2] = ringPoints.get(p).getX();
+                    ring[p * 2 + 1] = ringPoints.get(p).getY();
+                }
+                rings[i] = ring;
+            }
+            addRings(rings);
+        }
+
+        private void addRings(double[][] rings){
+            if (rings.length > 0 && rings[0].length >= 6){
+                polygons.add(rings);
+            }
+        }
+
+        /**
+         * Adds a GeoJSON map or coordinate pair
+         *
+         * @return false if the value is not a supported shape
+         */
+        boolean add(Object value){
+            if (isCoordinatePair(value)){
+                List pair = (List)value;
+                addPoint(((Number)pair.get(0)).doubleValue(), ((Number)pair.get(1)).doubleValue());
+                return true;
+            }
+            if (!(value instanceof Map)){
+                return false;
+            }
+            Map map = (Map)value;
+            Object type = map.get("type");
+            Object coordinates = map.get("coordinates");
+            try{
+                if ("Point".equals(type)){
+                    return add(coordinates);
+                }else if ("MultiPoint".equals(type)){
+                    for(Object point : (List)coordinates){
+                        if (!add(point)){
+                            return false;
+                        }
+                    }
+                    return true;
+                }else if ("Polygon".equals(type)){
+                    return addPolygon((List)coordinates);
+                }else if ("MultiPolygon".equals(type)){
+                    for(Object polygon : (List)coordinates){
+                        if (!addPolygon((List)polygon)){
+                            return false;
+                        }
+                    }
+                    return true;
+                }else if ("GeometryCollection".equals(type)){
+                    for(Object geometry : (List)map.get("geometries")){
+                        if (!add(geometry)){
+                            return false;
+                        }
+                    }
+                    return true;
+                }
+            }catch(ClassCastException | NullPointerException e){
+                return false;
+            }
+            return false;
+        }
+
+        private boolean addPolygon(List coordinates){
+            double[][] rings = new double[coordinates.size()][];
+            for(int i = 0; i < rings.length; i++){
+                List ringPoints = (List)coordinates.get(i);
+                double[] ring = new double[ringPoints.size() * 2];
+                for(int p = 0; p < ringPoints.size(); p++){
+                    if (!isCoordinatePair(ringPoints.get(p))){
+                        return false;
+                    }
+                    List pair = (List)ringPoints.get(p);
+                    ring[p * 2] = ((Number)pair.get(0)).doubleValue();
+                    ring[p * 2 + 1] = ((Number)pair.get(1)).doubleValue();
+                }
+                rings[i] = ring;
+            }
+            addRings(rings);
+            return true;
+        }
+
+        /**
+         * Creates the shape
+         *
+         * @return The shape or null if nothing was added
+         */
+        GeoShape build(){
+            if (points.isEmpty() && polygons.isEmpty()){
+                return null;
+            }
+            double[] flatPoints = new double[points.size()];
+            for(int i = 0; i < flatPoints.length; i++){
+                flatPoints[i] = points.get(i);
+            }
+            return new GeoShape(flatPoints, polygons.toArray(new double[polygons.size()][][]));
+        }
+    }
+
+}
@@ -0,0 +1,177 @@
+package org.datakow.fiql;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * The compiled regular expression of a =like= comparison.
+ * <p>
+ * The pattern has to match the whole value. It is run by the
+ * {@link RegexEngine} it was compiled with, which is
+ * {@link #DEFAULT_ENGINE} unless one is given.
+ * <p>
+ * Patterns that can take super-linear time with the backtracking engine are
+ * found when they are compiled, see {@link #isSuperLinear(String)}. They are
+ * logged, or rejected when rejection is asked for when compiling. The linear
+ * engine does not need the check.
+ * <p>
+ * The engine and policy of the subscriptions of an application are
+ * configured on the {@link SubscriptionFiqlParser} that parses them.
+ * <p>
+ * Instances are immutable and may be shared between threads.
+ *
+ * @author kevin.off
+ */
+public final class LikePattern {
+
+    private static final Logger LOGGER = Logger.getLogger(LikePattern.class.getName());
+
+    /**
+     * The engine that patterns are compiled with when one is not given
+     */
+    public static final RegexEngine DEFAULT_ENGINE = RegexEngine.BACKTRACKING;
+
+    private final String regex;
+    private final RegexEngine engine;
+    private final Pattern backtracking;
+    private final com.google.re2j.Pattern linear;
+
+    private LikePattern(String regex, RegexEngine engine, Pattern backtracking, com.google.re2j.Pattern linear){
+        this.regex = regex;
+        this.engine = engine;
+        this.backtracking = backtracking;
+        this.linear = linear;
+    }
+
+    /**
+     * Compiles the pattern with the {@link #DEFAULT_ENGINE default engine},
+     * logging it if it is super-linear
+     *
+     * @param regex The regular expression
+     * @return The compiled pattern
+     * @throws PatternSyntaxException If the pattern is not valid for the engine
+     */
+    public static LikePattern compile(String regex){
+        return compile(regex, DEFAULT_ENGINE);
+    }
+
+    /**
+     * Compiles the pattern with the given engine, logging it if it is
+     * super-linear
+     *
+     * @param regex The regular expression
+     * @param engine The engine to run the pattern with
+     * @return The compiled pattern
+     * @throws PatternSyntaxException If the pattern is not valid for the engine
+     */
+    public static LikePattern compile(String regex, RegexEngine engine){
+        return compile(regex, engine, false);
+    }
+
+    /**
+     * Compiles the pattern with the given engine and policy for super-linear
+     * patterns
+     *
+     * @param regex The regular expression
+     * @param engine The engine to run the pattern with
+     * @param rejectSuperLinear true to reject super-linear patterns instead of logging them
+     * @return The compiled pattern
+     * @throws PatternSyntaxException If the pattern is not valid for the engine
+     * @throws IllegalArgumentException If the pattern is super-linear and those are rejected
+     */
+    public static LikePattern compile(String regex, RegexEngine engine, boolean rejectSuperLinear){
+        if (engine == null){
+            throw new IllegalArgumentException("The regex engine cannot be null");
+        }
+        if (engine == RegexEngine.LINEAR){
+            try{
+                return new LikePattern(regex, engine, null, com.google.re2j.Pattern.compile(regex));
+            }catch(com.google.re2j.PatternSyntaxException e){
+                throw new PatternSyntaxException(e.getDescription(), regex, -1);
+            }
+        }
+        Pattern pattern = Pattern.compile(regex);
+        verify(regex, engine, rejectSuperLinear);
+        return new LikePattern(regex, engine, pattern, null);
+    }
+
+    /**
+     * Checks a pattern that is going to be run by the given engine with the
+     * given policy for super-linear patterns. A pattern that is super-linear
+     * under a backtracking engine is logged or rejected.
+     * <p>
+     * Use this for patterns that are run somewhere else, like the $regex of a
+     * Mongo query.
+     *
+     * @param regex The regular expression
+     * @param engine The engine that runs the pattern
+     * @param rejectSuperLinear true to reject super-linear patterns instead of logging them
+     * @throws IllegalArgumentException If the pattern is super-linear and those are rejected
+     */
+    public static void verify(String regex, RegexEngine engine, boolean rejectSuperLinear){
+        if (engine != RegexEngine.BACKTRACKING || !isSuperLinear(regex)){
+            return;
+        }
+        if (rejectSuperLinear){
+            throw new IllegalArgumentException("The regex " + regex + " can take super-linear time to match. "
+                    + "Remove the nested or overlapping repetition.");
+        }
+        LOGGER.log(Level.WARNING, "The regex {0} can take super-linear time to match", regex);
+    }
+
+    /**
+     * Determines if a backtracking engine can take exponential or high
+     * polynomial time to run the pattern. This is true when a repeated group
+     * can match the same text in more than one way, like (a+)+, (\w+\s?)*,
+     * (a|a)* or (.*a){12}, when three repetitions in a row can match the same
+     * text, like .*.*.*, or when the pattern uses back references.
+     * <p>
+     * This is a conservative check of the pattern's structure so some safe
+     * patterns are reported. Quadratic patterns like .*a.*b are not reported.
+     *
+     * @param regex The regular expression
+     * @return true if the pattern is super-linear
+     */
+    public static boolean isSuperLinear(String regex){
+        return new RegexAnalyzer(regex).isSuperLinear();
+    }
+
+    /**
+     * Determines if the pattern matches the whole value
+     *
+     * @param value The value
+     * @return true if it matches
+     */
+    public boolean matches(CharSequence value){
+        if (linear != null){
+            return linear.matcher(value).matches();
+        }
+        return backtracking.matcher(value).matches();
+    }
+
+    /**
+     * Gets the regular expression
+     *
+     * @return The regular expression
+     */
+    public String pattern(){
+        return regex;
+    }
+
+    /**
+     * Gets the engine that runs the pattern
+     *
+     * @return The engine
+     */
+    public RegexEngine getEngine(){
+        return engine;
+    }
+
+    @Override
+    public String toString(){
+        return regex;
+    }
+
+}
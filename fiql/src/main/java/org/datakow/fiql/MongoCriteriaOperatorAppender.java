@@ -68,7 +68,12 @@ public class MongoCriteriaOperatorAppender {
             }
             return criteria.all(val); 
         });
-        operators.put( FiqlOperator.LIKE,                  (criteria, arg)-> { return criteria.regex(arg.toString()); });
+        operators.put( FiqlOperator.LIKE,                  (criteria, arg)-> { 
+            //Mongo runs the regex with a backtracking engine. Super-linear patterns
+            //are only logged, the subscription settings do not apply to queries
+            LikePattern.verify(arg.toString(), RegexEngine.BACKTRACKING, false);
+            return criteria.regex(arg.toString()); 
+        });
         operators.put( FiqlOperator.MATCH,                 (criteria, arg)-> { 
             MongoFiqlParser p = new MongoFiqlParser();
             String fiql = (String)arg;
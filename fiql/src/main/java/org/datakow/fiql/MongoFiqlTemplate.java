@@ -0,0 +1,124 @@
+package org.datakow.fiql;
+
+import cz.jirutka.rsql.parser.RSQLParser;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+import org.bson.Document;
+
+/**
+ * A FIQL query with bind parameters that is parsed into a Mongo filter
+ * document once and then filled in with different values many times.
+ * <p>
+ * A parameter is an argument written as a name in curly braces, for example
+ * <code>Doc.station=={Doc.id}</code>. The query is parsed and mapped with the
+ * parameters left as placeholders. {@link #bind(Map)} copies the compiled
+ * document and swaps each placeholder for its value, so filling in the query
+ * for each record of a bulk operation does not parse anything.
+ * <p>
+ * String values are converted exactly like FIQL arguments so a bound value
+ * finds the same records as the same value written in the query.
+ * Parameters inside the query of a =matches= operator are not supported.
+ * <p>
+ * A compiled template is never changed and can be shared between threads.
+ *
+ * @author kevin.off
+ */
+public class MongoFiqlTemplate {
+
+    private static final char PLACEHOLDER_MARK = '\u0000';
+
+    private final Document compiled;
+    private final Set<String> parameterNames;
+    private final MongoFiqlVisiter converter = new MongoFiqlVisiter("");
+
+    private MongoFiqlTemplate(Document compiled, Set<String> parameterNames){
+        this.compiled = compiled;
+        this.parameterNames = Collections.unmodifiableSet(parameterNames);
+    }
+
+    /**
+     * Parses a FIQL query that contains parameters.
+     *
+     * @param fiql The FIQL query
+     * @param fieldPrefix The prefix to apply to all properties
+     * @param mapper Converts the parsed criteria document, usually with a
+     * {@link org.springframework.data.mongodb.core.convert.QueryMapper}
+     * @return The compiled template
+     */
+    public static MongoFiqlTemplate compile(String fiql, String fieldPrefix, UnaryOperator<Document> mapper){
+        Set<String> names = new LinkedHashSet<>();
+        TemplateVisiter visiter = new TemplateVisiter(fieldPrefix, names);
+        Document criteria = new RSQLParser(FiqlOperator.dbOperators())
+                .parse(fiql)
+                .accept(visiter)
+                .getCriteriaObject();
+        return new MongoFiqlTemplate(MongoQueryCache.copy(mapper.apply(criteria)), names);
+    }
+
+    /**
+     * Gets the names of the parameters in the order that they appear in the query
+     *
+     * @return The parameter names without the curly braces
+     */
+    public Set<String> getParameterNames(){
+        return parameterNames;
+    }
+
+    /**
+     * Creates a new filter document with the parameters filled in.
+     *
+     * @param parameters The value of each parameter by name
+     * @return A new filter document
+     * @throws IllegalArgumentException If a parameter does not have a value
+     */
+    public Document bind(Map<String, ?> parameters){
+        return MongoQueryCache.copy(compiled, (value) -> {
+            if (value instanceof String && ((String)value).indexOf(PLACEHOLDER_MARK) == 0){
+                String name = ((String)value).substring(1);
+                if (!parameters.containsKey(name)){
+                    throw new IllegalArgumentException("There is no value for the parameter " + name);
+                }
+                return converter.castType(parameters.get(name));
+            }
+            return value;
+        });
+    }
+
+    /**
+     * Makes the placeholder stored in the compiled document for a parameter
+     */
+    private static String placeholder(String name){
+        return PLACEHOLDER_MARK + name;
+    }
+
+    /**
+     * Leaves the parameters as placeholders instead of converting them
+     */
+    private static class TemplateVisiter extends MongoFiqlVisiter{
+
+        private final Set<String> names;
+
+        TemplateVisiter(String prefix, Set<String> names){
+            super(prefix);
+            this.names = names;
+        }
+
+        @Override
+        Object castType(Object orig){
+            if (orig instanceof String){
+                String str = (String)orig;
+                if (str.length() > 2 && str.startsWith("{") && str.endsWith("}")){
+                    String name = str.substring(1, str.length() - 1);
+                    names.add(name);
+                    return placeholder(name);
+                }
+            }
+            return super.castType(orig);
+        }
+
+    }
+
+}
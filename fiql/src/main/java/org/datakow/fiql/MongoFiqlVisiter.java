@@ -6,7 +6,7 @@ import cz.jirutka.rsql.parser.ast.LogicalNode;
 import cz.jirutka.rsql.parser.ast.NoArgRSQLVisitorAdapter;
 import cz.jirutka.rsql.parser.ast.Node;
 import cz.jirutka.rsql.parser.ast.OrNode;
-import org.datakow.core.components.DateUtil;
+import org.datakow.core.components.IsoDateUtil;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
@@ -119,7 +119,7 @@ public class MongoFiqlVisiter extends NoArgRSQLVisitorAdapter<Criteria> {
                 if (str.equalsIgnoreCase("Date::NOW")){
                     return new Date();
                 }else{
-                    Date date = DateUtil.parseString(str.replace("Date::", ""));
+                    Date date = IsoDateUtil.parseString(str.replace("Date::", ""));
                     if (date != null){
                         return date;
                     }
@@ -135,7 +135,7 @@ public class MongoFiqlVisiter extends NoArgRSQLVisitorAdapter<Criteria> {
                 
             }else{
                 
-                Date date = DateUtil.parseString((String)orig);
+                Date date = IsoDateUtil.parseString((String)orig);
                 if (date != null){
                     return date;
                 }else if(((String)orig).equalsIgnoreCase("true")){
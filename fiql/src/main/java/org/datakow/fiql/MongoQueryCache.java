@@ -0,0 +1,224 @@
+package org.datakow.fiql;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+import org.bson.Document;
+
+/**
+ * A bounded, least recently used cache of FIQL queries that have been parsed
+ * into Mongo filter documents.
+ * <p>
+ * Entries are keyed by the trimmed FIQL string and the field prefix. The
+ * mapping step, usually a {@link org.springframework.data.mongodb.core.convert.QueryMapper},
+ * is only run when the query is not already cached. Every document handed
+ * out is a deep copy so callers may change it without corrupting the cache.
+ * <p>
+ * Queries that use Date::NOW are never cached because their value changes
+ * every time they are parsed.
+ * <p>
+ * The cache is safe to use from many threads.
+ *
+ * @author kevin.off
+ */
+public class MongoQueryCache {
+
+    /**
+     * The number of queries kept when a size is not given
+     */
+    public static final int DEFAULT_MAX_SIZE = 1000;
+
+    private final int maxSize;
+    private final Map<String, Document> entries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Creates a cache that holds the default number of queries
+     */
+    public MongoQueryCache(){
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Creates a cache that holds the given number of queries
+     *
+     * @param maxSize The number of queries to keep. 0 turns caching off
+     */
+    public MongoQueryCache(int maxSize){
+        if (maxSize < 0){
+            throw new IllegalArgumentException("The max size of the query cache cannot be negative");
+        }
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<String, Document>(16, 0.75f, true){
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Document> eldest) {
+                if (size() > MongoQueryCache.this.maxSize){
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Gets the filter document for the query, parsing and mapping it if it
+     * is not cached.
+     *
+     * @param fiql The FIQL query
+     * @param fieldPrefix The prefix to apply to all properties
+     * @param mapper Converts the parsed criteria document to the filter that is cached
+     * @return A copy of the filter document
+     */
+    public Document get(String fiql, String fieldPrefix, UnaryOperator<Document> mapper){
+        String key = fieldPrefix + '\u0000' + fiql.trim();
+        Document cached;
+        synchronized(entries){
+            cached = entries.get(key);
+        }
+        if (cached != null){
+            hits.incrementAndGet();
+            return copy(cached);
+        }
+        misses.incrementAndGet();
+        Document filter = mapper.apply(new MongoFiqlParser().parse(fiql, fieldPrefix).getCriteriaObject());
+        if (maxSize > 0 && !fiql.toUpperCase().contains("DATE::NOW")){
+            Document stored = copy(filter);
+            synchronized(entries){
+                entries.put(key, stored);
+            }
+        }
+        return filter;
+    }
+
+    /**
+     * Removes every cached query. The counters are not reset.
+     */
+    public void clear(){
+        synchronized(entries){
+            entries.clear();
+        }
+    }
+
+    /**
+     * Gets the number of cached queries
+     *
+     * @return The number of cached queries
+     */
+    public int size(){
+        synchronized(entries){
+            return entries.size();
+        }
+    }
+
+    /**
+     * Gets the number of queries that are kept
+     *
+     * @return The max size
+     */
+    public int getMaxSize(){
+        return maxSize;
+    }
+
+    /**
+     * Gets the number of times a query was found in the cache
+     *
+     * @return The number of hits
+     */
+    public long getHitCount(){
+        return hits.get();
+    }
+
+    /**
+     * Gets the number of times a query had to be parsed
+     *
+     * @return The number of misses
+     */
+    public long getMissCount(){
+        return misses.get();
+    }
+
+    /**
+     * Gets the number of queries that were removed to make room for others
+     *
+     * @return The number of evictions
+     */
+    public long getEvictionCount(){
+        return evictions.get();
+    }
+
+    /**
+     * Gets the fraction of lookups that were found in the cache
+     *
+     * @return The hit rate between 0 and 1
+     */
+    public double getHitRate(){
+        long hitCount = hits.get();
+        long total = hitCount + misses.get();
+        return total == 0 ? 0 : (double)hitCount / total;
+    }
+
+    /**
+     * Makes a deep copy of a filter document. Nested documents, maps, lists,
+     * arrays and dates are copied and everything else is assumed to be
+     * immutable.
+     *
+     * @param document The document to copy
+     * @return The copy
+     */
+    static Document copy(Document document){
+        return copy(document, UnaryOperator.identity());
+    }
+
+    /**
+     * Makes a deep copy of a filter document and passes every value that is
+     * not a container through the given function.
+     *
+     * @param document The document to copy
+     * @param values Converts the copied values
+     * @return The copy
+     */
+    static Document copy(Document document, UnaryOperator<Object> values){
+        Document copy = new Document();
+        for(Map.Entry<String, Object> entry : document.entrySet()){
+            copy.put(entry.getKey(), copyValue(entry.getValue(), values));
+        }
+        return copy;
+    }
+
+    private static Object copyValue(Object value, UnaryOperator<Object> values){
+        if (value instanceof Document){
+            return copy((Document)value, values);
+        }else if (value instanceof Map){
+            Map<Object, Object> copy = new LinkedHashMap<>();
+            for(Map.Entry<?, ?> entry : ((Map<?, ?>)value).entrySet()){
+                copy.put(entry.getKey(), copyValue(entry.getValue(), values));
+            }
+            return copy;
+        }else if (value instanceof Collection){
+            List<Object> copy = new ArrayList<>(((Collection)value).size());
+            for(Object element : (Collection)value){
+                copy.add(copyValue(element, values));
+            }
+            return copy;
+        }else if (value instanceof Object[]){
+            Object[] array = ((Object[])value).clone();
+            for(int i = 0; i < array.length; i++){
+                array[i] = copyValue(array[i], values);
+            }
+            return array;
+        }else if (value instanceof Date){
+            return new Date(((Date)value).getTime());
+        }else{
+            return values.apply(value);
+        }
+    }
+
+}
@@ -0,0 +1,738 @@
+package org.datakow.fiql;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Looks for the structures in a regular expression that make a backtracking
+ * engine take exponential or high polynomial time.
+ * <p>
+ * The pattern is parsed into a tree where every node knows whether it can
+ * match nothing, which characters its matches can start and end with and
+ * which characters it can match a run of only that character with.
+ * Characters are tracked as the 128 ASCII characters plus one bit for
+ * everything else. A pattern is super-linear when:
+ * <ul>
+ * <li>A repetition inside a repeated group can run into the next or the
+ * previous repetition of the group, like (a+)+, (\w+,?)* or (.*a){12}</li>
+ * <li>A repeated group can match a run of one character that an unbounded
+ * repetition inside it can also match, like (.a*b?)*, so the run can be
+ * split between the repetitions of the group in many ways</li>
+ * <li>A repeated group contains alternatives that can start with the same
+ * character, like (a|ab)*</li>
+ * <li>Three or more unbounded repetitions in a row can share a run of one
+ * character, like \d+\d*.+, which is at least cubic</li>
+ * <li>It uses a back reference</li>
+ * </ul>
+ * Anything the parser does not understand is treated as matching any
+ * character so the answer errs toward super-linear.
+ *
+ * @author kevin.off
+ */
+final class RegexAnalyzer {
+
+    private static final int OTHER = 128;
+    private static final int SIZE = 129;
+    private static final Pattern CASE_INSENSITIVE = Pattern.compile("\\(\\?[a-zA-Z]*i");
+
+    private final String regex;
+    private final boolean caseInsensitive;
+    private int pos;
+    private boolean superLinear;
+
+    RegexAnalyzer(String regex){
+        this.regex = regex;
+        this.caseInsensitive = CASE_INSENSITIVE.matcher(regex).find();
+    }
+
+    /**
+     * Determines if the pattern is super-linear
+     *
+     * @return true if it is
+     */
+    boolean isSuperLinear(){
+        pos = 0;
+        superLinear = false;
+        Node root = parseAlternation();
+        while(pos < regex.length()){
+            //An unbalanced ) ends the parse early, keep going with the rest
+            pos++;
+            root = new Sequence(listOf(root, parseAlternation()));
+        }
+        check(root);
+        return superLinear;
+    }
+
+    private void check(Node node){
+        if (superLinear){
+            return;
+        }
+        if (node instanceof Repeat){
+            Repeat repeat = (Repeat)node;
+            if (repeat.repeatsBody()){
+                Node body = repeat.body;
+                List<Repeat> loops = new ArrayList<>();
+                tails(body, loops);
+                for(Repeat loop : loops){
+                    if (loop.body.first.intersects(body.first)){
+                        superLinear = true;
+                        return;
+                    }
+                }
+                loops.clear();
+                heads(body, loops);
+                for(Repeat loop : loops){
+                    if (loop.body.last.intersects(body.last)){
+                        superLinear = true;
+                        return;
+                    }
+                }
+                loops.clear();
+                unboundedLoops(body, loops);
+                for(Repeat loop : loops){
+                    if (loop.body.runs.intersects(body.runs)){
+                        superLinear = true;
+                        return;
+                    }
+                }
+                if (hasOverlappingAlternatives(body)){
+                    superLinear = true;
+                    return;
+                }
+            }
+            check(repeat.body);
+        }else if (node instanceof Sequence){
+            if (hasChainedLoops(((Sequence)node).children)){
+                superLinear = true;
+                return;
+            }
+            for(Node child : ((Sequence)node).children){
+                check(child);
+            }
+        }else if (node instanceof Alternation){
+            for(Node child : ((Alternation)node).children){
+                check(child);
+            }
+        }
+    }
+
+    /**
+     * Determines if there is a character that three unbounded repetitions in
+     * a stretch of the sequence can all consume while everything between them
+     * can match only that character
+     */
+    private static boolean hasChainedLoops(List<Node> items){
+        List<Repeat> loops = new ArrayList<>();
+        for(int c = 0; c < SIZE; c++){
+            int count = 0;
+            for(Node item : items){
+                if (!item.runs.get(c)){
+                    count = 0;
+                    continue;
+                }
+                loops.clear();
+                unboundedLoops(item, loops);
+                for(Repeat loop : loops){
+                    if (loop.body.runs.get(c)){
+                        count++;
+                    }
+                }
+                if (count >= 3){
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Finds the repetitions that can match a varying number of the last
+     * characters of the node
+     */
+    private static void tails(Node node, List<Repeat> loops){
+        if (node instanceof Repeat){
+            Repeat repeat = (Repeat)node;
+            if (repeat.varies()){
+                loops.add(repeat);
+            }
+            if (!repeat.possessive){
+                tails(repeat.body, loops);
+            }
+        }else if (node instanceof Sequence){
+            List<Node> children = ((Sequence)node).children;
+            for(int i = children.size() - 1; i >= 0; i--){
+                tails(children.get(i), loops);
+                if (!children.get(i).nullable){
+                    break;
+                }
+            }
+        }else if (node instanceof Alternation){
+            for(Node child : ((Alternation)node).children){
+                tails(child, loops);
+            }
+        }
+    }
+
+    /**
+     * Finds the repetitions that can match a varying number of the first
+     * characters of the node
+     */
+    private static void heads(Node node, List<Repeat> loops){
+        if (node instanceof Repeat){
+            Repeat repeat = (Repeat)node;
+            if (repeat.varies()){
+                loops.add(repeat);
+            }
+            if (!repeat.possessive){
+                heads(repeat.body, loops);
+            }
+        }else if (node instanceof Sequence){
+            for(Node child : ((Sequence)node).children){
+                heads(child, loops);
+                if (!child.nullable){
+                    break;
+                }
+            }
+        }else if (node instanceof Alternation){
+            for(Node child : ((Alternation)node).children){
+                heads(child, loops);
+            }
+        }
+    }
+
+    /**
+     * Finds every unbounded repetition in the node that can give characters back
+     */
+    private static void unboundedLoops(Node node, List<Repeat> loops){
+        if (node instanceof Repeat){
+            Repeat repeat = (Repeat)node;
+            if (repeat.possessive){
+                return;
+            }
+            if (repeat.max == -1 && repeat.varies()){
+                loops.add(repeat);
+            }
+            unboundedLoops(repeat.body, loops);
+        }else if (node instanceof Sequence){
+            for(Node child : ((Sequence)node).children){
+                unboundedLoops(child, loops);
+            }
+        }else if (node instanceof Alternation){
+            for(Node child : ((Alternation)node).children){
+                unboundedLoops(child, loops);
+            }
+        }
+    }
+
+    private static boolean hasOverlappingAlternatives(Node node){
+        if (node instanceof Alternation){
+            List<Node> children = ((Alternation)node).children;
+            for(int i = 0; i < children.size(); i++){
+                for(int j = i + 1; j < children.size(); j++){
+                    if (children.get(i).first.intersects(children.get(j).first)){
+                        return true;
+                    }
+                }
+            }
+            for(Node child : children){
+                if (hasOverlappingAlternatives(child)){
+                    return true;
+                }
+            }
+        }else if (node instanceof Sequence){
+            for(Node child : ((Sequence)node).children){
+                if (hasOverlappingAlternatives(child)){
+                    return true;
+                }
+            }
+        }else if (node instanceof Repeat && !((Repeat)node).possessive){
+            return hasOverlappingAlternatives(((Repeat)node).body);
+        }
+        return false;
+    }
+
+    private Node parseAlternation(){
+        List<Node> branches = new ArrayList<>();
+        branches.add(parseSequence());
+        while(pos < regex.length() && regex.charAt(pos) == '|'){
+            pos++;
+            branches.add(parseSequence());
+        }
+        return branches.size() == 1 ? branches.get(0) : new Alternation(branches);
+    }
+
+    private Node parseSequence(){
+        List<Node> items = new ArrayList<>();
+        while(pos < regex.length() && regex.charAt(pos) != '|' && regex.charAt(pos) != ')'){
+            items.add(parseQuantifiers(parseAtom()));
+        }
+        return items.size() == 1 ? items.get(0) : new Sequence(items);
+    }
+
+    private Node parseQuantifiers(Node node){
+        while(pos < regex.length()){
+            char c = regex.charAt(pos);
+            int min;
+            int max;
+            if (c == '*'){
+                min = 0;
+                max = -1;
+                pos++;
+            }else if (c == '+'){
+                min = 1;
+                max = -1;
+                pos++;
+            }else if (c == '?'){
+                min = 0;
+                max = 1;
+                pos++;
+            }else if (c == '{'){
+                int end = regex.indexOf('}', pos);
+                String bounds = end < 0 ? "" : regex.substring(pos + 1, end);
+                if (!bounds.matches("\\d+(,\\d*)?")){
+                    return node;
+                }
+                int comma = bounds.indexOf(',');
+                min = parseCount(comma < 0 ? bounds : bounds.substring(0, comma));
+                max = comma < 0 ? min : comma == bounds.length() - 1 ? -1 : parseCount(bounds.substring(comma + 1));
+                pos = end + 1;
+            }else{
+                return node;
+            }
+            boolean possessive = false;
+            if (pos < regex.length() && regex.charAt(pos) == '?'){
+                pos++;
+            }else if (pos < regex.length() && regex.charAt(pos) == '+'){
+                possessive = true;
+                pos++;
+            }
+            node = new Repeat(node, min, max, possessive);
+        }
+        return node;
+    }
+
+    private static int parseCount(String count){
+        try{
+            return Integer.parseInt(count);
+        }catch(NumberFormatException e){
+            return Integer.MAX_VALUE;
+        }
+    }
+
+    private Node parseAtom(){
+        char c = regex.charAt(pos++);
+        switch(c){
+            case '(':
+                return parseGroup();
+            case '[':
+                return new Atom(parseClass());
+            case '.':
+                BitSet any = all();
+                any.clear('\n');
+                return new Atom(any);
+            case '^':
+            case '$':
+                return new Empty();
+            case '\\':
+                return parseEscape();
+            default:
+                return new Atom(of(c));
+        }
+    }
+
+    private Node parseGroup(){
+        boolean zeroWidth = false;
+        boolean atomic = false;
+        if (regex.startsWith("?>", pos)){
+            atomic = true;
+            pos += 2;
+        }else if (regex.startsWith("?", pos)){
+            if (regex.startsWith("?=", pos) || regex.startsWith("?!", pos)){
+                zeroWidth = true;
+                pos += 2;
+            }else if (regex.startsWith("?<=", pos) || regex.startsWith("?<!", pos)){
+                zeroWidth = true;
+                pos += 3;
+            }else if (regex.startsWith("?<", pos)){
+                int end = regex.indexOf('>', pos);
+                pos = end < 0 ? regex.length() : end + 1;
+            }else{
+                //Non capturing or flags like (?:, (?i) or (?i:
+                int end = pos + 1;
+                while(end < regex.length() && regex.charAt(end) != ':' && regex.charAt(end) != ')'){
+                    end++;
+                }
+                if (end < regex.length() && regex.charAt(end) == ')'){
+                    pos = end + 1;
+                    return new Empty();
+                }
+                pos = Math.min(end + 1, regex.length());
+            }
+        }
+        Node inner = parseAlternation();
+        if (pos < regex.length() && regex.charAt(pos) == ')'){
+            pos++;
+        }
+        if (zeroWidth){
+            check(inner);
+            return new Empty();
+        }else if (atomic){
+            //Nothing inside an atomic group is tried again so it acts like a possessive quantifier
+            return new Repeat(inner, 1, 1, true);
+        }
+        return inner;
+    }
+
+    private Node parseEscape(){
+        if (pos >= regex.length()){
+            return new Atom(of('\\'));
+        }
+        char c = regex.charAt(pos);
+        switch(c){
+            case 'b':
+            case 'B':
+            case 'A':
+            case 'z':
+            case 'Z':
+            case 'G':
+                pos++;
+                return new Empty();
+            case 'Q':
+                pos++;
+                int end = regex.indexOf("\\E", pos);
+                String quoted = regex.substring(pos, end < 0 ? regex.length() : end);
+                pos = end < 0 ? regex.length() : end + 2;
+                List<Node> literals = new ArrayList<>();
+                for(char q : quoted.toCharArray()){
+                    literals.add(new Atom(of(q)));
+                }
+                return literals.isEmpty() ? new Empty() : new Sequence(literals);
+            case 'k':
+                superLinear = true;
+                int close = regex.indexOf('>', pos);
+                pos = close < 0 ? regex.length() : close + 1;
+                return new Repeat(new Atom(all()), 0, -1, false);
+            default:
+                if (c >= '1' && c <= '9'){
+                    superLinear = true;
+                    while(pos < regex.length() && Character.isDigit(regex.charAt(pos))){
+                        pos++;
+                    }
+                    return new Repeat(new Atom(all()), 0, -1, false);
+                }
+                return new Atom(parseEscapedSet());
+        }
+    }
+
+    /**
+     * Parses the escape after a \ that stands for one character or a
+     * predefined class of characters.
+     */
+    private BitSet parseEscapedSet(){
+        char c = regex.charAt(pos++);
+        BitSet set;
+        switch(c){
+            case 'd':
+            case 'D':
+                set = range('0', '9');
+                break;
+            case 'w':
+            case 'W':
+                set = range('a', 'z');
+                set.or(range('A', 'Z'));
+                set.or(range('0', '9'));
+                set.set('_');
+                break;
+            case 's':
+            case 'S':
+                set = new BitSet(SIZE);
+                for(char space : " \t\n\u000B\f\r".toCharArray()){
+                    set.set(space);
+                }
+                break;
+            case 't':
+                return of('\t');
+            case 'n':
+                return of('\n');
+            case 'r':
+                return of('\r');
+            case 'f':
+                return of('\f');
+            case 'a':
+                return of('\u0007');
+            case 'e':
+                return of('\u001B');
+            case 'c':
+                if (pos < regex.length()){
+                    return of((char)(regex.charAt(pos++) ^ 64));
+                }
+                return all();
+            case '0':
+                int octal = 0;
+                for(int i = 0; i < 3 && pos < regex.length() && regex.charAt(pos) >= '0' && regex.charAt(pos) <= '7'; i++){
+                    octal = octal * 8 + regex.charAt(pos++) - '0';
+                }
+                return of((char)octal);
+            case 'x':
+            case 'u':
+                int digits = c == 'x' ? 2 : 4;
+                if (c == 'x' && pos < regex.length() && regex.charAt(pos) == '{'){
+                    int end = regex.indexOf('}', pos);
+                    digits = end < 0 ? 0 : end - pos - 1;
+                    pos++;
+                }
+                int start = pos;
+                while(pos < regex.length() && pos - start < digits && Character.digit(regex.charAt(pos), 16) >= 0){
+                    pos++;
+                }
+                if (pos < regex.length() && regex.charAt(pos) == '}'){
+                    pos++;
+                }
+                try{
+                    int code = Integer.parseInt(regex.substring(start, Math.min(pos, start + digits)), 16);
+                    return code < OTHER ? of((char)code) : other();
+                }catch(NumberFormatException e){
+                    return all();
+                }
+            case 'p':
+            case 'P':
+                if (pos < regex.length() && regex.charAt(pos) == '{'){
+                    int end = regex.indexOf('}', pos);
+                    pos = end < 0 ? regex.length() : end + 1;
+                }else if (pos < regex.length()){
+                    pos++;
+                }
+                return all();
+            case 'h':
+            case 'H':
+            case 'v':
+            case 'V':
+            case 'R':
+            case 'X':
+                return all();
+            default:
+                return of(c);
+        }
+        return Character.isUpperCase(c) ? complement(set) : set;
+    }
+
+    private BitSet parseClass(){
+        BitSet set = new BitSet(SIZE);
+        boolean negated = pos < regex.length() && regex.charAt(pos) == '^';
+        if (negated){
+            pos++;
+        }
+        boolean first = true;
+        while(pos < regex.length() && (first || regex.charAt(pos) != ']')){
+            first = false;
+            char c = regex.charAt(pos);
+            if (c == '['){
+                pos++;
+                set.or(parseClass());
+                continue;
+            }
+            if (regex.startsWith("&&", pos)){
+                //Intersections are treated as unions, which only makes the class bigger
+                pos += 2;
+                continue;
+            }
+            BitSet single;
+            char low;
+            if (c == '\\' && pos + 1 < regex.length()){
+                pos++;
+                char escaped = regex.charAt(pos);
+                single = parseEscapedSet();
+                if (single.cardinality() != 1 || Character.isLetter(escaped) && "dDwWsSpPhHvV".indexOf(escaped) >= 0){
+                    set.or(single);
+                    continue;
+                }
+                low = (char)single.nextSetBit(0);
+            }else{
+                pos++;
+                low = c;
+                single = of(c);
+            }
+            if (pos + 1 < regex.length() && regex.charAt(pos) == '-' && regex.charAt(pos + 1) != ']'){
+                pos++;
+                char high = regex.charAt(pos);
+                if (high == '\\' && pos + 1 < regex.length()){
+                    pos++;
+                    BitSet escaped = parseEscapedSet();
+                    high = escaped.cardinality() == 1 && escaped.nextSetBit(0) < OTHER ? (char)escaped.nextSetBit(0) : Character.MAX_VALUE;
+                }else{
+                    pos++;
+                }
+                set.or(range(low, high));
+            }else{
+                set.or(single);
+            }
+        }
+        if (pos < regex.length()){
+            pos++;
+        }
+        return negated ? complement(set) : set;
+    }
+
+    private BitSet of(char c){
+        BitSet set = new BitSet(SIZE);
+        if (c >= OTHER){
+            set.set(OTHER);
+        }else{
+            set.set(c);
+            if (caseInsensitive && Character.isLetter(c)){
+                set.set(Character.toLowerCase(c));
+                set.set(Character.toUpperCase(c));
+            }
+        }
+        return set;
+    }
+
+    private BitSet range(char low, char high){
+        BitSet set = new BitSet(SIZE);
+        for(int c = low; c <= high; c++){
+            if (c >= OTHER){
+                set.set(OTHER);
+                break;
+            }
+            set.or(of((char)c));
+        }
+        return set;
+    }
+
+    private static BitSet all(){
+        BitSet set = new BitSet(SIZE);
+        set.set(0, SIZE);
+        return set;
+    }
+
+    private static BitSet other(){
+        BitSet set = new BitSet(SIZE);
+        set.set(OTHER);
+        return set;
+    }
+
+    /**
+     * Flips the ASCII characters. Characters outside ASCII are kept because
+     * the set does not know which of them were in the original.
+     */
+    private static BitSet complement(BitSet set){
+        BitSet flipped = (BitSet)set.clone();
+        flipped.flip(0, OTHER);
+        flipped.set(OTHER);
+        return flipped;
+    }
+
+    private static List<Node> listOf(Node a, Node b){
+        List<Node> list = new ArrayList<>();
+        list.add(a);
+        list.add(b);
+        return list;
+    }
+
+    /**
+     * A part of the pattern
+     */
+    private abstract static class Node {
+        boolean nullable;
+        BitSet first = new BitSet(SIZE);
+        BitSet last = new BitSet(SIZE);
+        BitSet runs = all();
+    }
+
+    /**
+     * A single character from a set
+     */
+    private static final class Atom extends Node {
+        Atom(BitSet set){
+            first = set;
+            last = set;
+            runs = set;
+        }
+    }
+
+    /**
+     * Anchors, flags and look arounds
+     */
+    private static final class Empty extends Node {
+        Empty(){
+            nullable = true;
+        }
+    }
+
+    private static final class Sequence extends Node {
+        final List<Node> children;
+
+        Sequence(List<Node> children){
+            this.children = children;
+            for(Node child : children){
+                runs.and(child.runs);
+            }
+            nullable = true;
+            for(Node child : children){
+                first.or(child.first);
+                if (!child.nullable){
+                    nullable = false;
+                    break;
+                }
+            }
+            for(int i = children.size() - 1; i >= 0; i--){
+                last.or(children.get(i).last);
+                if (!children.get(i).nullable){
+                    break;
+                }
+            }
+        }
+    }
+
+    private static final class Alternation extends Node {
+        final List<Node> children;
+
+        Alternation(List<Node> children){
+            this.children = children;
+            runs = new BitSet(SIZE);
+            for(Node child : children){
+                runs.or(child.runs);
+                nullable |= child.nullable;
+                first.or(child.first);
+                last.or(child.last);
+            }
+        }
+    }
+
+    private static final class Repeat extends Node {
+        final Node body;
+        final int min;
+        final int max;
+        final boolean possessive;
+
+        Repeat(Node body, int min, int max, boolean possessive){
+            this.body = body;
+            this.min = min;
+            this.max = max;
+            this.possessive = possessive;
+            nullable = min == 0 || body.nullable;
+            first = body.first;
+            last = body.last;
+            runs = min == 0 ? all() : body.runs;
+        }
+
+        /**
+         * Determines if the body can be matched a varying number of times and
+         * the repetitions can give characters back
+         */
+        boolean varies(){
+            return max != min && !possessive && !body.first.isEmpty();
+        }
+
+        /**
+         * Determines if the body can be matched more than once and the
+         * repetitions can give characters back
+         */
+        boolean repeatsBody(){
+            return (max == -1 || max > 1) && !possessive && !body.first.isEmpty();
+        }
+    }
+
+}
@@ -0,0 +1,28 @@
+package org.datakow.fiql;
+
+/**
+ * Decides which regular expression engine evaluates the =like= comparisons
+ * of subscriptions.
+ *
+ * @author kevin.off
+ * @see LikePattern
+ */
+public enum RegexEngine {
+
+    /**
+     * java.util.regex. Supports the full Java syntax including back references
+     * and look arounds, but a pattern with nested or ambiguous repetition can
+     * take exponential time on a value that almost matches.
+     */
+    BACKTRACKING,
+
+    /**
+     * RE2J, an automaton that takes time proportional to the length of the
+     * value no matter what the pattern is.
+     * <p>
+     * Patterns that use back references, look arounds, possessive quantifiers
+     * or atomic groups are rejected because they cannot be run in linear time.
+     */
+    LINEAR
+
+}
@@ -2,15 +2,16 @@ package org.datakow.fiql;
 
 
 import org.datakow.core.components.DotNotationMap;
+import org.datakow.core.components.PropertyPath;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 
 
@@ -29,6 +30,10 @@ public class SubscriptionCriteria {
     private final LinkedHashMap<String, Object> criteria = new LinkedHashMap<>();
     private final List<SubscriptionCriteria> chain;
     
+    private LikePattern likePattern;
+    private PropertyPath propertyPath;
+    private SubscriptionCriteria matchCriteria;
+    
     /**
      * Creates a new instance
      */
@@ -76,6 +81,21 @@ public class SubscriptionCriteria {
     public void setPropertyName(String propertyName) {
         this.propertyName = propertyName;
     }
+    
+    /**
+     * Gets the property name split into its segments. It is split again if
+     * the property name has been changed since it was last split.
+     * 
+     * @return The property path
+     */
+    private PropertyPath propertyPath(){
+        PropertyPath path = this.propertyPath;
+        if (path == null || path.getPath() != propertyName){
+            path = new PropertyPath(propertyName);
+            this.propertyPath = path;
+        }
+        return path;
+    }
 
     /**
      * Set the value to compare against
@@ -96,6 +116,26 @@ public class SubscriptionCriteria {
         return (T)this.value;
     }   
     
+    /**
+     * Gets the comparisons applied to the property keyed by their {@link ComparisonOperator}.
+     * <p>
+     * The map is empty when this criteria is a test for equality with the value.
+     * 
+     * @return The comparisons in the order they were added
+     */
+    public Map<String, Object> getOperators(){
+        return Collections.unmodifiableMap(this.criteria);
+    }
+    
+    /**
+     * Gets the chain of criteria that this criteria belongs to.
+     * 
+     * @return The chain of criteria
+     */
+    public List<SubscriptionCriteria> getChain(){
+        return Collections.unmodifiableList(this.chain);
+    }
+    
     /**
      * Compares the given Map against this subscription criteria to determine
      * if the map's properties meet the criteria.
@@ -126,8 +166,9 @@ public class SubscriptionCriteria {
             boolean meets = true;
             
             
-            Object docValue = notification.getProperty(propertyName);
-            boolean docValueExists = notification.containsKey(propertyName);
+            PropertyPath path = propertyPath();
+            Object docValue = notification.getProperty(path);
+            boolean docValueExists = notification.containsKey(path);
             
             Class docValueClass = null;
             if (docValue != null){
@@ -216,9 +257,7 @@ public class SubscriptionCriteria {
                             }else if (!String.class.isAssignableFrom(crit.getValue().getClass())){
                                 return false;
                             }else{
-                                Pattern p = Pattern.compile((String)crit.getValue());
-                                Matcher m = p.matcher((String)docValue);
-                                meets = m.matches();
+                                meets = docValue instanceof String && likePattern.matches((String)docValue);
                             }
                             break;
                         case ComparisonOperator.EXISTS:
@@ -231,16 +270,25 @@ public class SubscriptionCriteria {
                         case ComparisonOperator.MATCH:
                             if (docValueExists && docValue != null && Collection.class.isAssignableFrom(docValue.getClass())){
                                 meets = false;
-                                SubscriptionFiqlParser parser = new SubscriptionFiqlParser();
-                                SubscriptionCriteria subCriteria = parser.parse((String)crit.getValue());
                                 for(DotNotationMap subDoc : (Collection<DotNotationMap>)docValue){
-                                    if (subCriteria.meetsCriteria(subDoc)){
+                                    if (matchCriteria.meetsCriteria(subDoc)){
                                         meets = true;
                                         break;
                                     }
                                 }
                             }
                             break;
+                        case ComparisonOperator.WITHIN:
+                            GeoShape region = (GeoShape)crit.getValue();
+                            meets = GeoShape.anyShape(docValue, region::contains);
+                            break;
+                        case ComparisonOperator.INTERSECTS:
+                            GeoShape geometry = (GeoShape)crit.getValue();
+                            meets = GeoShape.anyShape(docValue, geometry::intersects);
+                            break;
+                        case ComparisonOperator.NEAR:
+                            meets = ((GeoShape.Near)crit.getValue()).test(docValue);
+                            break;
                         default:
                             throw new RuntimeException("The comparison operator " + crit.getKey() + " is not supported.");
                     }
@@ -444,12 +492,37 @@ public class SubscriptionCriteria {
     
     /**
      * Compares the value of the property using the provided regex string.
+     * <p>
+     * The regex is compiled once here and reused for every comparison. It is
+     * run by the {@link LikePattern#DEFAULT_ENGINE default engine} and logged
+     * if it is super-linear.
      * 
      * @param value The regex string
      * @return The criteria object to use
+     * @throws java.util.regex.PatternSyntaxException If the regex is not valid
      */
     public SubscriptionCriteria regex(Object value){
+        return regex(value, LikePattern.DEFAULT_ENGINE, false);
+    }
+    
+    /**
+     * Compares the value of the property using the provided regex string,
+     * run by the given engine.
+     * 
+     * @param value The regex string
+     * @param engine The engine that runs the regex
+     * @param rejectSuperLinear true to reject a super-linear regex instead of logging it
+     * @return The criteria object to use
+     * @throws java.util.regex.PatternSyntaxException If the regex is not valid
+     * @throws IllegalArgumentException If the regex is super-linear and those are rejected
+     */
+    public SubscriptionCriteria regex(Object value, RegexEngine engine, boolean rejectSuperLinear){
         criteria.put(ComparisonOperator.LIKE, value);
+        if (value instanceof String){
+            likePattern = LikePattern.compile((String)value, engine, rejectSuperLinear);
+        }else{
+            likePattern = null;
+        }
         return this;
     }
     
@@ -467,12 +540,66 @@ public class SubscriptionCriteria {
     /**
      * A special comparison that will compare a list of objects with the
      * sub FIQL query provided.
+     * <p>
+     * The sub query is parsed once here and reused for every comparison.
      * 
      * @param subQuery The sub fiql Query
      * @return The criteria object to use
      */
     public SubscriptionCriteria matches(String subQuery){
+        return matches(subQuery, new SubscriptionFiqlParser());
+    }
+    
+    /**
+     * A special comparison that will compare a list of objects with the
+     * sub FIQL query provided, parsed by the given parser.
+     * 
+     * @param subQuery The sub fiql Query
+     * @param parser The parser to parse the sub query with
+     * @return The criteria object to use
+     */
+    public SubscriptionCriteria matches(String subQuery, SubscriptionFiqlParser parser){
         criteria.put(ComparisonOperator.MATCH, subQuery);
+        matchCriteria = parser.parse(subQuery);
+        return this;
+    }
+    
+    /**
+     * Determines if the shape in the property is completely inside the given
+     * POLYGON or MULTIPOLYGON.
+     * <p>
+     * The Well Known Text is parsed once here and reused for every comparison.
+     * 
+     * @param value The Well Known Text of the region or a {@link GeoShape}
+     * @return The criteria object to use
+     */
+    public SubscriptionCriteria within(Object value){
+        criteria.put(ComparisonOperator.WITHIN, GeoShape.fromArgument(value));
+        return this;
+    }
+    
+    /**
+     * Determines if the shape in the property shares any point with the
+     * given POINT, POLYGON or MULTIPOLYGON.
+     * <p>
+     * The Well Known Text is parsed once here and reused for every comparison.
+     * 
+     * @param value The Well Known Text of the shape or a {@link GeoShape}
+     * @return The criteria object to use
+     */
+    public SubscriptionCriteria intersects(Object value){
+        criteria.put(ComparisonOperator.INTERSECTS, GeoShape.fromArgument(value));
+        return this;
+    }
+    
+    /**
+     * Determines if the shape in the property is within a distance of a point.
+     * 
+     * @param value A list of the longitude, latitude and the distance in meters
+     * @return The criteria object to use
+     */
+    public SubscriptionCriteria near(Object value){
+        criteria.put(ComparisonOperator.NEAR, GeoShape.Near.fromArgument(value));
         return this;
     }
     
@@ -0,0 +1,375 @@
+package org.datakow.fiql;
+
+import org.datakow.core.components.DotNotationMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Evaluates many criteria against a record while computing every shared
+ * sub-expression only once.
+ * <p>
+ * Each criteria is {@link SubscriptionCriteriaNormalizer normalized} and its
+ * terms are interned by their canonical key, so criteria that contain the
+ * same comparison, or the same AND or OR of comparisons, point to the same
+ * node of a directed acyclic graph. When a record is evaluated the result of
+ * every node is remembered for that record and reused by every criteria
+ * that points to it.
+ * <p>
+ * Criteria that only differ in the order of the terms of an AND or an OR
+ * share a node, which checks its terms in the order of the criteria that
+ * added it first. Because of that, and because the normal form can reach
+ * comparisons that the original criteria short circuits or skip ones that it
+ * reaches, a comparison that throws an exception is taken as not met. That
+ * can only turn a criteria that throws into a match, never drop one that
+ * matches, so when a criteria matches after a comparison of the record threw
+ * it is confirmed with the original criteria. The result is the same as
+ * {@link SubscriptionCriteria#meetsCriteria(DotNotationMap)} for every
+ * criteria that does not throw an exception there. A criteria that throws
+ * does not stop the evaluation of the others, it does not match unless its
+ * normal form never reaches the failing comparison, like a;b,c,a when b
+ * cannot be compared and c is met.
+ * <p>
+ * A key added with a null criteria always matches, like a
+ * {@link SubscriptionCriteria} of null does for a subscription. A record of
+ * null matches nothing else.
+ * <p>
+ * Like the R-tree of the subscription index, adding or removing a criteria
+ * discards the compiled graph and it is rebuilt by the next evaluation, so a
+ * burst of changes only pays for one rebuild. Evaluations may run on many
+ * threads while the graph is being changed, each one sees the graph as it was
+ * when it was started.
+ *
+ * @author kevin.off
+ * @param <K> The type of key that the criteria are stored under
+ */
+public class SubscriptionCriteriaGraph<K> {
+
+    private final int maxConjunctions;
+    private final Map<K, Node> roots = new LinkedHashMap<>();
+    private final Map<K, SubscriptionCriteria> originals = new HashMap<>();
+    private final Map<String, Node> nodes = new HashMap<>();
+    private volatile Compiled<K> compiled;
+
+    /**
+     * Creates an empty graph that normalizes with
+     * {@link SubscriptionCriteriaNormalizer#DEFAULT_MAX_CONJUNCTIONS}
+     */
+    public SubscriptionCriteriaGraph(){
+        this(SubscriptionCriteriaNormalizer.DEFAULT_MAX_CONJUNCTIONS);
+    }
+
+    /**
+     * Creates an empty graph
+     *
+     * @param maxConjunctions The number of conjunctions that an AND of ORs can be expanded into
+     */
+    public SubscriptionCriteriaGraph(int maxConjunctions){
+        if (maxConjunctions < 1){
+            throw new IllegalArgumentException("The maximum number of conjunctions must be at least 1");
+        }
+        this.maxConjunctions = maxConjunctions;
+    }
+
+    /**
+     * Adds a criteria, replacing any criteria with the same key
+     *
+     * @param key The key to store the criteria under
+     * @param criteria The criteria or null to always match
+     * @throws IllegalArgumentException If the criteria does not have a property to compare
+     */
+    public void put(K key, SubscriptionCriteria criteria){
+        if (key == null){
+            throw new IllegalArgumentException("The key cannot be null");
+        }
+        SubscriptionCriteriaNormalizer.Term term = criteria == null ? null : SubscriptionCriteriaNormalizer.term(criteria, maxConjunctions);
+        synchronized(this){
+            Node root = term == null ? null : intern(term);
+            if (roots.containsKey(key)){
+                release(roots.get(key));
+            }
+            roots.put(key, root);
+            originals.put(key, criteria);
+            compiled = null;
+        }
+    }
+
+    /**
+     * Removes a criteria
+     *
+     * @param key The key the criteria is stored under
+     * @return true if the key was found and removed
+     */
+    public synchronized boolean remove(K key){
+        if (!roots.containsKey(key)){
+            return false;
+        }
+        release(roots.remove(key));
+        originals.remove(key);
+        compiled = null;
+        return true;
+    }
+
+    /**
+     * Gets the number of criteria in the graph
+     *
+     * @return The number of criteria
+     */
+    public synchronized int size(){
+        return roots.size();
+    }
+
+    /**
+     * Gets the number of distinct comparisons and logical nodes that the
+     * criteria are made of
+     *
+     * @return The number of nodes
+     */
+    public synchronized int getNodeCount(){
+        return nodes.size();
+    }
+
+    /**
+     * Starts the evaluation of a record. The criteria are evaluated when
+     * they are tested.
+     *
+     * @param record The record to evaluate
+     * @return The evaluation
+     */
+    public Evaluation<K> evaluate(DotNotationMap record){
+        Compiled<K> current = compiled;
+        if (current == null){
+            current = compile();
+        }
+        return new Evaluation<>(current, record);
+    }
+
+    /**
+     * Gets the keys of every criteria that the record meets
+     *
+     * @param record The record to match
+     * @return The keys in the order the criteria were added
+     */
+    public List<K> getMatches(DotNotationMap record){
+        return evaluate(record).getMatches();
+    }
+
+    private Node intern(SubscriptionCriteriaNormalizer.Term term){
+        Node node = nodes.get(term.key);
+        if (node == null){
+            Node[] children = new Node[term.children.size()];
+            for(int i = 0; i < children.length; i++){
+                children[i] = intern(term.children.get(i));
+            }
+            node = new Node(term.key, term.leaf, term.isAnd(), children);
+            nodes.put(term.key, node);
+        }
+        node.references++;
+        return node;
+    }
+
+    private void release(Node node){
+        if (node == null || --node.references > 0){
+            return;
+        }
+        nodes.remove(node.key);
+        for(Node child : node.children){
+            release(child);
+        }
+    }
+
+    private synchronized Compiled<K> compile(){
+        Compiled<K> current = compiled;
+        if (current != null){
+            return current;
+        }
+        Map<Node, Vertex> vertices = new IdentityHashMap<>();
+        Map<K, Vertex> compiledRoots = new LinkedHashMap<>();
+        for(Entry<K, Node> root : roots.entrySet()){
+            compiledRoots.put(root.getKey(), root.getValue() == null ? null : vertex(root.getValue(), vertices));
+        }
+        current = new Compiled<>(compiledRoots, new HashMap<>(originals));
+        compiled = current;
+        return current;
+    }
+
+    private static Vertex vertex(Node node, Map<Node, Vertex> vertices){
+        Vertex vertex = vertices.get(node);
+        if (vertex == null){
+            Vertex[] children = new Vertex[node.children.length];
+            for(int i = 0; i < children.length; i++){
+                children[i] = vertex(node.children[i], vertices);
+            }
+            vertex = new Vertex(node.leaf, node.and, children);
+            vertices.put(node, vertex);
+        }
+        return vertex;
+    }
+
+    /**
+     * The evaluation of a single record. Holds the result of every node that
+     * has been evaluated so far.
+     * <p>
+     * Only the nodes that are reached from the criteria that are tested are
+     * remembered, so an evaluation that only tests the candidates of a record
+     * costs nothing for the rest of the graph.
+     * <p>
+     * An evaluation is not thread safe.
+     *
+     * @param <K> The type of key that the criteria are stored under
+     */
+    public static final class Evaluation<K> {
+
+        private final Compiled<K> graph;
+        private final DotNotationMap record;
+        private final Map<Vertex, Boolean> results = new HashMap<>();
+        private int comparisons;
+        private int failures;
+
+        private Evaluation(Compiled<K> graph, DotNotationMap record){
+            this.graph = graph;
+            this.record = record;
+        }
+
+        /**
+         * Determines if the record meets the criteria stored under the key.
+         * A criteria that throws an exception while it is evaluated does not
+         * match.
+         *
+         * @param key The key of the criteria
+         * @return true if the record meets the criteria
+         * @throws IllegalArgumentException If there is no criteria with the key
+         */
+        public boolean test(K key){
+            if (!graph.roots.containsKey(key)){
+                throw new IllegalArgumentException("There is no criteria with the key " + key);
+            }
+            return testRoot(key, graph.roots.get(key));
+        }
+
+        /**
+         * Gets the keys of every criteria that the record meets
+         *
+         * @return The keys in the order the criteria were added
+         */
+        public List<K> getMatches(){
+            List<K> matches = new ArrayList<>();
+            for(Entry<K, Vertex> root : graph.roots.entrySet()){
+                if (testRoot(root.getKey(), root.getValue())){
+                    matches.add(root.getKey());
+                }
+            }
+            return matches;
+        }
+
+        /**
+         * Gets the number of comparisons that have been run against the record.
+         * Every comparison is run at most once no matter how many criteria
+         * contain it.
+         *
+         * @return The number of comparisons
+         */
+        public int getComparisonCount(){
+            return comparisons;
+        }
+
+        private boolean testRoot(K key, Vertex root){
+            if (root == null){
+                return true;
+            }
+            if (record == null){
+                return false;
+            }
+            if (!test(root)){
+                return false;
+            }
+            if (failures == 0){
+                return true;
+            }
+            //the normal form may have skipped the comparison that the criteria as written fails on
+            try{
+                return graph.originals.get(key).meetsCriteria(record);
+            }catch(RuntimeException ex){
+                //one criteria that cannot be compared must not stop the others from matching
+                return false;
+            }
+        }
+
+        private boolean test(Vertex vertex){
+            Boolean result = results.get(vertex);
+            if (result != null){
+                return result;
+            }
+            boolean meets;
+            if (vertex.leaf != null){
+                comparisons++;
+                try{
+                    meets = vertex.leaf.meetsCriteria(record);
+                }catch(RuntimeException ex){
+                    failures++;
+                    meets = false;
+                }
+            }else{
+                //short circuit for false on AND and for true on OR
+                meets = vertex.and;
+                for(Vertex child : vertex.children){
+                    if (test(child) != vertex.and){
+                        meets = !vertex.and;
+                        break;
+                    }
+                }
+            }
+            results.put(vertex, meets);
+            return meets;
+        }
+    }
+
+    /**
+     * A node while criteria are being added and removed, counting the number
+     * of criteria and nodes that point to it.
+     */
+    private static final class Node {
+        final String key;
+        final SubscriptionCriteria leaf;
+        final boolean and;
+        final Node[] children;
+        int references;
+
+        Node(String key, SubscriptionCriteria leaf, boolean and, Node[] children){
+            this.key = key;
+            this.leaf = leaf;
+            this.and = and;
+            this.children = children;
+        }
+    }
+
+    /**
+     * A node of the compiled graph
+     */
+    private static final class Vertex {
+        final SubscriptionCriteria leaf;
+        final boolean and;
+        final Vertex[] children;
+
+        Vertex(SubscriptionCriteria leaf, boolean and, Vertex[] children){
+            this.leaf = leaf;
+            this.and = and;
+            this.children = children;
+        }
+    }
+
+    private static final class Compiled<K> {
+        final Map<K, Vertex> roots;
+        final Map<K, SubscriptionCriteria> originals;
+
+        Compiled(Map<K, Vertex> roots, Map<K, SubscriptionCriteria> originals){
+            this.roots = roots;
+            this.originals = originals;
+        }
+    }
+
+}
@@ -0,0 +1,480 @@
+package org.datakow.fiql;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Rewrites {@link SubscriptionCriteria} trees into a canonical form so that
+ * criteria that are written differently but mean the same thing look the same.
+ * <p>
+ * The criteria is normalized from the bottom up:
+ * <ul>
+ * <li>Nested ANDs inside of an AND and nested ORs inside of an OR are flattened
+ * into their parent and a logical node with a single child is replaced by the
+ * child.</li>
+ * <li>Range comparisons (=gt=, =ge=, =lt=, =le=) on the same property that are
+ * AND'ed together are merged into a single comparison.</li>
+ * <li>An AND of ORs is distributed into an OR of ANDs, the disjunctive normal
+ * form, as long as the result has no more than the maximum number of
+ * conjunctions. Larger expansions are left as they are.</li>
+ * <li>Duplicate children are removed, as are the conjunctions of an OR that
+ * contain all of the terms of another conjunction.</li>
+ * </ul>
+ * The children of every logical node are evaluated in the order they were
+ * written, so a comparison that is guarded by an earlier term, like
+ * type==number;value=gt=5, is still short circuited. Only the
+ * {@link #canonicalKey(SubscriptionCriteria) canonical key} sorts the keys of
+ * the children, so criteria that only differ in the order of their terms
+ * have the same key.
+ * <p>
+ * The normalized criteria meets the criteria for the same records as the
+ * original whenever none of its comparisons throws an exception. Distributing
+ * an AND over an OR can reach a comparison that the original short circuits,
+ * like a=gt=0 in (b==1,a=gt=0);c==3,c==2 when b is 1 and a is a String, so
+ * when the normalized criteria throws the original has to be evaluated
+ * instead. {@link SubscriptionCriteriaGraph} does this.
+ * <p>
+ * Bounds on the same side of a range, like x=gt=1;x=gt=3, are both kept.
+ * Which one is tighter depends on the type of the value in the record since
+ * the criteria values are converted to it before they are compared.
+ *
+ * @author kevin.off
+ * @see SubscriptionCriteriaGraph
+ */
+public final class SubscriptionCriteriaNormalizer {
+
+    /**
+     * The default number of conjunctions that an AND of ORs can be expanded into
+     */
+    public static final int DEFAULT_MAX_CONJUNCTIONS = 64;
+
+    private static final List<String> RANGE_OPERATORS = Arrays.asList(
+            ComparisonOperator.GT, ComparisonOperator.GTE, ComparisonOperator.LT, ComparisonOperator.LTE);
+
+    private SubscriptionCriteriaNormalizer(){
+        // Utility class, hide the constructor.
+    }
+
+    /**
+     * Normalizes the criteria expanding into at most
+     * {@link #DEFAULT_MAX_CONJUNCTIONS} conjunctions.
+     *
+     * @param criteria The criteria to normalize
+     * @return The normalized criteria
+     * @throws IllegalArgumentException If the criteria does not have a property to compare
+     */
+    public static SubscriptionCriteria normalize(SubscriptionCriteria criteria){
+        return normalize(criteria, DEFAULT_MAX_CONJUNCTIONS);
+    }
+
+    /**
+     * Normalizes the criteria.
+     * <p>
+     * The comparisons of the original criteria are reused in the result
+     * unless they were merged.
+     *
+     * @param criteria The criteria to normalize
+     * @param maxConjunctions The number of conjunctions that an AND of ORs can be expanded into
+     * @return The normalized criteria
+     * @throws IllegalArgumentException If the criteria does not have a property to compare
+     */
+    public static SubscriptionCriteria normalize(SubscriptionCriteria criteria, int maxConjunctions){
+        return toCriteria(term(criteria, maxConjunctions));
+    }
+
+    /**
+     * Gets a string that is the same for every criteria that has the same
+     * normal form.
+     *
+     * @param criteria The criteria
+     * @return The canonical key
+     * @throws IllegalArgumentException If the criteria does not have a property to compare
+     */
+    public static String canonicalKey(SubscriptionCriteria criteria){
+        return term(criteria, DEFAULT_MAX_CONJUNCTIONS).key;
+    }
+
+    /**
+     * Normalizes the criteria into a tree of terms
+     *
+     * @param criteria The criteria to normalize
+     * @param maxConjunctions The number of conjunctions that an AND of ORs can be expanded into
+     * @return The root term
+     */
+    static Term term(SubscriptionCriteria criteria, int maxConjunctions){
+        if (criteria == null){
+            throw new IllegalArgumentException("The criteria cannot be null");
+        }
+        if (maxConjunctions < 1){
+            throw new IllegalArgumentException("The maximum number of conjunctions must be at least 1");
+        }
+        return visit(criteria, maxConjunctions);
+    }
+
+    /**
+     * Follows the same path through the criteria as
+     * {@link SubscriptionCriteria#meetsCriteria(org.datakow.core.components.DotNotationMap)}.
+     */
+    private static Term visit(SubscriptionCriteria criteria, int maxConjunctions){
+        String propertyName = criteria.getPropertyName();
+        if (propertyName == null){
+            List<SubscriptionCriteria> chain = criteria.getChain();
+            if (chain.size() != 1 || chain.get(0) == criteria){
+                throw new IllegalArgumentException("The criteria does not have a property to compare");
+            }
+            return visit(chain.get(0), maxConjunctions);
+        }
+        boolean isAnd = propertyName.equalsIgnoreCase(LogicalOperator.AND);
+        if (isAnd || propertyName.equalsIgnoreCase(LogicalOperator.OR)){
+            List<SubscriptionCriteria> list = criteria.getValue();
+            List<Term> children = new ArrayList<>(list.size());
+            for(SubscriptionCriteria child : list){
+                children.add(visit(child, maxConjunctions));
+            }
+            return isAnd ? and(children, maxConjunctions) : or(children);
+        }
+        return new Term(criteria);
+    }
+
+    private static Term and(List<Term> children, int maxConjunctions){
+        List<Term> terms = mergeRanges(flatten(children, true));
+        long conjunctions = 1;
+        boolean hasOr = false;
+        for(Term term : terms){
+            if (term.isOr()){
+                hasOr = true;
+                conjunctions *= term.children.size();
+                if (conjunctions > maxConjunctions){
+                    return conjunction(terms);
+                }
+            }
+        }
+        if (!hasOr){
+            return conjunction(terms);
+        }
+        List<List<Term>> products = new ArrayList<>();
+        products.add(new ArrayList<>());
+        for(Term term : terms){
+            List<Term> options = term.isOr() ? term.children : Collections.singletonList(term);
+            List<List<Term>> next = new ArrayList<>(products.size() * options.size());
+            for(List<Term> product : products){
+                for(Term option : options){
+                    List<Term> expanded = new ArrayList<>(product);
+                    expanded.add(option);
+                    next.add(expanded);
+                }
+            }
+            products = next;
+        }
+        List<Term> disjuncts = new ArrayList<>(products.size());
+        for(List<Term> product : products){
+            disjuncts.add(conjunction(mergeRanges(flatten(product, true))));
+        }
+        return or(disjuncts);
+    }
+
+    private static Term conjunction(List<Term> terms){
+        List<Term> children = unique(terms);
+        if (children.size() == 1){
+            return children.get(0);
+        }
+        return new Term(LogicalOperator.AND, children);
+    }
+
+    private static Term or(List<Term> children){
+        List<Term> terms = unique(flatten(children, false));
+        if (terms.size() > 1){
+            terms = absorb(terms);
+        }
+        if (terms.size() == 1){
+            return terms.get(0);
+        }
+        return new Term(LogicalOperator.OR, terms);
+    }
+
+    private static List<Term> flatten(List<Term> children, boolean and){
+        List<Term> terms = new ArrayList<>(children.size());
+        for(Term child : children){
+            if (and ? child.isAnd() : child.isOr()){
+                terms.addAll(child.children);
+            }else{
+                terms.add(child);
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Removes the terms that have the same key as an earlier term, keeping
+     * the order they were written in.
+     */
+    private static List<Term> unique(List<Term> terms){
+        Map<String, Term> unique = new LinkedHashMap<>();
+        for(Term term : terms){
+            unique.putIfAbsent(term.key, term);
+        }
+        return new ArrayList<>(unique.values());
+    }
+
+    /**
+     * Removes every conjunction that contains all of the terms of a smaller
+     * conjunction, a | a;b is the same as a.
+     */
+    private static List<Term> absorb(List<Term> terms){
+        List<Set<String>> sets = new ArrayList<>(terms.size());
+        boolean mixed = false;
+        for(Term term : terms){
+            Set<String> set = new HashSet<>();
+            if (term.isAnd()){
+                for(Term child : term.children){
+                    set.add(child.key);
+                }
+                mixed = true;
+            }else{
+                set.add(term.key);
+            }
+            sets.add(set);
+        }
+        if (!mixed){
+            return terms;
+        }
+        List<Term> kept = new ArrayList<>(terms.size());
+        for(int i = 0; i < terms.size(); i++){
+            boolean absorbed = false;
+            for(int j = 0; j < terms.size() && !absorbed; j++){
+                absorbed = sets.get(j).size() < sets.get(i).size() && sets.get(i).containsAll(sets.get(j));
+            }
+            if (!absorbed){
+                kept.add(terms.get(i));
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * Merges the range comparisons on the same property into as few
+     * comparisons as possible. A comparison is only merged into another that
+     * does not already use the same operator with a different value.
+     * <p>
+     * The comparisons are packed in the order of their keys so the result
+     * does not depend on the order they were written in, and the merged
+     * comparisons take the place of the first range on the property.
+     */
+    private static List<Term> mergeRanges(List<Term> terms){
+        List<Term> written = unique(terms);
+        Map<String, List<Term>> ranges = new LinkedHashMap<>();
+        for(Term term : written){
+            if (term.isRange()){
+                ranges.computeIfAbsent(term.leaf.getPropertyName(), (k) -> new ArrayList<>()).add(term);
+            }
+        }
+        if (ranges.isEmpty()){
+            return written;
+        }
+        List<Term> merged = new ArrayList<>(written.size());
+        for(Term term : written){
+            if (!term.isRange()){
+                merged.add(term);
+                continue;
+            }
+            List<Term> property = ranges.remove(term.leaf.getPropertyName());
+            if (property != null){
+                merged.addAll(pack(term.leaf.getPropertyName(), property));
+            }
+        }
+        return merged;
+    }
+
+    private static List<Term> pack(String propertyName, List<Term> ranges){
+        if (ranges.size() == 1){
+            return ranges;
+        }
+        Map<String, Term> sorted = new TreeMap<>();
+        for(Term term : ranges){
+            sorted.put(term.key, term);
+        }
+        List<Map<String, Object>> packs = new ArrayList<>();
+        List<List<Term>> packTerms = new ArrayList<>();
+        for(Term term : sorted.values()){
+            int target = -1;
+            for(int i = 0; i < packs.size() && target < 0; i++){
+                if (fits(packs.get(i), term.leaf.getOperators())){
+                    target = i;
+                }
+            }
+            if (target < 0){
+                packs.add(new LinkedHashMap<>());
+                packTerms.add(new ArrayList<>());
+                target = packs.size() - 1;
+            }
+            packs.get(target).putAll(term.leaf.getOperators());
+            packTerms.get(target).add(term);
+        }
+        List<Term> merged = new ArrayList<>(packs.size());
+        for(int i = 0; i < packs.size(); i++){
+            if (packTerms.get(i).size() == 1){
+                merged.add(packTerms.get(i).get(0));
+            }else{
+                merged.add(new Term(rangeCriteria(propertyName, packs.get(i))));
+            }
+        }
+        return merged;
+    }
+
+    private static boolean fits(Map<String, Object> pack, Map<String, Object> operators){
+        for(Entry<String, Object> operator : operators.entrySet()){
+            if (pack.containsKey(operator.getKey())
+                    && !valueKey(pack.get(operator.getKey())).equals(valueKey(operator.getValue()))){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static SubscriptionCriteria rangeCriteria(String propertyName, Map<String, Object> operators){
+        SubscriptionCriteria criteria = SubscriptionCriteria.where(propertyName);
+        for(String operator : RANGE_OPERATORS){
+            if (!operators.containsKey(operator)){
+                continue;
+            }
+            Object value = operators.get(operator);
+            switch(operator){
+                case ComparisonOperator.GT:
+                    criteria.gt(value);
+                    break;
+                case ComparisonOperator.GTE:
+                    criteria.gte(value);
+                    break;
+                case ComparisonOperator.LT:
+                    criteria.lt(value);
+                    break;
+                default:
+                    criteria.lte(value);
+                    break;
+            }
+        }
+        return criteria;
+    }
+
+    private static SubscriptionCriteria toCriteria(Term term){
+        if (term.leaf != null){
+            return term.leaf;
+        }
+        List<SubscriptionCriteria> children = new ArrayList<>(term.children.size());
+        for(Term child : term.children){
+            children.add(toCriteria(child));
+        }
+        SubscriptionCriteria criteria = new SubscriptionCriteria();
+        if (term.isAnd()){
+            criteria.and(children);
+        }else{
+            criteria.or(children);
+        }
+        return criteria;
+    }
+
+    private static String leafKey(SubscriptionCriteria criteria){
+        StringBuilder key = new StringBuilder();
+        appendValue(key, criteria.getPropertyName());
+        Map<String, Object> operators = criteria.getOperators();
+        if (operators.isEmpty()){
+            key.append("==");
+            appendValue(key, criteria.getValue());
+        }else{
+            for(Entry<String, Object> operator : new TreeMap<>(operators).entrySet()){
+                key.append('=').append(operator.getKey()).append('=');
+                appendValue(key, operator.getValue());
+            }
+        }
+        return key.toString();
+    }
+
+    private static String valueKey(Object value){
+        StringBuilder key = new StringBuilder();
+        appendValue(key, value);
+        return key.toString();
+    }
+
+    /**
+     * Writes the value along with its type since values of different types
+     * are converted differently.
+     */
+    private static void appendValue(StringBuilder key, Object value){
+        if (value == null){
+            key.append("null");
+        }else if (value instanceof String){
+            key.append('\'').append(((String)value).replace("\\", "\\\\").replace("'", "\\'")).append('\'');
+        }else if (value instanceof Date){
+            key.append("Date(").append(((Date)value).getTime()).append(')');
+        }else if (value instanceof Collection){
+            key.append('(');
+            boolean first = true;
+            for(Object item : (Collection)value){
+                if (!first){
+                    key.append(',');
+                }
+                appendValue(key, item);
+                first = false;
+            }
+            key.append(')');
+        }else{
+            key.append(value.getClass().getSimpleName()).append('(').append(value).append(')');
+        }
+    }
+
+    /**
+     * A node of a normalized criteria. It is either a single comparison or
+     * an AND or OR of its children.
+     */
+    static final class Term {
+        final String key;
+        final SubscriptionCriteria leaf;
+        final String operator;
+        final List<Term> children;
+
+        Term(SubscriptionCriteria leaf){
+            this.key = leafKey(leaf);
+            this.leaf = leaf;
+            this.operator = null;
+            this.children = Collections.emptyList();
+        }
+
+        Term(String operator, List<Term> children){
+            List<String> keys = new ArrayList<>(children.size());
+            for(Term child : children){
+                keys.add(child.key);
+            }
+            Collections.sort(keys);
+            this.key = operator + '(' + String.join(",", keys) + ')';
+            this.leaf = null;
+            this.operator = operator;
+            this.children = Collections.unmodifiableList(children);
+        }
+
+        boolean isAnd(){
+            return LogicalOperator.AND.equals(operator);
+        }
+
+        boolean isOr(){
+            return LogicalOperator.OR.equals(operator);
+        }
+
+        boolean isRange(){
+            if (leaf == null || leaf.getOperators().isEmpty()){
+                return false;
+            }
+            return RANGE_OPERATORS.containsAll(leaf.getOperators().keySet());
+        }
+    }
+
+}
@@ -14,12 +14,22 @@ import java.util.Map;
  */
 public class SubscriptionCriteriaOperatorAppender {
     
-    private static final Map<ComparisonOperator, OperatorApplication> operators = new HashMap<>();
+    private final Map<ComparisonOperator, OperatorApplication> operators = new HashMap<>();
     
     /**
      * Adds the appropriate comparison operation depending on the FiqlOperator
      */
     public SubscriptionCriteriaOperatorAppender(){
+        this(new SubscriptionFiqlParser());
+    }
+    
+    /**
+     * Adds the appropriate comparison operation depending on the FiqlOperator
+     * 
+     * @param parser The parser whose regex engine is used for =like= and that
+     * parses the sub queries of =matches=
+     */
+    public SubscriptionCriteriaOperatorAppender(SubscriptionFiqlParser parser){
         operators.put( FiqlOperator.EQUAL,                 (criteria, arg)-> { return criteria.is(arg);  });
         operators.put( FiqlOperator.GREATER_THAN_OR_EQUAL, (criteria, arg)-> { return criteria.gte(arg); });
         operators.put( FiqlOperator.GREATER_THAN,          (criteria, arg)-> { return criteria.gt(arg);  });
@@ -29,18 +39,12 @@ public class SubscriptionCriteriaOperatorAppender {
         operators.put( FiqlOperator.IN,                    (criteria, arg)-> { return criteria.in(arg);  });
         operators.put( FiqlOperator.NOT_IN,                (criteria, arg)-> { return criteria.nin(arg); });
         operators.put( FiqlOperator.ALL,                   (criteria, arg)-> { return criteria.all(arg); });
-        operators.put( FiqlOperator.LIKE,                  (criteria, arg)-> { return criteria.regex(arg.toString()); });
-        operators.put( FiqlOperator.EXISTS,                (criteria, arg)-> { return criteria.exists(Boolean.valueOf(arg.toString())); });
-        operators.put( FiqlOperator.MATCH,                 (criteria, arg)-> { return criteria.matches((String)arg); });
-//        operators.put( FiqlOperator.WITHIN,                (criteria, arg)-> { 
-//            Point point1 = new Point(Double.valueOf((String)((Object[])arg)[0]), Double.valueOf((String)((Object[])arg)[1]));
-//            Point point2 = new Point(Double.valueOf((String)((Object[])arg)[2]), Double.valueOf((String)((Object[])arg)[3]));
-//            return criteria.within(new Box(point1, point2));
-//        });
-//        operators.put( FiqlOperator.NEAR,                (criteria, arg)-> { 
-//            Point point1 = new Point(Double.valueOf((String)((Object[])arg)[0]), Double.valueOf((String)((Object[])arg)[1]));
-//            return criteria.near(point1).maxDistance(Double.valueOf((String)((Object[])arg)[2]));
-//        });
+        operators.put( FiqlOperator.LIKE,                  (criteria, arg)-> { return criteria.regex(arg.toString(), parser.getRegexEngine(), parser.isRejectSuperLinearRegex()); });
+        operators.put( FiqlOperator.EXISTS,                (criteria, arg)-> { return criteria.exists(SubscriptionPredicates.Exists.fromArgument(arg)); });
+        operators.put( FiqlOperator.MATCH,                 (criteria, arg)-> { return criteria.matches((String)arg, parser); });
+        operators.put( FiqlOperator.WITHIN,                (criteria, arg)-> { return criteria.within(arg); });
+        operators.put( FiqlOperator.INTERSECT,             (criteria, arg)-> { return criteria.intersects(arg); });
+        operators.put( FiqlOperator.NEAR,                  (criteria, arg)-> { return criteria.near(arg); });
     }
     
     /**
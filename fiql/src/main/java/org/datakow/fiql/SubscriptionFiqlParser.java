@@ -14,6 +14,49 @@ import cz.jirutka.rsql.parser.ast.Node;
 public class SubscriptionFiqlParser {
     
     private final RSQLParser rsqlParser = new RSQLParser(FiqlOperator.subscriptionOperators());
+    private final RegexEngine regexEngine;
+    private final boolean rejectSuperLinearRegex;
+    
+    /**
+     * Creates a parser that compiles =like= patterns with the
+     * {@link LikePattern#DEFAULT_ENGINE default engine} and logs the ones
+     * that are super-linear.
+     */
+    public SubscriptionFiqlParser(){
+        this(LikePattern.DEFAULT_ENGINE, false);
+    }
+    
+    /**
+     * Creates a parser that compiles =like= patterns with the given engine
+     * 
+     * @param regexEngine The engine that runs the =like= patterns
+     * @param rejectSuperLinearRegex true to reject super-linear patterns instead of logging them
+     */
+    public SubscriptionFiqlParser(RegexEngine regexEngine, boolean rejectSuperLinearRegex){
+        if (regexEngine == null){
+            throw new IllegalArgumentException("The regex engine cannot be null");
+        }
+        this.regexEngine = regexEngine;
+        this.rejectSuperLinearRegex = rejectSuperLinearRegex;
+    }
+    
+    /**
+     * Gets the engine that runs the =like= patterns
+     * 
+     * @return The engine
+     */
+    public RegexEngine getRegexEngine(){
+        return regexEngine;
+    }
+    
+    /**
+     * Determines if super-linear =like= patterns are rejected instead of logged
+     * 
+     * @return true if they are rejected
+     */
+    public boolean isRejectSuperLinearRegex(){
+        return rejectSuperLinearRegex;
+    }
     
     public SubscriptionCriteria parse(String fiql){
         return parse(fiql, "");
@@ -29,9 +72,35 @@ public class SubscriptionFiqlParser {
     public SubscriptionCriteria parse(String fiql, String prefix){
         
         Node rootNode = rsqlParser.parse(fiql);
-        SubscriptionFiqlVisiter visiter = new SubscriptionFiqlVisiter(prefix);
+        SubscriptionFiqlVisiter visiter = new SubscriptionFiqlVisiter(prefix, this);
         SubscriptionCriteria criteria = rootNode.accept(visiter);
         return criteria;
     }
     
+    /**
+     * Compiles the fiql query into a predicate that can be evaluated against
+     * many records without being interpreted again.
+     * 
+     * @param fiql The Fiql query to compile
+     * @return The compiled predicate
+     */
+    public SubscriptionPredicate compile(String fiql){
+        return compile(fiql, "");
+    }
+    
+    /**
+     * Compiles the fiql query into a predicate that can be evaluated against
+     * many records without being interpreted again.
+     * 
+     * @param fiql The Fiql query to compile
+     * @param prefix Prefix to use for every property name
+     * @return The compiled predicate
+     */
+    public SubscriptionPredicate compile(String fiql, String prefix){
+        
+        Node rootNode = rsqlParser.parse(fiql);
+        SubscriptionPredicateVisiter visiter = new SubscriptionPredicateVisiter(prefix, this);
+        return rootNode.accept(visiter);
+    }
+    
 }
@@ -6,7 +6,7 @@ import cz.jirutka.rsql.parser.ast.LogicalNode;
 import cz.jirutka.rsql.parser.ast.NoArgRSQLVisitorAdapter;
 import cz.jirutka.rsql.parser.ast.Node;
 import cz.jirutka.rsql.parser.ast.OrNode;
-import org.datakow.core.components.DateUtil;
+import org.datakow.core.components.IsoDateUtil;
 import static org.datakow.fiql.MongoFiqlVisiter.NUMBER_PATTERN;
 import java.util.ArrayList;
 import java.util.Date;
@@ -24,11 +24,23 @@ import org.springframework.util.StringUtils;
  */
 public class SubscriptionFiqlVisiter extends NoArgRSQLVisitorAdapter<SubscriptionCriteria> {
 
-    SubscriptionCriteriaOperatorAppender appender = new SubscriptionCriteriaOperatorAppender();
+    SubscriptionCriteriaOperatorAppender appender;
     
     private final String prefix;
     
     public SubscriptionFiqlVisiter(String prefix){
+        this(prefix, new SubscriptionFiqlParser());
+    }
+    
+    /**
+     * Creates the visiter
+     * 
+     * @param prefix Prefix to use for every property name
+     * @param parser The parser whose regex engine is used for =like= and that
+     * parses the sub queries of =matches=
+     */
+    public SubscriptionFiqlVisiter(String prefix, SubscriptionFiqlParser parser){
+        this.appender = new SubscriptionCriteriaOperatorAppender(parser);
         if (!StringUtils.hasText(prefix)){
             this.prefix = "";
         }else{
@@ -137,7 +149,7 @@ public class SubscriptionFiqlVisiter extends NoArgRSQLVisitorAdapter<Subscriptio
                 if (str.equalsIgnoreCase("Date::NOW")){
                     return new Date();
                 }else{
-                    Date date = DateUtil.parseString(str.replace("Date::", ""));
+                    Date date = IsoDateUtil.parseString(str.replace("Date::", ""));
                     if (date != null){
                         return date;
                     }
@@ -149,7 +161,7 @@ public class SubscriptionFiqlVisiter extends NoArgRSQLVisitorAdapter<Subscriptio
                 
             }else{
                 
-                Date date = DateUtil.parseString((String)orig);
+                Date date = IsoDateUtil.parseString((String)orig);
                 if (date != null){
                     return date;
                 }else if(((String)orig).equalsIgnoreCase("true")){
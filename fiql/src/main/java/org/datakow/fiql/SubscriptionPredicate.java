@@ -0,0 +1,28 @@
+package org.datakow.fiql;
+
+import org.datakow.core.components.DotNotationMap;
+
+/**
+ * A compiled subscription criteria.
+ * <p>
+ * Instances are created by {@link SubscriptionFiqlParser#compile(String)} and
+ * evaluate a record with the same semantics as
+ * {@link SubscriptionCriteria#meetsCriteria(DotNotationMap)} but without
+ * interpreting operator names or converting constants on every call.
+ * <p>
+ * Compiled predicates are immutable and may be shared between threads.
+ *
+ * @author kevin.off
+ */
+@FunctionalInterface
+public interface SubscriptionPredicate {
+
+    /**
+     * Determines if the given record meets the criteria.
+     *
+     * @param record The record to compare against
+     * @return True if the record meets the criteria
+     */
+    boolean test(DotNotationMap record);
+
+}
@@ -0,0 +1,176 @@
+package org.datakow.fiql;
+
+import cz.jirutka.rsql.parser.ast.AndNode;
+import cz.jirutka.rsql.parser.ast.ComparisonNode;
+import cz.jirutka.rsql.parser.ast.ComparisonOperator;
+import cz.jirutka.rsql.parser.ast.LogicalNode;
+import cz.jirutka.rsql.parser.ast.NoArgRSQLVisitorAdapter;
+import cz.jirutka.rsql.parser.ast.Node;
+import cz.jirutka.rsql.parser.ast.OrNode;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.springframework.util.StringUtils;
+
+
+/**
+ * Part of the visitor pattern, this class compiles the parsed FIQL query into
+ * a tree of {@link SubscriptionPredicate} objects.
+ * <p>
+ * Arguments are cast the same way as they are by {@link SubscriptionFiqlVisiter}
+ * so a compiled predicate gives the same answer as the {@link SubscriptionCriteria}
+ * built from the same query.
+ *
+ * @author kevin.off
+ */
+public class SubscriptionPredicateVisiter extends NoArgRSQLVisitorAdapter<SubscriptionPredicate> {
+
+    private static final Map<ComparisonOperator, PredicateFactory> operators = new HashMap<>();
+
+    static {
+        operators.put( FiqlOperator.EQUAL,                 (property, arg, parser)-> new SubscriptionPredicates.Equal(property, arg));
+        operators.put( FiqlOperator.GREATER_THAN_OR_EQUAL, (property, arg, parser)-> new SubscriptionPredicates.GreaterOrEqual(property, arg));
+        operators.put( FiqlOperator.GREATER_THAN,          (property, arg, parser)-> new SubscriptionPredicates.GreaterThan(property, arg));
+        operators.put( FiqlOperator.LESS_THAN_OR_EQUAL,    (property, arg, parser)-> new SubscriptionPredicates.LessOrEqual(property, arg));
+        operators.put( FiqlOperator.LESS_THAN,             (property, arg, parser)-> new SubscriptionPredicates.LessThan(property, arg));
+        operators.put( FiqlOperator.NOT_EQUAL,             (property, arg, parser)-> new SubscriptionPredicates.NotEqual(property, arg));
+        operators.put( FiqlOperator.IN,                    (property, arg, parser)-> new SubscriptionPredicates.In(property, toCollection(arg)));
+        operators.put( FiqlOperator.NOT_IN,                (property, arg, parser)-> new SubscriptionPredicates.NotIn(property, toCollection(arg)));
+        operators.put( FiqlOperator.ALL,                   (property, arg, parser)-> new SubscriptionPredicates.All(property, toCollection(arg)));
+        operators.put( FiqlOperator.LIKE,                  (property, arg, parser)-> new SubscriptionPredicates.Like(property, arg.toString(), parser.getRegexEngine(), parser.isRejectSuperLinearRegex()));
+        operators.put( FiqlOperator.EXISTS,                (property, arg, parser)-> new SubscriptionPredicates.Exists(property, SubscriptionPredicates.Exists.fromArgument(arg)));
+        operators.put( FiqlOperator.MATCH,                 (property, arg, parser)-> new SubscriptionPredicates.Matches(property, parser.compile((String)arg)));
+        operators.put( FiqlOperator.WITHIN,                (property, arg, parser)-> new SubscriptionPredicates.Within(property, GeoShape.fromArgument(arg)));
+        operators.put( FiqlOperator.INTERSECT,             (property, arg, parser)-> new SubscriptionPredicates.Intersects(property, GeoShape.fromArgument(arg)));
+        operators.put( FiqlOperator.NEAR,                  (property, arg, parser)-> new SubscriptionPredicates.Near(property, GeoShape.Near.fromArgument(arg)));
+    }
+
+    private final SubscriptionFiqlVisiter argumentVisiter;
+    private final SubscriptionFiqlParser parser;
+    private final String prefix;
+
+    public SubscriptionPredicateVisiter(String prefix){
+        this(prefix, new SubscriptionFiqlParser());
+    }
+
+    /**
+     * Creates the visiter
+     *
+     * @param prefix Prefix to use for every property name
+     * @param parser The parser whose regex engine is used for =like= and that
+     * compiles the sub queries of =matches=
+     */
+    public SubscriptionPredicateVisiter(String prefix, SubscriptionFiqlParser parser){
+        this.argumentVisiter = new SubscriptionFiqlVisiter(prefix, parser);
+        this.parser = parser;
+        if (!StringUtils.hasText(prefix)){
+            this.prefix = "";
+        }else{
+            this.prefix = prefix.endsWith(".") ? prefix : prefix + ".";
+        }
+    }
+
+    /**
+     * Compiles the children of the node into an AND predicate
+     *
+     * @param node The node that contains children to be AND'ed
+     * @return The resulting predicate
+     */
+    @Override
+    public SubscriptionPredicate visit(AndNode node) {
+        return SubscriptionPredicates.and(visitChildren(node));
+    }
+
+    /**
+     * Compiles the children of the node into an OR predicate
+     *
+     * @param node The node that contains children to be OR'ed
+     * @return The resulting predicate
+     */
+    @Override
+    public SubscriptionPredicate visit(OrNode node) {
+        return SubscriptionPredicates.or(visitChildren(node));
+    }
+
+    /**
+     * Compiles the comparison node into the predicate for its operator
+     *
+     * @param node The comparison node to compile
+     * @return The resulting predicate
+     */
+    @Override
+    public SubscriptionPredicate visit(ComparisonNode node) {
+        PredicateFactory factory = operators.get(node.getOperator());
+        if (factory == null){
+            throw new RuntimeException("The comparison operator " + node.getOperator() + " is not supported.");
+        }
+        return factory.create(extractCriteriaField(node), extractArguments(node), parser);
+    }
+
+    private List<SubscriptionPredicate> visitChildren(LogicalNode node){
+        List<SubscriptionPredicate> predicates = new ArrayList<>();
+        for (Node childNode : node) {
+            predicates.add(childNode.accept(this));
+        }
+        return predicates;
+    }
+
+    /**
+     * Returns the property name from the node
+     *
+     * @param node The node
+     * @return The property name
+     */
+    private String extractCriteriaField(ComparisonNode node) {
+        if (node.getSelector().startsWith("/")){
+            return node.getSelector().replace("/", "");
+        }else{
+            return prefix + node.getSelector();
+        }
+    }
+
+    /**
+     * Returns the comparison value from the node
+     *
+     * @param node The node
+     * @return The comparison value
+     */
+    private Object extractArguments(ComparisonNode node) {
+        if (node.getArguments().size() == 1){
+            return argumentVisiter.castType(node.getArguments().get(0));
+        }else{
+            return node.getArguments()
+                    .stream()
+                    .map(o->argumentVisiter.castType(o))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Wraps a single value in a list the same way the in, out and all
+     * criteria do.
+     *
+     * @param arg The argument
+     * @return The argument as a collection
+     */
+    private static Collection toCollection(Object arg){
+        if (!Collection.class.isAssignableFrom(arg.getClass())){
+            List newValue = new ArrayList();
+            newValue.add(arg);
+            return newValue;
+        }
+        return (Collection)arg;
+    }
+
+    /**
+     * Functional interface used to create the predicate for a comparison operator
+     */
+    @FunctionalInterface
+    private interface PredicateFactory{
+        SubscriptionPredicate create(String propertyName, Object argument, SubscriptionFiqlParser parser);
+    }
+
+}
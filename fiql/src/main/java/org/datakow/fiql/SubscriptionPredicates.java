@@ -0,0 +1,444 @@
+package org.datakow.fiql;
+
+import org.datakow.core.components.DotNotationList;
+import org.datakow.core.components.DotNotationMap;
+import org.datakow.core.components.PropertyPath;
+import java.util.Collection;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The typed predicates that make up a compiled {@link SubscriptionPredicate} tree.
+ * <p>
+ * Each comparison operator has its own predicate class. Property paths are
+ * split and criteria values are converted when the predicate is created so
+ * that evaluating a record only walks the record and compares values.
+ * Every predicate reproduces the behavior of the matching branch in
+ * {@link SubscriptionCriteria#meetsCriteria(DotNotationMap)}.
+ *
+ * @author kevin.off
+ */
+public final class SubscriptionPredicates {
+
+    private SubscriptionPredicates(){
+        // Utility class, hide the constructor.
+    }
+
+    /**
+     * Creates a predicate that is true when all of the given predicates are true
+     *
+     * @param predicates The predicates to AND
+     * @return The resulting predicate
+     */
+    public static SubscriptionPredicate and(List<SubscriptionPredicate> predicates){
+        return new And(predicates.toArray(new SubscriptionPredicate[predicates.size()]));
+    }
+
+    /**
+     * Creates a predicate that is true when any of the given predicates is true
+     *
+     * @param predicates The predicates to OR
+     * @return The resulting predicate
+     */
+    public static SubscriptionPredicate or(List<SubscriptionPredicate> predicates){
+        return new Or(predicates.toArray(new SubscriptionPredicate[predicates.size()]));
+    }
+
+    /**
+     * Finds the class that the criteria values should be converted to.
+     * For a collection this is the class of its first element.
+     *
+     * @param docValue The value from the record
+     * @return The class or null
+     */
+    static Class<?> targetClass(Object docValue){
+        if (docValue == null){
+            return null;
+        }
+        if (docValue instanceof DotNotationList){
+            DotNotationList list = (DotNotationList)docValue;
+            return list.isEmpty() ? null : list.getFirst().getClass();
+        }
+        if (docValue instanceof Collection){
+            Collection collection = (Collection)docValue;
+            return collection.isEmpty() ? null : collection.iterator().next().getClass();
+        }
+        return docValue.getClass();
+    }
+
+    static TypedConstant[] toConstants(Object arg){
+        if (arg instanceof Collection){
+            Collection values = (Collection)arg;
+            TypedConstant[] constants = new TypedConstant[values.size()];
+            int i = 0;
+            for(Object value : values){
+                constants[i++] = new TypedConstant(value);
+            }
+            return constants;
+        }else{
+            return new TypedConstant[]{ new TypedConstant(arg) };
+        }
+    }
+
+    static final class And implements SubscriptionPredicate {
+        final SubscriptionPredicate[] predicates;
+
+        And(SubscriptionPredicate[] predicates){
+            this.predicates = predicates;
+        }
+
+        @Override
+        public boolean test(DotNotationMap record){
+            for(SubscriptionPredicate predicate : predicates){
+                if (!predicate.test(record)){
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    static final class Or implements SubscriptionPredicate {
+        final SubscriptionPredicate[] predicates;
+
+        Or(SubscriptionPredicate[] predicates){
+            this.predicates = predicates;
+        }
+
+        @Override
+        public boolean test(DotNotationMap record){
+            for(SubscriptionPredicate predicate : predicates){
+                if (predicate.test(record)){
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Base class of every predicate that compares a single property.
+     * Resolves the value and existence of the property and hands them to the
+     * operator specific comparison.
+     */
+    abstract static class PropertyPredicate implements SubscriptionPredicate {
+        final PropertyPath path;
+
+        PropertyPredicate(String propertyName){
+            this.path = new PropertyPath(propertyName);
+        }
+
+        @Override
+        public final boolean test(DotNotationMap record){
+            Object docValue = record.getProperty(path);
+            boolean docValueExists = record.containsKey(path);
+            return test(docValue, docValueExists, targetClass(docValue));
+        }
+
+        abstract boolean test(Object docValue, boolean docValueExists, Class<?> docValueClass);
+
+        /**
+         * Gets the path of the property being compared
+         *
+         * @return The dot notation path
+         */
+        String getPropertyName(){
+            return path.getPath();
+        }
+    }
+
+    static final class Equal extends PropertyPredicate {
+        final TypedConstant value;
+
+        Equal(String propertyName, Object value){
+            super(propertyName);
+            this.value = new TypedConstant(value);
+        }
+
+        @Override
+        boolean test(Object docValue, boolean docValueExists, Class<?> docValueClass){
+            Object converted = value.as(docValueClass);
+            if (docValue instanceof Collection){
+                return ((Collection)docValue).contains(converted);
+            }
+            return (docValueExists && docValue == null && value.value() == null) || (converted != null && converted.equals(docValue));
+        }
+    }
+
+    static final class NotEqual extends PropertyPredicate {
+        final TypedConstant value;
+
+        NotEqual(String propertyName, Object value){
+            super(propertyName);
+            this.value = new TypedConstant(value);
+        }
+
+        @Override
+        boolean test(Object docValue, boolean docValueExists, Class<?> docValueClass){
+            Object converted = value.as(docValueClass);
+            return !((docValueExists && docValue == null && value.value() == null) || (converted != null && converted.equals(docValue)));
+        }
+    }
+
+    /**
+     * Base class of the =gt=, =ge=, =lt= and =le= comparisons.
+     */
+    abstract static class Compare extends PropertyPredicate {
+        final TypedConstant value;
+
+        Compare(String propertyName, Object value){
+            super(propertyName);
+            this.value = new TypedConstant(value);
+        }
+
+        @Override
+        final boolean test(Object docValue, boolean docValueExists, Class<?> docValueClass){
+            Object converted = value.as(docValueClass);
+            if (docValue == null){
+                return false;
+            }
+            return accept(((Comparable)docValue).compareTo(converted));
+        }
+
+        /**
+         * Decides if the record value compares to the criteria value the right way
+         *
+         * @param comparison The record value compared to the criteria value
+         * @return true if the comparison is met
+         */
+        abstract boolean accept(int comparison);
+    }
+
+    static final class GreaterThan extends Compare {
+        GreaterThan(String propertyName, Object value){
+            super(propertyName, value);
+        }
+
+        @Override
+        boolean accept(int comparison){
+            return comparison > 0;
+        }
+    }
+
+    static final class GreaterOrEqual extends Compare {
+        GreaterOrEqual(String propertyName, Object value){
+            super(propertyName, value);
+        }
+
+        @Override
+        boolean accept(int comparison){
+            return comparison >= 0;
+        }
+    }
+
+    static final class LessThan extends Compare {
+        LessThan(String propertyName, Object value){
+            super(propertyName, value);
+        }
+
+        @Override
+        boolean accept(int comparison){
+            return comparison < 0;
+        }
+    }
+
+    static final class LessOrEqual extends Compare {
+        LessOrEqual(String propertyName, Object value){
+            super(propertyName, value);
+        }
+
+        @Override
+        boolean accept(int comparison){
+            return comparison <= 0;
+        }
+    }
+
+    static final class In extends PropertyPredicate {
+        final TypedConstant[] values;
+
+        In(String propertyName, Object values){
+            super(propertyName);
+            this.values = toConstants(values);
+        }
+
+        @Override
+        boolean test(Object docValue, boolean docValueExists, Class<?> docValueClass){
+            for(TypedConstant value : values){
+                Object converted = value.as(docValueClass);
+                if ((docValueExists && docValue == null && value.value() == null) || (docValue != null && converted != null && converted.equals(docValue))){
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    static final class NotIn extends PropertyPredicate {
+        final TypedConstant[] values;
+
+        NotIn(String propertyName, Object values){
+            super(propertyName);
+            this.values = toConstants(values);
+        }
+
+        @Override
+        boolean test(Object docValue, boolean docValueExists, Class<?> docValueClass){
+            for(TypedConstant value : values){
+                Object converted = value.as(docValueClass);
+                if ((docValueExists && docValue == null && value.value() == null) || (converted != null && converted.equals(docValue))){
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    static final class All extends PropertyPredicate {
+        final TypedConstant[] values;
+
+        All(String propertyName, Object values){
+            super(propertyName);
+            this.values = toConstants(values);
+        }
+
+        @Override
+        boolean test(Object docValue, boolean docValueExists, Class<?> docValueClass){
+            for(TypedConstant value : values){
+                Object converted = value.as(docValueClass);
+                if (!((docValueExists && docValue == null && value.value() == null) || (docValue != null && converted != null && ((Collection)docValue).contains(converted)))){
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    static final class Like extends PropertyPredicate {
+        final LikePattern pattern;
+
+        Like(String propertyName, String regex, RegexEngine engine, boolean rejectSuperLinear){
+            super(propertyName);
+            this.pattern = LikePattern.compile(regex, engine, rejectSuperLinear);
+        }
+
+        @Override
+        boolean test(Object docValue, boolean docValueExists, Class<?> docValueClass){
+            return docValue instanceof String && pattern.matches((String)docValue);
+        }
+    }
+
+    static final class Exists extends PropertyPredicate {
+        final boolean exists;
+
+        Exists(String propertyName, boolean exists){
+            super(propertyName);
+            this.exists = exists;
+        }
+
+        /**
+         * Reads the argument of an =exists= query.
+         * <p>
+         * Any other argument has always been read as false and subscriptions
+         * that were saved with one still have to load, so it is still read as
+         * false. Those arguments are deprecated and a warning is logged.
+         *
+         * @param argument true or false
+         * @return The argument as a boolean
+         */
+        static boolean fromArgument(Object argument){
+            if (argument instanceof Boolean){
+                return (Boolean)argument;
+            }
+            if (argument instanceof String){
+                if ("true".equalsIgnoreCase((String)argument)){
+                    return true;
+                }else if ("false".equalsIgnoreCase((String)argument)){
+                    return false;
+                }
+            }
+            Logger.getLogger(SubscriptionPredicates.class.getName()).log(Level.WARNING, 
+                    "The argument {0} to an exists query is not true or false and is read as false. "
+                    + "Use =exists=false instead, other arguments are deprecated.", argument);
+            return false;
+        }
+
+        @Override
+        boolean test(Object docValue, boolean docValueExists, Class<?> docValueClass){
+            return exists == docValueExists;
+        }
+    }
+
+    /**
+     * The =matches= comparison. The sub query is compiled along with the rest
+     * of the tree instead of being parsed for every element.
+     */
+    static final class Matches extends PropertyPredicate {
+        final SubscriptionPredicate subPredicate;
+
+        Matches(String propertyName, SubscriptionPredicate subPredicate){
+            super(propertyName);
+            this.subPredicate = subPredicate;
+        }
+
+        @Override
+        boolean test(Object docValue, boolean docValueExists, Class<?> docValueClass){
+            if (docValueExists && docValue instanceof Collection){
+                for(DotNotationMap subDoc : (Collection<DotNotationMap>)docValue){
+                    if (subPredicate.test(subDoc)){
+                        return true;
+                    }
+                }
+                return false;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * The =within= comparison. The region is parsed once when the predicate
+     * is created.
+     */
+    static final class Within extends PropertyPredicate {
+        final GeoShape region;
+
+        Within(String propertyName, GeoShape region){
+            super(propertyName);
+            this.region = region;
+        }
+
+        @Override
+        boolean test(Object docValue, boolean docValueExists, Class<?> docValueClass){
+            return GeoShape.anyShape(docValue, region::contains);
+        }
+    }
+
+    static final class Intersects extends PropertyPredicate {
+        final GeoShape geometry;
+
+        Intersects(String propertyName, GeoShape geometry){
+            super(propertyName);
+            this.geometry = geometry;
+        }
+
+        @Override
+        boolean test(Object docValue, boolean docValueExists, Class<?> docValueClass){
+            return GeoShape.anyShape(docValue, geometry::intersects);
+        }
+    }
+
+    static final class Near extends PropertyPredicate {
+        final GeoShape.Near near;
+
+        Near(String propertyName, GeoShape.Near near){
+            super(propertyName);
+            this.near = near;
+        }
+
+        @Override
+        boolean test(Object docValue, boolean docValueExists, Class<?> docValueClass){
+            return near.test(docValue);
+        }
+    }
+
+}
@@ -0,0 +1,88 @@
+package org.datakow.fiql;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A criteria value that has already been run through the {@link ObjectConverter}
+ * for every type that a record value commonly has.
+ * <p>
+ * {@link #as(Class)} returns exactly what
+ * {@code ObjectConverter.convert(value, type)} would return, including
+ * throwing the same exception when the conversion is not supported.
+ *
+ * @author kevin.off
+ */
+final class TypedConstant {
+
+    private static final Class<?>[] PRECONVERTED_TYPES = new Class<?>[]{
+        String.class, Double.class, Integer.class, Long.class, Float.class,
+        Short.class, Byte.class, Boolean.class, BigDecimal.class, Date.class
+    };
+
+    /**
+     * Marks a type that the value cannot be converted to
+     */
+    private static final Object UNSUPPORTED = new Object();
+
+    private final Object value;
+    private final Map<Class<?>, Object> converted = new HashMap<>();
+
+    /**
+     * Converts the value to each of the common types
+     *
+     * @param value The criteria value
+     */
+    TypedConstant(Object value){
+        this.value = value;
+        if (value != null){
+            for(Class<?> type : PRECONVERTED_TYPES){
+                Object result;
+                try{
+                    result = ObjectConverter.convert(value, type);
+                }catch(RuntimeException e){
+                    result = UNSUPPORTED;
+                }
+                converted.put(type, result);
+            }
+        }
+    }
+
+    /**
+     * Gets the original value
+     *
+     * @return The value as it was parsed
+     */
+    Object value(){
+        return value;
+    }
+
+    /**
+     * Gets the value converted to the given type
+     *
+     * @param type The type of the record value
+     * @return The converted value or null if either the value or the type is null
+     */
+    Object as(Class<?> type){
+        if (value == null || type == null){
+            return null;
+        }
+        if (type == value.getClass()){
+            return value;
+        }
+        Object result = converted.get(type);
+        if (result == null || result == UNSUPPORTED){
+            //converting again throws a new exception for this evaluation, just like the interpreted criteria
+            return ObjectConverter.convert(value, type);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString(){
+        return String.valueOf(value);
+    }
+
+}
@@ -0,0 +1,222 @@
+package org.datakow.fiql;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author kevin.off
+ */
+public class GeoShapeTest {
+
+    private static final String SQUARE = "POLYGON((0 0, 10 0, 10 10, 0 10, 0 0))";
+
+    public GeoShapeTest() {
+    }
+
+    private static List<Double> pair(double x, double y){
+        return Arrays.asList(x, y);
+    }
+
+    private static List<List<Double>> ring(double... coordinates){
+        List<List<Double>> ring = new ArrayList<>();
+        for(int i = 0; i < coordinates.length; i += 2){
+            ring.add(pair(coordinates[i], coordinates[i + 1]));
+        }
+        return ring;
+    }
+
+    private static Map<String, Object> geoJson(String type, Object coordinates){
+        Map<String, Object> map = new HashMap<>();
+        map.put("type", type);
+        map.put("coordinates", coordinates);
+        return map;
+    }
+
+    private static GeoShape squareWithHole(){
+        return GeoShape.fromValue(geoJson("Polygon", Arrays.asList(
+                ring(0, 0, 10, 0, 10, 10, 0, 10, 0, 0),
+                ring(4, 4, 6, 4, 6, 6, 4, 6, 4, 4))));
+    }
+
+    @Test
+    public void testBoundingBox() {
+        GeoShape shape = GeoShape.parseWKT("MULTIPOLYGON(((0 0, 1 0, 1 1, 0 0)),((5 -3, 6 -3, 6 2, 5 -3)))");
+        Assert.assertEquals(0, shape.getMinX(), 0);
+        Assert.assertEquals(-3, shape.getMinY(), 0);
+        Assert.assertEquals(6, shape.getMaxX(), 0);
+        Assert.assertEquals(2, shape.getMaxY(), 0);
+
+        GeoShape point = GeoShape.point(-97.5, 35.2);
+        Assert.assertEquals(-97.5, point.getMinX(), 0);
+        Assert.assertEquals(-97.5, point.getMaxX(), 0);
+        Assert.assertEquals(35.2, point.getMinY(), 0);
+        Assert.assertEquals(35.2, point.getMaxY(), 0);
+    }
+
+    @Test
+    public void testContainsPoints() {
+        GeoShape square = GeoShape.parseWKT(SQUARE);
+        Assert.assertTrue(square.contains(GeoShape.point(5, 5)));
+        //the boundary is part of the shape
+        Assert.assertTrue(square.contains(GeoShape.point(0, 5)));
+        Assert.assertTrue(square.contains(GeoShape.point(10, 10)));
+        Assert.assertFalse(square.contains(GeoShape.point(10.001, 5)));
+        Assert.assertFalse(square.contains(GeoShape.point(-5, 5)));
+        //a point cannot contain anything
+        Assert.assertFalse(GeoShape.point(5, 5).contains(GeoShape.point(5, 5)));
+
+        GeoShape holed = squareWithHole();
+        Assert.assertTrue(holed.contains(GeoShape.point(2, 2)));
+        Assert.assertFalse(holed.contains(GeoShape.point(5, 5)));
+        Assert.assertTrue(holed.intersects(GeoShape.point(2, 2)));
+        Assert.assertFalse(holed.intersects(GeoShape.point(5, 5)));
+    }
+
+    @Test
+    public void testContainsPolygons() {
+        GeoShape square = GeoShape.parseWKT(SQUARE);
+        Assert.assertTrue(square.contains(GeoShape.parseWKT("POLYGON((1 1, 9 1, 9 9, 1 9, 1 1))")));
+        Assert.assertTrue(square.contains(GeoShape.parseWKT(SQUARE)));
+        Assert.assertFalse(square.contains(GeoShape.parseWKT("POLYGON((5 5, 15 5, 15 15, 5 15, 5 5))")));
+        Assert.assertFalse(square.contains(GeoShape.parseWKT("POLYGON((20 20, 30 20, 30 30, 20 20))")));
+        //the inner polygon is inside the bounding box but crosses the hole
+        Assert.assertFalse(squareWithHole().contains(GeoShape.parseWKT("POLYGON((1 1, 9 1, 9 9, 1 9, 1 1))")));
+        Assert.assertTrue(squareWithHole().contains(GeoShape.parseWKT("POLYGON((1 1, 3 1, 3 3, 1 3, 1 1))")));
+
+        GeoShape multi = GeoShape.parseWKT("MULTIPOLYGON(((0 0, 10 0, 10 10, 0 10, 0 0)),((20 0, 30 0, 30 10, 20 10, 20 0)))");
+        Assert.assertTrue(multi.contains(GeoShape.point(25, 5)));
+        Assert.assertFalse(multi.contains(GeoShape.point(15, 5)));
+        //every polygon has to be inside one of the polygons
+        Assert.assertFalse(multi.contains(GeoShape.parseWKT("POLYGON((5 5, 25 5, 25 6, 5 6, 5 5))")));
+    }
+
+    @Test
+    public void testIntersects() {
+        GeoShape square = GeoShape.parseWKT(SQUARE);
+        Assert.assertTrue(square.intersects(GeoShape.parseWKT("POLYGON((5 5, 15 5, 15 15, 5 15, 5 5))")));
+        Assert.assertTrue(square.intersects(GeoShape.parseWKT("POLYGON((-5 -5, 15 -5, 15 15, -5 15, -5 -5))")));
+        Assert.assertTrue(square.intersects(GeoShape.parseWKT("POLYGON((2 2, 3 2, 3 3, 2 2))")));
+        //touching on an edge or a corner
+        Assert.assertTrue(square.intersects(GeoShape.parseWKT("POLYGON((10 0, 20 0, 20 10, 10 10, 10 0))")));
+        Assert.assertTrue(square.intersects(GeoShape.parseWKT("POLYGON((10 10, 20 10, 20 20, 10 10))")));
+        Assert.assertFalse(square.intersects(GeoShape.parseWKT("POLYGON((11 0, 20 0, 20 10, 11 10, 11 0))")));
+        //the bounding boxes overlap but the shapes do not
+        Assert.assertFalse(GeoShape.parseWKT("POLYGON((0 0, 10 0, 0 10, 0 0))")
+                .intersects(GeoShape.parseWKT("POLYGON((10 10, 6 10, 10 6, 10 10))")));
+        Assert.assertTrue(GeoShape.point(3, 3).intersects(square));
+        Assert.assertTrue(GeoShape.point(3, 3).intersects(GeoShape.point(3, 3)));
+        Assert.assertFalse(GeoShape.point(3, 3).intersects(GeoShape.point(3, 4)));
+    }
+
+    @Test
+    public void testDistance() {
+        double degree = Math.toRadians(GeoShape.EARTH_RADIUS);
+        Assert.assertEquals(degree, GeoShape.point(0, 0).distance(0, 1), 1e-6);
+        Assert.assertEquals(degree, GeoShape.point(0, 0).distance(1, 0), 1e-6);
+        //a degree of longitude shrinks toward the poles
+        Assert.assertEquals(degree * Math.cos(Math.toRadians(60)), GeoShape.point(0, 60).distance(1, 60), 5);
+        //across the antimeridian
+        Assert.assertEquals(2 * degree, GeoShape.point(179, 0).distance(-179, 0), 1e-6);
+
+        GeoShape square = GeoShape.parseWKT(SQUARE);
+        Assert.assertEquals(0, square.distance(5, 5), 0);
+        Assert.assertEquals(0, square.distance(10, 5), 1e-6);
+        Assert.assertEquals(degree * Math.cos(Math.toRadians(5)), square.distance(11, 5), 50);
+        Assert.assertEquals(degree, square.distance(5, -1), 50);
+        Assert.assertEquals(GeoShape.sphericalDistance(11, 11, 10, 10), square.distance(11, 11), 50);
+        //the hole is not part of the shape
+        Assert.assertEquals(degree * Math.cos(Math.toRadians(5)), squareWithHole().distance(5, 5), 50);
+    }
+
+    @Test
+    public void testNearBoundsHoldEveryPointWithinTheDistance() {
+        Random random = new Random(11);
+        for(int i = 0; i < 2000; i++){
+            double x = random.nextDouble() * 360 - 180;
+            double y = random.nextDouble() * 170 - 85;
+            double meters = random.nextDouble() * 2000000;
+            double[] bounds = GeoShape.nearBounds(x, y, meters);
+            for(int p = 0; p < 20; p++){
+                double px = x + (random.nextDouble() * 2 - 1) * 40;
+                double py = y + (random.nextDouble() * 2 - 1) * 20;
+                if (py < -90 || py > 90 || px < -180 || px > 180 || GeoShape.sphericalDistance(x, y, px, py) > meters){
+                    continue;
+                }
+                Assert.assertTrue(x + " " + y + " " + meters + " " + px + " " + py,
+                        bounds[0] <= px && px <= bounds[2] && bounds[1] <= py && py <= bounds[3]);
+            }
+        }
+        //near a pole and the antimeridian the box spans every longitude
+        double[] bounds = GeoShape.nearBounds(0, 89.9, 100000);
+        Assert.assertEquals(-180, bounds[0], 0);
+        Assert.assertEquals(180, bounds[2], 0);
+        Assert.assertEquals(90, bounds[3], 0);
+        bounds = GeoShape.nearBounds(179.9, 0, 100000);
+        Assert.assertEquals(-180, bounds[0], 0);
+        Assert.assertEquals(180, bounds[2], 0);
+    }
+
+    @Test
+    public void testNear() {
+        GeoShape.Near near = GeoShape.Near.fromArgument(Arrays.asList(-97.44, 35.19, 5000));
+        Assert.assertTrue(near.test(pair(-97.44, 35.2)));
+        Assert.assertTrue(near.test("POINT(-97.44 35.2)"));
+        Assert.assertFalse(near.test(pair(-97.44, 35.28)));
+        //any of the locations
+        Assert.assertTrue(near.test(Arrays.asList(pair(0, 0), geoJson("Point", pair(-97.44, 35.2)))));
+        //a polygon is near when its edge is
+        Assert.assertTrue(near.test("POLYGON((-97.5 35.23, -97.3 35.23, -97.3 35.3, -97.5 35.3, -97.5 35.23))"));
+        Assert.assertFalse(near.test("not a shape"));
+        Assert.assertFalse(near.test(null));
+    }
+
+    @Test
+    public void testNearArguments() {
+        for(Object argument : new Object[]{Arrays.asList(1, 2), Arrays.asList(1, 2, "3"), "(1,2,3)"}){
+            try{
+                GeoShape.Near.fromArgument(argument);
+                Assert.fail("The argument was accepted " + argument);
+            }catch(IllegalArgumentException e){
+
+            }
+        }
+    }
+
+    @Test
+    public void testFromValue() {
+        Assert.assertTrue(GeoShape.fromValue(pair(3, 4)).intersects(GeoShape.point(3, 4)));
+        Assert.assertTrue(GeoShape.fromValue(geoJson("MultiPoint", Arrays.asList(pair(1, 1), pair(3, 4)))).intersects(GeoShape.point(3, 4)));
+        Map<String, Object> collection = new HashMap<>();
+        collection.put("type", "GeometryCollection");
+        collection.put("geometries", Arrays.asList(geoJson("Point", pair(50, 50)),
+                geoJson("MultiPolygon", Arrays.asList(Arrays.asList(ring(0, 0, 10, 0, 10, 10, 0, 0))))));
+        GeoShape shape = GeoShape.fromValue(collection);
+        Assert.assertEquals(50, shape.getMaxX(), 0);
+        Assert.assertTrue(shape.intersects(GeoShape.point(9, 1)));
+
+        Assert.assertNull(GeoShape.fromValue(geoJson("LineString", ring(0, 0, 1, 1))));
+        Assert.assertNull(GeoShape.fromValue(geoJson("Point", "0,0")));
+        Assert.assertNull(GeoShape.fromValue("LINESTRING(0 0, 1 1)"));
+        Assert.assertNull(GeoShape.fromValue("kevin"));
+        Assert.assertNull(GeoShape.fromValue(5));
+        Assert.assertNull(GeoShape.fromValue(null));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedWKT() {
+        GeoShape.parseWKT("LINESTRING(0 0, 1 1)");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testShapeArgumentMustBeAString() {
+        GeoShape.fromArgument(5);
+    }
+
+}
@@ -0,0 +1,92 @@
+package org.datakow.fiql;
+
+import org.datakow.core.components.DotNotationMap;
+import java.util.regex.PatternSyntaxException;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author kevin.off
+ */
+public class LikePatternTest {
+
+    @Test
+    public void testEnginesMatchTheWholeValue() {
+        for(RegexEngine engine : RegexEngine.values()){
+            LikePattern pattern = LikePattern.compile("^kev.*n", engine);
+            Assert.assertEquals(engine, pattern.getEngine());
+            Assert.assertTrue(pattern.matches("kevin"));
+            Assert.assertTrue(pattern.matches("kevon"));
+            Assert.assertFalse(pattern.matches("kevin!"));
+            Assert.assertFalse(pattern.matches("bob"));
+        }
+    }
+
+    @Test
+    public void testSuperLinearPatterns() {
+        String[] superLinear = {"(a+)+", "(a*)*", "(\\w+\\s?)*$", "(a|ab)*c", "(.*,)*x", "(\\d+,?)*",
+            "(.*a){12}", "(a)\\1", "(?i)(A|a)+", "(.a*[ab])*", ".*.*.*x"};
+        for(String regex : superLinear){
+            Assert.assertTrue(regex, LikePattern.isSuperLinear(regex));
+        }
+        String[] linear = {"^kev.*n", "^(LC|LE|LH|LO|LM|LS|SL).*", "([a-z]+\\.)+com", "(\\d+,)*\\d+", "(ab+)*",
+            "(foo|bar)*", "(a++)+", "(?>a+)+", "\\Q(a+)+\\E", ".*foo.*bar", "\\s*\\w+\\s*", "(-?\\d)+"};
+        for(String regex : linear){
+            Assert.assertFalse(regex, LikePattern.isSuperLinear(regex));
+        }
+    }
+
+    @Test
+    public void testSuperLinearPatternsRejected() {
+        LikePattern.compile("(a+)+");
+        try{
+            LikePattern.compile("(a+)+", RegexEngine.BACKTRACKING, true);
+            Assert.fail("The super-linear pattern was not rejected");
+        }catch(IllegalArgumentException e){
+            Assert.assertFalse(e instanceof PatternSyntaxException);
+        }
+        //The linear engine does not backtrack so the pattern is safe
+        Assert.assertTrue(LikePattern.compile("(a+)+", RegexEngine.LINEAR, true).matches("aaaa"));
+    }
+
+    @Test(expected = PatternSyntaxException.class)
+    public void testLinearEngineRejectsBackReferences() {
+        LikePattern.compile("(a)\\1", RegexEngine.LINEAR);
+    }
+
+    @Test
+    public void testEngineUsedBySubscriptions() {
+        DotNotationMap doc = new DotNotationMap();
+        doc.setProperty("StringProperty", "aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa!");
+        SubscriptionCriteria criteria = SubscriptionCriteria.where("StringProperty").regex("(a+)+b", RegexEngine.LINEAR, false);
+        Assert.assertFalse(criteria.meetsCriteria(doc));
+        doc.setProperty("StringProperty", "aaab");
+        Assert.assertTrue(criteria.meetsCriteria(doc));
+    }
+
+    @Test
+    public void testParserPolicy() {
+        SubscriptionFiqlParser lenient = new SubscriptionFiqlParser(RegexEngine.BACKTRACKING, false);
+        lenient.parse("StringProperty=like='(a+)+'");
+        lenient.compile("StringProperty=like='(a+)+'");
+        lenient.compile("list=matches=\"value=like='(a+)+'\"");
+        //queries that are run somewhere else are checked with their own policy
+        LikePattern.verify("(a+)+", RegexEngine.BACKTRACKING, false);
+
+        SubscriptionFiqlParser strict = new SubscriptionFiqlParser(RegexEngine.BACKTRACKING, true);
+        for(String fiql : new String[]{"StringProperty=like='(a+)+'", "list=matches=\"value=like='(a+)+'\""}){
+            try{
+                strict.parse(fiql);
+                Assert.fail("The super-linear pattern was parsed " + fiql);
+            }catch(IllegalArgumentException e){
+            }
+            try{
+                strict.compile(fiql);
+                Assert.fail("The super-linear pattern was compiled " + fiql);
+            }catch(IllegalArgumentException e){
+            }
+        }
+    }
+
+}
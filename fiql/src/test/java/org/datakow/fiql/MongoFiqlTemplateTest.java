@@ -0,0 +1,50 @@
+package org.datakow.fiql;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.bson.Document;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author kevin.off
+ */
+public class MongoFiqlTemplateTest {
+    
+    public MongoFiqlTemplateTest() {
+    }
+
+    @Test
+    public void testBindMatchesParse() {
+        MongoFiqlTemplate template = MongoFiqlTemplate.compile(
+                "Doc.station=={Doc.id};Doc.count=={Doc.count};Doc.time=={Doc.time}", "", (criteria) -> criteria);
+        Assert.assertEquals(3, template.getParameterNames().size());
+        Assert.assertTrue(template.getParameterNames().contains("Doc.id"));
+        
+        Map<String, Object> values = new HashMap<>();
+        values.put("Doc.id", "KOUN");
+        values.put("Doc.count", "05");
+        values.put("Doc.time", "2017-04-24T12:00:00Z");
+        Document bound = template.bind(values);
+        Document parsed = new MongoFiqlParser().parse("Doc.station==KOUN;Doc.count==05;Doc.time==2017-04-24T12:00:00Z").getCriteriaObject();
+        Assert.assertEquals(parsed, bound);
+    }
+    
+    @Test
+    public void testBindDoesNotChangeTemplate() {
+        MongoFiqlTemplate template = MongoFiqlTemplate.compile("prop=={value}", "Doc", (criteria) -> criteria);
+        Map<String, Object> values = new HashMap<>();
+        values.put("value", "one");
+        Assert.assertEquals("one", template.bind(values).get("Doc.prop"));
+        values.put("value", "2");
+        Assert.assertEquals(2L, template.bind(values).get("Doc.prop"));
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testMissingParameter() {
+        MongoFiqlTemplate template = MongoFiqlTemplate.compile("prop=={value}", "", (criteria) -> criteria);
+        template.bind(new HashMap<>());
+    }
+    
+}
@@ -0,0 +1,79 @@
+package org.datakow.fiql;
+
+import java.util.Date;
+import org.bson.Document;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author kevin.off
+ */
+public class MongoQueryCacheTest {
+    
+    public MongoQueryCacheTest() {
+    }
+
+    @Test
+    public void testHitsAndMisses() {
+        MongoQueryCache cache = new MongoQueryCache();
+        Document first = cache.get("prop==value", "", (criteria) -> criteria);
+        Document second = cache.get(" prop==value ", "", (criteria) -> criteria);
+        Assert.assertEquals(first, second);
+        Assert.assertEquals(1, cache.getMissCount());
+        Assert.assertEquals(1, cache.getHitCount());
+        Assert.assertEquals(0.5, cache.getHitRate(), 0.0001);
+        
+        //the prefix is part of the key
+        Document prefixed = cache.get("prop==value", "Doc.", (criteria) -> criteria);
+        Assert.assertTrue(prefixed.containsKey("Doc.prop"));
+        Assert.assertEquals(2, cache.getMissCount());
+        Assert.assertEquals(2, cache.size());
+    }
+    
+    @Test
+    public void testCopiesAreIsolated() {
+        MongoQueryCache cache = new MongoQueryCache();
+        Document first = cache.get("prop=gt=5;other==2017-04-24T12:00:00Z", "", (criteria) -> criteria);
+        first.clear();
+        Document second = cache.get("prop=gt=5;other==2017-04-24T12:00:00Z", "", (criteria) -> criteria);
+        Assert.assertFalse(second.isEmpty());
+        
+        Document third = cache.get("prop==2017-04-24T12:00:00Z", "", (criteria) -> criteria);
+        ((Date)third.get("prop")).setTime(0);
+        Document fourth = cache.get("prop==2017-04-24T12:00:00Z", "", (criteria) -> criteria);
+        Assert.assertEquals(1493035200000L, ((Date)fourth.get("prop")).getTime());
+    }
+    
+    @Test
+    public void testEviction() {
+        MongoQueryCache cache = new MongoQueryCache(2);
+        cache.get("a==1", "", (criteria) -> criteria);
+        cache.get("b==1", "", (criteria) -> criteria);
+        cache.get("a==1", "", (criteria) -> criteria);
+        cache.get("c==1", "", (criteria) -> criteria);
+        Assert.assertEquals(2, cache.size());
+        Assert.assertEquals(1, cache.getEvictionCount());
+        
+        //b was the least recently used so a is still cached
+        cache.get("a==1", "", (criteria) -> criteria);
+        Assert.assertEquals(2, cache.getHitCount());
+    }
+    
+    @Test
+    public void testNowIsNotCached() {
+        MongoQueryCache cache = new MongoQueryCache();
+        cache.get("prop=lt=Date::NOW", "", (criteria) -> criteria);
+        cache.get("prop=lt=Date::NOW", "", (criteria) -> criteria);
+        Assert.assertEquals(0, cache.size());
+        Assert.assertEquals(2, cache.getMissCount());
+    }
+    
+    @Test
+    public void testDisabled() {
+        MongoQueryCache cache = new MongoQueryCache(0);
+        cache.get("prop==value", "", (criteria) -> criteria);
+        Assert.assertEquals(0, cache.size());
+    }
+    
+}
@@ -0,0 +1,327 @@
+package org.datakow.fiql;
+
+import org.datakow.core.components.DotNotationMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author kevin.off
+ */
+public class SubscriptionCriteriaNormalizerTest {
+
+    @Test
+    public void testEquivalentCriteriaHaveTheSameKey() {
+        SubscriptionCriteria first = and(
+                SubscriptionCriteria.where("Realm").is("public"),
+                and(SubscriptionCriteria.where("Doc.type").is("alert"), SubscriptionCriteria.where("Realm").is("public")));
+        SubscriptionCriteria second = and(
+                SubscriptionCriteria.where("Doc.type").is("alert"),
+                SubscriptionCriteria.where("Realm").is("public"));
+        Assert.assertEquals(SubscriptionCriteriaNormalizer.canonicalKey(second), SubscriptionCriteriaNormalizer.canonicalKey(first));
+
+        //The type of the value changes how it is converted
+        Assert.assertNotEquals(
+                SubscriptionCriteriaNormalizer.canonicalKey(SubscriptionCriteria.where("Count").is(5.0)),
+                SubscriptionCriteriaNormalizer.canonicalKey(SubscriptionCriteria.where("Count").is("5.0")));
+
+        SubscriptionCriteria single = SubscriptionCriteriaNormalizer.normalize(or(SubscriptionCriteria.where("Realm").is("public")));
+        Assert.assertEquals("Realm", single.getPropertyName());
+    }
+
+    @Test
+    public void testRangesAreMerged() {
+        SubscriptionCriteria criteria = SubscriptionCriteriaNormalizer.normalize(and(
+                SubscriptionCriteria.where("Count").gt(1.0),
+                SubscriptionCriteria.where("Count").lte(10.0)));
+        Assert.assertEquals("Count", criteria.getPropertyName());
+        Assert.assertEquals(2, criteria.getOperators().size());
+
+        //Both lower bounds are kept because the tighter one depends on the record
+        criteria = SubscriptionCriteriaNormalizer.normalize(and(
+                SubscriptionCriteria.where("Count").gt(1.0),
+                SubscriptionCriteria.where("Count").gt(3.0),
+                SubscriptionCriteria.where("Count").lt(10.0)));
+        List<SubscriptionCriteria> children = criteria.getChain().get(0).getValue();
+        Assert.assertEquals(2, children.size());
+
+        DotNotationMap doc = new DotNotationMap();
+        doc.setProperty("Count", 2);
+        Assert.assertFalse(criteria.meetsCriteria(doc));
+        doc.setProperty("Count", 5);
+        Assert.assertTrue(criteria.meetsCriteria(doc));
+    }
+
+    @Test
+    public void testDisjunctiveNormalForm() {
+        SubscriptionCriteria criteria = and(
+                or(SubscriptionCriteria.where("A").is("a"), SubscriptionCriteria.where("B").is("b")),
+                or(SubscriptionCriteria.where("C").is("c"), SubscriptionCriteria.where("D").is("d")));
+        SubscriptionCriteria normalized = SubscriptionCriteriaNormalizer.normalize(criteria);
+        Assert.assertEquals(LogicalOperator.OR, normalized.getChain().get(0).getPropertyName());
+        Assert.assertEquals(4, ((List)normalized.getChain().get(0).getValue()).size());
+
+        //Too many conjunctions are left as they are
+        normalized = SubscriptionCriteriaNormalizer.normalize(criteria, 3);
+        Assert.assertEquals(LogicalOperator.AND, normalized.getChain().get(0).getPropertyName());
+
+        //a | a;b is the same as a
+        normalized = SubscriptionCriteriaNormalizer.normalize(or(
+                SubscriptionCriteria.where("A").is("a"),
+                and(SubscriptionCriteria.where("A").is("a"), SubscriptionCriteria.where("B").is("b"))));
+        Assert.assertEquals("A", normalized.getPropertyName());
+    }
+
+    @Test
+    public void testNormalizedCriteriaMeetsTheSameRecords() {
+        List<SubscriptionCriteria> criteria = criteria();
+        for(DotNotationMap doc : records()){
+            for(SubscriptionCriteria original : criteria){
+                Assert.assertEquals(original.meetsCriteria(doc), SubscriptionCriteriaNormalizer.normalize(original).meetsCriteria(doc));
+                Assert.assertEquals(original.meetsCriteria(doc), SubscriptionCriteriaNormalizer.normalize(original, 1).meetsCriteria(doc));
+            }
+        }
+    }
+
+    @Test
+    public void testGraphRunsSharedComparisonsOnce() {
+        List<SubscriptionCriteria> criteria = criteria();
+        SubscriptionCriteriaGraph<Integer> graph = new SubscriptionCriteriaGraph<>();
+        int comparisons = 0;
+        for(int i = 0; i < criteria.size(); i++){
+            graph.put(i, criteria.get(i));
+        }
+        graph.put(criteria.size(), null);
+        for(DotNotationMap doc : records()){
+            List<Integer> expected = new ArrayList<>();
+            for(int i = 0; i < criteria.size(); i++){
+                if (criteria.get(i).meetsCriteria(doc)){
+                    expected.add(i);
+                }
+            }
+            expected.add(criteria.size());
+            SubscriptionCriteriaGraph.Evaluation<Integer> evaluation = graph.evaluate(doc);
+            Assert.assertEquals(expected, evaluation.getMatches());
+            comparisons = Math.max(comparisons, evaluation.getComparisonCount());
+        }
+        //Realm==public and Doc.type==alert are shared by most of the criteria
+        Assert.assertTrue(comparisons < 12);
+        Assert.assertEquals(Arrays.asList(criteria.size()), graph.getMatches(null));
+    }
+
+    @Test
+    public void testGraphReleasesRemovedNodes() {
+        SubscriptionCriteriaGraph<String> graph = new SubscriptionCriteriaGraph<>();
+        graph.put("first", and(SubscriptionCriteria.where("Realm").is("public"), SubscriptionCriteria.where("Doc.type").is("alert")));
+        graph.put("second", and(SubscriptionCriteria.where("Doc.type").is("alert"), SubscriptionCriteria.where("Realm").is("public")));
+        Assert.assertEquals(3, graph.getNodeCount());
+        graph.put("second", SubscriptionCriteria.where("Realm").is("private"));
+        Assert.assertEquals(4, graph.getNodeCount());
+
+        DotNotationMap doc = new DotNotationMap();
+        doc.setProperty("Realm", "private");
+        SubscriptionCriteriaGraph.Evaluation<String> evaluation = graph.evaluate(doc);
+        Assert.assertTrue(graph.remove("first"));
+        Assert.assertFalse(graph.remove("first"));
+        Assert.assertEquals(1, graph.getNodeCount());
+        Assert.assertEquals(1, graph.size());
+        //The evaluation still sees the graph as it was when it started
+        Assert.assertFalse(evaluation.test("first"));
+        Assert.assertTrue(evaluation.test("second"));
+        Assert.assertEquals(Arrays.asList("second"), graph.getMatches(doc));
+    }
+
+    @Test
+    public void testTypeGuardIsCheckedFirst() {
+        //A Date cannot be compared with a String so the comparison throws unless Type guards it
+        SubscriptionCriteria guarded = and(
+                SubscriptionCriteria.where("Type").is("date"),
+                SubscriptionCriteria.where("Doc.value").gt(new Date(0)));
+        SubscriptionCriteria unguarded = and(
+                SubscriptionCriteria.where("Doc.value").gt(new Date(0)),
+                SubscriptionCriteria.where("Type").is("date"));
+        DotNotationMap date = new DotNotationMap();
+        date.setProperty("Type", "date");
+        date.setProperty("Doc.value", new Date(1000));
+        DotNotationMap text = new DotNotationMap();
+        text.setProperty("Type", "text");
+        text.setProperty("Doc.value", "banana");
+
+        SubscriptionCriteria normalized = SubscriptionCriteriaNormalizer.normalize(guarded);
+        Assert.assertEquals("Type", ((List<SubscriptionCriteria>)normalized.getChain().get(0).getValue()).get(0).getPropertyName());
+        Assert.assertFalse(normalized.meetsCriteria(text));
+        Assert.assertTrue(normalized.meetsCriteria(date));
+        Assert.assertEquals(SubscriptionCriteriaNormalizer.canonicalKey(guarded), SubscriptionCriteriaNormalizer.canonicalKey(unguarded));
+
+        //The unguarded criteria is added first so the shared node checks the value first
+        SubscriptionCriteriaGraph<String> graph = new SubscriptionCriteriaGraph<>();
+        graph.put("unguarded", unguarded);
+        graph.put("guarded", guarded);
+        graph.put("text", SubscriptionCriteria.where("Type").is("text"));
+        Assert.assertEquals(Arrays.asList("text"), graph.getMatches(text));
+        Assert.assertEquals(Arrays.asList("unguarded", "guarded"), graph.getMatches(date));
+        Assert.assertFalse(graph.evaluate(text).test("guarded"));
+    }
+
+    @Test
+    public void testGraphFallsBackWhenTheNormalFormThrows() {
+        //(b==1 | a>0) ; c==3 | c==2 is distributed into b==1;c==3 | a>0;c==3 | c==2
+        SubscriptionCriteria criteria = new SubscriptionFiqlParser().parse("(b==1,a=gt=2016-01-12T02:10:15Z);c==3,c==2");
+        DotNotationMap doc = new DotNotationMap();
+        doc.setProperty("a", "x");
+        doc.setProperty("b", 1);
+        doc.setProperty("c", 2);
+        Assert.assertTrue(criteria.meetsCriteria(doc));
+        SubscriptionCriteriaGraph<String> graph = new SubscriptionCriteriaGraph<>();
+        graph.put("criteria", criteria);
+        Assert.assertEquals(Arrays.asList("criteria"), graph.getMatches(doc));
+    }
+
+    /**
+     * Compares the graph with the criteria as written for random criteria and
+     * records whose values have mixed types, so that many comparisons throw.
+     * Every criteria that does not throw must have the same result.
+     */
+    @Test
+    public void testGraphMatchesTheOriginalCriteriaWithMixedTypes() {
+        Random random = new Random(7);
+        List<SubscriptionCriteria> criteria = new ArrayList<>();
+        SubscriptionCriteriaGraph<Integer> graph = new SubscriptionCriteriaGraph<>();
+        for(int i = 0; i < 300; i++){
+            criteria.add(randomCriteria(random, 3));
+            graph.put(i, criteria.get(i));
+        }
+        int throwing = 0;
+        int matching = 0;
+        for(int r = 0; r < 300; r++){
+            DotNotationMap doc = new DotNotationMap();
+            for(String property : PROPERTIES){
+                Object value = randomValue(random);
+                if (value != null){
+                    doc.setProperty(property, value);
+                }
+            }
+            SubscriptionCriteriaGraph.Evaluation<Integer> evaluation = graph.evaluate(doc);
+            for(int i = 0; i < criteria.size(); i++){
+                boolean meets;
+                try{
+                    meets = criteria.get(i).meetsCriteria(doc);
+                }catch(RuntimeException e){
+                    throwing++;
+                    continue;
+                }
+                Assert.assertEquals(i + " " + doc, meets, evaluation.test(i));
+                matching += meets ? 1 : 0;
+            }
+        }
+        //the values have to be mixed enough for comparisons to fail
+        Assert.assertTrue(throwing > 1000);
+        Assert.assertTrue(matching > 1000);
+    }
+
+    private static final String[] PROPERTIES = {"a", "b", "c"};
+
+    private static Object randomValue(Random random){
+        switch(random.nextInt(6)){
+            case 0:
+                return random.nextInt(3);
+            case 1:
+                return (double)random.nextInt(3);
+            case 2:
+                return "x" + random.nextInt(2);
+            case 3:
+                return new Date(random.nextInt(3) * 1000L);
+            case 4:
+                return random.nextBoolean();
+            default:
+                return null;
+        }
+    }
+
+    private static SubscriptionCriteria randomCriteria(Random random, int depth){
+        int choice = random.nextInt(depth > 0 ? 9 : 6);
+        if (choice >= 6){
+            int size = 2 + random.nextInt(2);
+            SubscriptionCriteria[] children = new SubscriptionCriteria[size];
+            for(int i = 0; i < size; i++){
+                children[i] = randomCriteria(random, depth - 1);
+            }
+            return choice == 6 ? or(children) : and(children);
+        }
+        SubscriptionCriteria leaf = SubscriptionCriteria.where(PROPERTIES[random.nextInt(PROPERTIES.length)]);
+        Object value = randomValue(random);
+        if (value == null){
+            value = "x0";
+        }
+        switch(choice){
+            case 0:
+                return leaf.is(value);
+            case 1:
+                return leaf.ne(value);
+            case 2:
+                return leaf.gt(value);
+            case 3:
+                return leaf.lte(value);
+            case 4:
+                return leaf.in(Arrays.asList(value, randomValue(random)));
+            default:
+                return leaf.exists(random.nextBoolean());
+        }
+    }
+
+    private static SubscriptionCriteria and(SubscriptionCriteria... criteria){
+        return new SubscriptionCriteria().and(criteria);
+    }
+
+    private static SubscriptionCriteria or(SubscriptionCriteria... criteria){
+        return new SubscriptionCriteria().or(criteria);
+    }
+
+    private static List<SubscriptionCriteria> criteria(){
+        List<SubscriptionCriteria> criteria = new ArrayList<>();
+        criteria.add(and(SubscriptionCriteria.where("Realm").is("public"), SubscriptionCriteria.where("Doc.type").is("alert")));
+        criteria.add(and(SubscriptionCriteria.where("Doc.type").is("alert"), SubscriptionCriteria.where("Realm").is("public"),
+                SubscriptionCriteria.where("Doc.severity").gte(2.0), SubscriptionCriteria.where("Doc.severity").lt(4.0)));
+        criteria.add(and(SubscriptionCriteria.where("Realm").is("public"),
+                or(SubscriptionCriteria.where("Doc.type").is("alert"), SubscriptionCriteria.where("Doc.type").is("watch")),
+                or(SubscriptionCriteria.where("Doc.severity").gt(3.0), SubscriptionCriteria.where("Doc.area").exists(false))));
+        criteria.add(or(and(SubscriptionCriteria.where("Realm").is("public"), SubscriptionCriteria.where("Doc.type").is("alert")),
+                SubscriptionCriteria.where("Doc.tags").in(Arrays.asList("urgent", "flood"))));
+        criteria.add(and(SubscriptionCriteria.where("Doc.type").is("alert"),
+                SubscriptionCriteria.where("Doc.code").regex("^(LC|LE).*"),
+                SubscriptionCriteria.where("Doc.severity").gt(1.0), SubscriptionCriteria.where("Doc.severity").gt(3.0)));
+        criteria.add(and(SubscriptionCriteria.where("Realm").is("public"), SubscriptionCriteria.where("Doc.type").ne("alert")));
+        return criteria;
+    }
+
+    private static List<DotNotationMap> records(){
+        List<DotNotationMap> records = new ArrayList<>();
+        String[] types = {"alert", "watch", "advisory"};
+        String[] areas = {"LCBanana", "MyBanana", null};
+        for(String realm : Arrays.asList("public", "private")){
+            for(String type : types){
+                for(int severity = 0; severity < 6; severity++){
+                    for(String area : areas){
+                        DotNotationMap doc = new DotNotationMap();
+                        doc.setProperty("Realm", realm);
+                        doc.setProperty("Doc.type", type);
+                        doc.setProperty("Doc.severity", severity);
+                        doc.setProperty("Doc.code", severity % 3 == 0 ? "LCBanana" : "MyBanana");
+                        if (area != null){
+                            doc.setProperty("Doc.area", area);
+                        }
+                        doc.setProperty("Doc.tags", Arrays.asList(severity % 2 == 0 ? "urgent" : "routine"));
+                        records.add(doc);
+                    }
+                }
+            }
+        }
+        return records;
+    }
+
+}
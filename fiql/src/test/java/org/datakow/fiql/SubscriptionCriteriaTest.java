@@ -2,6 +2,7 @@ package org.datakow.fiql;
 
 import org.datakow.core.components.DotNotationMap;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 import org.junit.Assert;
@@ -145,4 +146,44 @@ public class SubscriptionCriteriaTest {
         
     }
     
+    @Test(expected = java.util.regex.PatternSyntaxException.class)
+    public void testInvalidRegexFailsWhenBuilt() {
+        SubscriptionCriteria.where("StringProperty").regex("^(kev");
+    }
+    
+    @Test
+    public void testCriteriaReusedAcrossDocuments() {
+        SubscriptionCriteria sub = new SubscriptionFiqlParser().parse("StringProperty=like=^kev.*n");
+        DotNotationMap doc = new DotNotationMap();
+        for(String name : new String[]{"kevin", "bob", "kevon"}){
+            doc.setProperty("StringProperty", name);
+            Assert.assertEquals(name.startsWith("kev"), sub.meetsCriteria(doc));
+        }
+    }
+    
+    @Test
+    public void testGeoOperators() {
+        DotNotationMap doc = new DotNotationMap();
+        doc.setProperty("location.type", "Point");
+        doc.setProperty("location.coordinates", Arrays.asList(5.0, 5.0));
+        doc.setProperty("area.type", "Polygon");
+        doc.setProperty("area.coordinates", Arrays.asList(Arrays.asList(
+                Arrays.asList(8.0, 8.0), Arrays.asList(12.0, 8.0), Arrays.asList(12.0, 12.0), Arrays.asList(8.0, 12.0), Arrays.asList(8.0, 8.0))));
+        
+        String square = "POLYGON((0 0, 10 0, 10 10, 0 10, 0 0))";
+        Assert.assertTrue(SubscriptionCriteria.where("location").within(square).meetsCriteria(doc));
+        Assert.assertFalse(SubscriptionCriteria.where("location").within("POLYGON((20 20, 30 20, 30 30, 20 30, 20 20))").meetsCriteria(doc));
+        Assert.assertFalse(SubscriptionCriteria.where("area").within(square).meetsCriteria(doc));
+        Assert.assertTrue(SubscriptionCriteria.where("area").intersects(square).meetsCriteria(doc));
+        Assert.assertFalse(SubscriptionCriteria.where("area").intersects("POLYGON((0 0, 5 0, 5 5, 0 5, 0 0))").meetsCriteria(doc));
+        Assert.assertTrue(SubscriptionCriteria.where("location").near(Arrays.asList(5.0, 5.001, 1000)).meetsCriteria(doc));
+        Assert.assertFalse(SubscriptionCriteria.where("location").near(Arrays.asList(6.0, 5.0, 1000)).meetsCriteria(doc));
+        Assert.assertFalse(SubscriptionCriteria.where("missing").within(square).meetsCriteria(doc));
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidShapeFailsWhenBuilt() {
+        SubscriptionCriteria.where("location").within("LINESTRING(0 0, 1 1)");
+    }
+    
 }
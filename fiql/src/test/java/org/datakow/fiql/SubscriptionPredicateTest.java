@@ -0,0 +1,189 @@
+package org.datakow.fiql;
+
+import org.datakow.core.components.DotNotationMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author kevin.off
+ */
+public class SubscriptionPredicateTest {
+
+    public SubscriptionPredicateTest() {
+    }
+
+    private DotNotationMap makeDoc(){
+        DotNotationMap doc = new DotNotationMap();
+        doc.setProperty("StringProperty", "kevin");
+        doc.setProperty("IntegerProperty", 5);
+        doc.setProperty("DoubleProperty", 5.5);
+        doc.setProperty("DateProperty", new Date(1451606400000L));
+        doc.setProperty("BooleanProperty", true);
+        doc.setProperty("NullProperty", null);
+        List<String> strings = new ArrayList<>();
+        strings.add("kevin");
+        strings.add("Bob");
+        doc.setProperty("list", strings);
+        doc.setProperty("Sub.Property", "subprop");
+        return doc;
+    }
+
+    private void assertSameResult(String fiql, DotNotationMap doc, boolean expected){
+        SubscriptionFiqlParser parser = new SubscriptionFiqlParser();
+        Assert.assertEquals(fiql, expected, parser.parse(fiql).meetsCriteria(doc));
+        Assert.assertEquals(fiql, expected, parser.compile(fiql).test(doc));
+    }
+
+    @Test
+    public void testCompiledMatchesInterpreted() {
+
+        DotNotationMap doc = makeDoc();
+
+        assertSameResult("StringProperty==kevin;IntegerProperty==5;DoubleProperty=gt=4", doc, true);
+        assertSameResult("StringProperty==kevin;IntegerProperty==5;DoubleProperty=gt=4;NonExistantProperty!=5", doc, true);
+        assertSameResult("StringProperty==kevin;IntegerProperty==5;DoubleProperty=gt=4;NonExistantProperty==5", doc, false);
+        assertSameResult("StringProperty==kevin;StringProperty=out=(kevin,bob)", doc, false);
+        assertSameResult("StringProperty==bob,IntegerProperty==5", doc, true);
+        assertSameResult("IntegerProperty=gt=4", doc, true);
+        assertSameResult("IntegerProperty=ge=5", doc, true);
+        assertSameResult("IntegerProperty=lt=6", doc, true);
+        assertSameResult("IntegerProperty=le=4", doc, false);
+        assertSameResult("IntegerProperty!=6", doc, true);
+        assertSameResult("DateProperty=gt=2015-12-31T00:00:00Z", doc, true);
+        assertSameResult("DateProperty=lt=2015-12-31T00:00:00Z", doc, false);
+        assertSameResult("BooleanProperty==true", doc, true);
+        assertSameResult("NullProperty==null", doc, true);
+        assertSameResult("NullProperty!=null", doc, false);
+        assertSameResult("NullProperty=in=(null,stuff)", doc, true);
+        assertSameResult("list==Bob", doc, true);
+        assertSameResult("list=all=(kevin,Bob)", doc, true);
+        assertSameResult("list=all=(kevin,Sue)", doc, false);
+        assertSameResult("StringProperty=like=^kev.*n", doc, true);
+        assertSameResult("StringProperty=like=^bev.*n", doc, false);
+        assertSameResult("NonExistantProperty=like=^kev.*n", doc, false);
+        assertSameResult("IntegerProperty=like=5", doc, false);
+        assertSameResult("StringProperty=in=(stuff,kevin,things)", doc, true);
+        assertSameResult("IntegerProperty=in=(2,3,4,8,9,7,12)", doc, false);
+        assertSameResult("IntegerProperty=out=(2,3,4,8,9,7,12)", doc, true);
+        assertSameResult("NoProperty=out=(things,stuff)", doc, true);
+        assertSameResult("NoProperty=in=(things,stuff)", doc, false);
+        assertSameResult("NoProperty=exists=true", doc, false);
+        assertSameResult("NoProperty=exists=false", doc, true);
+        assertSameResult("Sub.Property=exists=true", doc, true);
+        assertSameResult("Sub.Property==subprop", doc, true);
+        assertSameResult("Sub.Missing==subprop", doc, false);
+
+    }
+
+    @Test
+    public void testCompiledMatches() {
+
+        DotNotationMap doc = new DotNotationMap();
+        doc.setProperty("Doc.geocode", new ArrayList());
+        doc.setProperty("Doc.geocode.0.valueName", "UGC");
+        doc.setProperty("Doc.geocode.0.value", "MyBanana");
+        doc.setProperty("Doc.geocode.1.valueName", "UGC");
+        doc.setProperty("Doc.geocode.1.value", "LEBanana");
+
+        assertSameResult("Doc.geocode=matches=\"valueName==UGC;value=like='^(LC|LE).*'\"", doc, true);
+        assertSameResult("Doc.geocode=matches=\"valueName==STUFF;value=like='^(LC|LE).*'\"", doc, false);
+        assertSameResult("Doc.geocode.1.value==LEBanana", doc, true);
+    }
+
+    @Test
+    public void testGeoOperators() {
+
+        DotNotationMap doc = new DotNotationMap();
+        doc.setProperty("location.type", "Point");
+        doc.setProperty("location.coordinates", Arrays.asList(-97.44, 35.18));
+
+        assertSameResult("location=within='POLYGON((-98 35, -97 35, -97 36, -98 36, -98 35))'", doc, true);
+        assertSameResult("location=within='POLYGON((-90 35, -89 35, -89 36, -90 36, -90 35))'", doc, false);
+        assertSameResult("location=intersects='POLYGON((-98 35, -97 35, -97 36, -98 36, -98 35))'", doc, true);
+        assertSameResult("location=near=(-97.44,35.19,5000)", doc, true);
+        assertSameResult("location=near=(-97.44,35.28,5000)", doc, false);
+        assertSameResult("missing=within='POLYGON((-98 35, -97 35, -97 36, -98 36, -98 35))'", doc, false);
+    }
+
+    @Test
+    public void testPrefix() {
+
+        DotNotationMap doc = new DotNotationMap();
+        doc.setProperty("Doc.station", "KOUN");
+        doc.setProperty("Storage.id", "abc");
+
+        SubscriptionPredicate predicate = new SubscriptionFiqlParser().compile("station==KOUN;/Storage.id==abc", "Doc");
+        Assert.assertTrue(predicate.test(doc));
+        predicate = new SubscriptionFiqlParser().compile("station==KTLX", "Doc");
+        Assert.assertFalse(predicate.test(doc));
+    }
+
+    @Test
+    public void testExistsArgumentsOtherThanABooleanAreFalse() {
+
+        assertSameResult("NoProperty=exists=FALSE", makeDoc(), true);
+        List<LogRecord> logged = new ArrayList<>();
+        Handler handler = new Handler(){
+            @Override
+            public void publish(LogRecord record){
+                logged.add(record);
+            }
+            @Override
+            public void flush(){
+            }
+            @Override
+            public void close(){
+            }
+        };
+        Logger logger = Logger.getLogger(SubscriptionPredicates.class.getName());
+        logger.addHandler(handler);
+        try{
+            //subscriptions saved with these still load and read them as false
+            for(String argument : new String[]{"yes", "1", "''"}){
+                assertSameResult("NoProperty=exists=" + argument, makeDoc(), true);
+                assertSameResult("StringProperty=exists=" + argument, makeDoc(), false);
+            }
+        }finally{
+            logger.removeHandler(handler);
+        }
+        Assert.assertEquals(12, logged.size());
+        for(LogRecord record : logged){
+            Assert.assertEquals(Level.WARNING, record.getLevel());
+        }
+    }
+
+    @Test
+    public void testFailedConversionThrowsOnEveryEvaluation() {
+
+        //A Date criteria value cannot be converted to the String in the record
+        DotNotationMap doc = new DotNotationMap();
+        doc.setProperty("Name", "banana");
+        String fiql = "Name=gt=2016-01-12T02:10:15Z";
+        SubscriptionPredicate predicate = new SubscriptionFiqlParser().compile(fiql);
+        RuntimeException first = failure(() -> predicate.test(doc));
+        RuntimeException second = failure(() -> predicate.test(doc));
+        Assert.assertNotSame(first, second);
+        Assert.assertEquals(failure(() -> new SubscriptionFiqlParser().parse(fiql).meetsCriteria(doc)).getClass(), first.getClass());
+        Assert.assertEquals(first.getClass(), second.getClass());
+    }
+
+    private static RuntimeException failure(Runnable evaluation){
+        try{
+            evaluation.run();
+        }catch(RuntimeException e){
+            return e;
+        }
+        Assert.fail("The evaluation did not throw");
+        return null;
+    }
+
+}
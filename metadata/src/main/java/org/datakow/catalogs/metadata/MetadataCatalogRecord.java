@@ -27,6 +27,7 @@ public class MetadataCatalogRecord implements JsonProducer{
     private DotNotationMap doc = new DotNotationMap();
     private DotNotationMap metaDoc = null;
     private String correlationId;
+    private boolean partial = false;
    
     /**
      * Gets the Record-Identifier property from the {@link MetadataCatalogRecordStorage} object.
@@ -98,6 +99,27 @@ public class MetadataCatalogRecord implements JsonProducer{
         this.correlationId = correlationId;
     }
     
+    /**
+     * Determines if the record only holds some of its properties because it
+     * was read with a projection
+     * 
+     * @return true if properties may be missing
+     */
+    @JsonIgnore
+    public boolean isPartial(){
+        return this.partial;
+    }
+    
+    /**
+     * Sets whether the record only holds some of its properties
+     * 
+     * @param partial true if properties may be missing
+     */
+    @JsonIgnore
+    public void setPartial(boolean partial){
+        this.partial = partial;
+    }
+    
     /**
      * Writes the JSON string representation of this object to an output stream.
      * 
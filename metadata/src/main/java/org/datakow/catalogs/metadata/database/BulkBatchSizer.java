@@ -0,0 +1,246 @@
+package org.datakow.catalogs.metadata.database;
+
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.bson.BsonBinaryWriter;
+import org.bson.Document;
+import org.bson.codecs.Codec;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.io.BasicOutputBuffer;
+
+/**
+ * Decides how many records go in each batch of a bulk operation.
+ * <p>
+ * A batch is full when its encoded BSON reaches the byte budget or when it
+ * has as many records as the record limit. The record limit starts at
+ * {@link #INITIAL_RECORD_LIMIT} and is tuned after every write so that a
+ * bulkWrite takes about the target latency. Small records end up in large
+ * batches and large records in small ones without going over the size of a
+ * Mongo message.
+ * <p>
+ * One sizer is kept for each collection. It is safe to use from the threads
+ * of a {@link BulkWritePipeline}.
+ *
+ * @author kevin.off
+ */
+public class BulkBatchSizer {
+    
+    /**
+     * The number of bytes in a batch when a budget is not given
+     */
+    public static final long DEFAULT_TARGET_BYTES = 16 * 1024 * 1024;
+    
+    /**
+     * The time a bulkWrite should take when a target is not given
+     */
+    public static final long DEFAULT_TARGET_LATENCY_MILLIS = 1000;
+    
+    /**
+     * The record limit before any writes have been timed
+     */
+    public static final int INITIAL_RECORD_LIMIT = 1000;
+    
+    /**
+     * The smallest record limit
+     */
+    public static final int MIN_RECORD_LIMIT = 10;
+    
+    /**
+     * The largest record limit which is the largest batch that Mongo accepts
+     */
+    public static final int MAX_RECORD_LIMIT = 100000;
+    
+    private static final EncoderContext ENCODER_CONTEXT = EncoderContext.builder().build();
+    
+    private final long targetBytes;
+    private final long targetLatencyNanos;
+    
+    private volatile int recordLimit = INITIAL_RECORD_LIMIT;
+    private long batchCount;
+    private long recordCount;
+    private long byteCount;
+    private int lastBatchRecords;
+    private long lastBatchBytes;
+    private long lastBatchMillis;
+    
+    /**
+     * Creates a sizer with the default byte budget and latency
+     */
+    public BulkBatchSizer(){
+        this(DEFAULT_TARGET_BYTES, DEFAULT_TARGET_LATENCY_MILLIS);
+    }
+    
+    /**
+     * Creates a sizer
+     * 
+     * @param targetBytes The number of BSON bytes in a full batch
+     * @param targetLatencyMillis The time a bulkWrite should take
+     */
+    public BulkBatchSizer(long targetBytes, long targetLatencyMillis){
+        validate(targetBytes, targetLatencyMillis);
+        this.targetBytes = targetBytes;
+        this.targetLatencyNanos = TimeUnit.MILLISECONDS.toNanos(targetLatencyMillis);
+    }
+    
+    /**
+     * Checks whether a batch should be written before another record is added
+     * 
+     * @param records The number of records in the batch
+     * @param bytes The number of BSON bytes in the batch
+     * @return true if the batch is full
+     */
+    public boolean isFull(int records, long bytes){
+        return records >= recordLimit || bytes >= targetBytes;
+    }
+    
+    /**
+     * Checks the targets of a sizer without creating one
+     * 
+     * @param targetBytes The number of BSON bytes in a full batch
+     * @param targetLatencyMillis The time a bulkWrite should take
+     * @throws IllegalArgumentException If either target is less than 1
+     */
+    public static void validate(long targetBytes, long targetLatencyMillis){
+        if (targetBytes < 1){
+            throw new IllegalArgumentException("The target bytes of a batch must be at least 1");
+        }
+        if (targetLatencyMillis < 1){
+            throw new IllegalArgumentException("The target latency of a batch must be at least 1 millisecond");
+        }
+    }
+    
+    /**
+     * Measures the encoded size of the documents of a write operation
+     * 
+     * @param codecs The codecs of the collection that is written to
+     * @param documents The documents of the operation
+     * @return The number of BSON bytes
+     */
+    public static long sizeOf(CodecRegistry codecs, Document... documents){
+        Codec<Document> codec = codecs.get(Document.class);
+        long size = 0;
+        for(Document document : documents){
+            BasicOutputBuffer buffer = new BasicOutputBuffer();
+            try(BsonBinaryWriter writer = new BsonBinaryWriter(buffer)){
+                codec.encode(writer, document, ENCODER_CONTEXT);
+            }
+            size += buffer.getPosition();
+        }
+        return size;
+    }
+    
+    /**
+     * Tunes the record limit after a batch was written
+     * 
+     * @param records The number of records in the batch
+     * @param bytes The number of BSON bytes in the batch
+     * @param nanos The time the bulkWrite took
+     */
+    public synchronized void recordWrite(int records, long bytes, long nanos){
+        batchCount++;
+        recordCount += records;
+        byteCount += bytes;
+        lastBatchRecords = records;
+        lastBatchBytes = bytes;
+        lastBatchMillis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        if (records == 0 || nanos <= 0){
+            return;
+        }
+        //the number of records that would take the target latency,
+        //moved half way there so one slow write does not swing the limit
+        double ideal = (double)targetLatencyNanos * records / nanos;
+        double next = (recordLimit + Math.max(recordLimit / 2.0, Math.min(recordLimit * 2.0, ideal))) / 2;
+        int limit = (int)Math.max(MIN_RECORD_LIMIT, Math.min(MAX_RECORD_LIMIT, next));
+        if (limit != recordLimit){
+            Logger.getLogger(BulkBatchSizer.class.getName()).log(Level.FINE, 
+                    "Bulk batch record limit changed from {0} to {1} after {2} records took {3} ms", 
+                    new Object[]{recordLimit, limit, records, lastBatchMillis});
+            recordLimit = limit;
+        }
+    }
+    
+    /**
+     * Gets the number of records a batch can have before it is full.
+     * This is the effective batch size unless the byte budget is reached first.
+     * 
+     * @return The record limit
+     */
+    public int getRecordLimit(){
+        return recordLimit;
+    }
+    
+    /**
+     * Gets the number of BSON bytes in a full batch
+     * 
+     * @return The byte budget
+     */
+    public long getTargetBytes(){
+        return targetBytes;
+    }
+    
+    /**
+     * Gets the time a bulkWrite should take
+     * 
+     * @return The target latency in milliseconds
+     */
+    public long getTargetLatencyMillis(){
+        return TimeUnit.NANOSECONDS.toMillis(targetLatencyNanos);
+    }
+    
+    /**
+     * Gets the number of batches that have been written
+     * 
+     * @return The batch count
+     */
+    public synchronized long getBatchCount(){
+        return batchCount;
+    }
+    
+    /**
+     * Gets the average number of records in the batches that have been written
+     * 
+     * @return The average batch size in records
+     */
+    public synchronized double getAverageBatchRecords(){
+        return batchCount == 0 ? 0 : (double)recordCount / batchCount;
+    }
+    
+    /**
+     * Gets the average number of BSON bytes in the batches that have been written
+     * 
+     * @return The average batch size in bytes
+     */
+    public synchronized double getAverageBatchBytes(){
+        return batchCount == 0 ? 0 : (double)byteCount / batchCount;
+    }
+    
+    /**
+     * Gets the number of records in the last batch that was written
+     * 
+     * @return The number of records
+     */
+    public synchronized int getLastBatchRecords(){
+        return lastBatchRecords;
+    }
+    
+    /**
+     * Gets the number of BSON bytes in the last batch that was written
+     * 
+     * @return The number of bytes
+     */
+    public synchronized long getLastBatchBytes(){
+        return lastBatchBytes;
+    }
+    
+    /**
+     * Gets the time the last bulkWrite took
+     * 
+     * @return The latency in milliseconds
+     */
+    public synchronized long getLastBatchMillis(){
+        return lastBatchMillis;
+    }
+    
+}
@@ -0,0 +1,230 @@
+package org.datakow.catalogs.metadata.database;
+
+import org.datakow.catalogs.metadata.BulkResult;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Runs a bulk operation so that reading the records and writing them to the
+ * database overlap.
+ * <p>
+ * A producer thread reads the records and builds the batches of write
+ * operations, keeping up to queueSize batches ready. Meanwhile the batches
+ * are written on up to writesInFlight threads. The results of each batch are
+ * collected in the order that the batches were read so the indexes of the
+ * {@link BulkResult}s are the same as when the batches are run one by one.
+ * <p>
+ * A new pipeline is not needed for each bulk operation but the threads are
+ * only alive while {@link #run(BatchSource, Function)} is running. When a
+ * write fails the producer is stopped and waited for before the error is
+ * thrown, so the source is never read after run returns.
+ *
+ * @author kevin.off
+ */
+public class BulkWritePipeline {
+    
+    /**
+     * The number of batches that are read ahead when a size is not given
+     */
+    public static final int DEFAULT_QUEUE_SIZE = 4;
+    
+    private static final AtomicInteger threadNumber = new AtomicInteger();
+    
+    private final int writesInFlight;
+    private final int queueSize;
+    
+    /**
+     * Creates a pipeline that reads {@link #DEFAULT_QUEUE_SIZE} batches ahead
+     * 
+     * @param writesInFlight The number of batches that can be written at the same time
+     */
+    public BulkWritePipeline(int writesInFlight){
+        this(writesInFlight, DEFAULT_QUEUE_SIZE);
+    }
+    
+    /**
+     * Creates a pipeline
+     * 
+     * @param writesInFlight The number of batches that can be written at the same time
+     * @param queueSize The number of batches that can be read ahead of the writes
+     */
+    public BulkWritePipeline(int writesInFlight, int queueSize){
+        if (writesInFlight < 1){
+            throw new IllegalArgumentException("There must be at least one write in flight");
+        }
+        if (queueSize < 1){
+            throw new IllegalArgumentException("The queue size must be at least 1");
+        }
+        this.writesInFlight = writesInFlight;
+        this.queueSize = queueSize;
+    }
+    
+    /**
+     * Gets the number of batches that can be written at the same time
+     * 
+     * @return The number of writes in flight
+     */
+    public int getWritesInFlight(){
+        return writesInFlight;
+    }
+    
+    /**
+     * Gets the number of batches that can be read ahead of the writes
+     * 
+     * @return The queue size
+     */
+    public int getQueueSize(){
+        return queueSize;
+    }
+    
+    /**
+     * Reads all of the batches from the source and writes them.
+     * 
+     * @param <T> The type of the batches
+     * @param source Reads the next batch. Only ever called from the producer thread
+     * @param writer Writes a batch and returns its results
+     * @return The results of all of the batches in the order they were read
+     * @throws IOException If the source throws an IOException
+     */
+    public <T> List<BulkResult> run(BatchSource<T> source, Function<T, List<BulkResult>> writer) throws IOException{
+        List<BulkResult> results = new ArrayList<>();
+        run(source, writer, results::add);
+        return results;
+    }
+    
+    /**
+     * Reads all of the batches from the source, writes them and hands the
+     * results to the consumer as soon as each batch and the ones before it
+     * are written. The consumer is called on the calling thread in the order
+     * the batches were read.
+     * 
+     * @param <T> The type of the batches
+     * @param source Reads the next batch. Only ever called from the producer thread
+     * @param writer Writes a batch and returns its results
+     * @param results Receives the results
+     * @throws IOException If the source throws an IOException
+     */
+    public <T> void run(BatchSource<T> source, Function<T, List<BulkResult>> writer, Consumer<BulkResult> results) throws IOException{
+        
+        BlockingQueue<Object> queue = new ArrayBlockingQueue<>(queueSize);
+        Object endOfBatches = new Object();
+        Throwable[] producerError = new Throwable[1];
+        
+        Thread producer = new Thread(() -> {
+            try{
+                T batch;
+                while((batch = source.next()) != null){
+                    queue.put(batch);
+                }
+            }catch(InterruptedException ex){
+                //the writes failed and the results are not needed
+                return;
+            }catch(Throwable ex){
+                producerError[0] = ex;
+            }
+            try{
+                queue.put(endOfBatches);
+            }catch(InterruptedException ex){
+                //the writes failed and the results are not needed
+            }
+        }, "bulk-write-producer-" + threadNumber.incrementAndGet());
+        producer.setDaemon(true);
+        
+        ExecutorService writers = Executors.newFixedThreadPool(writesInFlight, (runnable) -> {
+            Thread thread = new Thread(runnable, "bulk-write-writer-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        
+        Deque<Future<List<BulkResult>>> inFlight = new ArrayDeque<>();
+        producer.start();
+        try{
+            while(true){
+                Object next = queue.take();
+                if (next == endOfBatches){
+                    break;
+                }
+                if (inFlight.size() == writesInFlight){
+                    inFlight.removeFirst().get().forEach(results);
+                }
+                @SuppressWarnings("unchecked")
+                T batch = (T)next;
+                inFlight.addLast(writers.submit(() -> writer.apply(batch)));
+            }
+            while(!inFlight.isEmpty()){
+                inFlight.removeFirst().get().forEach(results);
+            }
+            producer.join();
+        }catch(InterruptedException ex){
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the bulk writes", ex);
+        }catch(ExecutionException ex){
+            if (ex.getCause() instanceof RuntimeException){
+                throw (RuntimeException)ex.getCause();
+            }else if (ex.getCause() instanceof Error){
+                throw (Error)ex.getCause();
+            }
+            throw new IllegalStateException("Error writing a bulk batch", ex.getCause());
+        }finally{
+            producer.interrupt();
+            writers.shutdownNow();
+            //the source must not be read after run returns
+            joinProducer(producer);
+        }
+        
+        if (producerError[0] instanceof IOException){
+            throw (IOException)producerError[0];
+        }else if (producerError[0] instanceof RuntimeException){
+            throw (RuntimeException)producerError[0];
+        }else if (producerError[0] instanceof Error){
+            throw (Error)producerError[0];
+        }else if (producerError[0] != null){
+            throw new IllegalStateException("Error reading a bulk batch", producerError[0]);
+        }
+    }
+    
+    private static void joinProducer(Thread producer){
+        boolean interrupted = false;
+        while(producer.isAlive()){
+            try{
+                producer.join();
+            }catch(InterruptedException ex){
+                interrupted = true;
+            }
+        }
+        if (interrupted){
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     * Reads the batches of a bulk operation
+     * 
+     * @param <T> The type of the batches
+     */
+    @FunctionalInterface
+    public interface BatchSource<T>{
+        
+        /**
+         * Reads the next batch
+         * 
+         * @return The batch or null when there are no more
+         * @throws IOException If the records cannot be read
+         */
+        T next() throws IOException;
+        
+    }
+    
+}
@@ -0,0 +1,270 @@
+package org.datakow.catalogs.metadata.database;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonNull;
+import org.bson.BsonString;
+import org.bson.BsonType;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+
+/**
+ * The position of the last record of a page of a sorted query, used to seek
+ * to the first record of the next page.
+ * <p>
+ * The token holds the sort and the value of every sort property of the last
+ * record followed by its _id, which breaks ties between records with the
+ * same sort values. The next page is found with a range predicate on those
+ * values so it can be read from the sort index no matter how deep it is,
+ * instead of skipping over every record of the pages before it.
+ * <p>
+ * It is written as URL safe base64 of BSON so the values keep their types,
+ * clients should treat it as opaque. Since the token comes back from the
+ * client only plain values can be read from it, a document, array or regular
+ * expression would put query operators into the filter. A record whose sort
+ * property is a document or an array cannot be continued after, MongoDB
+ * sorts arrays by one of their elements so there is no single value to seek
+ * past.
+ *
+ * @author kevin.off
+ */
+public final class ContinuationToken {
+
+    private static final String ID = "_id";
+    
+    /**
+     * The types of values that a token can hold. They can only be compared
+     * with, not interpreted as, an operator.
+     */
+    private static final Set<BsonType> VALUE_TYPES = EnumSet.of(
+            BsonType.NULL, BsonType.STRING, BsonType.INT32, BsonType.INT64, BsonType.DOUBLE,
+            BsonType.DECIMAL128, BsonType.BOOLEAN, BsonType.DATE_TIME, BsonType.TIMESTAMP,
+            BsonType.OBJECT_ID, BsonType.BINARY);
+
+    /**
+     * The types that MongoDB sorts after null and missing values, in their
+     * order, by the alias that $type finds them with. Numbers of every type
+     * are compared with each other.
+     */
+    private static final Map<String, Set<BsonType>> TYPE_ORDER = new LinkedHashMap<>();
+    static {
+        TYPE_ORDER.put("number", EnumSet.of(BsonType.INT32, BsonType.INT64, BsonType.DOUBLE, BsonType.DECIMAL128));
+        TYPE_ORDER.put("string", EnumSet.of(BsonType.STRING));
+        TYPE_ORDER.put("object", EnumSet.of(BsonType.DOCUMENT));
+        TYPE_ORDER.put("binData", EnumSet.of(BsonType.BINARY));
+        TYPE_ORDER.put("objectId", EnumSet.of(BsonType.OBJECT_ID));
+        TYPE_ORDER.put("bool", EnumSet.of(BsonType.BOOLEAN));
+        TYPE_ORDER.put("date", EnumSet.of(BsonType.DATE_TIME));
+        TYPE_ORDER.put("timestamp", EnumSet.of(BsonType.TIMESTAMP));
+        TYPE_ORDER.put("regex", EnumSet.of(BsonType.REGULAR_EXPRESSION));
+    }
+
+    private final BsonDocument sort;
+    private final BsonArray values;
+
+    private ContinuationToken(BsonDocument sort, BsonArray values){
+        this.sort = sort;
+        this.values = values;
+    }
+
+    /**
+     * Creates the token of the position after a record
+     *
+     * @param sort The sort of the query. It must include _id
+     * @param record The last record of the page
+     * @return The token
+     * @throws IllegalArgumentException If a sort property of the record is not a plain value
+     */
+    public static ContinuationToken after(Document sort, BsonDocument record){
+        BsonDocument sortDocument = toBsonSort(sort);
+        BsonArray values = new BsonArray();
+        for(String property : sortDocument.keySet()){
+            BsonValue value = getValue(record, property);
+            if (!VALUE_TYPES.contains(value.getBsonType())){
+                throw new IllegalArgumentException("The page cannot be continued because the sort property " 
+                        + property + " of the record " + record.get(ID) + " is a " + value.getBsonType() 
+                        + ", only properties with plain values can be paged through");
+            }
+            values.add(value);
+        }
+        return new ContinuationToken(sortDocument, values);
+    }
+
+    /**
+     * Reads a token that was written by {@link #toString()}
+     * <p>
+     * A token whose sort has a property that starts with $ or whose values
+     * are not plain values, like a document of operators, is not valid.
+     *
+     * @param token The token
+     * @return The token
+     * @throws IllegalArgumentException If the token is not valid
+     */
+    public static ContinuationToken parse(String token){
+        try{
+            BsonDocument document = new RawBsonDocument(Base64.getUrlDecoder().decode(token));
+            BsonDocument sort = document.getDocument("s");
+            BsonArray values = document.getArray("v");
+            if (sort.size() != values.size() || !sort.containsKey(ID) 
+                    || !sort.values().stream().allMatch(BsonValue::isInt32)
+                    || sort.keySet().stream().anyMatch((property) -> property.startsWith("$"))
+                    || !values.stream().allMatch((value) -> VALUE_TYPES.contains(value.getBsonType()))){
+                throw new IllegalArgumentException("The continuation token is not valid");
+            }
+            return new ContinuationToken(sort, values);
+        }catch(RuntimeException e){
+            throw new IllegalArgumentException("The continuation token is not valid", e);
+        }
+    }
+
+    /**
+     * Gets the sort that the token was created for with _id as its last property
+     *
+     * @return The sort
+     */
+    public Document getSort(){
+        Document sortObject = new Document();
+        for(Entry<String, BsonValue> entry : sort.entrySet()){
+            sortObject.append(entry.getKey(), entry.getValue().asInt32().getValue());
+        }
+        return sortObject;
+    }
+
+    /**
+     * Determines if the token was created for the sort
+     *
+     * @param sortObject The sort of the query with _id as its last property
+     * @return true if it was
+     */
+    public boolean isFor(Document sortObject){
+        //the order of the properties matters
+        return new ArrayList<>(sort.entrySet()).equals(new ArrayList<>(toBsonSort(sortObject).entrySet()));
+    }
+
+    /**
+     * Creates the range predicate that finds the records after the position
+     * in the order of the sort. For a sort of a, b it is
+     * <pre>
+     * {$or: [{a: {$gt: a1}}, {a: a1, b: {$gt: b1}}, {a: a1, b: b1, _id: {$gt: id1}}]}
+     * </pre>
+     * with $lt for the descending properties.
+     * <p>
+     * MongoDB only compares values of the same type with $gt and $lt, values
+     * of different types are sorted by their type: numbers, strings, documents,
+     * binary data, object ids, booleans, dates, timestamps and regular
+     * expressions. So the range of a property also finds the values of the
+     * types that come after the type of its value with $type
+     * <pre>
+     * {$or: [{a: {$gt: a1}}, {a: {$type: ['string', 'object', ...]}}]}
+     * </pre>
+     * <p>
+     * A null or missing value sorts before every other value. When the
+     * property is ascending the values after a null are found with $ne and
+     * when it is descending nothing comes after a null. The nulls come after
+     * every other value of a descending property, so its clause is
+     * <pre>
+     * {$or: [{a: {$lt: a1}}, {a: {$type: [...]}}, {a: null}]}
+     * </pre>
+     * where the types are the ones before the type of a1.
+     *
+     * @return The filter
+     */
+    public BsonDocument toFilter(){
+        List<String> properties = new ArrayList<>(sort.keySet());
+        BsonArray or = new BsonArray();
+        for(int i = 0; i < properties.size(); i++){
+            BsonDocument clause = new BsonDocument();
+            for(int j = 0; j < i; j++){
+                clause.append(properties.get(j), values.get(j));
+            }
+            String property = properties.get(i);
+            BsonValue value = values.get(i);
+            boolean ascending = sort.getInt32(property).getValue() > 0;
+            if (value.isNull()){
+                if (!ascending){
+                    continue;
+                }
+                clause.append(property, new BsonDocument("$ne", BsonNull.VALUE));
+            }else{
+                BsonArray range = new BsonArray();
+                range.add(new BsonDocument(property, new BsonDocument(ascending ? "$gt" : "$lt", value)));
+                BsonArray types = getTypes(value.getBsonType(), ascending);
+                if (!types.isEmpty()){
+                    range.add(new BsonDocument(property, new BsonDocument("$type", types)));
+                }
+                if (!ascending){
+                    range.add(new BsonDocument(property, BsonNull.VALUE));
+                }
+                clause.append("$or", range);
+            }
+            or.add(clause);
+        }
+        if (or.size() == 1){
+            return or.get(0).asDocument();
+        }
+        return new BsonDocument("$or", or);
+    }
+
+    /**
+     * Writes the token
+     *
+     * @return The URL safe token
+     */
+    @Override
+    public String toString(){
+        BsonDocument document = new BsonDocument("s", sort).append("v", values);
+        ByteBuffer buffer = new RawBsonDocument(document, new BsonDocumentCodec()).getByteBuffer().asNIO();
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private static BsonDocument toBsonSort(Document sortObject){
+        BsonDocument sortDocument = new BsonDocument();
+        for(Entry<String, Object> entry : sortObject.entrySet()){
+            sortDocument.append(entry.getKey(), new BsonInt32(((Number)entry.getValue()).intValue() < 0 ? -1 : 1));
+        }
+        if (!sortDocument.containsKey(ID)){
+            throw new IllegalArgumentException("The sort must include _id");
+        }
+        return sortDocument;
+    }
+
+    private static BsonArray getTypes(BsonType type, boolean after){
+        BsonArray types = new BsonArray();
+        boolean found = false;
+        for(Entry<String, Set<BsonType>> entry : TYPE_ORDER.entrySet()){
+            if (entry.getValue().contains(type)){
+                found = true;
+            }else if (found == after){
+                types.add(new BsonString(entry.getKey()));
+            }
+        }
+        return types;
+    }
+
+    private static BsonValue getValue(BsonDocument record, String property){
+        BsonValue value = record;
+        for(String part : property.split("\\.")){
+            if (value == null || !value.isDocument()){
+                return BsonNull.VALUE;
+            }
+            value = value.asDocument().get(part);
+        }
+        return value == null ? BsonNull.VALUE : value;
+    }
+
+}
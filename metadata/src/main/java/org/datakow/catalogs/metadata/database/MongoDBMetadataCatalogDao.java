@@ -3,6 +3,7 @@ package org.datakow.catalogs.metadata.database;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.mongodb.BasicDBList;
+import com.mongodb.MongoClientSettings;
 import com.mongodb.ReadPreference;
 import com.mongodb.bulk.BulkWriteError;
 import com.mongodb.bulk.BulkWriteInsert;
@@ -35,20 +36,28 @@ import org.datakow.catalogs.metadata.jsonpatch.JsonPatchException;
 import org.datakow.catalogs.metadata.jsonpatch.JsonPatchOperation;
 import org.datakow.catalogs.metadata.jsonpatch.JsonPatchParser;
 import org.datakow.core.components.CatalogIdentityCollection;
-import org.datakow.core.components.DateUtil;
+import org.datakow.core.components.DateConversion;
+import org.datakow.core.components.IsoDateUtil;
 import org.datakow.core.components.DotNotationMap;
 import org.datakow.core.components.JsonInputStreamToIterator;
 import org.datakow.core.components.DatakowObjectMapper;
 import org.datakow.fiql.MongoFiqlParser;
+import org.datakow.fiql.MongoFiqlTemplate;
+import org.datakow.fiql.MongoQueryCache;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
@@ -57,6 +66,9 @@ import java.util.stream.Collectors;
 import org.bson.BsonArray;
 import org.bson.BsonString;
 import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.configuration.CodecConfigurationException;
+import org.bson.conversions.Bson;
 import org.datakow.catalogs.metadata.BulkResult;
 import org.datakow.catalogs.metadata.MetadataCatalogRecord;
 import org.datakow.catalogs.metadata.MetadataCatalogRecordStorage;
@@ -79,7 +91,15 @@ public class MongoDBMetadataCatalogDao {
     
     ReadPreference readPreference;
     
-    static MetadataCatalogRecordReadConverter readConverter = new MetadataCatalogRecordReadConverter();
+    MongoQueryCache queryCache = new MongoQueryCache();
+    
+    BulkWritePipeline bulkWritePipeline = null;
+    
+    volatile long bulkBatchBytes = BulkBatchSizer.DEFAULT_TARGET_BYTES;
+    volatile long bulkBatchLatencyMillis = BulkBatchSizer.DEFAULT_TARGET_LATENCY_MILLIS;
+    final Map<String, BulkBatchSizer> batchSizers = new ConcurrentHashMap<>();
+    
+    volatile MetadataCatalogRecordReadConverter readConverter = new MetadataCatalogRecordReadConverter();
     static MetadataCatalogRecordWriteConverter writeConverter = new MetadataCatalogRecordWriteConverter();
     
     protected static final Pattern NUMBER_PATTERN = Pattern.compile("^-?\\d+(\\.\\d+)?$");
@@ -100,12 +120,16 @@ public class MongoDBMetadataCatalogDao {
     
     /**
      * Retrieves a single MetadataCatalogRecord by its Storage.Record-Identifier.
+     * <p>
+     * When properties are given the projection is run by MongoDB and only the
+     * projected properties are decoded. The record is marked as
+     * {@link MetadataCatalogRecord#isPartial() partial}.
      * 
      * @param collectionName The catalog to retrieve the record from
      * @param recordIdentifier The record's ID
      * @param properties Projection properties to limit the properties that are returned
      * @param coherence The desired data coherence
-     * @return The record or null on an exception
+     * @return The record or null when it is not found
      */
     public MetadataCatalogRecord getById(String collectionName, String recordIdentifier, List<String> properties, MetadataDataCoherence coherence){
         
@@ -118,35 +142,32 @@ public class MongoDBMetadataCatalogDao {
         
         Document q = new Document("Storage.Record-Identifier", recordIdentifier);
         ReadPreference preference = mapDataCoherence(coherence);
-        Document projDocument = null;
-        if (properties != null && properties.size() > 0){
-            projDocument = new Document();
-            for (String column : properties){
-                projDocument.append(column, 1);
-            }
-        }
 
         Logger.getLogger(MongoDBMetadataCatalogDao.class.getName()).log(Level.INFO, 
-                "About to submit getById: Catalog: {0}. Query: {1}. Data Coherence: {2}", 
-                new Object[]{collectionName, q, coherence});
+                "About to submit getById: Catalog: {0}. Query: {1}. Projection: {2}. Data Coherence: {3}", 
+                new Object[]{collectionName, q, properties, coherence});
         
-        FindIterable<Document> result = ops
+        MongoCollection<Document> collection = ops
             .getCollection(collectionName)
-            .withReadPreference(preference)
-            .find(q);
-            
-            //.first();
-        if (result.cursor().hasNext()) {
-            MetadataCatalogRecord record = readConverter.convert(result.cursor().next());
-            return record;
-        }
+            .withReadPreference(preference);
         
-        return null;
+        if (properties == null || properties.isEmpty()){
+            return readConverter.convert(collection.find(q).first());
+        }
+        RawBsonDocument result = collection
+            .withDocumentClass(RawBsonDocument.class)
+            .find(q)
+            .projection(Projections.fields(Projections.include(properties)))
+            .first();
+        return readConverter.convert(result, properties);
         
     }
     
     /**
      * Returns a MongoRecordStream cursor/iterator of the records retrieved by the given query.
+     * <p>
+     * When a projection is given only the projected properties are decoded
+     * and the records are marked as {@link MetadataCatalogRecord#isPartial() partial}.
      * 
      * @param collectionName The catalog to retrieve the records from
      * @param fiql The FIQL query string. Null for all
@@ -164,23 +185,147 @@ public class MongoDBMetadataCatalogDao {
         List<String> projection, 
         MetadataDataCoherence coherence){
         
+        if (projection != null && !projection.isEmpty()){
+            FindIterable<RawBsonDocument> iterator = find(
+                    ops.getCollection(collectionName).withDocumentClass(RawBsonDocument.class), 
+                    collectionName, fiql, sortString, limit, projection, coherence);
+            return new MongoRecordStream<>(iterator.cursor(), (record) -> readConverter.convert(record, projection));
+        }
+        FindIterable<Document> iterator = find(ops.getCollection(collectionName), collectionName, fiql, sortString, limit, projection, coherence);
+        return new MongoRecordStream<>(ops.getConverter(), MetadataCatalogRecord.class, iterator.cursor());
+    }
+    
+    /**
+     * Returns a cursor of the records retrieved by the given query without
+     * converting them to objects. The records can be written straight to JSON
+     * with {@link RawRecordStream#writeTo(java.io.OutputStream)}.
+     * 
+     * @param collectionName The catalog to retrieve the records from
+     * @param fiql The FIQL query string. Null for all
+     * @param sortString A sort string formatted: property [ASC|DESC], ... null for no sort
+     * @param limit An upper limit of the number of records to return. -1 for no limit
+     * @param projection A comma delimited list of fully qualified properties to to include in the response. Null for all
+     * @param coherence The desired data coherence to use in the query
+     * @return The stream of raw records returned by the query
+     */
+    public RawRecordStream getRawByQuery(
+        String collectionName, 
+        String fiql, 
+        String sortString, 
+        int limit, 
+        List<String> projection, 
+        MetadataDataCoherence coherence){
+        
+        FindIterable<RawBsonDocument> iterator = find(
+                ops.getCollection(collectionName).withDocumentClass(RawBsonDocument.class), 
+                collectionName, fiql, sortString, limit, projection, coherence);
+        return new RawRecordStream(iterator.cursor());
+    }
+    
+    /**
+     * Returns one page of the records retrieved by the given query using keyset
+     * pagination.
+     * <p>
+     * The records are sorted by the sort string and then by _id. Every page
+     * after the first one is found by seeking past the last record of the
+     * previous page with a range predicate on the sort properties, see
+     * {@link ContinuationToken#toFilter()}, so with an index on the sort
+     * properties followed by _id page N costs the same as page 1. Read every
+     * record of the page and then get the token of the next page from
+     * {@link MongoRecordPage#getContinuationToken()}.
+     * <p>
+     * When a projection is given the sort properties are read from MongoDB to
+     * create the token but only the projected properties are decoded.
+     * 
+     * @param collectionName The catalog to retrieve the records from
+     * @param fiql The FIQL query string. Null for all
+     * @param sortString A sort string formatted: property [ASC|DESC], ... null to sort by _id
+     * @param limit The number of records in a page
+     * @param continuationToken The token of the previous page. Null for the first page
+     * @param projection The fully qualified properties to to include in the response. Null for all
+     * @param coherence The desired data coherence to use in the query
+     * @return The page of records returned by the query
+     * @throws IllegalArgumentException If the limit is not positive or the token is not valid for the sort
+     */
+    public MongoRecordPage<MetadataCatalogRecord> getPageByQuery(
+        String collectionName, 
+        String fiql, 
+        String sortString, 
+        int limit, 
+        String continuationToken, 
+        List<String> projection, 
+        MetadataDataCoherence coherence){
+        
+        if (limit <= 0){
+            throw new IllegalArgumentException("The page limit must be greater than 0");
+        }
+        Document sortObject = StringUtils.hasText(sortString) ? getSortObject(sortString) : new Document();
+        if (!sortObject.containsKey("_id")){
+            sortObject.append("_id", 1);
+        }
+        
         Document mappedQuery = getMappedQuery(fiql);
+        Bson filter = mappedQuery;
+        if (StringUtils.hasText(continuationToken)){
+            ContinuationToken token = ContinuationToken.parse(continuationToken);
+            if (!token.isFor(sortObject)){
+                throw new IllegalArgumentException("The continuation token was created for a different sort");
+            }
+            filter = mappedQuery.isEmpty() ? token.toFilter() : new Document("$and", Arrays.asList(mappedQuery, token.toFilter()));
+        }
         ReadPreference preference = mapDataCoherence(coherence);
         
-        Document projDocument = null;
-        if (projection != null && projection.size() > 0){
-            projDocument = new Document();
-            for (String column : projection){
-                projDocument.append(column, 1);
+        Logger.getLogger(MongoDBMetadataCatalogDao.class.getName()).log(Level.INFO, 
+                "About to submit getPageByQuery: {0}. Data Coherence: {1}. Catalog: {2}. Sort: {3}. Limit: {4}", 
+                new Object[]{filter, coherence, collectionName, sortObject, limit});
+        
+        FindIterable<RawBsonDocument> iterator = ops.getCollection(collectionName)
+            .withDocumentClass(RawBsonDocument.class)
+            .withReadPreference(preference)
+            .find(filter)
+            .sort(sortObject)
+            .limit(limit);
+        
+        if (projection != null && !projection.isEmpty()){
+            iterator.projection(Projections.fields(Projections.include(includeSortProperties(projection, sortObject))));
+        }
+        return new MongoRecordPage<>(iterator.cursor(), (record) -> readConverter.convert(record, projection), sortObject, limit);
+    }
+    
+    /**
+     * Adds the sort properties to a projection without adding a path that
+     * collides with one that is already projected.
+     */
+    private static List<String> includeSortProperties(List<String> projection, Document sortObject){
+        List<String> included = new ArrayList<>(projection);
+        for(String property : sortObject.keySet()){
+            if (included.stream().anyMatch((p) -> property.equals(p) || property.startsWith(p + "."))){
+                continue;
             }
+            //the whole sort property replaces the projected properties inside of it
+            included.removeIf((p) -> p.startsWith(property + "."));
+            included.add(property);
         }
+        return included;
+    }
+    
+    private <T> FindIterable<T> find(
+        MongoCollection<T> collection, 
+        String collectionName, 
+        String fiql, 
+        String sortString, 
+        int limit, 
+        List<String> projection, 
+        MetadataDataCoherence coherence){
+        
+        Document mappedQuery = getMappedQuery(fiql);
+        ReadPreference preference = mapDataCoherence(coherence);
         
         Logger.getLogger(MongoDBMetadataCatalogDao.class.getName()).log(Level.INFO, 
                 "About to submit getByQuery: {0}. Data Coherence: {1}. Catalog: {2}. Sort: {3}. Limit: {4}", 
                 new Object[]{mappedQuery, coherence, collectionName, sortString, limit});
         
-        FindIterable<Document> iterator = ops
-            .getCollection(collectionName)
+        FindIterable<T> iterator = collection
             .withReadPreference(preference)
             .find(mappedQuery);
 
@@ -195,8 +340,7 @@ public class MongoDBMetadataCatalogDao {
         if (StringUtils.hasText(sortString)){
             iterator.sort(getSortObject(sortString));
         }
-
-        return new MongoRecordStream<>(ops.getConverter(), MetadataCatalogRecord.class, iterator.cursor());
+        return iterator;
     }
     
     public MongoRecordStream<MetadataCatalogRecord> aggregate(String collectionName, String pipeline, MetadataDataCoherence coherence){
@@ -222,6 +366,72 @@ public class MongoDBMetadataCatalogDao {
         return new MongoRecordStream<>(ops.getConverter(), MetadataCatalogRecord.class, cursor.cursor());
     }
     
+    /**
+     * Runs an aggregation with a projection of the properties to return added
+     * as the last stage. Only the projected properties are decoded and the
+     * records are marked as {@link MetadataCatalogRecord#isPartial() partial}.
+     * 
+     * @param collectionName The catalog to aggregate
+     * @param pipeline The aggregation pipeline
+     * @param projection The fully qualified properties to include in the response. Null for all
+     * @param coherence The desired data coherence to use in the query
+     * @return The stream of records returned by the aggregation
+     */
+    public MongoRecordStream<MetadataCatalogRecord> aggregate(String collectionName, List<Document> pipeline, List<String> projection, MetadataDataCoherence coherence){
+        if (projection == null || projection.isEmpty()){
+            return aggregate(collectionName, pipeline, coherence);
+        }
+        if (pipeline == null || pipeline.isEmpty()){
+            throw new IllegalArgumentException("The pipeline must not be empty");
+        }
+        Document projDocument = new Document();
+        for (String column : projection){
+            projDocument.append(column, 1);
+        }
+        List<Document> projectedPipeline = new ArrayList<>(pipeline);
+        projectedPipeline.add(new Document("$project", projDocument));
+        ReadPreference preference = mapDataCoherence(coherence);
+        
+        Logger.getLogger(MongoDBMetadataCatalogDao.class.getName()).log(Level.INFO, 
+                "About to aggregate\ndb.{0}.aggregate(\n[{1}]\n)", 
+                new Object[]{collectionName, projectedPipeline.stream().map(d->d.toString()).collect(Collectors.joining(",\n"))});
+        
+        AggregateIterable<RawBsonDocument> cursor = ops.getCollection(collectionName)
+                .withDocumentClass(RawBsonDocument.class)
+                .withReadPreference(preference)
+                .aggregate(projectedPipeline);
+        
+        return new MongoRecordStream<>(cursor.cursor(), (record) -> readConverter.convert(record, projection));
+    }
+    
+    /**
+     * Runs an aggregation and returns a cursor of the results without
+     * converting them to objects.
+     * 
+     * @param collectionName The catalog to aggregate
+     * @param pipeline The aggregation pipeline
+     * @param coherence The desired data coherence to use in the query
+     * @return The stream of raw records returned by the aggregation
+     */
+    public RawRecordStream aggregateRaw(String collectionName, List<Document> pipeline, MetadataDataCoherence coherence){
+        ReadPreference preference = mapDataCoherence(coherence);
+        
+        if (pipeline == null || pipeline.isEmpty()){
+            throw new IllegalArgumentException("The pipeline must not be empty");
+        }
+        
+        Logger.getLogger(MongoDBMetadataCatalogDao.class.getName()).log(Level.INFO, 
+                "About to aggregate\ndb.{0}.aggregate(\n[{1}]\n)", 
+                new Object[]{collectionName, pipeline.stream().map(d->d.toString()).collect(Collectors.joining(",\n"))});
+        
+        AggregateIterable<RawBsonDocument> cursor = ops.getCollection(collectionName)
+                .withDocumentClass(RawBsonDocument.class)
+                .withReadPreference(preference)
+                .aggregate(pipeline);
+        
+        return new RawRecordStream(cursor.cursor());
+    }
+    
     /**
      * Performs a count of records given a catalog and a query.
      * 
@@ -279,7 +489,7 @@ public class MongoDBMetadataCatalogDao {
     
     /**
      * Perform a bulk insert operation on a collection of records.
-     * Does the bulk operation in batches of 1000 to save memory
+     * Does the bulk operation in batches sized by the {@link BulkBatchSizer} of the collection to save memory
      * 
      * @param collectionName The catalog to insert the records in
      * @param publisher The publisher of the data
@@ -298,23 +508,46 @@ public class MongoDBMetadataCatalogDao {
         InputStream stream, 
         CatalogIdentityCollection defaultObjectIdentities) throws IOException{
         
+        List<BulkResult> bulkResult = new ArrayList<>();
+        createBulk(collectionName, publisher, defaultRealm, defaultTags, stream, defaultObjectIdentities, bulkResult::add);
+        return bulkResult;
+    }
+    
+    /**
+     * Perform a bulk insert operation on a collection of records and hand the
+     * result of each record to the consumer as soon as its batch is written.
+     * Nothing is kept after a batch is written so any number of records can be
+     * inserted in constant memory.
+     * 
+     * @param collectionName The catalog to insert the records in
+     * @param publisher The publisher of the data
+     * @param defaultRealm Default realm to apply to the records
+     * @param defaultTags Default tags to apply to the records
+     * @param stream The JSON array input stream of records
+     * @param defaultObjectIdentities Associated objects to use on ALL records if one has not been assigned to the individual record
+     * @param results Receives the result of each record in order on the calling thread
+     * @throws IOException When an error occurs reading the InputStream
+     */
+    public void createBulk(
+        String collectionName, 
+        String publisher, 
+        String defaultRealm, 
+        List<String> defaultTags, 
+        InputStream stream, 
+        CatalogIdentityCollection defaultObjectIdentities,
+        Consumer<BulkResult> results) throws IOException{
+        
         Logger.getLogger(MongoDBMetadataCatalogDao.class.getName()).log(Level.INFO, "About to bulk create records in the {0} catalog", new Object[]{collectionName});
         
         JsonInputStreamToIterator<MetadataCatalogRecord> parser = JsonInputStreamToIterator.makeIterator(stream, MetadataCatalogRecord.class);
         
-        List<InsertOneModel<Document>> bulkInsert = new ArrayList<>();
-        List<BulkResult> bulkResult = new ArrayList<>();
-            
-        int recordIndex = 0;
-        int batchSize = 1000;
-        
-        while(parser.hasNext()){
-            
-            List<BulkResult> batchResult = new ArrayList<>();
-            
+        BulkBatchSizer sizer = getBatchSizer(collectionName);
+        AtomicInteger recordIndex = new AtomicInteger();
+        writeBatches(collectionName, () -> {
+            WriteBatch batch = new WriteBatch();
             //Collect records one by one by streaming the input in batches 
-            //of 1000 or until they are gone
-            while(parser.hasNext() && batchResult.size() < batchSize) {
+            //until the batch is full or they are gone
+            while(parser.hasNext() && !sizer.isFull(batch.size(), batch.getBytes())) {
                 
                 MetadataCatalogRecord record = parser.next();
                 if (record.getStorage() == null && (record.getDocument() == null || record.getDocument().isEmpty())){
@@ -322,28 +555,15 @@ public class MongoDBMetadataCatalogDao {
                     continue;
                 }
                 record.setStorage(initializeDefaultStorage(record.getStorage(), publisher, defaultRealm, defaultTags, defaultObjectIdentities));
-                batchResult.add(new BulkResult(record.getStorage().getId(), record.getCorrelationid(), recordIndex, "created"));
+                Document document = writeConverter.convert(record);
                 //Add it to the list of records to insert in bulk
-                bulkInsert.add(new InsertOneModel<Document>(writeConverter.convert(record)));
-
-                recordIndex++;
-            }
-            
-            //If there are any operations to execute
-            if (!batchResult.isEmpty()){
-                BulkOperationException ex = null;
-                BulkWriteResult result = null;
-                try{
-                    result = ops.getCollection(collectionName).bulkWrite(bulkInsert);
-                    
-                }catch(BulkOperationException e){
-                    ex = e;
-                }
-                bulkResult.addAll(translateBulkWriteResult(result, ex, batchResult));
+                batch.add(
+                        new BulkResult(record.getStorage().getId(), record.getCorrelationid(), recordIndex.getAndIncrement(), "created"),
+                        new InsertOneModel<Document>(document),
+                        bsonSize(document));
             }
-        }
-        
-        return bulkResult;
+            return batch.isEmpty() ? null : batch;
+        }, true, results);
     }
     
     /**
@@ -422,7 +642,7 @@ public class MongoDBMetadataCatalogDao {
     
     /**
      * Perform a bulk insert operation on a collection of MetadataCatalogRecord objects in an InputStream.
-     * Does the bulk operation in batches of 1000 to save memory
+     * Does the bulk operation in batches sized by the {@link BulkBatchSizer} of the collection to save memory
      * 
      * @param collectionName The catalog to insert the records in
      * @param publisher The publisher of the data
@@ -449,20 +669,56 @@ public class MongoDBMetadataCatalogDao {
         boolean multi) throws IOException, JsonProcessingException {
         
         List<BulkResult> bulkResult = new ArrayList<>();
+        updateBulkByParameterizedFilter(collectionName, publisher, defaultRealm, defaultTags, parameterizedFilter, 
+                recordStream, defaultObjectIdentities, upsert, multi, bulkResult::add);
+        return bulkResult;
+    }
+    
+    /**
+     * Perform a bulk update operation on a collection of MetadataCatalogRecord objects
+     * in an InputStream and hand the result of each record to the consumer as soon
+     * as its batch is written. Nothing is kept after a batch is written so any
+     * number of records can be updated in constant memory.
+     * 
+     * @param collectionName The catalog to insert the records in
+     * @param publisher The publisher of the data
+     * @param defaultRealm Default realm to apply to the records
+     * @param defaultTags Default tags to apply to the records
+     * @param parameterizedFilter A filter used to produce the query for the update/upsert
+     * @param recordStream The JSON array input stream of records
+     * @param defaultObjectIdentities Associated objects to use on ALL records if one has not been assigned to the individual record
+     * @param upsert true for upsert false for update
+     * @param multi Flag to indicate if each update operation should modify the first record it finds or if it should modify all of the records that it finds
+     * @param results Receives the result of each record in order on the calling thread
+     * @throws IOException When an error occurs reading the InputStream
+     * @throws JsonProcessingException If there is a problem parsing the JSON
+     */
+    public void updateBulkByParameterizedFilter(
+        String collectionName, 
+        String publisher, 
+        String defaultRealm,
+        List<String> defaultTags, 
+        String parameterizedFilter, 
+        InputStream recordStream, 
+        CatalogIdentityCollection defaultObjectIdentities, 
+        boolean upsert, 
+        boolean multi,
+        Consumer<BulkResult> results) throws IOException, JsonProcessingException {
         
         Logger.getLogger(MongoDBMetadataCatalogDao.class.getName()).log(Level.INFO, "About to bulk upsert records in the {0} catalog", new Object[]{collectionName});
         
         JsonInputStreamToIterator<MetadataCatalogRecord> parser = JsonInputStreamToIterator.makeIterator(recordStream, MetadataCatalogRecord.class);
         
-        int recordIndex = 0;
-        int batchSize = 1000;
-        while(parser.hasNext()){
-            
-            List<BulkResult> batchResult = new ArrayList<>();
-            List<WriteModel<Document>> batchQueries = new ArrayList<>();
+        //parse the filter once and fill in the values of each record
+        MongoFiqlTemplate filterTemplate = compileParameterizedFilter(parameterizedFilter);
+        
+        BulkBatchSizer sizer = getBatchSizer(collectionName);
+        AtomicInteger recordIndex = new AtomicInteger();
+        writeBatches(collectionName, () -> {
+            WriteBatch batch = new WriteBatch();
             //Collect records one by one by streaming the input in batches 
-            //of 1000 or until they are gone
-            while(parser.hasNext() && batchResult.size() < batchSize) {
+            //until the batch is full or they are gone
+            while(parser.hasNext() && !sizer.isFull(batch.size(), batch.getBytes())) {
                 
                 MetadataCatalogRecord record = parser.next();
                 if (record.getStorage() == null && (record.getDocument() == null || record.getDocument().isEmpty())){
@@ -470,46 +726,35 @@ public class MongoDBMetadataCatalogDao {
                     continue;
                 }
                 record.setStorage(initializeDefaultStorage(record.getStorage(), publisher, defaultRealm, defaultTags, defaultObjectIdentities));
-                String fiql = fillParameterizedQuery(parameterizedFilter, record);
+                Document filter = fillParameterizedFilter(filterTemplate, record);
                 Update updateStatement = makeUpdateStatement(record, publisher, upsert);
-                batchResult.add(new BulkResult(null, record.getCorrelationid(), recordIndex, "updated"));
+                BulkResult result = new BulkResult(null, record.getCorrelationid(), recordIndex.getAndIncrement(), "updated");
+                long bytes = bsonSize(filter, updateStatement.getUpdateObject());
                 
                 if (multi){
-                    batchQueries.add(
+                    batch.add(result,
                         new UpdateOneModel<Document>(
-                            getMappedQuery(fiql),
+                            filter,
                             updateStatement.getUpdateObject(),
                             new UpdateOptions()
                                 .upsert(upsert)
-                        )
+                        ),
+                        bytes
                     );
                 }else{
-                    batchQueries.add(
+                    batch.add(result,
                         new UpdateManyModel<Document>(
-                            getMappedQuery(fiql), 
+                            filter, 
                             updateStatement.getUpdateObject(), 
                             new UpdateOptions()
                                 .upsert(upsert)
-                        )
+                        ),
+                        bytes
                     );
                 }
-                
-                recordIndex++;
             }
-            
-            if (!batchResult.isEmpty()){
-                BulkOperationException ex = null;
-                BulkWriteResult result = null;
-                try{
-                    result = ops.getCollection(collectionName).bulkWrite(batchQueries);
-                }catch(BulkOperationException e){
-                    ex = e;
-                }
-                bulkResult.addAll(translateBulkWriteResult(result, ex, batchResult));
-            }
-        }
-        
-        return bulkResult;
+            return batch.isEmpty() ? null : batch;
+        }, false, results);
     }
     
     public UpdateResult patchOneByQuery(String collectionName, String fiql, String sortString,
@@ -539,7 +784,7 @@ public class MongoDBMetadataCatalogDao {
     /**
      * Performs a Json Patch operation. Records are retrieved based on the query,
      * sort, and limit. Then the merge operation is performed on the records in batches
-     * of 1000. Then a bulk update/upsert operation is performed in the database on the whole
+     * sized by the {@link BulkBatchSizer} of the collection. Then a bulk update/upsert operation is performed in the database on the whole
      * record. This method is expensive and the mergePatchByQuery is recommended.
      * 
      * @param collectionName The name of the collection to perform the patch on
@@ -562,64 +807,76 @@ public class MongoDBMetadataCatalogDao {
         boolean upsert) throws JsonProcessingException{
         
         List<BulkResult> bulkResults = new ArrayList<>();
+        patchByQuery(collectionName, fiql, sortString, limit, operations, publisher, upsert, bulkResults::add);
+        return bulkResults;
+    }
+    
+    /**
+     * Performs a Json Patch operation like {@link #patchByQuery(String, String, String, int, List, String, boolean)}
+     * and hands the result of each record to the consumer as soon as its batch is written.
+     * 
+     * @param collectionName The name of the collection to perform the patch on
+     * @param fiql The Query used to find the records to patch.
+     * @param sortString Sort used to limit the number of records
+     * @param limit Limits the number of records found to perform the patch on. -1 for all
+     * @param operations An ordered list of the operations to perform
+     * @param publisher The publisher of this patch
+     * @param upsert Whether to perform an upsert or not
+     * @param results Receives the result of each record in order on the calling thread
+     * @throws JsonProcessingException If there is an error parsing any JSON along the way
+     */
+    public void patchByQuery(
+        String collectionName, 
+        String fiql, 
+        String sortString, 
+        int limit, 
+        List<JsonPatchOperation> operations, 
+        String publisher, 
+        boolean upsert,
+        Consumer<BulkResult> results) throws JsonProcessingException{
+        
         try(MongoRecordStream<MetadataCatalogRecord> recordStream = getByQuery(collectionName, fiql, sortString, limit, null, MetadataDataCoherence.CONSISTENT)){
             
-            int recordIndex = 0;
-            int batchSize = 1000;
             if (recordStream.hasNext()){
-                MongoCollection<Document> bulkOps = ops.getCollection(collectionName);
-                while(recordStream.hasNext()){
-
-                    List<BulkResult> batchResult = new ArrayList<>();
-                    List<WriteModel<Document>> batchQueries = new ArrayList<>();
-
-                    while(recordStream.hasNext() && batchResult.size() < batchSize){
+                BulkBatchSizer sizer = getBatchSizer(collectionName);
+                AtomicInteger recordIndex = new AtomicInteger();
+                writePatchBatches(collectionName, () -> {
+                    WriteBatch batch = new WriteBatch();
+                    while(recordStream.hasNext() && !sizer.isFull(batch.size(), batch.getBytes())){
                         MetadataCatalogRecord origRecord = recordStream.next();
                         MetadataCatalogRecord record;
                         try{
                             record = applyJsonPatch(origRecord, operations);
                         }catch(JsonPatchException ex){
-                            batchResult.add(new BulkResult(origRecord.getStorage().getId(), recordIndex, "error", ex.getMessage()));
-                            recordIndex++;
+                            batch.addFailure(new BulkResult(origRecord.getStorage().getId(), recordIndex.getAndIncrement(), "error", ex.getMessage()));
                             continue;
                         }
 
                         Update update = makeUpdateStatement(record, publisher, upsert);
+                        Document filter = new Document("Storage.Record-Identifier", record.getStorage().getId());
 
-                        batchQueries.add(
+                        batch.add(
+                            new BulkResult(record.getStorage().getId(), recordIndex.getAndIncrement(), "updated"),
                             new UpdateOneModel<>(
-                                new Document("Storage.Record-Identifier", record.getStorage().getId()), 
+                                filter, 
                                 update.getUpdateObject(),
                                 new UpdateOptions()
                                     .upsert(upsert)
-                            )
+                            ),
+                            bsonSize(filter, update.getUpdateObject())
                         );
-
-                        batchResult.add(new BulkResult(record.getStorage().getId(), recordIndex, "updated"));
-                        recordIndex++;
                     }
-                    if (!batchResult.isEmpty()){
-                        BulkWriteResult writeResult = null;
-                        BulkOperationException ex = null;
-                        try{
-                            writeResult = bulkOps.bulkWrite(batchQueries);
-                        }catch(BulkOperationException e){
-                            ex = e;
-                        }
-                        bulkResults.addAll(translateBulkWriteResult(writeResult, ex, batchResult));
-                    }
-                }
+                    return batch.isEmpty() ? null : batch;
+                }, results);
             }else if (upsert){
                 //if nothing was found and this is an upsert then we must create the record.
                 MetadataCatalogRecord record = new MetadataCatalogRecord();
                 record.setStorage(initializeDefaultStorage(null, publisher, null, null, null));
                 record = applyJsonPatch(record, operations);
                 create(collectionName, record);
-                bulkResults.add(new BulkResult(record.getStorage().getId(), 0, "created"));
+                results.accept(new BulkResult(record.getStorage().getId(), 0, "created"));
             }
         }
-        
-        return bulkResults;
     }
     
     public UpdateResult mergePatchByQuery(
@@ -767,6 +1024,89 @@ public class MongoDBMetadataCatalogDao {
         return updateStatement;
     }
     
+    /**
+     * Writes the batches of a bulk operation. With a {@link BulkWritePipeline}
+     * the batches are read and written at the same time. Inserts are written
+     * unordered with several batches in flight. Updates and patches can upsert
+     * or change the same document more than once so they are written in order
+     * one batch at a time and only the reading overlaps. Without a pipeline
+     * each batch is read and then written in order.
+     * 
+     * @param collectionName The collection to write to
+     * @param batches Reads the next batch of the operation
+     * @param unordered true if the writes of the operation can be applied in any order
+     * @param results Receives the results of each batch in the order they were read
+     * @throws IOException If there is a problem reading the records
+     */
+    protected void writeBatches(String collectionName, BulkWritePipeline.BatchSource<WriteBatch> batches, boolean unordered, Consumer<BulkResult> results) throws IOException{
+        BulkWritePipeline pipeline = this.bulkWritePipeline;
+        if (pipeline != null && unordered){
+            BulkWriteOptions options = new BulkWriteOptions().ordered(false);
+            pipeline.run(batches, (batch) -> writeBatch(collectionName, batch, options), results);
+            return;
+        }else if (pipeline != null){
+            new BulkWritePipeline(1, pipeline.getQueueSize()).run(batches, (batch) -> writeBatch(collectionName, batch, null), results);
+            return;
+        }
+        WriteBatch batch;
+        while((batch = batches.next()) != null){
+            writeBatch(collectionName, batch, null).forEach(results);
+        }
+    }
+    
+    private void writePatchBatches(String collectionName, BulkWritePipeline.BatchSource<WriteBatch> batches, Consumer<BulkResult> results) throws JsonProcessingException{
+        try{
+            writeBatches(collectionName, batches, false, results);
+        }catch(JsonProcessingException ex){
+            throw ex;
+        }catch(IOException ex){
+            //the patch batches are read from the database so only the JSON can fail
+            throw new UncheckedIOException(ex);
+        }
+    }
+    
+    private List<BulkResult> writeBatch(String collectionName, WriteBatch batch, BulkWriteOptions options){
+        //If there are any operations to execute
+        if (!batch.writes.isEmpty()){
+            BulkOperationException ex = null;
+            BulkWriteResult result = null;
+            long start = System.nanoTime();
+            try{
+                MongoCollection<Document> collection = ops.getCollection(collectionName);
+                if (options == null){
+                    result = collection.bulkWrite(batch.writes);
+                }else{
+                    result = collection.bulkWrite(batch.writes, options);
+                }
+            }catch(BulkOperationException e){
+                ex = e;
+            }
+            getBatchSizer(collectionName).recordWrite(batch.writes.size(), batch.getBytes(), System.nanoTime() - start);
+            translateBulkWriteResult(result, ex, batch.writtenResults);
+        }
+        return batch.results;
+    }
+    
+    /**
+     * Gets the sizer that decides how many records go in each bulk batch
+     * written to a collection. Its record limit is the effective batch size.
+     * 
+     * @param collectionName The name of the collection
+     * @return The sizer of the collection
+     */
+    public BulkBatchSizer getBatchSizer(String collectionName){
+        return batchSizers.computeIfAbsent(collectionName, (name) -> new BulkBatchSizer(bulkBatchBytes, bulkBatchLatencyMillis));
+    }
+    
+    private long bsonSize(Document... documents){
+        try{
+            return BulkBatchSizer.sizeOf(MongoClientSettings.getDefaultCodecRegistry(), documents);
+        }catch(CodecConfigurationException ex){
+            //the write will tell the user about it. Only the record limit applies to this one.
+            return 0;
+        }
+    }
+    
     protected List<BulkResult> translateBulkWriteResult(BulkWriteResult writeResult, BulkOperationException ex, List<BulkResult> bulkResultList){
         
         if (ex != null){
@@ -833,31 +1173,74 @@ public class MongoDBMetadataCatalogDao {
         for(String part : parts){
             String propertyName = part.substring(0, part.indexOf("="));
             String parameterName = part.substring(part.indexOf("{") + 1, part.lastIndexOf("}"));
-            Object parameterValue;
-            if (parameterName.startsWith("Storage.")){
-                if (storageMap == null){
-                    storageMap = DotNotationMap.fromJson(record.getStorage().toJson());
-                }
-                parameterValue = storageMap.getProperty(parameterName.replace("Storage.", ""));
-
-            }else if (parameterName.startsWith("Doc.")){
-                parameterValue = record.getDocument().getProperty(parameterName.replace("Doc.", ""));
-            }else{
-                throw new IllegalArgumentException("The record does not contain a property named " + parameterName);
-            }
-            if (parameterValue != null){
-                if (parameterValue instanceof Date){
-                    parameterValue = DateUtil.dateToUTCString((Date)parameterValue);
-                }
-                queryParts.add(propertyName + "==" + parameterValue);
-            }else{
-                throw new IllegalArgumentException("The record does not contain a property named " + parameterName);
+            if (storageMap == null && parameterName.startsWith("Storage.")){
+                storageMap = DotNotationMap.fromJson(record.getStorage().toJson());
             }
+            queryParts.add(propertyName + "==" + getParameterValue(parameterName, record, storageMap));
         }
         String fiql = String.join(";", queryParts);
         return fiql;
     }
     
+    /**
+     * Parses a parameterized filter such as Doc.station=={Doc.id} into a template
+     * that can be filled in for each record without parsing the filter again.
+     * 
+     * @param parameterizedFilter The filter with parameters in curly braces
+     * @return The compiled filter
+     */
+    protected MongoFiqlTemplate compileParameterizedFilter(String parameterizedFilter){
+        String[] parts = parameterizedFilter.split(";");
+        List<String> queryParts = new ArrayList<>();
+        for(String part : parts){
+            String propertyName = part.substring(0, part.indexOf("="));
+            String parameterName = part.substring(part.indexOf("{") + 1, part.lastIndexOf("}"));
+            queryParts.add(propertyName + "=={" + parameterName + "}");
+        }
+        return MongoFiqlTemplate.compile(String.join(";", queryParts), "", (criteria) -> 
+                new QueryMapper(ops.getConverter()).getMappedObject(criteria, Optional.empty()));
+    }
+    
+    /**
+     * Fills in a compiled parameterized filter with the values from the record.
+     * The result is the same as mapping the query from {@link #fillParameterizedQuery(String, MetadataCatalogRecord)}.
+     * 
+     * @param template The compiled filter
+     * @param record The record to get the values from
+     * @return The mapped filter document
+     * @throws JsonProcessingException If the storage of the record cannot be read
+     */
+    protected Document fillParameterizedFilter(MongoFiqlTemplate template, MetadataCatalogRecord record) throws JsonProcessingException{
+        Map<String, String> values = new HashMap<>();
+        DotNotationMap storageMap = null;
+        for(String parameterName : template.getParameterNames()){
+            if (storageMap == null && parameterName.startsWith("Storage.")){
+                storageMap = DotNotationMap.fromJson(record.getStorage().toJson());
+            }
+            values.put(parameterName, getParameterValue(parameterName, record, storageMap));
+        }
+        return template.bind(values);
+    }
+    
+    private String getParameterValue(String parameterName, MetadataCatalogRecord record, DotNotationMap storageMap){
+        Object parameterValue;
+        if (parameterName.startsWith("Storage.")){
+            parameterValue = storageMap.getProperty(parameterName.replace("Storage.", ""));
+        }else if (parameterName.startsWith("Doc.")){
+            parameterValue = record.getDocument().getProperty(parameterName.replace("Doc.", ""));
+        }else{
+            throw new IllegalArgumentException("The record does not contain a property named " + parameterName);
+        }
+        if (parameterValue != null){
+            if (parameterValue instanceof Date){
+                parameterValue = IsoDateUtil.dateToUTCString((Date)parameterValue);
+            }
+            return String.valueOf(parameterValue);
+        }else{
+            throw new IllegalArgumentException("The record does not contain a property named " + parameterName);
+        }
+    }
+    
     protected List<Document> makeAggregationPipeline(List<String> stages){
         
         List<Document> pipeline = new ArrayList<>();
@@ -1127,10 +1510,11 @@ public class MongoDBMetadataCatalogDao {
     }
     
     protected Document getMappedQuery(String fiql){
-        Query query = makeQuery(fiql);
-        QueryMapper mapper = new QueryMapper(ops.getConverter());
-        Document mappedQuery = mapper.getMappedObject(query.getQueryObject(), Optional.empty());
-        return mappedQuery;
+        if (!StringUtils.hasText(fiql)){
+            return new Document();
+        }
+        return queryCache.get(fiql, "", (criteria) -> 
+                new QueryMapper(ops.getConverter()).getMappedObject(criteria, Optional.empty()));
     }
     
     protected Query makeQuery(String fiql){
@@ -1159,6 +1543,91 @@ public class MongoDBMetadataCatalogDao {
         return this.ops;
     }
     
+    /**
+     * Gets the cache of parsed FIQL queries so its hit and miss counts can be reported
+     * 
+     * @return The query cache
+     */
+    public MongoQueryCache getQueryCache(){
+        return this.queryCache;
+    }
+    
+    /**
+     * Sets the cache of parsed FIQL queries
+     * 
+     * @param queryCache The query cache
+     */
+    public void setQueryCache(MongoQueryCache queryCache){
+        this.queryCache = queryCache;
+    }
+    
+    /**
+     * Gets the way the date Strings of the records that are read with a
+     * projection, by page or by aggregation are converted
+     * 
+     * @return When to convert Strings to Dates
+     */
+    public DateConversion getDateConversion(){
+        return readConverter.getDateConversion();
+    }
+    
+    /**
+     * Sets the way the date Strings of the records that are read with a
+     * projection, by page or by aggregation are converted. The other reads
+     * use the converter of the MongoTemplate.
+     * <p>
+     * {@link DateConversion#LAZY} keeps the Strings as they are stored and
+     * saves checking every one of them when the records are only passed
+     * through.
+     * 
+     * @param dateConversion When to convert Strings to Dates
+     */
+    public void setDateConversion(DateConversion dateConversion){
+        this.readConverter = new MetadataCatalogRecordReadConverter(dateConversion);
+    }
+    
+    /**
+     * Gets the pipeline used by the bulk operations
+     * 
+     * @return The pipeline or null if the batches are written one at a time
+     */
+    public BulkWritePipeline getBulkWritePipeline(){
+        return this.bulkWritePipeline;
+    }
+    
+    /**
+     * Sets the pipeline used by the bulk operations so that reading the records
+     * overlaps with writing them.
+     * <p>
+     * The batches of {@link #createBulk(String, String, String, List, InputStream, CatalogIdentityCollection, Consumer)}
+     * are written unordered with up to {@link BulkWritePipeline#getWritesInFlight()}
+     * in flight at once. The batches of the bulk updates and patches are still
+     * written in order one at a time, since records that upsert or change the
+     * same document have to be applied in the order they were sent. The
+     * results are always returned in input order.
+     * 
+     * @param bulkWritePipeline The pipeline or null to write the batches one at a time
+     */
+    public void setBulkWritePipeline(BulkWritePipeline bulkWritePipeline){
+        this.bulkWritePipeline = bulkWritePipeline;
+    }
+    
+    /**
+     * Sets the targets of the bulk batches. A batch is written when its encoded
+     * BSON reaches the byte budget or when it has as many records as the
+     * sizer of the collection expects to write in the target latency.
+     * 
+     * @param targetBytes The number of BSON bytes in a full batch
+     * @param targetLatencyMillis The time a bulkWrite should take
+     */
+    public void setBulkBatchTargets(long targetBytes, long targetLatencyMillis){
+        //check the values before the sizers are thrown away
+        BulkBatchSizer.validate(targetBytes, targetLatencyMillis);
+        this.bulkBatchBytes = targetBytes;
+        this.bulkBatchLatencyMillis = targetLatencyMillis;
+        this.batchSizers.clear();
+    }
+    
     protected MetadataCatalogRecord applyJsonPatch(MetadataCatalogRecord record, List<JsonPatchOperation> operations) throws JsonProcessingException{
         
         DotNotationMap recordMap = DotNotationMap.fromJson(record.toJson());
@@ -1174,4 +1643,52 @@ public class MongoDBMetadataCatalogDao {
         }
     }
     
+    /**
+     * The write operations of one batch of a bulk operation and the results
+     * they belong to.
+     */
+    protected static class WriteBatch{
+        
+        final List<BulkResult> results = new ArrayList<>();
+        final List<BulkResult> writtenResults = new ArrayList<>();
+        final List<WriteModel<Document>> writes = new ArrayList<>();
+        long bytes = 0;
+        
+        /**
+         * Adds a write operation and its result
+         * 
+         * @param result The result of the operation
+         * @param write The operation
+         * @param size The number of BSON bytes in the operation
+         */
+        void add(BulkResult result, WriteModel<Document> write, long size){
+            results.add(result);
+            writtenResults.add(result);
+            writes.add(write);
+            bytes += size;
+        }
+        
+        /**
+         * Adds the result of a record that failed before it could be written
+         * 
+         * @param result The result of the record
+         */
+        void addFailure(BulkResult result){
+            results.add(result);
+        }
+        
+        int size(){
+            return results.size();
+        }
+        
+        long getBytes(){
+            return bytes;
+        }
+        
+        boolean isEmpty(){
+            return results.isEmpty();
+        }
+        
+    }
+    
 }
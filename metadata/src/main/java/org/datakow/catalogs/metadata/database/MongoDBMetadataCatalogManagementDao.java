@@ -12,6 +12,7 @@ import org.datakow.core.components.DatakowObjectMapper;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
@@ -49,6 +50,11 @@ import org.springframework.data.mongodb.core.query.Update;
  */
 public class MongoDBMetadataCatalogManagementDao {
 
+    /**
+     * The projection used when only the existence of a catalog record is needed
+     */
+    private static final List<String> EXISTENCE_PROJECTION = Collections.singletonList("Storage.Record-Identifier");
+
     @Autowired
     MongoDBMetadataCatalogDao metaDao;
 
@@ -128,9 +134,7 @@ public class MongoDBMetadataCatalogManagementDao {
      * 
      * @param catalogIdentifier The catalog identifier to use
      * @param collectionName The name of the collection to create
-     * @param createCollection Whether to create the MongoDB collection or not
      * @param indexStorageObject Whether to create an index on all of the Storage.* properties
-     * @param setDefaultRetentionPolicy Whether to add a default retention policy on the catalog
      * @param publisher The username of the creator
      * @return true on success false on exception
      */
@@ -591,7 +595,7 @@ public class MongoDBMetadataCatalogManagementDao {
      * @return true or exception
      */
     public boolean deleteSchema(String catalogIdentifier) {
-        MetadataCatalogRecord record = metaDao.getById("catalogs", catalogIdentifier, null, MetadataDataCoherence.CONSISTENT);
+        MetadataCatalogRecord record = metaDao.getById("catalogs", catalogIdentifier, EXISTENCE_PROJECTION, MetadataDataCoherence.CONSISTENT);
         if (record != null) {
             Update update = new Update();
             update.set("Doc.Schema", null);
@@ -622,7 +626,7 @@ public class MongoDBMetadataCatalogManagementDao {
      * @throws IOException When converting the policy to JSON fails
      */
     public boolean saveDataRetentionPolicy(String catalogIdentifier, List<DataRetentionPolicy> policy, String publisher) throws IOException {
-        MetadataCatalogRecord record = metaDao.getById("catalogs", catalogIdentifier, null, MetadataDataCoherence.CONSISTENT);
+        MetadataCatalogRecord record = metaDao.getById("catalogs", catalogIdentifier, EXISTENCE_PROJECTION, MetadataDataCoherence.CONSISTENT);
         if (record != null){
             DotNotationList<DotNotationMap> policies = new DotNotationList<>();
             for(DataRetentionPolicy p : policy){
@@ -645,7 +649,7 @@ public class MongoDBMetadataCatalogManagementDao {
      * @return true or exception
      */
     public boolean deleteDataRetentionPolicy(String catalogIdentifier, String publisher){
-        MetadataCatalogRecord record = metaDao.getById("catalogs", catalogIdentifier, null, MetadataDataCoherence.CONSISTENT);
+        MetadataCatalogRecord record = metaDao.getById("catalogs", catalogIdentifier, EXISTENCE_PROJECTION, MetadataDataCoherence.CONSISTENT);
         if (record != null) {
             Update update = new Update();
             update.set("Doc.Retention-Policy", null);
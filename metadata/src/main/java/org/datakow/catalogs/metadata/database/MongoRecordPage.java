@@ -0,0 +1,84 @@
+package org.datakow.catalogs.metadata.database;
+
+import java.util.function.Function;
+
+import com.mongodb.client.MongoCursor;
+
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+
+/**
+ * A {@link MongoRecordStream} of one page of a sorted query that creates the
+ * {@link ContinuationToken} of the next page.
+ *
+ * @author kevin.off
+ * @param <T> The type of object to return on next()
+ */
+public class MongoRecordPage<T> extends MongoRecordStream<T>{
+
+    private final PageReader<T> pageReader;
+
+    /**
+     * Creates a new page
+     *
+     * @param cursor The MongoDB cursor of the page
+     * @param reader The function that converts a record
+     * @param sort The sort of the query with _id as its last property
+     * @param limit The number of records in a full page
+     */
+    public MongoRecordPage(MongoCursor<RawBsonDocument> cursor, Function<RawBsonDocument, T> reader, Document sort, int limit){
+        this(cursor, new PageReader<>(reader, sort, limit));
+    }
+
+    private MongoRecordPage(MongoCursor<RawBsonDocument> cursor, PageReader<T> pageReader){
+        super(cursor, pageReader);
+        this.pageReader = pageReader;
+    }
+
+    /**
+     * Gets the token to request the next page with. It is available once every
+     * record of the page has been read. When the last page is full the next
+     * page is empty.
+     *
+     * @return The token or null if the page was not full or it has not been read yet
+     * @throws IllegalArgumentException If a sort property of the last record is a document or an array
+     */
+    public String getContinuationToken(){
+        if (pageReader.count < pageReader.limit){
+            return null;
+        }
+        return ContinuationToken.after(pageReader.sort, pageReader.last).toString();
+    }
+
+    /**
+     * Gets the number of records that have been read from the page
+     *
+     * @return The number of records
+     */
+    public int getCount(){
+        return pageReader.count;
+    }
+
+    private static class PageReader<T> implements Function<RawBsonDocument, T>{
+
+        final Function<RawBsonDocument, T> reader;
+        final Document sort;
+        final int limit;
+        int count = 0;
+        RawBsonDocument last;
+
+        PageReader(Function<RawBsonDocument, T> reader, Document sort, int limit){
+            this.reader = reader;
+            this.sort = sort;
+            this.limit = limit;
+        }
+
+        @Override
+        public T apply(RawBsonDocument record) {
+            count++;
+            last = record;
+            return reader.apply(record);
+        }
+    }
+
+}
@@ -1,7 +1,11 @@
 package org.datakow.catalogs.metadata.database;
 
 import org.datakow.core.components.DatakowObjectMapper;
+import org.datakow.core.components.JsonGeneratorInputStream;
 import java.io.Closeable;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.function.Function;
 
 import com.mongodb.client.MongoCursor;
 
@@ -9,20 +13,20 @@ import org.bson.Document;
 import org.springframework.data.mongodb.core.convert.MongoConverter;
 
 /**
- * Acts as a Wrapper for a {@link Cursor} given from MongoDB.
+ * Acts as a Wrapper for a {@link MongoCursor} given from MongoDB.
  * <p>
  * This class is used to help with the conversion process from a MongoDB
  * DBObject to the mapped class. If a {@link MongoConverter} is given then it
- * will be used. Otherwise Jackson2Json {@link DatakowObjectMapper} will be used.
+ * will be used. Otherwise Jackson2Json {@link DatakowObjectMapper} will be used,
+ * unless a function to read the documents of the cursor is given.
  * 
  * @author kevin.off
  * @param <T> The type of object to return on next()
  */
 public class MongoRecordStream<T> implements Closeable{
     
-    private final MongoConverter converter;
-    private final MongoCursor<Document> cursor;
-    private final Class<T> clazz;
+    private final MongoCursor<?> cursor;
+    private final Iterator<T> reader;
     
     /**
      * Creates a new MongoRecordStream that will use a Jackson2 ObjectMapper 
@@ -44,9 +48,37 @@ public class MongoRecordStream<T> implements Closeable{
      * @param cursor The MongoDB cursor
      */
     public MongoRecordStream(MongoConverter converter, Class<T> clazz, MongoCursor<Document> cursor){
-        this.converter = converter;
+        this(cursor, (document) -> {
+            if (converter != null){
+                return converter.read(clazz, document);
+            }else{
+                DatakowObjectMapper mapper = DatakowObjectMapper.getDatakowObjectMapper();
+                return mapper.convertValue(document, clazz);
+            }
+        });
+    }
+    
+    /**
+     * Creates a new MongoRecordStream that uses the given function to convert
+     * the documents of the cursor. Use it for cursors of documents that are
+     * not a {@link Document}, like a {@link org.bson.RawBsonDocument}.
+     * 
+     * @param <D> The type of document in the cursor
+     * @param cursor The MongoDB cursor
+     * @param reader The function that converts a document
+     */
+    public <D> MongoRecordStream(MongoCursor<D> cursor, Function<? super D, ? extends T> reader){
         this.cursor = cursor;
-        this.clazz = clazz;
+        this.reader = new Iterator<T>(){
+            @Override
+            public boolean hasNext() {
+                return cursor.hasNext();
+            }
+            @Override
+            public T next() {
+                return reader.apply(cursor.next());
+            }
+        };
     }
     
     /**
@@ -60,17 +92,36 @@ public class MongoRecordStream<T> implements Closeable{
     }
     
     /**
-     * Converts the next value in the cursor using the MongoConverter if it was provided, uses ObjectMapper otherwise.
+     * Converts the next value in the cursor using the reading function if it
+     * was provided, the MongoConverter if it was provided, and the ObjectMapper otherwise.
      * 
      * @return The next element converted to the return type
      */
     public T next(){
-        if (converter != null){
-            return converter.read(clazz, cursor.next());
-        }else{
-            DatakowObjectMapper mapper = DatakowObjectMapper.getDatakowObjectMapper();
-            return mapper.convertValue(cursor.next(), clazz);
-        }
+        return reader.next();
+    }
+    
+    /**
+     * Creates an InputStream of the remaining records as a JSON array.
+     * <p>
+     * Each record is written by the date aware {@link DatakowObjectMapper}
+     * straight to a JsonGenerator so no JSON Strings are created.
+     * Closing the stream closes the cursor.
+     * 
+     * @return The JSON array stream
+     */
+    public InputStream toJsonInputStream(){
+        Iterator<T> records = new Iterator<T>(){
+            @Override
+            public boolean hasNext() {
+                return MongoRecordStream.this.hasNext();
+            }
+            @Override
+            public T next() {
+                return MongoRecordStream.this.next();
+            }
+        };
+        return JsonGeneratorInputStream.ofObjects(records, DatakowObjectMapper.getDatakowDateAwareObjectMapper(), this);
     }
     
     /**
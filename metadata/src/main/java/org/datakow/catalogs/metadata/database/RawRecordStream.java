@@ -0,0 +1,225 @@
+package org.datakow.catalogs.metadata.database;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.mongodb.client.MongoCursor;
+import org.datakow.core.components.IsoDateUtil;
+import org.datakow.core.components.JsonGeneratorInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Date;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonValue;
+import org.bson.RawBsonDocument;
+import org.bson.types.Decimal128;
+
+/**
+ * Acts as a Wrapper for a cursor of {@link RawBsonDocument}s given from MongoDB.
+ * <p>
+ * The records are never converted to a {@link org.datakow.catalogs.metadata.MetadataCatalogRecord}.
+ * Instead the BSON bytes are read one value at a time and written straight
+ * to JSON with the same Storage and Doc layout. Use it for reads that are
+ * only passed on to someone else.
+ * <p>
+ * Dates are written the same way as the {@link org.datakow.core.components.DateSerializer}.
+ * ObjectIds, symbols, regular expressions and javascript are written as strings.
+ * Strings are written as they are stored, they are not checked for dates.
+ * 
+ * @author kevin.off
+ */
+public class RawRecordStream implements Closeable{
+    
+    private static final JsonFactory JSON_FACTORY = new JsonFactory()
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    
+    private final MongoCursor<RawBsonDocument> cursor;
+    
+    /**
+     * Creates a new RawRecordStream
+     * 
+     * @param cursor The MongoDB cursor
+     */
+    public RawRecordStream(MongoCursor<RawBsonDocument> cursor){
+        this.cursor = cursor;
+    }
+    
+    /**
+     * Returns true if the iteration has more elements. 
+     * 
+     * @return true if the iteration has more elements 
+     */
+    public boolean hasNext(){
+        return cursor.hasNext();
+    }
+    
+    /**
+     * Gets the next record exactly as it was stored
+     * 
+     * @return The next record
+     */
+    public RawBsonDocument next(){
+        return cursor.next();
+    }
+    
+    /**
+     * Writes the next record as JSON
+     * 
+     * @param generator The generator to write to
+     * @throws IOException If there is an error writing the JSON
+     */
+    public void writeNext(JsonGenerator generator) throws IOException{
+        writeRecord(cursor.next(), generator);
+    }
+    
+    /**
+     * Writes all of the remaining records to the output stream as a JSON array.
+     * The output stream is flushed but not closed.
+     * 
+     * @param out The output stream to write to
+     * @throws IOException If there is an error writing the JSON
+     */
+    public void writeTo(OutputStream out) throws IOException{
+        try(JsonGenerator generator = JSON_FACTORY.createGenerator(out)){
+            generator.writeStartArray();
+            while(cursor.hasNext()){
+                writeNext(generator);
+            }
+            generator.writeEndArray();
+        }
+        out.flush();
+    }
+    
+    /**
+     * Creates an InputStream of the remaining records as a JSON array.
+     * Closing the stream closes the cursor.
+     * 
+     * @return The JSON array stream
+     */
+    public InputStream toJsonInputStream(){
+        return new JsonGeneratorInputStream<>(cursor, RawRecordStream::writeRecord, this);
+    }
+    
+    /**
+     * Closes the underlying cursor.
+     */
+    @Override
+    public void close(){
+        cursor.close();
+    }
+    
+    /**
+     * Writes a stored record as JSON. Only the Storage and Doc properties are
+     * written and they are left out when they are empty just like
+     * {@link org.datakow.catalogs.metadata.MetadataCatalogRecord#toJson()}.
+     * 
+     * @param record The record as it was stored
+     * @param generator The generator to write to
+     * @throws IOException If there is an error writing the JSON
+     */
+    public static void writeRecord(RawBsonDocument record, JsonGenerator generator) throws IOException{
+        generator.writeStartObject();
+        writeProperty(record, "Storage", generator);
+        writeProperty(record, "Doc", generator);
+        generator.writeEndObject();
+    }
+    
+    private static void writeProperty(RawBsonDocument record, String name, JsonGenerator generator) throws IOException{
+        BsonValue value = record.get(name);
+        if (value instanceof RawBsonDocument && !((RawBsonDocument)value).isEmpty()){
+            generator.writeFieldName(name);
+            try(BsonBinaryReader reader = new BsonBinaryReader(((RawBsonDocument)value).getByteBuffer().asNIO())){
+                writeDocument(reader, generator);
+            }
+        }
+    }
+    
+    private static void writeDocument(BsonReader reader, JsonGenerator generator) throws IOException{
+        reader.readStartDocument();
+        generator.writeStartObject();
+        while(reader.readBsonType() != BsonType.END_OF_DOCUMENT){
+            generator.writeFieldName(reader.readName());
+            writeValue(reader, generator);
+        }
+        reader.readEndDocument();
+        generator.writeEndObject();
+    }
+    
+    private static void writeValue(BsonReader reader, JsonGenerator generator) throws IOException{
+        switch(reader.getCurrentBsonType()){
+            case DOCUMENT:
+                writeDocument(reader, generator);
+                break;
+            case ARRAY:
+                reader.readStartArray();
+                generator.writeStartArray();
+                while(reader.readBsonType() != BsonType.END_OF_DOCUMENT){
+                    writeValue(reader, generator);
+                }
+                reader.readEndArray();
+                generator.writeEndArray();
+                break;
+            case STRING:
+                generator.writeString(reader.readString());
+                break;
+            case INT32:
+                generator.writeNumber(reader.readInt32());
+                break;
+            case INT64:
+                generator.writeNumber(reader.readInt64());
+                break;
+            case DOUBLE:
+                generator.writeNumber(reader.readDouble());
+                break;
+            case DECIMAL128:
+                Decimal128 decimal = reader.readDecimal128();
+                try{
+                    generator.writeNumber(decimal.bigDecimalValue());
+                }catch(ArithmeticException ex){
+                    //NaN, Infinity and -0 have no BigDecimal
+                    generator.writeString(decimal.toString());
+                }
+                break;
+            case BOOLEAN:
+                generator.writeBoolean(reader.readBoolean());
+                break;
+            case DATE_TIME:
+                generator.writeString(IsoDateUtil.dateToUTCString(new Date(reader.readDateTime())));
+                break;
+            case TIMESTAMP:
+                generator.writeString(IsoDateUtil.dateToUTCString(new Date(reader.readTimestamp().getTime() * 1000L)));
+                break;
+            case OBJECT_ID:
+                generator.writeString(reader.readObjectId().toHexString());
+                break;
+            case BINARY:
+                generator.writeBinary(reader.readBinaryData().getData());
+                break;
+            case SYMBOL:
+                generator.writeString(reader.readSymbol());
+                break;
+            case REGULAR_EXPRESSION:
+                generator.writeString(reader.readRegularExpression().getPattern());
+                break;
+            case JAVASCRIPT:
+                generator.writeString(reader.readJavaScript());
+                break;
+            case NULL:
+                reader.readNull();
+                generator.writeNull();
+                break;
+            case UNDEFINED:
+                reader.readUndefined();
+                generator.writeNull();
+                break;
+            default:
+                reader.skipValue();
+                generator.writeNull();
+                break;
+        }
+    }
+    
+}
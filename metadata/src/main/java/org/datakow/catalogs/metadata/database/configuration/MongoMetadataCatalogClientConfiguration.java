@@ -2,6 +2,7 @@ package org.datakow.catalogs.metadata.database.configuration;
 
 
 
+import org.datakow.catalogs.metadata.database.BulkWritePipeline;
 import org.datakow.catalogs.metadata.database.MongoDBMetadataCatalogDao;
 import org.datakow.catalogs.metadata.database.MongoDBMetadataCatalogManagementDao;
 import org.datakow.catalogs.metadata.database.converters.CatalogIdentityCollectionWriteConverter;
@@ -9,6 +10,7 @@ import org.datakow.catalogs.metadata.database.converters.GeoCommandToDbObjectCon
 import org.datakow.catalogs.metadata.database.converters.MetadataCatalogRecordReadConverter;
 import org.datakow.catalogs.metadata.database.converters.MetadataCatalogRecordWriteConverter;
 import org.datakow.configuration.mongo.MongoConfigurationProperties;
+import org.datakow.core.components.DateConversion;
 import java.util.ArrayList;
 import java.util.List;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -41,14 +43,14 @@ public class MongoMetadataCatalogClientConfiguration {
     MongoConfigurationProperties props;
     
     /**
-     * Creates a list of {@link CustomConversions} to use when moving data to
+     * Creates a list of {@link MongoCustomConversions} to use when moving data to
      * and from MongoDB.
      * 
      * @return The custom converters
      */
     public MongoCustomConversions customConversions(){
         List<Converter<?, ?>> converters = new ArrayList<>();
-        converters.add(new MetadataCatalogRecordReadConverter());
+        converters.add(new MetadataCatalogRecordReadConverter(getDateConversion()));
         converters.add(new MetadataCatalogRecordWriteConverter());
         converters.add(new GeoCommandToDbObjectConverter());
         converters.add(new CatalogIdentityCollectionWriteConverter());
@@ -90,6 +92,11 @@ public class MongoMetadataCatalogClientConfiguration {
     @Bean
     public MongoDBMetadataCatalogDao metadataCatalogDao(){
         MongoDBMetadataCatalogDao dao = new MongoDBMetadataCatalogDao(mongoTemplate(), props.getMongoReadPreference());
+        dao.setBulkBatchTargets(props.getBulkBatchBytes(), props.getBulkBatchLatencyMillis());
+        dao.setDateConversion(getDateConversion());
+        if (props.getBulkWritesInFlight() > 0){
+            dao.setBulkWritePipeline(new BulkWritePipeline(props.getBulkWritesInFlight()));
+        }
         return dao;
     }
     
@@ -106,4 +113,8 @@ public class MongoMetadataCatalogClientConfiguration {
         return dao;
     }
     
+    private DateConversion getDateConversion(){
+        return props != null && props.isLazyDateConversion() ? DateConversion.LAZY : DateConversion.EAGER;
+    }
+    
 }
@@ -3,10 +3,24 @@ package org.datakow.catalogs.metadata.database.converters;
 import com.mongodb.BasicDBObject;
 import com.mongodb.DBObject;
 
+import org.datakow.core.components.DateConversion;
 import org.datakow.core.components.DotNotationMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+import org.bson.BsonBinaryReader;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonValue;
 import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonValueCodec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DocumentCodec;
 import org.datakow.catalogs.metadata.MetadataCatalogRecord;
 import org.datakow.catalogs.metadata.MetadataCatalogRecordStorage;
 import org.springframework.core.convert.converter.Converter;
@@ -18,6 +32,40 @@ import org.springframework.core.convert.converter.Converter;
  */
 public class MetadataCatalogRecordReadConverter implements Converter<Document, MetadataCatalogRecord>{
 
+    private static final DocumentCodec DOCUMENT_CODEC = new DocumentCodec();
+    private static final BsonValueCodec BSON_VALUE_CODEC = new BsonValueCodec();
+    private static final DecoderContext DECODER_CONTEXT = DecoderContext.builder().build();
+
+    private final DateConversion dateConversion;
+
+    /**
+     * Creates a converter that converts the date Strings of the documents
+     * as soon as they are read
+     */
+    public MetadataCatalogRecordReadConverter(){
+        this(DateConversion.EAGER);
+    }
+
+    /**
+     * Creates a converter that converts the date Strings of the documents
+     * the given way. Use {@link DateConversion#LAZY} when the records are
+     * only passed through.
+     * 
+     * @param dateConversion When to convert the Strings of the documents to Dates
+     */
+    public MetadataCatalogRecordReadConverter(DateConversion dateConversion){
+        this.dateConversion = dateConversion;
+    }
+
+    /**
+     * Gets the way the date Strings of the documents are converted
+     * 
+     * @return When to convert Strings to Dates
+     */
+    public DateConversion getDateConversion(){
+        return dateConversion;
+    }
+
     /**
      * Spring MongoDB converter that converts a {@link DBObject} to a {@link MetadataCatalogRecord}
      * when writing them to the database.
@@ -37,11 +85,113 @@ public class MetadataCatalogRecordReadConverter implements Converter<Document, M
             record.setStorage(MetadataCatalogRecordStorage.fromMap((Map)recordDBObject.get("Storage")));
         }
         if (recordDBObject.containsKey("Doc")){
-            record.setDocument(new DotNotationMap((Map)recordDBObject.get("Doc")));
+            record.setDocument(new DotNotationMap((Map)recordDBObject.get("Doc"), dateConversion));
         }
         return record;
     }
-
     
+    /**
+     * Converts a stored record that was read with a projection. Only the
+     * projected properties are decoded from the BSON bytes, everything else is
+     * skipped without being read, and the record is marked as
+     * {@link MetadataCatalogRecord#isPartial() partial}.
+     * <p>
+     * The properties are applied the same way as a MongoDB projection. A
+     * property inside of an array is taken from every document in the array.
+     * 
+     * @param recordBson The record as it was stored
+     * @param properties The fully qualified properties to include. Null or empty for all
+     * @return The converted object
+     */
+    public MetadataCatalogRecord convert(RawBsonDocument recordBson, List<String> properties) {
+        if (recordBson == null){
+            return null;
+        }
+        if (properties == null || properties.isEmpty()){
+            return convert(recordBson.decode(DOCUMENT_CODEC));
+        }
+        Projection projection = new Projection();
+        for(String property : properties){
+            projection.include(property);
+        }
+        Document projected;
+        try(BsonBinaryReader reader = new BsonBinaryReader(recordBson.getByteBuffer().asNIO())){
+            projected = projection.readDocument(reader);
+        }
+        MetadataCatalogRecord record = convert(projected);
+        record.setPartial(true);
+        return record;
+    }
+    
+    /**
+     * The tree of properties to include. A node without children includes
+     * the whole value.
+     */
+    private static class Projection {
+        private Map<String, Projection> children = new HashMap<>();
+        
+        void include(String property){
+            Projection node = this;
+            for(String name : property.split("\\.")){
+                if (node.children == null){
+                    //a parent is already included
+                    return;
+                }
+                node = node.children.computeIfAbsent(name, (k) -> new Projection());
+            }
+            node.children = null;
+        }
+        
+        Document readDocument(BsonReader reader){
+            Document document = new Document();
+            reader.readStartDocument();
+            while(reader.readBsonType() != BsonType.END_OF_DOCUMENT){
+                String name = reader.readName();
+                Projection child = children.get(name);
+                if (child == null){
+                    reader.skipValue();
+                }else if (child.children == null){
+                    document.append(name, readValue(reader));
+                }else if (reader.getCurrentBsonType() == BsonType.DOCUMENT){
+                    document.append(name, child.readDocument(reader));
+                }else if (reader.getCurrentBsonType() == BsonType.ARRAY){
+                    document.append(name, child.readArray(reader));
+                }else{
+                    //values that are not documents have no properties to include
+                    reader.skipValue();
+                }
+            }
+            reader.readEndDocument();
+            return document;
+        }
+        
+        List<Object> readArray(BsonReader reader){
+            List<Object> list = new ArrayList<>();
+            reader.readStartArray();
+            while(reader.readBsonType() != BsonType.END_OF_DOCUMENT){
+                if (reader.getCurrentBsonType() == BsonType.DOCUMENT){
+                    list.add(readDocument(reader));
+                }else if (reader.getCurrentBsonType() == BsonType.ARRAY){
+                    list.add(readArray(reader));
+                }else{
+                    reader.skipValue();
+                }
+            }
+            reader.readEndArray();
+            return list;
+        }
+        
+        /**
+         * Decodes the whole value into the same types as a {@link Document}
+         */
+        private static Object readValue(BsonReader reader){
+            if (reader.getCurrentBsonType() == BsonType.DOCUMENT){
+                return DOCUMENT_CODEC.decode(reader, DECODER_CONTEXT);
+            }
+            BsonValue value = BSON_VALUE_CODEC.decode(reader, DECODER_CONTEXT);
+            BsonDocument wrapper = new BsonDocument("value", value);
+            return DOCUMENT_CODEC.decode(new BsonDocumentReader(wrapper), DECODER_CONTEXT).get("value");
+        }
+    }
     
 }
@@ -0,0 +1,374 @@
+package org.datakow.catalogs.metadata.webservice;
+
+import org.datakow.catalogs.metadata.BulkResult;
+import org.datakow.catalogs.metadata.MetadataCatalogRecord;
+import org.datakow.catalogs.metadata.database.MetadataDataCoherence;
+import org.datakow.catalogs.metadata.jsonpatch.JsonPatchOperation;
+import org.datakow.core.components.CatalogIdentity;
+import org.datakow.core.components.CatalogIdentityCollection;
+import org.datakow.core.components.ClientExecutors;
+import org.datakow.core.components.CloseableIterator;
+import org.datakow.core.components.DotNotationMap;
+import org.datakow.core.components.JsonInputStreamToIterator;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Runs the calls of a {@link MetadataCatalogWebserviceClient} on an executor
+ * and returns CompletableFutures instead of blocking the caller.
+ * <p>
+ * Each method behaves exactly like the method of the same name on the
+ * blocking client. The exceptions it would have thrown complete the future
+ * instead. The correlationId of the calling thread is sent with the request.
+ * <p>
+ * Use {@link ClientExecutors#newExecutor} to run every call on its own
+ * virtual thread when the JDK supports them.
+ *
+ * @author kevin.off
+ */
+public class AsyncMetadataCatalogWebserviceClient implements AutoCloseable {
+
+    private final MetadataCatalogWebserviceClient client;
+    private final ExecutorService executor;
+
+    /**
+     * Creates the client. The executor is shut down when the client is closed.
+     *
+     * @param client The blocking client that makes the requests
+     * @param executor The executor to run the requests on
+     */
+    public AsyncMetadataCatalogWebserviceClient(MetadataCatalogWebserviceClient client, ExecutorService executor){
+        this.client = client;
+        this.executor = executor;
+    }
+
+    /**
+     * Gets the blocking client that makes the requests
+     *
+     * @return The blocking client
+     */
+    public MetadataCatalogWebserviceClient getClient(){
+        return client;
+    }
+
+    /**
+     * Gets a record by its ID.
+     *
+     * @param catalogIdentifier The catalog to retrieve the record from
+     * @param recordIdentifier The ID of the record to retrieve
+     * @param properties Properties that you want back in the record. Null for all.
+     * @param coherence The desired data coherence
+     * @return The record or null if it was not found
+     * @see MetadataCatalogWebserviceClient#getById
+     */
+    public CompletableFuture<MetadataCatalogRecord> getById(
+            String catalogIdentifier, String recordIdentifier, List<String> properties, MetadataDataCoherence coherence){
+        return call(() -> client.getById(catalogIdentifier, recordIdentifier, properties, coherence));
+    }
+
+    /**
+     * Queries a catalog. The future completes when the response starts and
+     * the records are read from the iterator as they arrive.
+     *
+     * @param catalogIdentifier The catalog to query
+     * @param webServiceRequest The query
+     * @return An iterator over the records that must be closed
+     * @see MetadataCatalogWebserviceClient#getByQueryAndStream
+     */
+    public CompletableFuture<CloseableIterator<MetadataCatalogRecord>> getByQueryAndStream(
+            String catalogIdentifier, MetadataCatalogWebserviceRequest webServiceRequest){
+        return call(() -> client.getByQueryAndStream(catalogIdentifier, webServiceRequest));
+    }
+
+    /**
+     * Gets the distinct values of a property.
+     *
+     * @param catalogIdentifier The catalog to query
+     * @param distinctProperty The property to get the values of
+     * @param fiql The query
+     * @param coherence The desired data coherence
+     * @return An iterator over the values
+     * @see MetadataCatalogWebserviceClient#distinct
+     */
+    public CompletableFuture<JsonInputStreamToIterator<Object>> distinct(
+            String catalogIdentifier, String distinctProperty, String fiql, MetadataDataCoherence coherence){
+        return call(() -> client.distinct(catalogIdentifier, distinctProperty, fiql, coherence));
+    }
+
+    /**
+     * Counts the records that match a query.
+     *
+     * @param catalogIdentifier The catalog to query
+     * @param fiql The query
+     * @param limit The most records to count
+     * @param coherence The desired data coherence
+     * @return The number of records
+     * @see MetadataCatalogWebserviceClient#count
+     */
+    public CompletableFuture<Integer> count(String catalogIdentifier, String fiql, int limit, MetadataDataCoherence coherence){
+        return call(() -> client.count(catalogIdentifier, fiql, limit, coherence));
+    }
+
+    /**
+     * Replaces a record by its ID.
+     *
+     * @param catalogIdentifier The catalog identifier
+     * @param recordIdentifier The ID of the record to update
+     * @param realm The new security realm
+     * @param tags A new list of tags
+     * @param document The document to replace it with
+     * @param identities A list of associated object identities
+     * @return true if the record was updated
+     * @see MetadataCatalogWebserviceClient#updateOneById
+     */
+    public CompletableFuture<Boolean> updateOneById(
+            String catalogIdentifier, String recordIdentifier, String realm, List<String> tags,
+            DotNotationMap document, CatalogIdentityCollection identities){
+        return call(() -> client.updateOneById(catalogIdentifier, recordIdentifier, realm, tags, document, identities));
+    }
+
+    /**
+     * Replaces the first record that matches a query.
+     *
+     * @param catalogIdentifier The catalog identifier
+     * @param fiql Query to use to find records to update
+     * @param sortString Sort string used to sort records as the first one will be updated
+     * @param realm The new security realm
+     * @param tags A new list of tags
+     * @param document The document to replace it with
+     * @param identities Associated object identities
+     * @return true if a record was updated
+     * @see MetadataCatalogWebserviceClient#updateOneByQuery
+     */
+    public CompletableFuture<Boolean> updateOneByQuery(
+            String catalogIdentifier, String fiql, String sortString, String realm, List<String> tags,
+            DotNotationMap document, CatalogIdentityCollection identities){
+        return call(() -> client.updateOneByQuery(catalogIdentifier, fiql, sortString, realm, tags, document, identities));
+    }
+
+    /**
+     * Deletes a record by its ID.
+     *
+     * @param catalogIdentifier The catalog identifier
+     * @param recordIdentifier The id of the record to delete
+     * @return true if the record was deleted
+     * @see MetadataCatalogWebserviceClient#deleteById
+     */
+    public CompletableFuture<Boolean> deleteById(String catalogIdentifier, String recordIdentifier){
+        return call(() -> client.deleteById(catalogIdentifier, recordIdentifier));
+    }
+
+    /**
+     * Deletes the records that match a query.
+     *
+     * @param catalogIdentifier The catalog identifier
+     * @param fiql The query to use to find records to delete
+     * @return The number of records deleted or -1 if unknown
+     * @see MetadataCatalogWebserviceClient#deleteByQuery
+     */
+    public CompletableFuture<Integer> deleteByQuery(String catalogIdentifier, String fiql){
+        return call(() -> client.deleteByQuery(catalogIdentifier, fiql));
+    }
+
+    /**
+     * Creates a record with a random ID.
+     *
+     * @param catalogIdentifier The catalog identifier
+     * @param document The document to set
+     * @return The identity of the new record
+     * @see MetadataCatalogWebserviceClient#create(String, DotNotationMap)
+     */
+    public CompletableFuture<CatalogIdentity> create(String catalogIdentifier, DotNotationMap document){
+        return call(() -> client.create(catalogIdentifier, document));
+    }
+
+    /**
+     * Creates a record with a random ID.
+     *
+     * @param catalogIdentifier The catalog identifier
+     * @param document The document to set
+     * @param identities The associated object records to set
+     * @return The identity of the new record
+     * @see MetadataCatalogWebserviceClient#create(String, DotNotationMap, CatalogIdentityCollection)
+     */
+    public CompletableFuture<CatalogIdentity> create(
+            String catalogIdentifier, DotNotationMap document, CatalogIdentityCollection identities){
+        return call(() -> client.create(catalogIdentifier, document, identities));
+    }
+
+    /**
+     * Creates a record with a random ID.
+     *
+     * @param catalogIdentifier The catalog identifier
+     * @param realm The security realm to set
+     * @param tags The list of tags to set
+     * @param document The document to set
+     * @param identities The associated object records to set
+     * @return The identity of the new record
+     * @see MetadataCatalogWebserviceClient#create(String, String, List, DotNotationMap, CatalogIdentityCollection)
+     */
+    public CompletableFuture<CatalogIdentity> create(
+            String catalogIdentifier, String realm, List<String> tags,
+            DotNotationMap document, CatalogIdentityCollection identities){
+        return call(() -> client.create(catalogIdentifier, realm, tags, document, identities));
+    }
+
+    /**
+     * Creates a record.
+     *
+     * @param catalogIdentifier The catalog identifier
+     * @param recordIdentifier The ID of the record you want to set
+     * @param realm The security realm to set
+     * @param tags The list of tags to set
+     * @param document The document to set
+     * @param objectIdentities The associated object records to set
+     * @return The identity of the new record
+     * @see MetadataCatalogWebserviceClient#create(String, String, String, List, DotNotationMap, CatalogIdentityCollection)
+     */
+    public CompletableFuture<CatalogIdentity> create(
+            String catalogIdentifier, String recordIdentifier, String realm, List<String> tags,
+            DotNotationMap document, CatalogIdentityCollection objectIdentities){
+        return call(() -> client.create(catalogIdentifier, recordIdentifier, realm, tags, document, objectIdentities));
+    }
+
+    /**
+     * Creates many records in one request.
+     *
+     * @param catalogIdentifier The identifier of the catalog to create the records in.
+     * @param realm The security realm to apply to all records if one is not specified specifically
+     * @param tags The tags to apply to all records if one is not specified specifically
+     * @param documents The records to create
+     * @param identities The associated records
+     * @return An iterator over the result of each record
+     * @see MetadataCatalogWebserviceClient#createBulk(String, String, List, Collection, CatalogIdentityCollection)
+     */
+    public CompletableFuture<JsonInputStreamToIterator<BulkResult>> createBulk(
+            String catalogIdentifier, String realm, List<String> tags,
+            Collection<MetadataCatalogRecord> documents, CatalogIdentityCollection identities){
+        return call(() -> client.createBulk(catalogIdentifier, realm, tags, documents, identities));
+    }
+
+    /**
+     * Creates many records in one request.
+     *
+     * @param catalogIdentifier The identifier of the catalog to create the records in.
+     * @param realm The security realm to apply to all records if one is not specified specifically
+     * @param tags The tags to apply to all records if one is not specified specifically
+     * @param documents An input stream with a JSON List of {@link MetadataCatalogRecord} objects
+     * @param identities The associated records
+     * @return An iterator over the result of each record
+     * @see MetadataCatalogWebserviceClient#createBulk(String, String, List, InputStream, CatalogIdentityCollection)
+     */
+    public CompletableFuture<JsonInputStreamToIterator<BulkResult>> createBulk(
+            String catalogIdentifier, String realm, List<String> tags,
+            InputStream documents, CatalogIdentityCollection identities){
+        return call(() -> client.createBulk(catalogIdentifier, realm, tags, documents, identities));
+    }
+
+    /**
+     * Updates many records in one request using a filter with parameters
+     * taken from each record.
+     *
+     * @param catalogIdentifier The identifier of the catalog to update the records in.
+     * @param filter FIQL filter query used to find documents based on properties within the given documents
+     * @param realm The security realm to apply to all records if one is not specified specifically
+     * @param tags The tags to apply to all records if one is not specified specifically
+     * @param records An input stream with a JSON List of {@link MetadataCatalogRecord} objects
+     * @param multi Whether each individual update should update more than 1 document
+     * @param identities The associated records
+     * @return An iterator over the result of each record
+     * @see MetadataCatalogWebserviceClient#updateBulkByParameterizedFilter
+     */
+    public CompletableFuture<JsonInputStreamToIterator<BulkResult>> updateBulkByParameterizedFilter(
+            String catalogIdentifier, String filter, String realm, List<String> tags,
+            InputStream records, boolean multi, CatalogIdentityCollection identities){
+        return call(() -> client.updateBulkByParameterizedFilter(catalogIdentifier, filter, realm, tags, records, multi, identities));
+    }
+
+    /**
+     * Applies a JSON patch to a record by its ID.
+     *
+     * @param catalogIdentifier The catalog identifier
+     * @param id The ID of the record
+     * @param jsonPatch The patch operations
+     * @return true if the record was patched
+     * @see MetadataCatalogWebserviceClient#jsonPatchById
+     */
+    public CompletableFuture<Boolean> jsonPatchById(String catalogIdentifier, String id, List<JsonPatchOperation> jsonPatch){
+        return call(() -> client.jsonPatchById(catalogIdentifier, id, jsonPatch));
+    }
+
+    /**
+     * Applies a JSON patch to the records that match a query.
+     *
+     * @param catalogIdentifier The catalog identifier
+     * @param fiql The query
+     * @param sort The order to patch the records in
+     * @param limit The most records to patch
+     * @param jsonPatch The patch operations
+     * @param upsert Whether to create a record if none match
+     * @return An iterator over the result of each record
+     * @see MetadataCatalogWebserviceClient#jsonPatchByQuery
+     */
+    public CompletableFuture<JsonInputStreamToIterator<BulkResult>> jsonPatchByQuery(String catalogIdentifier,
+            String fiql, String sort, int limit, List<JsonPatchOperation> jsonPatch, boolean upsert){
+        return call(() -> client.jsonPatchByQuery(catalogIdentifier, fiql, sort, limit, jsonPatch, upsert));
+    }
+
+    /**
+     * Applies a merge patch to a record by its ID.
+     *
+     * @param catalogIdentifier The catalog identifier
+     * @param id The ID of the record
+     * @param mergePatch The properties to merge
+     * @return true if the record was patched
+     * @see MetadataCatalogWebserviceClient#mergePatchById
+     */
+    public CompletableFuture<Boolean> mergePatchById(String catalogIdentifier, String id, DotNotationMap mergePatch){
+        return call(() -> client.mergePatchById(catalogIdentifier, id, mergePatch));
+    }
+
+    /**
+     * Applies a merge patch to the records that match a query.
+     *
+     * @param catalogIdentifier The catalog identifier
+     * @param fiql The query
+     * @param sort The order to patch the records in
+     * @param mergePatch The properties to merge
+     * @param updateMulti Whether to patch every matching record or only the first
+     * @param upsert Whether to create a record if none match
+     * @return The number of records patched
+     * @see MetadataCatalogWebserviceClient#mergePatchByQuery
+     */
+    public CompletableFuture<Integer> mergePatchByQuery(String catalogIdentifier, String fiql, String sort,
+            DotNotationMap mergePatch, boolean updateMulti, boolean upsert){
+        return call(() -> client.mergePatchByQuery(catalogIdentifier, fiql, sort, mergePatch, updateMulti, upsert));
+    }
+
+    /**
+     * Gets the names of all catalogs.
+     *
+     * @return The catalog names
+     * @see MetadataCatalogWebserviceClient#getCatalogNames
+     */
+    public CompletableFuture<List<String>> getCatalogNames(){
+        return call(client::getCatalogNames);
+    }
+
+    /**
+     * Shuts down the executor. Calls that were already started are finished.
+     */
+    @Override
+    public void close(){
+        executor.shutdown();
+    }
+
+    private <T> CompletableFuture<T> call(Callable<T> call){
+        return ClientExecutors.supplyAsyncWithCorrelationId(call, executor);
+    }
+
+}
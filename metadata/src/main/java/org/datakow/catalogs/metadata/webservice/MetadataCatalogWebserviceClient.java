@@ -11,6 +11,7 @@ import org.datakow.core.components.CatalogIdentity;
 import org.datakow.core.components.CatalogIdentityCollection;
 import org.datakow.core.components.CloseableIterator;
 import org.datakow.core.components.DotNotationMap;
+import org.datakow.core.components.AsyncJsonInputStreamToIterator;
 import org.datakow.core.components.IteratorToInputStream;
 import org.datakow.core.components.JsonInputStreamToIterator;
 import org.datakow.core.components.DatakowObjectMapper;
@@ -149,6 +150,42 @@ public class MetadataCatalogWebserviceClient {
         
     }
     
+    /**
+     * Same as {@link #getByQueryAndStream(String, MetadataCatalogWebserviceRequest)}
+     * but the records are read from the response on another thread, up to
+     * prefetch records ahead, so they can be processed while the rest of the
+     * response is still being received. The result can also be subscribed to
+     * as a {@link java.util.concurrent.Flow.Publisher}.
+     * 
+     * @param catalogIdentifier The catalog to query
+     * @param webServiceRequest The query
+     * @param prefetch The number of records to read ahead
+     * @return The records. Close it if they are not all read.
+     * @throws JsonParseException If the response is not JSON
+     * @throws RestClientResponseException If the request fails
+     * @throws ResourceAccessException If the service cannot be reached
+     */
+    public AsyncJsonInputStreamToIterator<MetadataCatalogRecord> getByQueryAndStreamAsync(
+            String catalogIdentifier, MetadataCatalogWebserviceRequest webServiceRequest, int prefetch) 
+            throws JsonParseException, RestClientResponseException, ResourceAccessException{
+        
+        setupCorrelationId();
+        URI requestUrl = webServiceRequest.toUri(baseUrl + "/catalogs/" + catalogIdentifier + "/records");
+        HttpHeaders headers = getRequiredHeaders();
+        
+        try{
+            ThreadContext.put("subRequestId", headers.getFirst("X-Request-ID"));
+            Logger.getLogger(MetadataCatalogWebserviceClient.class.getName()).log(Level.INFO, "Sending request getByQuery {0}", requestUrl);
+            
+            HttpEntity request = new HttpEntity(headers);
+            return template.exchangeForAsyncIterator(requestUrl, HttpMethod.GET, request, MetadataCatalogRecord.class, false, prefetch);
+        
+        }finally{
+            ThreadContext.remove("subRequestId");
+        }
+        
+    }
+    
     public JsonInputStreamToIterator<Object> distinct(String catalogIdentifier, String distinctProperty, String fiql, MetadataDataCoherence coherence) 
             throws JsonProcessingException, RestClientResponseException, ResourceAccessException, IOException{
         
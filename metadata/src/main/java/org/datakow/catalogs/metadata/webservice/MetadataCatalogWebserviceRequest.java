@@ -53,6 +53,20 @@ public class MetadataCatalogWebserviceRequest {
         return this;
     }
 
+    /**
+     * Requests the page after the one that returned the token. Use it with the
+     * same query, sort and limit as the previous page.
+     *
+     * @param continuationToken The opaque token from the previous page. Null for the first page
+     * @return The request
+     */
+    public MetadataCatalogWebserviceRequest withContinuationToken(String continuationToken) {
+        if (StringUtils.hasText(continuationToken)){
+            this.rawParams.put("continuationToken", continuationToken);
+        }
+        return this;
+    }
+
     @Deprecated
     public MetadataCatalogWebserviceRequest withGroupBy(String groupBy) {
         if (StringUtils.hasText(groupBy)){
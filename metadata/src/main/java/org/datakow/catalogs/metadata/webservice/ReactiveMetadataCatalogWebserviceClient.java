@@ -0,0 +1,637 @@
+package org.datakow.catalogs.metadata.webservice;
+
+import org.datakow.catalogs.metadata.database.MetadataDataCoherence;
+import org.datakow.catalogs.metadata.jsonpatch.JsonPatchOperation;
+import org.datakow.core.components.CatalogIdentity;
+import org.datakow.core.components.CatalogIdentityCollection;
+import org.datakow.core.components.DotNotationMap;
+import org.datakow.core.components.DatakowObjectMapper;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import javax.xml.bind.DatatypeConverter;
+import org.apache.logging.log4j.ThreadContext;
+import org.datakow.catalogs.metadata.BulkResult;
+import org.datakow.catalogs.metadata.Catalog;
+import org.datakow.catalogs.metadata.MetadataCatalogRecord;
+import org.reactivestreams.Publisher;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.util.StringUtils;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non blocking client used to interact with records in the Metadata Catalog Web Service.
+ * <p>
+ * This has the same operations as {@link MetadataCatalogWebserviceClient} but
+ * no thread waits while a request is in flight. Single results are returned
+ * as a {@link Mono} and lists of records or bulk results as a {@link Flux}
+ * that emits each element of the JSON array as soon as it has been received.
+ * <p>
+ * Nothing is sent until the result is subscribed to. The correlation id and
+ * request id headers are taken from the log4j {@link ThreadContext} of the
+ * thread that calls the method, the same as the blocking client.
+ * <p>
+ * A 404 is an empty result or false. Any other status of 400 or greater is
+ * signaled as a {@link WebClientResponseException}.
+ *
+ * @author kevin.off
+ */
+public class ReactiveMetadataCatalogWebserviceClient {
+
+    private static final MediaType JSON_UTF8 = new MediaType("application", "json", StandardCharsets.UTF_8);
+    private static final Logger LOGGER = Logger.getLogger(ReactiveMetadataCatalogWebserviceClient.class.getName());
+
+    WebClient webClient;
+    String baseUrl;
+    String userName;
+    String password;
+
+    public void setUsername(String username){
+        this.userName = username;
+    }
+
+    public void setPassword(String password){
+        this.password = password;
+    }
+
+    /**
+     * Creates an instance with all of the necessary information.
+     *
+     * @param webClient The underlying WebClient to use to make requests
+     * @param baseUrl The Base URL of the metadata catalog web service
+     * @param userName The username to use to make the requests
+     * @param password The password to use to make the requests
+     */
+    public ReactiveMetadataCatalogWebserviceClient(WebClient webClient, String baseUrl, String userName, String password){
+        this.webClient = webClient;
+        this.baseUrl = baseUrl;
+        this.userName = userName;
+        this.password = password;
+    }
+
+    /**
+     * Gets a record by its ID
+     *
+     * @param catalogIdentifier The catalog to retrieve the record from
+     * @param recordIdentifier The ID of the record to retrieve
+     * @param properties Properties that you want back in the record. Null for all.
+     * @param coherence The desired data coherence
+     * @return The record or empty if it does not exist
+     */
+    public Mono<MetadataCatalogRecord> getById(
+            String catalogIdentifier, String recordIdentifier, List<String> properties, MetadataDataCoherence coherence){
+
+        URI requestUri = MetadataCatalogWebserviceRequest.builder()
+                .withDataCoherence(coherence)
+                .withProjectionProperties(properties)
+                .toUri(baseUrl + "/catalogs/" + catalogIdentifier + "/records/" + recordIdentifier);
+        HttpHeaders headers = getRequiredHeaders();
+        log(headers, "Sending request getById {0}", requestUri);
+
+        return exchangeToMono(
+                webClient.get().uri(requestUri).headers(copyOf(headers)),
+                false,
+                response -> response.bodyToMono(MetadataCatalogRecord.class));
+    }
+
+    /**
+     * Gets the records that match the request. The records are emitted as
+     * they are read from the response.
+     *
+     * @param catalogIdentifier The catalog to query
+     * @param webServiceRequest The query
+     * @return The records
+     */
+    public Flux<MetadataCatalogRecord> getByQueryAndStream(
+            String catalogIdentifier, MetadataCatalogWebserviceRequest webServiceRequest){
+
+        URI requestUrl = webServiceRequest.toUri(baseUrl + "/catalogs/" + catalogIdentifier + "/records");
+        HttpHeaders headers = getRequiredHeaders();
+        log(headers, "Sending request getByQuery {0}", requestUrl);
+
+        return exchangeToFlux(webClient.get().uri(requestUrl).headers(copyOf(headers)), false, MetadataCatalogRecord.class);
+    }
+
+    /**
+     * Gets the distinct values of a property for the records that match the query
+     *
+     * @param catalogIdentifier The catalog to query
+     * @param distinctProperty The property to get the values of
+     * @param fiql The query
+     * @param coherence The desired data coherence
+     * @return The distinct values
+     */
+    public Flux<Object> distinct(String catalogIdentifier, String distinctProperty, String fiql, MetadataDataCoherence coherence){
+
+        URI requestUrl = MetadataCatalogWebserviceRequest.builder()
+                .withQuery(fiql)
+                .withDistinct(distinctProperty)
+                .withDataCoherence(coherence)
+                .toUri(baseUrl + "/catalogs/" + catalogIdentifier + "/distinct");
+        HttpHeaders headers = getRequiredHeaders();
+        log(headers, "Sending request get distinct. catalog: {0}, distinct: {1}, fiql: {2}, coherence: {3}",
+                catalogIdentifier, distinctProperty, fiql, coherence.getCoherenceName());
+
+        return exchangeToFlux(webClient.get().uri(requestUrl).headers(copyOf(headers)), false, Object.class);
+    }
+
+    /**
+     * Counts the records that match the query
+     *
+     * @param catalogIdentifier The catalog to query
+     * @param fiql The query
+     * @param limit The most records to count
+     * @param coherence The desired data coherence
+     * @return The number of records or empty on a 404
+     */
+    public Mono<Integer> count(String catalogIdentifier, String fiql, int limit, MetadataDataCoherence coherence){
+
+        URI requestUrl = MetadataCatalogWebserviceRequest.builder()
+                .withQuery(fiql)
+                .withLimit(limit)
+                .withDataCoherence(coherence)
+                .toUri(baseUrl + "/catalogs/" + catalogIdentifier + "/count");
+        HttpHeaders headers = getRequiredHeaders();
+        log(headers, "Sending request get count. catalog: {0}, fiql: {1}, limit: {2}, coherence: {3}",
+                catalogIdentifier, fiql, limit, coherence.getCoherenceName());
+
+        return exchangeToMono(
+                webClient.get().uri(requestUrl).headers(copyOf(headers)),
+                false,
+                response -> response.bodyToMono(DotNotationMap.class)
+                        .map(body -> ((Number)body.getProperty("Num-Records")).intValue()));
+    }
+
+    /**
+     * Performs an update on a record by replacing the document.
+     *
+     * @param catalogIdentifier The catalog identifier
+     * @param recordIdentifier The ID of the record to update
+     * @param realm The new security realm
+     * @param tags A new list of tags
+     * @param document The document to replace it with
+     * @param identities A list of associated object identities
+     * @return True on success false on 404
+     */
+    public Mono<Boolean> updateOneById(
+            String catalogIdentifier, String recordIdentifier, String realm, List<String> tags,
+            DotNotationMap document, CatalogIdentityCollection identities){
+
+        HttpHeaders headers = getRecordHeaders(realm, tags, identities);
+        log(headers, "Sending request update {0}:{1}. realm: {2}, tags {3}", catalogIdentifier, recordIdentifier, realm, tags);
+
+        return exchangeToStatus(webClient.put()
+                .uri(baseUrl + "/catalogs/" + catalogIdentifier + "/records/" + recordIdentifier)
+                .headers(copyOf(headers))
+                .body(toJson(document), String.class));
+    }
+
+    /**
+     * Performs an update on the first record that matches the query by replacing the document.
+     *
+     * @param catalogIdentifier The catalog identifier
+     * @param fiql Query to use to find records to update
+     * @param sortString Sort string used to sort records as the first one will be updated
+     * @param realm The new security realm
+     * @param tags A new list of tags
+     * @param document The document to replace it with
+     * @param identities Associated object identities
+     * @return True if the record was updated, false if it was not found
+     */
+    public Mono<Boolean> updateOneByQuery(
+            String catalogIdentifier, String fiql, String sortString, String realm, List<String> tags,
+            DotNotationMap document, CatalogIdentityCollection identities){
+
+        HttpHeaders headers = getRecordHeaders(realm, tags, identities);
+        log(headers, "Sending request udpate {0}: fiql: {1}, realm: {2}, tags {3}", catalogIdentifier, fiql, realm, tags);
+        URI uri = MetadataCatalogWebserviceRequest.builder()
+                .withQuery(fiql)
+                .withSort(sortString)
+                .toUri(baseUrl + "/catalogs/" + catalogIdentifier + "/records");
+
+        return exchangeToStatus(webClient.put()
+                .uri(uri)
+                .headers(copyOf(headers))
+                .body(toJson(document), String.class));
+    }
+
+    /**
+     * Deletes a record from a catalog
+     *
+     * @param catalogIdentifier The catalog identifier
+     * @param recordIdentifier The id of the record to delete
+     * @return true on success false on 404
+     */
+    public Mono<Boolean> deleteById(String catalogIdentifier, String recordIdentifier){
+        HttpHeaders headers = getRequiredHeaders();
+        log(headers, "Sending request delete {0}:{1}]", catalogIdentifier, recordIdentifier);
+
+        return exchangeToStatus(webClient.delete()
+                .uri(baseUrl + "/catalogs/" + catalogIdentifier + "/records/" + recordIdentifier)
+                .headers(copyOf(headers)));
+    }
+
+    /**
+     * Deletes records from a catalog that match the query.
+     *
+     * @param catalogIdentifier The catalog identifier
+     * @param fiql The query to use to find records to delete
+     * @return The number of records deleted, -1 if unknown or 0 on 404
+     */
+    public Mono<Integer> deleteByQuery(String catalogIdentifier, String fiql){
+        HttpHeaders headers = getRequiredHeaders();
+        log(headers, "Sending request deleteByQuery {0}:{1}", catalogIdentifier, fiql);
+        URI uri = MetadataCatalogWebserviceRequest.builder().withQuery(fiql).toUri(baseUrl + "/catalogs/" + catalogIdentifier + "/records");
+
+        return exchangeToMono(
+                webClient.delete().uri(uri).headers(copyOf(headers)),
+                false,
+                response -> {
+                    String numDeleted = response.headers().asHttpHeaders().getFirst("Num-Deleted");
+                    return response.releaseBody().thenReturn(StringUtils.hasText(numDeleted) ? Integer.parseInt(numDeleted) : -1);
+                })
+                .defaultIfEmpty(0);
+    }
+
+    /**
+     * Creates a new record in a catalog
+     *
+     * @param catalogIdentifier The catalog identifier
+     * @param recordIdentifier The ID of the record you want to set
+     * @param realm The security realm to set
+     * @param tags The list of tags to set
+     * @param document The document to set
+     * @param objectIdentities The associated object records to set
+     * @return The identity of the new record
+     */
+    public Mono<CatalogIdentity> create(
+            String catalogIdentifier, String recordIdentifier, String realm, List<String> tags, DotNotationMap document,
+            CatalogIdentityCollection objectIdentities){
+
+        HttpHeaders headers = getRecordHeaders(realm, tags, objectIdentities);
+        if (StringUtils.hasText(recordIdentifier)){
+            headers.set("Record-Identifier", recordIdentifier);
+        }
+        log(headers, "Sending request create {0}", catalogIdentifier);
+
+        return exchangeToMono(
+                webClient.post()
+                        .uri(baseUrl + "/catalogs/" + catalogIdentifier + "/records")
+                        .headers(copyOf(headers))
+                        .body(toJson(document), String.class),
+                true,
+                response -> {
+                    if (response.statusCode() != HttpStatus.CREATED){
+                        return response.createException().flatMap(Mono::error);
+                    }
+                    String location = response.headers().asHttpHeaders().getFirst(HttpHeaders.LOCATION);
+                    if (location != null){
+                        return response.releaseBody().thenReturn(CatalogIdentity.fromUrl(location));
+                    }
+                    return response.bodyToMono(DotNotationMap.class)
+                            .map(body -> new CatalogIdentity(catalogIdentifier, (String)body.getProperty("id")));
+                });
+    }
+
+    /**
+     * Creates a new record in a catalog with a random ID
+     *
+     * @param catalogIdentifier The catalog identifier
+     * @param document The document to set
+     * @param identities The associated object records to set
+     * @return The identity of the new record
+     */
+    public Mono<CatalogIdentity> create(String catalogIdentifier, DotNotationMap document, CatalogIdentityCollection identities){
+        return create(catalogIdentifier, UUID.randomUUID().toString(), null, null, document, identities);
+    }
+
+    /**
+     * Uses MongoDB's bulk operations to create records.
+     *
+     * @param catalogIdentifier The identifier of the catalog to create the records in.
+     * @param realm The security realm to apply to all records if one is not specified specifically
+     * @param tags The tags to apply to all records if one is not specified specifically
+     * @param documents The records to create
+     * @param identities The associated records
+     * @return The bulk results
+     */
+    public Flux<BulkResult> createBulk(
+            String catalogIdentifier, String realm, List<String> tags, Collection<MetadataCatalogRecord> documents,
+            CatalogIdentityCollection identities){
+
+        return createBulk(catalogIdentifier, realm, tags, Flux.fromIterable(documents), identities);
+    }
+
+    /**
+     * Uses MongoDB's bulk operations to create records.
+     * The records are sent as they are published.
+     *
+     * @param catalogIdentifier The identifier of the catalog to create the records in.
+     * @param realm The security realm to apply to all records if one is not specified specifically
+     * @param tags The tags to apply to all records if one is not specified specifically
+     * @param documents The records to create
+     * @param identities The associated records
+     * @return The bulk results
+     */
+    public Flux<BulkResult> createBulk(
+            String catalogIdentifier, String realm, List<String> tags, Publisher<MetadataCatalogRecord> documents,
+            CatalogIdentityCollection identities){
+
+        HttpHeaders headers = getRecordHeaders(realm, tags, identities);
+        headers.set("Operation-Type", "bulk");
+        URI url = MetadataCatalogWebserviceRequest.builder().toUri(baseUrl + "/catalogs/" + catalogIdentifier + "/records");
+        log(headers, "Sending request createBulk {0}", catalogIdentifier);
+
+        return exchangeToFlux(
+                webClient.post().uri(url).headers(copyOf(headers)).body(documents, MetadataCatalogRecord.class),
+                true,
+                BulkResult.class);
+    }
+
+    /**
+     * Uses MongoDB's bulk operations to update records.
+     *
+     * @param catalogIdentifier The identifier of the catalog to update the records in.
+     * @param filter FIQL filter query used to find documents based on properties within the given documents
+     * @param realm The security realm to apply to all records if one is not specified specifically
+     * @param tags The tags to apply to all records if one is not specified specifically
+     * @param records The records
+     * @param multi Whether each individual update should update more than 1 document
+     * @param identities The associated records
+     * @return The bulk results
+     */
+    public Flux<BulkResult> updateBulkByParameterizedFilter(
+            String catalogIdentifier, String filter, String realm, List<String> tags,
+            Publisher<MetadataCatalogRecord> records, boolean multi, CatalogIdentityCollection identities){
+
+        HttpHeaders headers = getRecordHeaders(realm, tags, identities);
+        headers.set("Operation-Type", "bulk");
+        URI url = MetadataCatalogWebserviceRequest.builder()
+                .withFilter(filter)
+                .withMulti(multi)
+                .toUri(baseUrl + "/catalogs/" + catalogIdentifier + "/records");
+        log(headers, "Sending request createBulk {0}", catalogIdentifier);
+
+        return exchangeToFlux(
+                webClient.put().uri(url).headers(copyOf(headers)).body(records, MetadataCatalogRecord.class),
+                true,
+                BulkResult.class);
+    }
+
+    /**
+     * Applies a JSON patch to a record
+     *
+     * @param catalogIdentifier The catalog identifier
+     * @param id The ID of the record
+     * @param jsonPatch The patch operations
+     * @return true if the record was patched, false if it was not found
+     */
+    public Mono<Boolean> jsonPatchById(String catalogIdentifier, String id, List<JsonPatchOperation> jsonPatch){
+
+        URI uri = MetadataCatalogWebserviceRequest.builder()
+                .toUri(baseUrl + "/catalogs/" + catalogIdentifier + "/records/" + id);
+        HttpHeaders headers = getRequiredHeaders();
+        headers.set("Content-Type", "application/json-patch+json");
+        log(headers, "Sending request mergePatch {0}", catalogIdentifier);
+
+        return exchangeToStatus(webClient.patch().uri(uri).headers(copyOf(headers)).body(toJson(jsonPatch), String.class));
+    }
+
+    /**
+     * Applies a JSON patch to the records that match the query
+     *
+     * @param catalogIdentifier The catalog identifier
+     * @param fiql The query
+     * @param sort The sort
+     * @param limit The most records to patch
+     * @param jsonPatch The patch operations
+     * @param upsert True to create a record if none match
+     * @return The bulk results
+     */
+    public Flux<BulkResult> jsonPatchByQuery(String catalogIdentifier,
+            String fiql, String sort, int limit, List<JsonPatchOperation> jsonPatch, boolean upsert){
+
+        URI url = MetadataCatalogWebserviceRequest.builder()
+                .withQuery(fiql)
+                .withUpsert(upsert)
+                .withSort(sort)
+                .withLimit(limit)
+                .toUri(baseUrl + "/catalogs/" + catalogIdentifier + "/records");
+        HttpHeaders headers = getRequiredHeaders();
+        headers.set("Content-Type", "application/json-patch+json");
+        log(headers, "Sending request mergePatch {0}", catalogIdentifier);
+
+        return exchangeToFlux(
+                webClient.patch().uri(url).headers(copyOf(headers)).body(toJson(jsonPatch), String.class),
+                true,
+                BulkResult.class);
+    }
+
+    /**
+     * Applies a JSON merge patch to a record
+     *
+     * @param catalogIdentifier The catalog identifier
+     * @param id The ID of the record
+     * @param mergePatch The merge patch
+     * @return true if the record was patched, false if it was not found
+     */
+    public Mono<Boolean> mergePatchById(String catalogIdentifier, String id, DotNotationMap mergePatch){
+
+        URI uri = MetadataCatalogWebserviceRequest.builder()
+                .toUri(baseUrl + "/catalogs/" + catalogIdentifier + "/records/" + id);
+        HttpHeaders headers = getRequiredHeaders();
+        headers.set("Content-Type", "application/merge-patch+json");
+        log(headers, "Sending request mergePatch {0}", catalogIdentifier);
+
+        return exchangeToStatus(webClient.patch().uri(uri).headers(copyOf(headers)).body(toJson(mergePatch), String.class));
+    }
+
+    /**
+     * Applies a JSON merge patch to the records that match the query
+     *
+     * @param catalogIdentifier The catalog identifier
+     * @param fiql The query
+     * @param sort The sort
+     * @param mergePatch The merge patch
+     * @param updateMulti True to patch every matching record instead of the first
+     * @param upsert True to create a record if none match
+     * @return The number of records that were updated
+     */
+    public Mono<Integer> mergePatchByQuery(String catalogIdentifier, String fiql, String sort, DotNotationMap mergePatch, boolean updateMulti, boolean upsert){
+
+        URI uri = MetadataCatalogWebserviceRequest.builder()
+                .withQuery(fiql)
+                .withMulti(updateMulti)
+                .withUpsert(upsert)
+                .withSort(sort)
+                .toUri(baseUrl + "/catalogs/" + catalogIdentifier + "/records");
+        HttpHeaders headers = getRequiredHeaders();
+        headers.set("Content-Type", "application/merge-patch+json");
+        log(headers, "Sending request mergePatch {0}", catalogIdentifier);
+
+        return exchangeToMono(
+                webClient.patch().uri(uri).headers(copyOf(headers)).body(toJson(mergePatch), String.class),
+                false,
+                response -> {
+                    String numUpdated = response.headers().asHttpHeaders().getFirst("Num-Updated");
+                    return response.releaseBody().thenReturn(StringUtils.hasText(numUpdated) ? Integer.parseInt(numUpdated) : 0);
+                })
+                .defaultIfEmpty(0);
+    }
+
+    /**
+     * Gets a list of all catalog identifiers in the Metadata Catalog
+     *
+     * @return The list of catalog identifiers
+     */
+    public Mono<List<String>> getCatalogNames(){
+        HttpHeaders headers = getRequiredHeaders();
+        log(headers, "Sending request getCatalogNames");
+
+        return exchangeToMono(
+                webClient.get().uri(baseUrl + "/catalogs").headers(copyOf(headers)),
+                true,
+                response -> response.bodyToMono(String.class)
+                        .flatMap(json -> Mono.fromCallable(() -> Catalog.fromJsonArray(json)))
+                        .map(catalogs -> catalogs
+                                .stream()
+                                .map(Catalog::getCatalogIdentifier)
+                                .collect(Collectors.toList())));
+    }
+
+    /**
+     * Sends the request and converts a successful response.
+     *
+     * @param request The request to send
+     * @param notFoundIsException True if a 404 is an error instead of an empty result
+     * @param onSuccess Reads the response when the status is less than 400
+     * @return The result
+     */
+    private <T> Mono<T> exchangeToMono(WebClient.RequestHeadersSpec<?> request, boolean notFoundIsException, Function<ClientResponse, Mono<T>> onSuccess){
+        return request.exchangeToMono(response -> {
+            if (!notFoundIsException && response.statusCode() == HttpStatus.NOT_FOUND){
+                return response.releaseBody().then(Mono.empty());
+            }else if (response.statusCode().isError()){
+                return response.createException().flatMap(Mono::error);
+            }else{
+                return onSuccess.apply(response);
+            }
+        });
+    }
+
+    /**
+     * Sends the request and emits the elements of the JSON array in the
+     * response as they are read.
+     *
+     * @param request The request to send
+     * @param notFoundIsException True if a 404 is an error instead of an empty result
+     * @param elementType The type of the elements
+     * @return The elements
+     */
+    private <T> Flux<T> exchangeToFlux(WebClient.RequestHeadersSpec<?> request, boolean notFoundIsException, Class<T> elementType){
+        return request.exchangeToFlux(response -> {
+            if (!notFoundIsException && response.statusCode() == HttpStatus.NOT_FOUND){
+                return response.releaseBody().thenMany(Flux.empty());
+            }else if (response.statusCode().isError()){
+                return response.createException().flatMapMany(Flux::error);
+            }else{
+                return response.bodyToFlux(elementType);
+            }
+        });
+    }
+
+    /**
+     * Sends the request and reports if the status was 200
+     *
+     * @param request The request to send
+     * @return true for 200 and false for 404 or another success status
+     */
+    private Mono<Boolean> exchangeToStatus(WebClient.RequestHeadersSpec<?> request){
+        return exchangeToMono(request, false, response -> response.releaseBody().thenReturn(response.statusCode() == HttpStatus.OK))
+                .defaultIfEmpty(false);
+    }
+
+    /**
+     * Converts the document to JSON when the request is sent so that a
+     * failure is signaled by the result.
+     *
+     * @param document The document to convert
+     * @return The JSON
+     */
+    private static Mono<String> toJson(DotNotationMap document){
+        return Mono.fromCallable(document::toJson);
+    }
+
+    private static Mono<String> toJson(List<JsonPatchOperation> jsonPatch){
+        return Mono.fromCallable(() -> DatakowObjectMapper.getDatakowObjectMapper().writeValueAsString(jsonPatch));
+    }
+
+    /**
+     * Gets the required headers plus the headers describing a record.
+     *
+     * @return The headers
+     */
+    private HttpHeaders getRecordHeaders(String realm, List<String> tags, CatalogIdentityCollection identities){
+        HttpHeaders headers = getRequiredHeaders();
+        headers.setContentType(JSON_UTF8);
+        if (realm != null && !realm.isEmpty()){
+            headers.set("realm", realm);
+        }
+        if (tags != null && tags.size() > 0){
+            headers.set("Tags", String.join(",", tags));
+        }
+        if (identities != null && identities.size() > 0){
+            headers.set("Object-Identities", identities.toHttpHeader());
+        }
+        return headers;
+    }
+
+    /**
+     * Gets the headers that are required for every request.
+     * <p>
+     * This includes the correlationId and request id
+     * @return The headers
+     */
+    private HttpHeaders getRequiredHeaders(){
+        HttpHeaders headers = new HttpHeaders();
+        if (userName != null && !userName.isEmpty()){
+            headers.set(HttpHeaders.AUTHORIZATION, "Basic " + DatatypeConverter.printBase64Binary((userName+":"+password).getBytes()));
+        }
+        String correlationId = ThreadContext.get("correlationId");
+        if (correlationId == null || correlationId.isEmpty()){
+            correlationId = UUID.randomUUID().toString();
+            ThreadContext.put("correlationId", correlationId);
+        }
+        String requestId = UUID.randomUUID().toString();
+        headers.set("X-Correlation-ID", correlationId);
+        headers.set("X-Request-ID", requestId);
+        return headers;
+    }
+
+    private static Consumer<HttpHeaders> copyOf(HttpHeaders headers){
+        return requestHeaders -> requestHeaders.addAll(headers);
+    }
+
+    private static void log(HttpHeaders headers, String message, Object... params){
+        ThreadContext.put("subRequestId", headers.getFirst("X-Request-ID"));
+        try{
+            LOGGER.log(Level.INFO, message, params);
+        }finally{
+            ThreadContext.remove("subRequestId");
+        }
+    }
+
+}
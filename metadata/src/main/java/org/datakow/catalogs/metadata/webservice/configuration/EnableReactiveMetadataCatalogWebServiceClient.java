@@ -0,0 +1,19 @@
+package org.datakow.catalogs.metadata.webservice.configuration;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import org.springframework.context.annotation.Import;
+
+/**
+ * Annotation used to create the non blocking Metadata Catalog Web Service Client bean for client use.
+ * 
+ * @author kevin.off
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+@Import(ReactiveMetadataCatalogWebServiceClientConfiguration.class)
+public @interface EnableReactiveMetadataCatalogWebServiceClient {
+    
+}
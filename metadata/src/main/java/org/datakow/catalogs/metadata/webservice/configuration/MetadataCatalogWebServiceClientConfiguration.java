@@ -1,5 +1,6 @@
 package org.datakow.catalogs.metadata.webservice.configuration;
 
+import org.datakow.catalogs.metadata.webservice.AsyncMetadataCatalogWebserviceClient;
 import org.datakow.catalogs.metadata.webservice.MetadataCatalogManagementWebserviceClient;
 import org.datakow.catalogs.metadata.webservice.MetadataCatalogWebserviceClient;
 import java.nio.charset.Charset;
@@ -7,6 +8,7 @@ import org.apache.http.client.HttpClient;
 import org.apache.http.impl.client.HttpClients;
 import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.datakow.catalogs.metadata.CatalogRegistry;
+import org.datakow.core.components.ClientExecutors;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
@@ -17,7 +19,8 @@ import org.springframework.cloud.context.config.annotation.RefreshScope;
  * Configuration class that creates beans for clients to use to access the 
  * Metadata Catalog Web Service using its REST interface. 
  * <p>
- * Creates the following beans: {@link MetadataCatalogWebserviceClient} and {@link MetadataCatalogManagementWebserviceClient} and {@link CatalogRegistry}
+ * Creates the following beans: {@link MetadataCatalogWebserviceClient}, {@link AsyncMetadataCatalogWebserviceClient}, 
+ * {@link MetadataCatalogManagementWebserviceClient} and {@link CatalogRegistry}
  * @author kevin.off
  */
 @EnableConfigurationProperties(MetadataCatalogWebServiceClientConfigurationProperties.class)
@@ -41,6 +44,29 @@ public class MetadataCatalogWebServiceClientConfiguration {
                 props.getWebservicePassword());
     }
     
+    /**
+     * Creates the bean that runs the calls of the metadata catalog client in the background
+     * and returns CompletableFutures.
+     * <p>
+     * Each call runs on its own virtual thread when the JDK supports them. Otherwise
+     * metadataCatalogWebserviceClientConcurrency threads are used.
+     * 
+     * @return The async webservice bean
+     */
+    @Bean
+    @RefreshScope
+    public AsyncMetadataCatalogWebserviceClient asyncMetadataCatalogWebserviceClient(
+        MetadataCatalogWebserviceClient client,
+        MetadataCatalogWebServiceClientConfigurationProperties props){
+        
+        return new AsyncMetadataCatalogWebserviceClient(
+                client, 
+                ClientExecutors.newExecutor(
+                        "metadata-catalog-client", 
+                        props.getMetadataCatalogWebserviceClientConcurrency(), 
+                        props.isMetadataCatalogWebserviceClientVirtualThreads()));
+    }
+    
     /**
      * Creates a management bean to interact with the catalogs, indexes, schema...etc for each catalog.
      * 
@@ -68,16 +94,17 @@ public class MetadataCatalogWebServiceClientConfiguration {
     @RefreshScope
     public MyRestTemplate metadataCatalogRestTemplate(MetadataCatalogWebServiceClientConfigurationProperties props){
         StringHttpMessageConverter converter = new StringHttpMessageConverter(Charset.forName("UTF-8"));
-        HttpClient client;
-        if (props.getMetadataCatalogWebserviceClientMaxTotalConnections() > 0
-                && props.getMetadataCatalogWebserviceClientMaxTotalConnectionsPerRoute() > 0){
-            PoolingHttpClientConnectionManager cm = new PoolingHttpClientConnectionManager();
-            cm.setMaxTotal(props.getMetadataCatalogWebserviceClientMaxTotalConnections());
-            cm.setDefaultMaxPerRoute(props.getMetadataCatalogWebserviceClientMaxTotalConnectionsPerRoute());
-            client = HttpClients.custom().setConnectionManager(cm).build();
-        }else{
-            client = HttpClients.createDefault();
-        }
+        //without a pool the default HttpClient only allows 2 connections to the web service
+        int maxTotal = props.getMetadataCatalogWebserviceClientMaxTotalConnections() > 0
+                ? props.getMetadataCatalogWebserviceClientMaxTotalConnections()
+                : props.getMetadataCatalogWebserviceClientConcurrency();
+        int maxPerRoute = props.getMetadataCatalogWebserviceClientMaxTotalConnectionsPerRoute() > 0
+                ? props.getMetadataCatalogWebserviceClientMaxTotalConnectionsPerRoute()
+                : maxTotal;
+        PoolingHttpClientConnectionManager cm = new PoolingHttpClientConnectionManager();
+        cm.setMaxTotal(maxTotal);
+        cm.setDefaultMaxPerRoute(maxPerRoute);
+        HttpClient client = HttpClients.custom().setConnectionManager(cm).build();
         HttpComponentsClientHttpRequestFactory factory = new HttpComponentsClientHttpRequestFactory(client);
         factory.setConnectTimeout(props.getMetadataCatalogWebserviceClientConnectTimeout());
         factory.setReadTimeout(props.getMetadataCatalogWebserviceClientReadTimeout());
@@ -25,6 +25,8 @@ public class MetadataCatalogWebServiceClientConfigurationProperties {
     private boolean catalogRegistryIncludeIndexes;
     private int metadataCatalogWebserviceClientMaxTotalConnections = -1;
     private int metadataCatalogWebserviceClientMaxTotalConnectionsPerRoute = -1;
+    private int metadataCatalogWebserviceClientConcurrency = 50;
+    private boolean metadataCatalogWebserviceClientVirtualThreads = true;
     
     /**
      * Gets the Hostname for the object catalog web service.
@@ -285,5 +287,44 @@ public class MetadataCatalogWebServiceClientConfigurationProperties {
     public void setMetadataCatalogWebserviceClientMaxTotalConnectionsPerRoute(int metadataCatalogWebserviceClientMaxTotalConnectionsPerRoute) {
         this.metadataCatalogWebserviceClientMaxTotalConnectionsPerRoute = metadataCatalogWebserviceClientMaxTotalConnectionsPerRoute;
     }
+
+    /**
+     * Gets the number of requests the clients are expected to make at the same time.
+     * <p>
+     * It sizes the connection pool when the max connections are not set and
+     * is the number of threads of the async client when virtual threads are not used.
+     * 
+     * @return The expected number of concurrent requests
+     */
+    public int getMetadataCatalogWebserviceClientConcurrency() {
+        return metadataCatalogWebserviceClientConcurrency;
+    }
+
+    /**
+     * Sets the number of requests the clients are expected to make at the same time.
+     * 
+     * @param metadataCatalogWebserviceClientConcurrency The expected number of concurrent requests
+     */
+    public void setMetadataCatalogWebserviceClientConcurrency(int metadataCatalogWebserviceClientConcurrency) {
+        this.metadataCatalogWebserviceClientConcurrency = metadataCatalogWebserviceClientConcurrency;
+    }
+
+    /**
+     * Gets whether the async client runs each request on a virtual thread when the JDK supports them.
+     * 
+     * @return true to use virtual threads
+     */
+    public boolean isMetadataCatalogWebserviceClientVirtualThreads() {
+        return metadataCatalogWebserviceClientVirtualThreads;
+    }
+
+    /**
+     * Sets whether the async client runs each request on a virtual thread when the JDK supports them.
+     * 
+     * @param metadataCatalogWebserviceClientVirtualThreads true to use virtual threads
+     */
+    public void setMetadataCatalogWebserviceClientVirtualThreads(boolean metadataCatalogWebserviceClientVirtualThreads) {
+        this.metadataCatalogWebserviceClientVirtualThreads = metadataCatalogWebserviceClientVirtualThreads;
+    }
     
 }
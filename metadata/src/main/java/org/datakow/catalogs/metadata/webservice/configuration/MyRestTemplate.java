@@ -1,7 +1,9 @@
 package org.datakow.catalogs.metadata.webservice.configuration;
 
+import org.datakow.core.components.AsyncJsonInputStreamToIterator;
 import org.datakow.core.components.JsonInputStreamToIterator;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.nio.charset.Charset;
 import org.apache.commons.io.IOUtils;
@@ -43,23 +45,65 @@ public class MyRestTemplate extends RestTemplate{
         Object ... urlVariables) throws RestClientException{
 
         try{
-            ClientHttpResponse response = exchangeForInputStream(uri, method, requestEntity, urlVariables);
-            if (notFoundIsException && response.getStatusCode() == HttpStatus.NOT_FOUND){
-                //Throw the 404 as an exception
-                throw new HttpClientErrorException(response.getStatusCode(), 
-                        response.getStatusCode().getReasonPhrase(), response.getHeaders(), 
-                        IOUtils.toByteArray(response.getBody()), getResponseCharset(response));
-            }
-            return JsonInputStreamToIterator.makeIterator(response.getBody(), recordType);
+            return JsonInputStreamToIterator.makeIterator(exchangeForJsonBody(uri, method, requestEntity, notFoundIsException, urlVariables), recordType);
         }catch (IOException ex) {
-                String resource = uri.toString();
-                String query = uri.getRawQuery();
-                resource = (query != null ? resource.substring(0, resource.indexOf(query) - 1) : resource);
-                throw new ResourceAccessException("I/O error on " + method.name() +
-                                " request for \"" + resource + "\": " + ex.getMessage(), ex);
+                throw ioError(uri, method, ex);
         }
     }
     
+    /**
+     * Sends the request and reads the JSON array in the response on another
+     * thread so the records can be processed while the rest of the response
+     * is still being received.
+     * 
+     * @param <T> The type of the records
+     * @param uri The request url
+     * @param method The http method
+     * @param requestEntity The request entity
+     * @param recordType The type of the records
+     * @param notFoundIsException True to throw a 404 as an HttpClientErrorException
+     * @param prefetch The number of records to read ahead of the caller
+     * @param urlVariables The URI variables for the url if there are any
+     * @return The records in the response
+     * @throws RestClientException If something goes wrong.
+     */
+    public <T> AsyncJsonInputStreamToIterator<T> exchangeForAsyncIterator(
+        URI uri, 
+        HttpMethod method,
+        HttpEntity<?> requestEntity, 
+        Class<T> recordType, 
+        boolean notFoundIsException, 
+        int prefetch,
+        Object ... urlVariables) throws RestClientException{
+
+        try{
+            return AsyncJsonInputStreamToIterator.makeIterator(exchangeForJsonBody(uri, method, requestEntity, notFoundIsException, urlVariables), recordType, prefetch);
+        }catch (IOException ex) {
+                throw ioError(uri, method, ex);
+        }
+    }
+    
+    private InputStream exchangeForJsonBody(URI uri, HttpMethod method, HttpEntity<?> requestEntity, 
+            boolean notFoundIsException, Object... urlVariables) throws IOException{
+        
+        ClientHttpResponse response = exchangeForInputStream(uri, method, requestEntity, urlVariables);
+        if (notFoundIsException && response.getStatusCode() == HttpStatus.NOT_FOUND){
+            //Throw the 404 as an exception
+            throw new HttpClientErrorException(response.getStatusCode(), 
+                    response.getStatusCode().getReasonPhrase(), response.getHeaders(), 
+                    IOUtils.toByteArray(response.getBody()), getResponseCharset(response));
+        }
+        return response.getBody();
+    }
+    
+    private ResourceAccessException ioError(URI uri, HttpMethod method, IOException ex){
+        String resource = uri.toString();
+        String query = uri.getRawQuery();
+        resource = (query != null ? resource.substring(0, resource.indexOf(query) - 1) : resource);
+        return new ResourceAccessException("I/O error on " + method.name() +
+                        " request for \"" + resource + "\": " + ex.getMessage(), ex);
+    }
+    
     /**
      * Returns an input stream for the request. If the request results in a 404 it will return null;
      * 
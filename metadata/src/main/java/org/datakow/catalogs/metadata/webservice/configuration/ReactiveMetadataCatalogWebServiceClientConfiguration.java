@@ -0,0 +1,104 @@
+package org.datakow.catalogs.metadata.webservice.configuration;
+
+import io.netty.channel.ChannelOption;
+import org.datakow.catalogs.metadata.webservice.ReactiveMetadataCatalogWebserviceClient;
+import org.datakow.core.components.DatakowObjectMapper;
+import java.time.Duration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cloud.context.config.annotation.RefreshScope;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.web.reactive.function.client.ExchangeStrategies;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * Configuration class that creates the non blocking client for the Metadata
+ * Catalog Web Service. 
+ * <p>
+ * Creates the {@link ReactiveMetadataCatalogWebserviceClient} bean using the
+ * same properties as {@link MetadataCatalogWebServiceClientConfiguration}.
+ * The max total connections property limits the connection pool. Requests
+ * beyond it wait for a connection without holding a thread.
+ * 
+ * @author kevin.off
+ */
+@EnableConfigurationProperties(MetadataCatalogWebServiceClientConfigurationProperties.class)
+public class ReactiveMetadataCatalogWebServiceClientConfiguration {
+    
+    /**
+     * The size of the connection pool when max total connections is not set
+     */
+    public static final int DEFAULT_MAX_CONNECTIONS = 500;
+
+    /**
+     * Creates the bean that clients should use to interact with the metadata catalog without blocking.
+     * 
+     * @param metadataCatalogWebClient The WebClient to send the requests with
+     * @param props The configuration properties
+     * @return The webservice bean
+     */
+    @Bean
+    @RefreshScope
+    public ReactiveMetadataCatalogWebserviceClient reactiveMetadataCatalogWebserviceClient(
+        WebClient metadataCatalogWebClient,
+        MetadataCatalogWebServiceClientConfigurationProperties props){
+            
+        return new ReactiveMetadataCatalogWebserviceClient(
+                metadataCatalogWebClient, 
+                "http://" + props.getMetadataCatalogWebserviceHost() + ":" + props.getMetadataCatalogWebservicePort(), 
+                props.getWebserviceUsername(), 
+                props.getWebservicePassword());
+    }
+    
+    /**
+     * Creates the WebClient bean that is the underlying Http connection to the web service.
+     * 
+     * @param props The configuration properties
+     * @return The WebClient bean
+     */
+    @Bean
+    @RefreshScope
+    public WebClient metadataCatalogWebClient(MetadataCatalogWebServiceClientConfigurationProperties props){
+        int maxConnections = props.getMetadataCatalogWebserviceClientMaxTotalConnections() > 0 
+                ? props.getMetadataCatalogWebserviceClientMaxTotalConnections() 
+                : DEFAULT_MAX_CONNECTIONS;
+        ConnectionProvider provider = ConnectionProvider.builder("metadata-catalog")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(-1)
+                .build();
+        HttpClient client = HttpClient.create(provider);
+        if (props.getMetadataCatalogWebserviceClientConnectTimeout() > 0){
+            client = client.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, props.getMetadataCatalogWebserviceClientConnectTimeout());
+        }
+        if (props.getMetadataCatalogWebserviceClientReadTimeout() > 0){
+            client = client.responseTimeout(Duration.ofMillis(props.getMetadataCatalogWebserviceClientReadTimeout()));
+        }
+        return WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(client))
+                .exchangeStrategies(exchangeStrategies())
+                .build();
+    }
+    
+    /**
+     * Creates the codecs used by the WebClient. JSON is read and written with
+     * the date aware {@link DatakowObjectMapper} like the blocking client, and
+     * there is no limit on the size of a response that is read as a whole.
+     * 
+     * @return The exchange strategies
+     */
+    public static ExchangeStrategies exchangeStrategies(){
+        DatakowObjectMapper mapper = DatakowObjectMapper.getDatakowDateAwareObjectMapper();
+        return ExchangeStrategies.builder()
+                .codecs(codecs -> {
+                    codecs.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(mapper));
+                    codecs.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(mapper));
+                    codecs.defaultCodecs().maxInMemorySize(-1);
+                })
+                .build();
+    }
+    
+}
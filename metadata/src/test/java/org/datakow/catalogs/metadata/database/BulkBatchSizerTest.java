@@ -0,0 +1,52 @@
+package org.datakow.catalogs.metadata.database;
+
+import com.mongodb.MongoClientSettings;
+import java.util.concurrent.TimeUnit;
+import org.bson.Document;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ *
+ * @author kevin.off
+ */
+public class BulkBatchSizerTest {
+    
+    @Test
+    public void testIsFull() {
+        BulkBatchSizer sizer = new BulkBatchSizer(1024, 1000);
+        assertFalse(sizer.isFull(0, 0));
+        assertFalse(sizer.isFull(999, 1023));
+        assertTrue(sizer.isFull(1000, 0));
+        assertTrue(sizer.isFull(1, 1024));
+    }
+    
+    @Test
+    public void testRecordLimitFollowsLatency() {
+        BulkBatchSizer sizer = new BulkBatchSizer(1024 * 1024, 1000);
+        
+        //fast writes grow the limit but never more than double at once
+        sizer.recordWrite(1000, 1000, TimeUnit.MILLISECONDS.toNanos(100));
+        assertEquals(1500, sizer.getRecordLimit());
+        
+        //slow writes shrink it
+        sizer.recordWrite(1500, 1000, TimeUnit.MILLISECONDS.toNanos(6000));
+        assertEquals(1125, sizer.getRecordLimit());
+        
+        for(int i = 0; i < 100; i++){
+            sizer.recordWrite(sizer.getRecordLimit(), 1000, TimeUnit.SECONDS.toNanos(60));
+        }
+        assertEquals(BulkBatchSizer.MIN_RECORD_LIMIT, sizer.getRecordLimit());
+        assertEquals(102, sizer.getBatchCount());
+        assertEquals(1000, sizer.getLastBatchBytes());
+    }
+    
+    @Test
+    public void testSizeOf() {
+        assertEquals(12, BulkBatchSizer.sizeOf(MongoClientSettings.getDefaultCodecRegistry(), new Document("a", 1)));
+        assertEquals(24, BulkBatchSizer.sizeOf(MongoClientSettings.getDefaultCodecRegistry(), new Document("a", 1), new Document("b", 2)));
+    }
+    
+}
@@ -0,0 +1,81 @@
+package org.datakow.catalogs.metadata.database;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.datakow.catalogs.metadata.BulkResult;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+/**
+ *
+ * @author kevin.off
+ */
+public class BulkWritePipelineTest {
+    
+    @Test
+    public void testResultsAreInOrder() throws IOException {
+        AtomicInteger next = new AtomicInteger();
+        List<BulkResult> results = new BulkWritePipeline(3, 2).run(
+                () -> next.get() < 20 ? next.getAndIncrement() : null, 
+                (batch) -> {
+                    try{
+                        //the later batches finish first
+                        Thread.sleep(20 - batch);
+                    }catch(InterruptedException ex){
+                        throw new IllegalStateException(ex);
+                    }
+                    return Collections.singletonList(new BulkResult(null, null, batch, "created"));
+                });
+        assertEquals(20, results.size());
+        for(int i = 0; i < 20; i++){
+            assertEquals(i, results.get(i).getSourceIndex());
+        }
+    }
+    
+    @Test
+    public void testSourceIsNotReadAfterAWriteFails() throws IOException {
+        AtomicInteger reads = new AtomicInteger();
+        AtomicBoolean reading = new AtomicBoolean();
+        CountDownLatch thirdRead = new CountDownLatch(1);
+        BulkWritePipeline.BatchSource<Integer> source = () -> {
+            int read = reads.incrementAndGet();
+            if (read == 1){
+                return read;
+            }
+            reading.set(true);
+            if (read == 3){
+                thirdRead.countDown();
+            }
+            //reading the records does not stop when the thread is interrupted
+            long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+            while(System.nanoTime() < end){
+                Thread.onSpinWait();
+            }
+            reading.set(false);
+            return read;
+        };
+        try{
+            new BulkWritePipeline(1).run(source, (batch) -> {
+                try{
+                    //fail while the source is being read
+                    thirdRead.await();
+                }catch(InterruptedException ex){
+                    Thread.currentThread().interrupt();
+                }
+                throw new IllegalStateException("The write failed");
+            });
+            fail("The write did not fail");
+        }catch(IllegalStateException ex){
+            assertEquals("The write failed", ex.getMessage());
+        }
+        assertFalse(reading.get());
+    }
+    
+}
@@ -0,0 +1,366 @@
+package org.datakow.catalogs.metadata.database;
+
+import com.mongodb.MongoClientSettings;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import org.bson.BsonArray;
+import org.bson.BsonBoolean;
+import org.bson.BsonDateTime;
+import org.bson.BsonDocument;
+import org.bson.BsonDouble;
+import org.bson.BsonInt32;
+import org.bson.BsonInt64;
+import org.bson.BsonNull;
+import org.bson.BsonObjectId;
+import org.bson.BsonRegularExpression;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+import org.bson.types.ObjectId;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author kevin.off
+ */
+public class ContinuationTokenTest {
+
+    public ContinuationTokenTest() {
+    }
+
+    @Test
+    public void testTokenKeepsTheTypesOfTheValues() {
+        ObjectId id = new ObjectId();
+        Date date = new Date(1500000000000L);
+        Document sort = new Document("Doc.time", -1).append("Doc.count", 1).append("_id", 1);
+        Document record = new Document("_id", id).append("Doc", new Document("time", date).append("count", 4));
+
+        ContinuationToken token = ContinuationToken.after(sort, toBson(record));
+        String written = token.toString();
+        assertTrue(written.matches("[A-Za-z0-9_-]+"));
+
+        ContinuationToken read = ContinuationToken.parse(written);
+        assertTrue(read.isFor(sort));
+        assertFalse(read.isFor(new Document("Doc.count", 1).append("Doc.time", -1).append("_id", 1)));
+        assertEquals(sort, read.getSort());
+        assertEquals(token.toFilter(), read.toFilter());
+    }
+
+    @Test
+    public void testFilterSeeksPastTheRecord() {
+        Document sort = new Document("Doc.time", -1).append("_id", 1);
+        Document record = new Document("_id", "b").append("Doc", new Document("time", 5));
+
+        BsonDocument filter = ContinuationToken.after(sort, toBson(record)).toFilter();
+        String after = "['object', 'binData', 'objectId', 'bool', 'date', 'timestamp', 'regex']";
+        BsonDocument expected = BsonDocument.parse(
+                "{$or: [{$or: [{'Doc.time': {$lt: 5}}, {'Doc.time': null}]}, "
+                + "{'Doc.time': 5, $or: [{'_id': {$gt: 'b'}}, {'_id': {$type: " + after + "}}]}]}");
+        assertEquals(expected, filter);
+
+        //only the _id is needed when there is no sort
+        filter = ContinuationToken.after(new Document("_id", 1), toBson(record)).toFilter();
+        assertEquals(BsonDocument.parse("{$or: [{'_id': {$gt: 'b'}}, {'_id': {$type: " + after + "}}]}"), filter);
+    }
+
+    @Test
+    public void testFilterFindsTheValuesOfTheOtherTypes() {
+        Document record = new Document("_id", 1).append("Doc", new Document("time", "b"));
+
+        BsonDocument filter = ContinuationToken.after(new Document("Doc.time", -1).append("_id", 1), toBson(record)).toFilter();
+        assertEquals(BsonDocument.parse(
+                "{$or: [{$or: [{'Doc.time': {$lt: 'b'}}, {'Doc.time': {$type: ['number']}}, {'Doc.time': null}]}, "
+                + "{'Doc.time': 'b', $or: [{'_id': {$gt: 1}}, {'_id': {$type: "
+                + "['string', 'object', 'binData', 'objectId', 'bool', 'date', 'timestamp', 'regex']}}]}]}"), filter);
+    }
+
+    @Test
+    public void testRecordsWithArraysCannotBeContinuedAfter() {
+        Document record = new Document("_id", "b").append("Doc", new Document("time", Arrays.asList(1, 2)));
+        try{
+            ContinuationToken.after(new Document("Doc.time", 1).append("_id", 1), toBson(record));
+            fail("The token was created for an array");
+        }catch(IllegalArgumentException e){
+            assertTrue(e.getMessage(), e.getMessage().contains("Doc.time"));
+            assertTrue(e.getMessage(), e.getMessage().contains("ARRAY"));
+        }
+        record = new Document("_id", "b").append("Doc", new Document("time", new Document("a", 1)));
+        try{
+            ContinuationToken.after(new Document("Doc.time", -1).append("_id", 1), toBson(record));
+            fail("The token was created for a document");
+        }catch(IllegalArgumentException e){
+            assertTrue(e.getMessage(), e.getMessage().contains("DOCUMENT"));
+        }
+    }
+
+    @Test
+    public void testMissingValuesSortFirst() {
+        Document record = new Document("_id", "b");
+
+        BsonDocument filter = ContinuationToken.after(new Document("Doc.time", 1).append("_id", 1), toBson(record)).toFilter();
+        String id = "$or: [{'_id': {$gt: 'b'}}, {'_id': {$type: "
+                + "['object', 'binData', 'objectId', 'bool', 'date', 'timestamp', 'regex']}}]";
+        assertEquals(BsonDocument.parse(
+                "{$or: [{'Doc.time': {$ne: null}}, {'Doc.time': null, " + id + "}]}"), filter);
+
+        filter = ContinuationToken.after(new Document("Doc.time", -1).append("_id", 1), toBson(record)).toFilter();
+        assertEquals(BsonDocument.parse("{'Doc.time': null, " + id + "}"), filter);
+    }
+
+    /**
+     * Pages through records with null, missing and tied values by applying
+     * each filter the way MongoDB does: null and missing values sort before
+     * every other value, equality to null matches missing properties and
+     * $gt, $lt and $ne never match them.
+     */
+    @Test
+    public void testPagesVisitEveryRecordOnce() {
+        Random random = new Random(1);
+        List<BsonDocument> records = new ArrayList<>();
+        for(int i = 0; i < 60; i++){
+            BsonDocument doc = new BsonDocument();
+            for(String property : new String[]{"time", "count"}){
+                int choice = random.nextInt(6);
+                if (choice == 1){
+                    doc.append(property, BsonNull.VALUE);
+                }else if (choice > 1){
+                    doc.append(property, new BsonInt32(choice));
+                }
+            }
+            records.add(new BsonDocument("_id", new BsonString(String.format("r%02d", i))).append("Doc", doc));
+        }
+        Document[] sorts = {
+            new Document("Doc.time", -1).append("_id", 1),
+            new Document("Doc.time", 1).append("_id", 1),
+            new Document("Doc.time", -1).append("Doc.count", 1).append("_id", 1),
+            new Document("Doc.time", 1).append("Doc.count", -1).append("_id", -1)
+        };
+        assertPagesVisitEveryRecordOnce(records, sorts);
+    }
+
+    /**
+     * The same with values of different types that MongoDB sorts by their
+     * type, numbers of every type are compared with each other.
+     */
+    @Test
+    public void testPagesVisitEveryRecordOnceWithMixedTypes() {
+        Random random = new Random(2);
+        BsonValue[] values = {
+            new BsonInt32(2), new BsonInt64(3), new BsonDouble(2.5), new BsonString("a"), new BsonString("c"),
+            BsonBoolean.FALSE, BsonBoolean.TRUE, new BsonDateTime(1500000000000L), new BsonObjectId(new ObjectId())
+        };
+        List<BsonDocument> records = new ArrayList<>();
+        for(int i = 0; i < 60; i++){
+            BsonDocument doc = new BsonDocument();
+            for(String property : new String[]{"time", "count"}){
+                int choice = random.nextInt(values.length + 2);
+                if (choice == 1){
+                    doc.append(property, BsonNull.VALUE);
+                }else if (choice > 1){
+                    doc.append(property, values[choice - 2]);
+                }
+            }
+            BsonValue id = i % 2 == 0 ? new BsonString(String.format("r%02d", i)) : new BsonInt32(i);
+            records.add(new BsonDocument("_id", id).append("Doc", doc));
+        }
+        assertPagesVisitEveryRecordOnce(records, new Document[]{
+            new Document("Doc.time", -1).append("_id", 1),
+            new Document("Doc.time", 1).append("_id", 1),
+            new Document("Doc.time", -1).append("Doc.count", 1).append("_id", 1),
+            new Document("Doc.time", 1).append("Doc.count", -1).append("_id", -1)
+        });
+    }
+
+    private static void assertPagesVisitEveryRecordOnce(List<BsonDocument> records, Document[] sorts){
+        for(Document sort : sorts){
+            List<BsonDocument> expected = new ArrayList<>(records);
+            expected.sort((a, b) -> compare(sort, a, b));
+            for(int limit : new int[]{1, 4, 7}){
+                List<BsonDocument> read = new ArrayList<>();
+                BsonDocument filter = new BsonDocument();
+                while(true){
+                    List<BsonDocument> page = new ArrayList<>();
+                    for(BsonDocument record : expected){
+                        if (page.size() < limit && matches(filter, record)){
+                            page.add(record);
+                        }
+                    }
+                    read.addAll(page);
+                    if (page.size() < limit){
+                        break;
+                    }
+                    //through the written form like a client would
+                    filter = ContinuationToken.parse(ContinuationToken.after(sort, page.get(page.size() - 1)).toString()).toFilter();
+                }
+                assertEquals(sort + " " + limit, expected, read);
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSortWithoutId() {
+        ContinuationToken.after(new Document("Doc.time", 1), new BsonDocument("_id", new BsonInt32(1)));
+    }
+
+    @Test
+    public void testInvalidTokens() {
+        for(String token : new String[]{"", "not a token", "AAAAAA", ContinuationToken.after(new Document("_id", 1),
+                new BsonDocument("_id", new BsonInt32(1))).toString().substring(4)}){
+            try{
+                ContinuationToken.parse(token);
+                fail("The token was parsed " + token);
+            }catch(IllegalArgumentException e){
+                assertEquals("The continuation token is not valid", e.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void testTokensWithOperatorsAreInvalid() {
+        Document sort = new Document("Doc.time", 1).append("_id", 1);
+        BsonValue[] values = {
+            BsonDocument.parse("{$ne: null}"),
+            BsonDocument.parse("{$regex: '.*'}"),
+            BsonDocument.parse("{time: 1}"),
+            new BsonArray(),
+            new BsonRegularExpression(".*")
+        };
+        for(BsonValue value : values){
+            for(int slot = 0; slot < 2; slot++){
+                BsonArray tampered = new BsonArray(Arrays.asList(new BsonInt32(1), new BsonString("b")));
+                tampered.set(slot, value);
+                String token = write(new BsonDocument("s", BsonDocument.parse("{'Doc.time': 1, '_id': 1}")).append("v", tampered));
+                try{
+                    ContinuationToken.parse(token);
+                    fail("The token was parsed with " + value);
+                }catch(IllegalArgumentException e){
+                    assertEquals("The continuation token is not valid", e.getMessage());
+                }
+            }
+        }
+        
+        String token = write(new BsonDocument("s", BsonDocument.parse("{'$where': 1, '_id': 1}"))
+                .append("v", new BsonArray(Arrays.asList(new BsonString("sleep(1000)"), new BsonString("b")))));
+        try{
+            ContinuationToken.parse(token);
+            fail("The token was parsed with a $ property");
+        }catch(IllegalArgumentException e){
+            assertEquals("The continuation token is not valid", e.getMessage());
+        }
+        
+        //the same token with plain values is valid
+        token = write(new BsonDocument("s", BsonDocument.parse("{'Doc.time': 1, '_id': 1}"))
+                .append("v", new BsonArray(Arrays.asList(new BsonInt32(1), new BsonString("b")))));
+        assertTrue(ContinuationToken.parse(token).isFor(sort));
+    }
+
+    private static String write(BsonDocument document){
+        ByteBuffer buffer = new RawBsonDocument(document, new BsonDocumentCodec()).getByteBuffer().asNIO();
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private static BsonValue get(BsonDocument record, String property){
+        BsonValue value = record;
+        for(String part : property.split("\\.")){
+            value = value != null && value.isDocument() ? value.asDocument().get(part) : null;
+        }
+        return value == null ? BsonNull.VALUE : value;
+    }
+
+    private static final List<String> TYPES = Arrays.asList("null", "number", "string", "objectId", "bool", "date");
+
+    private static String type(BsonValue value){
+        if (value.isNumber()){
+            return "number";
+        }
+        switch(value.getBsonType()){
+            case NULL: return "null";
+            case STRING: return "string";
+            case OBJECT_ID: return "objectId";
+            case BOOLEAN: return "bool";
+            case DATE_TIME: return "date";
+            default: throw new IllegalArgumentException(value.toString());
+        }
+    }
+
+    private static int compareValues(BsonValue a, BsonValue b){
+        int result = Integer.compare(TYPES.indexOf(type(a)), TYPES.indexOf(type(b)));
+        if (result != 0 || a.isNull()){
+            return result;
+        }
+        if (a.isNumber()){
+            return Double.compare(a.asNumber().doubleValue(), b.asNumber().doubleValue());
+        }
+        if (a.isString()){
+            return a.asString().getValue().compareTo(b.asString().getValue());
+        }
+        if (a.isObjectId()){
+            return a.asObjectId().getValue().compareTo(b.asObjectId().getValue());
+        }
+        if (a.isBoolean()){
+            return Boolean.compare(a.asBoolean().getValue(), b.asBoolean().getValue());
+        }
+        return Long.compare(a.asDateTime().getValue(), b.asDateTime().getValue());
+    }
+
+    private static int compare(Document sort, BsonDocument a, BsonDocument b){
+        for(String property : sort.keySet()){
+            int result = compareValues(get(a, property), get(b, property)) * sort.getInteger(property);
+            if (result != 0){
+                return result;
+            }
+        }
+        return 0;
+    }
+
+    private static boolean matches(BsonDocument filter, BsonDocument record){
+        for(String key : filter.keySet()){
+            BsonValue condition = filter.get(key);
+            if (key.equals("$or")){
+                if (condition.asArray().stream().noneMatch((c) -> matches(c.asDocument(), record))){
+                    return false;
+                }
+                continue;
+            }
+            BsonValue value = get(record, key);
+            if (!condition.isDocument()){
+                if (compareValues(condition, value) != 0){
+                    return false;
+                }
+                continue;
+            }
+            for(String operator : condition.asDocument().keySet()){
+                BsonValue argument = condition.asDocument().get(operator);
+                boolean meets;
+                if (operator.equals("$ne")){
+                    meets = compareValues(argument, value) != 0;
+                }else if (operator.equals("$type")){
+                    meets = argument.asArray().contains(new BsonString(type(value)));
+                }else{
+                    //only values of the same type are compared
+                    int result = value.isNull() || !type(value).equals(type(argument)) ? 0 : compareValues(value, argument);
+                    meets = operator.equals("$gt") ? result > 0 : result < 0;
+                }
+                if (!meets){
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static BsonDocument toBson(Document document){
+        return document.toBsonDocument(BsonDocument.class, MongoClientSettings.getDefaultCodecRegistry());
+    }
+
+}
@@ -18,12 +18,15 @@ import com.mongodb.bulk.BulkWriteError;
 import com.mongodb.bulk.BulkWriteResult;
 import com.mongodb.bulk.BulkWriteUpsert;
 import com.mongodb.client.DistinctIterable;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.internal.bulk.WriteRequest;
 import com.mongodb.client.result.DeleteResult;
 import com.mongodb.client.result.UpdateResult;
 
 import org.datakow.catalogs.metadata.jsonpatch.JsonPatchOperation;
 import org.datakow.core.components.CatalogIdentity;
 import org.datakow.core.components.CatalogIdentityCollection;
+import org.datakow.core.components.DateConversion;
 import org.datakow.core.components.DotNotationMap;
 import org.datakow.core.components.IteratorToInputStream;
 import org.datakow.core.components.DatakowObjectMapper;
@@ -34,6 +37,7 @@ import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import static org.junit.Assert.*;
 
@@ -42,7 +46,11 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.atLeast;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import org.skyscreamer.jsonassert.JSONAssert;
 import org.springframework.data.mongodb.BulkOperationException;
@@ -66,6 +74,7 @@ public class MongoDBMetadataCatalogDaoTest {
     private final String sort = "Property ASC";
     private final int limit = 1;
     private final List<String> projection = Arrays.asList("Property");
+    private final List<String> recordProjection = Arrays.asList("Storage", "Doc");
     private final String publisher = "bob";
     private final String realm = "secret";
     
@@ -90,6 +99,59 @@ public class MongoDBMetadataCatalogDaoTest {
         assertEquals(getMockRecord(0).toJson(), record.toJson());
     }
 
+    @Test
+    public void testGetByIdWithProjection() throws JsonProcessingException {
+        MetadataCatalogRecord record = dao.getById(collectionName, UUID.randomUUID().toString(), 
+                Arrays.asList("Storage.Record-Identifier", "Doc.property"), coherence);
+        assertTrue(record.isPartial());
+        assertEquals(getMockRecord(0).getId(), record.getId());
+        assertNull(record.getStorage().getPublisher());
+        assertEquals("value", record.getDocument().getProperty("property"));
+        assertFalse(record.getDocument().containsKey("someDate"));
+        
+        assertFalse(dao.getById(collectionName, UUID.randomUUID().toString(), null, coherence).isPartial());
+    }
+    
+    @Test
+    public void testDateConversion() throws JsonProcessingException {
+        assertEquals(DateConversion.EAGER, dao.getDateConversion());
+        dao.setDateConversion(DateConversion.LAZY);
+        assertEquals(DateConversion.LAZY, dao.getDateConversion());
+        MetadataCatalogRecord record = dao.getById(collectionName, UUID.randomUUID().toString(), 
+                Arrays.asList("Doc.property"), coherence);
+        assertEquals(DateConversion.LAZY, record.getDocument().getDateConversion());
+    }
+
+    @Test
+    public void testAggregateWithProjection() throws JsonProcessingException {
+        MongoRecordStream<MetadataCatalogRecord> records = dao.aggregate(
+                collectionName, 
+                Arrays.asList(new Document("$match", new Document())), 
+                Arrays.asList("Doc.property"), 
+                coherence);
+        int count = 0;
+        while(records.hasNext()){
+            MetadataCatalogRecord record = records.next();
+            assertTrue(record.isPartial());
+            assertNull(record.getStorage());
+            assertEquals("value", record.getDocument().getProperty("property"));
+            assertEquals(1, record.getDocument().size());
+            count++;
+        }
+        assertEquals(5, count);
+        
+        //without a projection the whole records are read
+        records = dao.aggregate(collectionName, Arrays.asList(new Document("$match", new Document())), null, coherence);
+        count = 0;
+        while(records.hasNext()){
+            MetadataCatalogRecord record = records.next();
+            assertFalse(record.isPartial());
+            assertEquals(getMockRecord(count).toJson(), record.toJson());
+            count++;
+        }
+        assertEquals(5, count);
+    }
+
     @Test
     public void testGetByQuery() throws JsonProcessingException {
         MongoRecordStream<MetadataCatalogRecord> records = dao.getByQuery(
@@ -97,7 +159,7 @@ public class MongoDBMetadataCatalogDaoTest {
                 fiql, 
                 sort, 
                 4, 
-                projection, 
+                recordProjection, 
                 MetadataDataCoherence.CONSISTENT);
         int count = 0;
         while(records.hasNext()){
@@ -107,6 +169,46 @@ public class MongoDBMetadataCatalogDaoTest {
         assertEquals(5, count);
     }
     
+    @Test
+    public void testGetPageByQuery() throws JsonProcessingException {
+        MongoRecordPage<MetadataCatalogRecord> page = dao.getPageByQuery(
+                collectionName, 
+                fiql, 
+                "Doc.property DESC", 
+                5, 
+                null, 
+                recordProjection, 
+                MetadataDataCoherence.CONSISTENT);
+        assertNull(page.getContinuationToken());
+        while(page.hasNext()){
+            assertEquals(getMockRecord(page.getCount()).toJson(), page.next().toJson());
+        }
+        assertEquals(5, page.getCount());
+        String token = page.getContinuationToken();
+        assertNotNull(token);
+        assertEquals(new Document("Doc.property", -1).append("_id", 1), ContinuationToken.parse(token).getSort());
+        
+        page = dao.getPageByQuery(collectionName, fiql, "Doc.property DESC", 5, token, null, MetadataDataCoherence.CONSISTENT);
+        while(page.hasNext()){
+            assertFalse(page.next().isPartial());
+        }
+        assertNotNull(page.getContinuationToken());
+        
+        //a page that is not full is the last page
+        page = dao.getPageByQuery(collectionName, fiql, null, 10, null, null, MetadataDataCoherence.CONSISTENT);
+        while(page.hasNext()){
+            page.next();
+        }
+        assertNull(page.getContinuationToken());
+        
+        try{
+            dao.getPageByQuery(collectionName, fiql, "Doc.property ASC", 5, token, null, MetadataDataCoherence.CONSISTENT);
+            fail("The token of a different sort was accepted");
+        }catch(IllegalArgumentException e){
+            assertTrue(e.getMessage().contains("different sort"));
+        }
+    }
+    
     @Test
     public void testGetByGeospatialQuery() throws JsonProcessingException {
         MongoRecordStream<MetadataCatalogRecord> records = dao.getByQuery(
@@ -114,7 +216,7 @@ public class MongoDBMetadataCatalogDaoTest {
                 "Doc.Something=near=(-92.212, 23.2214, 123456);Doc.somethingelse=intersects=\"POINT(-89.25 35.21)\"", 
                 sort, 
                 4, 
-                projection, 
+                recordProjection, 
                 MetadataDataCoherence.CONSISTENT);
         int count = 0;
         while(records.hasNext()){
@@ -131,7 +233,7 @@ public class MongoDBMetadataCatalogDaoTest {
                 "Doc.Something=within=\"POLYGON(-92.212 23.2214, -91.212 23.2214, -92.212 24.2214, -92.212 23.2214)\"", 
                 sort, 
                 4, 
-                projection, 
+                recordProjection, 
                 MetadataDataCoherence.CONSISTENT);
         int count = 0;
         while(records.hasNext()){
@@ -288,6 +390,74 @@ public class MongoDBMetadataCatalogDaoTest {
         assertEquals("created", results.get(4).getActionTaken());
     }
 
+    @Test
+    public void testCreateBulkPipelined() throws Exception {
+        dao.setBulkWritePipeline(new BulkWritePipeline(2, 1));
+        List<BulkResult> results;
+        List<String> records = new ArrayList<>();
+        for(int i = 0; i < 2500; i++){
+            records.add(getMockRecord(i % 5).toJson());
+        }
+        try (InputStream stream = IteratorToInputStream.jsonObjectIteratorToJsonArrayInputStream(records.iterator())) {
+            results = dao.createBulk(collectionName, publisher, realm, null, stream, null);
+        }
+        
+        assertEquals(2500, results.size());
+        for(int i = 0; i < 2500; i++){
+            assertEquals(i, results.get(i).getSourceIndex());
+            assertEquals(getMockRecord(i % 5).getStorage().getId(), results.get(i).getRecordIdentifier());
+            assertEquals("created", results.get(i).getActionTaken());
+        }
+    }
+
+    @Test
+    public void testUpdateBulkPipelinedIsOrdered() throws Exception {
+        dao.setBulkWritePipeline(new BulkWritePipeline(4, 2));
+        AtomicInteger writing = new AtomicInteger();
+        AtomicInteger mostWriting = new AtomicInteger();
+        when(harness.collection.bulkWrite(any())).thenAnswer(i -> {
+            mostWriting.accumulateAndGet(writing.incrementAndGet(), Math::max);
+            Thread.sleep(10);
+            writing.decrementAndGet();
+            return BulkWriteResult.acknowledged(WriteRequest.Type.UPDATE, 0, 0, new ArrayList<>(), new ArrayList<>());
+        });
+        List<BulkResult> results;
+        List<String> records = new ArrayList<>();
+        for(int i = 0; i < 5000; i++){
+            records.add(getMockRecord(i % 5).toJson());
+        }
+        try (InputStream stream = IteratorToInputStream.jsonObjectIteratorToJsonArrayInputStream(records.iterator())) {
+            results = dao.updateBulkByParameterizedFilter(collectionName, publisher, realm, groupFuncs, 
+                    "Storage.Record-Identifier=={Storage.Record-Identifier}", stream, null, true, false);
+        }
+        
+        assertEquals(5000, results.size());
+        for(int i = 0; i < 5000; i++){
+            assertEquals(i, results.get(i).getSourceIndex());
+        }
+        //the upserts are written in order one batch at a time
+        verify(harness.collection, atLeast(2)).bulkWrite(any());
+        verify(harness.collection, never()).bulkWrite(any(), any(BulkWriteOptions.class));
+        assertEquals(1, mostWriting.get());
+    }
+
+    @Test
+    public void testCreateBulkStreaming() throws Exception {
+        List<String> records = new ArrayList<>();
+        for(int i = 0; i < 5; i++){
+            records.add(getMockRecord(i).toJson());
+        }
+        List<Integer> indexes = new ArrayList<>();
+        try (InputStream stream = IteratorToInputStream.jsonObjectIteratorToJsonArrayInputStream(records.iterator())) {
+            dao.createBulk(collectionName, publisher, realm, null, stream, null, (result) -> {
+                assertEquals(getMockRecord(indexes.size()).getStorage().getId(), result.getRecordIdentifier());
+                indexes.add(result.getSourceIndex());
+            });
+        }
+        
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4), indexes);
+    }
+
     @Test
     public void testPatchByQuery() throws JsonProcessingException{
         List<JsonPatchOperation> operations = new ArrayList<>();
@@ -1,6 +1,7 @@
 package org.datakow.catalogs.metadata.database;
 
 import com.mongodb.DuplicateKeyException;
+import com.mongodb.MongoClientSettings;
 import com.mongodb.MongoBulkWriteException;
 import com.mongodb.MongoClientException;
 import com.mongodb.MongoExecutionTimeoutException;
@@ -18,6 +19,7 @@ import com.mongodb.client.DistinctIterable;
 import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.BulkWriteOptions;
 import com.mongodb.client.model.CountOptions;
 import com.mongodb.client.model.FindOneAndUpdateOptions;
 import com.mongodb.client.model.UpdateOptions;
@@ -49,6 +51,7 @@ import static org.mockito.Mockito.when;
 
 import org.bson.BsonString;
 import org.bson.Document;
+import org.bson.RawBsonDocument;
 import org.bson.conversions.Bson;
 import org.datakow.catalogs.metadata.BulkResult;
 import org.datakow.catalogs.metadata.MetadataCatalogRecord;
@@ -209,10 +212,34 @@ public class MongoDBTestHarness {
         when(collection.bulkWrite(any())).thenReturn(
             BulkWriteResult.acknowledged(WriteRequest.Type.INSERT, 1, 1, new ArrayList<>(), new ArrayList<>())
         );
+        when(collection.bulkWrite(any(), any(BulkWriteOptions.class))).thenReturn(
+            BulkWriteResult.acknowledged(WriteRequest.Type.INSERT, 1, 1, new ArrayList<>(), new ArrayList<>())
+        );
 
         FindIterable<Document> findIterable = (FindIterable<Document>)mock(FindIterable.class);
         when(findIterable.cursor()).thenAnswer(a -> getMockDBCursor(metadataCatalogRecords));
+        when(findIterable.first()).thenAnswer(a -> metadataCatalogRecords.get(0));
         when(collection.find(any(Bson.class))).thenReturn(findIterable);
+        
+        List<RawBsonDocument> rawRecords = metadataCatalogRecords
+            .stream()
+            .map(d -> new RawBsonDocument(d, MongoClientSettings.getDefaultCodecRegistry().get(Document.class)))
+            .collect(Collectors.toList());
+        MongoCollection<RawBsonDocument> rawCollection = (MongoCollection<RawBsonDocument>)mock(MongoCollection.class);
+        when(collection.withDocumentClass(RawBsonDocument.class)).thenReturn(rawCollection);
+        when(rawCollection.withReadPreference(any(ReadPreference.class))).thenAnswer(i -> rawCollection);
+        
+        FindIterable<RawBsonDocument> rawFindIterable = (FindIterable<RawBsonDocument>)mock(FindIterable.class);
+        when(rawFindIterable.projection(any())).thenReturn(rawFindIterable);
+        when(rawFindIterable.sort(any())).thenReturn(rawFindIterable);
+        when(rawFindIterable.limit(Mockito.anyInt())).thenReturn(rawFindIterable);
+        when(rawFindIterable.cursor()).thenAnswer(a -> getMockDBCursor(rawRecords));
+        when(rawFindIterable.first()).thenAnswer(a -> rawRecords.get(0));
+        when(rawCollection.find(any(Bson.class))).thenReturn(rawFindIterable);
+        
+        AggregateIterable<RawBsonDocument> rawAggregateIterable = (AggregateIterable<RawBsonDocument>)mock(AggregateIterable.class);
+        when(rawAggregateIterable.cursor()).thenAnswer(i -> getMockDBCursor(rawRecords));
+        when(rawCollection.aggregate(Mockito.anyListOf(Document.class))).thenReturn(rawAggregateIterable);
 
         MappingMongoConverter converter = new MappingMongoConverter(dbRefResolver, mappingContextMock);
         converter.setCustomConversions(new MongoMetadataCatalogClientConfiguration().customConversions());
@@ -0,0 +1,59 @@
+package org.datakow.catalogs.metadata.database;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.MongoClientSettings;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.datakow.catalogs.metadata.MetadataCatalogRecord;
+import org.datakow.catalogs.metadata.database.converters.MetadataCatalogRecordReadConverter;
+import org.datakow.catalogs.metadata.database.converters.MetadataCatalogRecordWriteConverter;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+/**
+ *
+ * @author kevin.off
+ */
+public class RawRecordStreamTest {
+    
+    @Test
+    public void testWriteRecordMatchesConvertedRecord() throws IOException {
+        MongoDBTestHarness harness = new MongoDBTestHarness();
+        MetadataCatalogRecord record = harness.getMockRecord(0);
+        record.getDocument().setProperty("count", 12);
+        record.getDocument().setProperty("size", 12.5);
+        record.getDocument().setProperty("big", 12345678901L);
+        record.getDocument().setProperty("active", true);
+        record.getDocument().setProperty("nested.list", Arrays.asList("a", "b"));
+        
+        Document stored = new MetadataCatalogRecordWriteConverter().convert(record);
+        RawBsonDocument raw = new RawBsonDocument(stored, MongoClientSettings.getDefaultCodecRegistry().get(Document.class));
+        
+        StringWriter json = new StringWriter();
+        try(JsonGenerator generator = new JsonFactory().createGenerator(json)){
+            RawRecordStream.writeRecord(raw, generator);
+        }
+        
+        String expected = new MetadataCatalogRecordReadConverter().convert(stored).toJson();
+        ObjectMapper mapper = new ObjectMapper();
+        assertEquals(mapper.readTree(expected), mapper.readTree(json.toString()));
+    }
+    
+    @Test
+    public void testEmptyPropertiesAreLeftOut() throws IOException {
+        Document stored = new Document("_id", "1").append("Storage", new Document("Record-Identifier", "1")).append("Doc", new Document());
+        RawBsonDocument raw = new RawBsonDocument(stored, MongoClientSettings.getDefaultCodecRegistry().get(Document.class));
+        
+        StringWriter json = new StringWriter();
+        try(JsonGenerator generator = new JsonFactory().createGenerator(json)){
+            RawRecordStream.writeRecord(raw, generator);
+        }
+        assertEquals("{\"Storage\":{\"Record-Identifier\":\"1\"}}", json.toString());
+    }
+    
+}
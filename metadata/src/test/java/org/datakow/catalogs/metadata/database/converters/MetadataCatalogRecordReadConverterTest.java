@@ -1,13 +1,20 @@
 package org.datakow.catalogs.metadata.database.converters;
 
 import com.mongodb.DBObject;
+import com.mongodb.MongoClientSettings;
 
 import org.datakow.core.components.CatalogIdentity;
 import org.datakow.core.components.CatalogIdentityCollection;
+import org.datakow.core.components.DateConversion;
 import org.datakow.core.components.DotNotationMap;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
 
 import org.bson.Document;
+import org.bson.RawBsonDocument;
 import org.datakow.catalogs.metadata.MetadataCatalogRecord;
 import org.datakow.catalogs.metadata.MetadataCatalogRecordStorage;
 import org.junit.Test;
@@ -33,6 +40,54 @@ public class MetadataCatalogRecordReadConverterTest {
         
     }
     
+    @Test
+    public void testLazyDateConversion() {
+        
+        Document stored = new MetadataCatalogRecordWriteConverter().convert(getMockRecord());
+        stored.put("Doc", new Document("time", "2017-04-24T12:00:00Z").append("nested", new Document("time", "2017-04-24T12:00:00Z")));
+        
+        MetadataCatalogRecord record = new MetadataCatalogRecordReadConverter().convert(stored);
+        assertTrue(record.getDocument().get("time") instanceof Date);
+        assertTrue(record.getDocument().get("nested.time") instanceof Date);
+        
+        //the strings are passed through as they are stored until they are read as dates
+        MetadataCatalogRecordReadConverter lazy = new MetadataCatalogRecordReadConverter(DateConversion.LAZY);
+        for(MetadataCatalogRecord read : Arrays.asList(lazy.convert(stored), 
+                lazy.convert(new RawBsonDocument(stored, MongoClientSettings.getDefaultCodecRegistry().get(Document.class)), Arrays.asList("Doc")))){
+            assertEquals("2017-04-24T12:00:00Z", read.getDocument().get("time"));
+            assertEquals("2017-04-24T12:00:00Z", read.getDocument().get("nested.time"));
+            assertEquals(record.getDocument().get("time"), read.getDocument().getDate("nested.time"));
+        }
+    }
+    
+    @Test
+    public void testProjectedConversion() {
+        
+        Document stored = new MetadataCatalogRecordWriteConverter().convert(getMockRecord());
+        stored.put("Doc", new Document("property", "value")
+                .append("items", Arrays.asList(new Document("name", "a").append("size", 1), new Document("size", 2), "scalar"))
+                .append("nested", new Document("kept", 1).append("skipped", 2)));
+        RawBsonDocument raw = new RawBsonDocument(stored, MongoClientSettings.getDefaultCodecRegistry().get(Document.class));
+        
+        MetadataCatalogRecordReadConverter read = new MetadataCatalogRecordReadConverter();
+        MetadataCatalogRecord record = read.convert(raw, Arrays.asList("Doc.items.name", "Doc.nested.kept", "Doc.nested", "Doc.missing"));
+        assertTrue(record.isPartial());
+        assertNull(record.getStorage());
+        assertFalse(record.getDocument().containsKey("property"));
+        //documents in the array keep only the projected property and other values are left out
+        List<Map> items = (List<Map>)record.getDocument().get("items");
+        assertEquals(2, items.size());
+        assertEquals("a", items.get(0).get("name"));
+        assertFalse(items.get(0).containsKey("size"));
+        assertTrue(items.get(1).isEmpty());
+        //a parent includes the whole value
+        assertEquals(2, ((Map)record.getDocument().get("nested")).get("skipped"));
+        
+        record = read.convert(raw, (List<String>)null);
+        assertFalse(record.isPartial());
+        assertEquals("value", record.getDocument().get("property"));
+    }
+    
     private MetadataCatalogRecord getMockRecord(){
         MetadataCatalogRecord record = new MetadataCatalogRecord();
         MetadataCatalogRecordStorage storage = new MetadataCatalogRecordStorage();
@@ -68,4 +68,17 @@ public class MetadataCatalogWebserviceRequestTest {
         
     }
     
+    @Test
+    public void testContinuationToken() {
+        
+        MetadataCatalogWebserviceRequest request = new MetadataCatalogWebserviceRequest()
+                .withLimit(10)
+                .withSort("Doc.someProp DESC")
+                .withContinuationToken("DAAAAAJfaWQAAgAAAGIAAA");
+        assertEquals("DAAAAAJfaWQAAgAAAGIAAA", request.getQueryParams().get("continuationToken"));
+        
+        request = new MetadataCatalogWebserviceRequest().withContinuationToken(null);
+        assertTrue(request.getQueryParams().isEmpty());
+    }
+    
 }
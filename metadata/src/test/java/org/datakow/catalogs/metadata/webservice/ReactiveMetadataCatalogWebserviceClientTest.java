@@ -0,0 +1,194 @@
+package org.datakow.catalogs.metadata.webservice;
+
+import org.datakow.catalogs.metadata.database.MetadataDataCoherence;
+import org.datakow.catalogs.metadata.webservice.configuration.ReactiveMetadataCatalogWebServiceClientConfiguration;
+import org.datakow.core.components.CatalogIdentity;
+import org.datakow.core.components.CatalogIdentityCollection;
+import org.datakow.core.components.DotNotationMap;
+import org.datakow.core.components.DatakowObjectMapper;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import org.datakow.catalogs.metadata.MetadataCatalogRecord;
+import org.datakow.catalogs.metadata.MetadataCatalogRecordStorage;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+import org.junit.Before;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeStrategies;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+/**
+ *
+ * @author kevin.off
+ */
+public class ReactiveMetadataCatalogWebserviceClientTest {
+
+    private final ExchangeStrategies strategies = ReactiveMetadataCatalogWebServiceClientConfiguration.exchangeStrategies();
+    private final List<ClientRequest> requests = new ArrayList<>();
+    private ClientResponse response;
+    ReactiveMetadataCatalogWebserviceClient client;
+
+    public long dateEpoch = 1499102360000L;
+
+    String catalogIdentifier = "DATAKOW_CATALOG";
+    String fiql = "Doc.Property==Value;Doc.other=gt=\"My Name\"";
+    String sort = "Doc.Property DESC";
+    int limit = 10;
+    String distinct = "Doc.Property";
+    MetadataDataCoherence coherence = MetadataDataCoherence.CONSISTENT;
+    String recordIdentifier = UUID.randomUUID().toString();
+
+    public ReactiveMetadataCatalogWebserviceClientTest() {
+
+    }
+
+    @Before
+    public void setUp(){
+        WebClient webClient = WebClient.builder()
+                .exchangeStrategies(strategies)
+                .exchangeFunction(request -> {
+                    requests.add(request);
+                    return Mono.just(response);
+                })
+                .build();
+        client = new ReactiveMetadataCatalogWebserviceClient(webClient, "http://datakow.com", "datakow", "datakow");
+    }
+
+    private void respond(HttpStatus status, String json){
+        response = ClientResponse.create(status, strategies)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .body(json)
+                .build();
+    }
+
+    @Test
+    public void testGetById() throws Exception {
+        respond(HttpStatus.OK, getMockRecord().toJson());
+
+        MetadataCatalogRecord record = client.getById(catalogIdentifier, recordIdentifier, Arrays.asList("Doc.stuff"), coherence).block();
+
+        assertEquals(getMockRecord().toJson(), record.toJson());
+        ClientRequest request = requests.get(0);
+        assertEquals(HttpMethod.GET, request.method());
+        assertEquals(MetadataCatalogWebserviceRequest.builder()
+                .withDataCoherence(coherence)
+                .withProjectionProperties("Doc.stuff")
+                .toUri("http://datakow.com/catalogs/" + catalogIdentifier + "/records/" + recordIdentifier), request.url());
+        assertNotNull(request.headers().getFirst("X-Correlation-ID"));
+        assertNotNull(request.headers().getFirst("X-Request-ID"));
+        assertTrue(request.headers().getFirst(HttpHeaders.AUTHORIZATION).startsWith("Basic "));
+    }
+
+    @Test
+    public void testGetByIdNotFound() throws Exception {
+        respond(HttpStatus.NOT_FOUND, "");
+
+        assertNull(client.getById(catalogIdentifier, recordIdentifier, null, coherence).block());
+    }
+
+    @Test
+    public void testGetByQueryAndStream() throws Exception {
+        respond(HttpStatus.OK, DatakowObjectMapper.getDatakowDateAwareObjectMapper().writeValueAsString(Arrays.asList(getMockRecord(), getMockRecord())));
+        MetadataCatalogWebserviceRequest request = MetadataCatalogWebserviceRequest.builder()
+                .withQuery(fiql)
+                .withSort(sort)
+                .withLimit(limit);
+
+        List<MetadataCatalogRecord> records = client.getByQueryAndStream(catalogIdentifier, request).collectList().block();
+
+        assertEquals(2, records.size());
+        assertEquals(getMockRecord().toJson(), records.get(1).toJson());
+        assertEquals(request.toUri("http://datakow.com/catalogs/" + catalogIdentifier + "/records"), requests.get(0).url());
+    }
+
+    @Test
+    public void testDistinct() throws Exception {
+        respond(HttpStatus.OK, "[\"abc\",123]");
+
+        assertEquals(Arrays.asList("abc", 123), client.distinct(catalogIdentifier, distinct, fiql, coherence).collectList().block());
+    }
+
+    @Test
+    public void testCount() throws Exception {
+        respond(HttpStatus.OK, "{\"Num-Records\":2}");
+
+        assertEquals(Integer.valueOf(2), client.count(catalogIdentifier, fiql, limit, coherence).block());
+    }
+
+    @Test
+    public void testCreate() throws Exception {
+        response = ClientResponse.create(HttpStatus.CREATED, strategies)
+                .header(HttpHeaders.LOCATION, "catalogs/" + catalogIdentifier + "/records/" + recordIdentifier)
+                .build();
+
+        CatalogIdentity identity = client.create(
+                catalogIdentifier,
+                recordIdentifier,
+                "realm",
+                Arrays.asList("One", "two"),
+                getMockRecord().getDocument(),
+                getMockRecord().getStorage().getObjectIdentities()).block();
+
+        assertEquals(new CatalogIdentity(catalogIdentifier, recordIdentifier), identity);
+        ClientRequest request = requests.get(0);
+        assertEquals(HttpMethod.POST, request.method());
+        assertEquals("realm", request.headers().getFirst("Realm"));
+        assertEquals("One,two", request.headers().getFirst("Tags"));
+        assertEquals(recordIdentifier, request.headers().getFirst("Record-Identifier"));
+    }
+
+    @Test
+    public void testDeleteById() throws Exception {
+        respond(HttpStatus.OK, "");
+        assertTrue(client.deleteById(catalogIdentifier, recordIdentifier).block());
+
+        respond(HttpStatus.NOT_FOUND, "");
+        assertFalse(client.deleteById(catalogIdentifier, recordIdentifier).block());
+    }
+
+    @Test
+    public void testServerError() throws Exception {
+        respond(HttpStatus.INTERNAL_SERVER_ERROR, "{}");
+
+        try{
+            client.count(catalogIdentifier, fiql, limit, coherence).block();
+            fail("A 500 should be an error");
+        }catch(WebClientResponseException ex){
+            assertEquals(500, ex.getRawStatusCode());
+        }
+    }
+
+    private MetadataCatalogRecord getMockRecord(){
+        MetadataCatalogRecord record = new MetadataCatalogRecord();
+        MetadataCatalogRecordStorage storage = new MetadataCatalogRecordStorage();
+        DotNotationMap doc = new DotNotationMap();
+
+        storage.setId(recordIdentifier);
+        storage.setObjectIdentities(new CatalogIdentityCollection(new CatalogIdentity("DATAKOW_OBJECTS", "1234abc")));
+        storage.setPublisher("datakow");
+        storage.setRealm("public");
+        storage.setTags(Arrays.asList("tag1", "tag2"));
+        storage.setPublishDate(new Date(dateEpoch));
+        Calendar calendar = Calendar.getInstance();
+        calendar.set(2017, 3, 24, 12, 0, 0);
+        doc.setProperty("property1", "value1");
+        doc.setProperty("property2", 2);
+        doc.setProperty("DateProperty", calendar.getTime());
+        record.setStorage(storage);
+        record.setDocument(doc);
+        return record;
+    }
+
+}
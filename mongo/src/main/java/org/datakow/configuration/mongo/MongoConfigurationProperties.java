@@ -37,6 +37,14 @@ public class MongoConfigurationProperties {
     private String writeConcern = "MAJORITY";
     
     private WriteConcern mongoWriteConcern = WriteConcern.MAJORITY;
+    
+    private int bulkWritesInFlight = 0;
+    
+    private long bulkBatchBytes = 16 * 1024 * 1024;
+    
+    private long bulkBatchLatencyMillis = 1000;
+    
+    private boolean lazyDateConversion = false;
 
     /**
      * Gets name of the database to use
@@ -247,6 +255,87 @@ public class MongoConfigurationProperties {
         return mongoWriteConcern;
     }
     
+    /**
+     * Gets the number of bulk write batches that can be sent at the same time
+     * while the next batches are read. 0 writes the batches one at a time.
+     * 
+     * @return The number of bulk writes in flight
+     */
+    public int getBulkWritesInFlight(){
+        return bulkWritesInFlight;
+    }
+    
+    /**
+     * Sets the number of bulk write batches that can be sent at the same time
+     * while the next batches are read. 0 writes the batches one at a time.
+     * 
+     * @param bulkWritesInFlight The number of bulk writes in flight
+     */
+    public void setBulkWritesInFlight(int bulkWritesInFlight){
+        this.bulkWritesInFlight = bulkWritesInFlight;
+    }
+    
+    /**
+     * Gets the number of encoded BSON bytes that a bulk write batch is filled to
+     * 
+     * @return The byte budget of a batch
+     */
+    public long getBulkBatchBytes(){
+        return bulkBatchBytes;
+    }
+    
+    /**
+     * Sets the number of encoded BSON bytes that a bulk write batch is filled to
+     * 
+     * @param bulkBatchBytes The byte budget of a batch
+     */
+    public void setBulkBatchBytes(long bulkBatchBytes){
+        this.bulkBatchBytes = bulkBatchBytes;
+    }
+    
+    /**
+     * Gets the time that a bulk write batch should take.
+     * The number of records in a batch is tuned to meet it.
+     * 
+     * @return The target latency in milliseconds
+     */
+    public long getBulkBatchLatencyMillis(){
+        return bulkBatchLatencyMillis;
+    }
+    
+    /**
+     * Sets the time that a bulk write batch should take.
+     * The number of records in a batch is tuned to meet it.
+     * 
+     * @param bulkBatchLatencyMillis The target latency in milliseconds
+     */
+    public void setBulkBatchLatencyMillis(long bulkBatchLatencyMillis){
+        this.bulkBatchLatencyMillis = bulkBatchLatencyMillis;
+    }
+    
+    /**
+     * Determines if the String values of the records that are read are kept
+     * as they are stored instead of being checked for dates. They are only
+     * converted when they are read as a date.
+     * 
+     * @return true if dates are converted lazily
+     */
+    public boolean isLazyDateConversion(){
+        return lazyDateConversion;
+    }
+    
+    /**
+     * Sets whether the String values of the records that are read are kept
+     * as they are stored instead of being checked for dates. Only turn it on
+     * for services that pass the records they read through, like a web
+     * service that returns them as JSON.
+     * 
+     * @param lazyDateConversion true to convert dates lazily
+     */
+    public void setLazyDateConversion(boolean lazyDateConversion){
+        this.lazyDateConversion = lazyDateConversion;
+    }
+    
     /**
      * Looks up the read preference based on the string name.
      * <p>
@@ -18,6 +18,7 @@ import org.datakow.core.components.CatalogIdentity;
 import org.datakow.core.components.DotNotationList;
 import org.datakow.core.components.DotNotationMap;
 import org.datakow.fiql.MongoFiqlParser;
+import org.datakow.fiql.MongoQueryCache;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
@@ -58,6 +59,7 @@ public class MongoDBObjectCatalogDao {
     String bucketName;
     MongoConfigurationProperties props;
     MongoDatabaseFactory factory;
+    MongoQueryCache queryCache = new MongoQueryCache();
     
     
     /**
@@ -170,9 +172,7 @@ public class MongoDBObjectCatalogDao {
         
         Document criteriaDBObject;
         if (StringUtils.hasText(fiql)){
-            MongoFiqlParser parser = new MongoFiqlParser();
-            Criteria criteria = parser.parse(fiql, ObjectCatalogProperty.IDENTITIES_PATH);
-            criteriaDBObject = criteria.getCriteriaObject();
+            criteriaDBObject = queryCache.get(fiql, ObjectCatalogProperty.IDENTITIES_PATH, (criteria) -> criteria);
         }else{
             criteriaDBObject = new Document();
         }
@@ -342,10 +342,12 @@ public class MongoDBObjectCatalogDao {
     }
     
     protected Document getMappedQuery(String fiql){
-        Query query = makeQuery(fiql);
-        QueryMapper mapper = new QueryMapper(mongoTemplate.getConverter());
-        Document mappedQuery = mapper.getMappedObject(query.getQueryObject(), Optional.empty());
-        return mappedQuery;
+        if (!StringUtils.hasText(fiql)){
+            return new Document();
+        }
+        //the prefix is part of the key so these never collide with the unmapped getByQuery filters
+        return queryCache.get(fiql, ObjectCatalogProperty.IDENTITIES_PATH + "#mapped", (criteria) -> 
+                new QueryMapper(mongoTemplate.getConverter()).getMappedObject(criteria, Optional.empty()));
     }
     
     protected Query makeQuery(String fiql){
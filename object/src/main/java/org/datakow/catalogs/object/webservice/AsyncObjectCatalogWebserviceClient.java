@@ -0,0 +1,190 @@
+package org.datakow.catalogs.object.webservice;
+
+import org.datakow.catalogs.object.ObjectCatalogRecord;
+import org.datakow.catalogs.object.ObjectCatalogRecordInput;
+import org.datakow.catalogs.object.database.ObjectDataCoherence;
+import org.datakow.core.components.CatalogIdentity;
+import org.datakow.core.components.ClientExecutors;
+import org.datakow.core.components.DotNotationMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Runs the calls of an {@link ObjectCatalogWebserviceClient} on an executor
+ * and returns CompletableFutures instead of blocking the caller.
+ * <p>
+ * Each method behaves exactly like the method of the same name on the
+ * blocking client. The exceptions it would have thrown complete the future
+ * instead. The correlationId of the calling thread is sent with the request.
+ *
+ * @author kevin.off
+ */
+public class AsyncObjectCatalogWebserviceClient implements AutoCloseable {
+
+    private final ObjectCatalogWebserviceClient client;
+    private final ExecutorService executor;
+
+    /**
+     * Creates the client. The executor is shut down when the client is closed.
+     *
+     * @param client The blocking client that makes the requests
+     * @param executor The executor to run the requests on
+     */
+    public AsyncObjectCatalogWebserviceClient(ObjectCatalogWebserviceClient client, ExecutorService executor){
+        this.client = client;
+        this.executor = executor;
+    }
+
+    /**
+     * Gets the blocking client that makes the requests
+     *
+     * @return The blocking client
+     */
+    public ObjectCatalogWebserviceClient getClient(){
+        return client;
+    }
+
+    /**
+     * Gets an object by its ID
+     *
+     * @param catalogName The name of the object catalog to retrieve a record from
+     * @param id The ID of the record
+     * @param coherence The desired data coherence
+     * @return The record that was retrieved or null
+     * @see ObjectCatalogWebserviceClient#getById
+     */
+    public CompletableFuture<ObjectCatalogRecord> getById(String catalogName, String id, ObjectDataCoherence coherence){
+        return call(() -> client.getById(catalogName, id, coherence));
+    }
+
+    /**
+     * Deletes a record from the object catalog
+     *
+     * @param catalogName The name of the catalog to delete a record from
+     * @param id The id of the record
+     * @return A future that completes when the record is deleted
+     * @see ObjectCatalogWebserviceClient#delete
+     */
+    public CompletableFuture<Void> delete(String catalogName, String id){
+        return call(() -> {
+            client.delete(catalogName, id);
+            return null;
+        });
+    }
+
+    /**
+     * Deletes the records that match a query
+     *
+     * @param catalogName The name of the catalog to delete records from
+     * @param fiql The query
+     * @param limit The most records to delete
+     * @return The number of records deleted
+     * @see ObjectCatalogWebserviceClient#deleteByQuery
+     */
+    public CompletableFuture<Integer> deleteByQuery(String catalogName, String fiql, int limit){
+        return call(() -> client.deleteByQuery(catalogName, fiql, limit));
+    }
+
+    /**
+     * Gets a list of Object ID's based on a query
+     *
+     * @param catalogName The name of the catalog
+     * @param fiql the fiql query
+     * @param collectionFormat The format you want your collection to be represented
+     * @param coherence The desired data coherence
+     * @return A list of the IDS
+     * @see ObjectCatalogWebserviceClient#getByQuery(String, String, String, ObjectDataCoherence)
+     */
+    public CompletableFuture<List<String>> getByQuery(
+            String catalogName, String fiql, String collectionFormat, ObjectDataCoherence coherence){
+        return call(() -> client.getByQuery(catalogName, fiql, collectionFormat, coherence));
+    }
+
+    /**
+     * Gets a list of Object ID's based on a query
+     *
+     * @param catalogName The name of the catalog
+     * @param fiql the fiql query
+     * @param sortString Formatted sort string PropName DESC,PropName ASC
+     * @param limit The maximum number of record ids
+     * @param collectionFormat The format you want your collection to be represented
+     * @param coherence The desired data coherence
+     * @return A list of the IDS
+     * @see ObjectCatalogWebserviceClient#getByQuery(String, String, String, int, String, ObjectDataCoherence)
+     */
+    public CompletableFuture<List<String>> getByQuery(
+            String catalogName, String fiql, String sortString, int limit,
+            String collectionFormat, ObjectDataCoherence coherence){
+        return call(() -> client.getByQuery(catalogName, fiql, sortString, limit, collectionFormat, coherence));
+    }
+
+    /**
+     * Creates a new Object in the object catalog.
+     *
+     * @param catalogName The name of the catalog to create the object in
+     * @param object The object to create
+     * @return An object describing the result of the operation
+     * @see ObjectCatalogWebserviceClient#create(String, ObjectCatalogRecordInput)
+     */
+    public CompletableFuture<CatalogIdentity> create(String catalogName, ObjectCatalogRecordInput object){
+        return call(() -> client.create(catalogName, object));
+    }
+
+    /**
+     * Creates a new Object in the object catalog.
+     *
+     * @param catalogName The name of the catalog to create the object in
+     * @param object The object to create
+     * @param contentMD5 The MD5 checksum of the object
+     * @return An object describing the result of the operation
+     * @see ObjectCatalogWebserviceClient#create(String, ObjectCatalogRecordInput, String)
+     */
+    public CompletableFuture<CatalogIdentity> create(String catalogName, ObjectCatalogRecordInput object, String contentMD5){
+        return call(() -> client.create(catalogName, object, contentMD5));
+    }
+
+    /**
+     * Creates a soft copy of an object by adding a new identity to the source record.
+     *
+     * @param catalogIdentifier The name of the catalog to add the copy to
+     * @param sourceRecordIdentifier The source record to add the copy to
+     * @param object The copy to add
+     * @param contentMD5 The MD5 checksum of the copy
+     * @param realm The security realm to use
+     * @return An object describing the result of the operation
+     * @see ObjectCatalogWebserviceClient#copy
+     */
+    public CompletableFuture<CatalogIdentity> copy(String catalogIdentifier, String sourceRecordIdentifier,
+            ObjectCatalogRecordInput object, String contentMD5, String realm){
+        return call(() -> client.copy(catalogIdentifier, sourceRecordIdentifier, object, contentMD5, realm));
+    }
+
+    /**
+     * Applies a merge patch to the records that match a query
+     *
+     * @param catalogIdentifier The name of the catalog
+     * @param fiql The query
+     * @param mergePatch The properties to merge
+     * @param updateMulti Whether to patch every matching record or only the first
+     * @return The number of records patched
+     * @see ObjectCatalogWebserviceClient#mergePatchByQuery
+     */
+    public CompletableFuture<Integer> mergePatchByQuery(String catalogIdentifier, String fiql, DotNotationMap mergePatch, boolean updateMulti){
+        return call(() -> client.mergePatchByQuery(catalogIdentifier, fiql, mergePatch, updateMulti));
+    }
+
+    /**
+     * Shuts down the executor. Calls that were already started are finished.
+     */
+    @Override
+    public void close(){
+        executor.shutdown();
+    }
+
+    private <T> CompletableFuture<T> call(Callable<T> call){
+        return ClientExecutors.supplyAsyncWithCorrelationId(call, executor);
+    }
+
+}
@@ -1,8 +1,12 @@
 package org.datakow.catalogs.object.webservice.configuration;
 
-
+import org.datakow.catalogs.object.webservice.AsyncObjectCatalogWebserviceClient;
 import org.datakow.catalogs.object.webservice.ObjectCatalogWebserviceClient;
+import org.datakow.core.components.ClientExecutors;
 import java.nio.charset.Charset;
+import org.apache.http.client.HttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
@@ -38,6 +42,25 @@ public class ObjectCatalogWebServiceClientConfiguration {
             props.getWebservicePassword());
     }
     
+    /**
+     * The bean that runs the calls of the object catalog client in the background
+     * and returns CompletableFutures.
+     * <p>
+     * Each call runs on its own virtual thread when the JDK supports them. Otherwise
+     * objectCatalogWebserviceClientConcurrency threads are used.
+     * 
+     * @return The bean
+     */
+    @Bean
+    public AsyncObjectCatalogWebserviceClient asyncObjectCatalogWebserviceClient(){
+        return new AsyncObjectCatalogWebserviceClient(
+            objectCatalogWebserviceClient(), 
+            ClientExecutors.newExecutor(
+                    "object-catalog-client", 
+                    props.getObjectCatalogWebserviceClientConcurrency(), 
+                    props.isObjectCatalogWebserviceClientVirtualThreads()));
+    }
+    
     /**
      * The underlying RestTemplate bean used to make requests
      * 
@@ -46,7 +69,12 @@ public class ObjectCatalogWebServiceClientConfiguration {
     @Bean
     public RestTemplate objectCatalogRestTemplate(){
         StringHttpMessageConverter converter = new StringHttpMessageConverter(Charset.forName("UTF-8"));
-        HttpComponentsClientHttpRequestFactory factory = new HttpComponentsClientHttpRequestFactory();
+        //without a pool the default HttpClient only allows a few connections to the web service
+        PoolingHttpClientConnectionManager cm = new PoolingHttpClientConnectionManager();
+        cm.setMaxTotal(props.getObjectCatalogWebserviceClientConcurrency());
+        cm.setDefaultMaxPerRoute(props.getObjectCatalogWebserviceClientConcurrency());
+        HttpClient client = HttpClients.custom().setConnectionManager(cm).build();
+        HttpComponentsClientHttpRequestFactory factory = new HttpComponentsClientHttpRequestFactory(client);
         factory.setConnectTimeout(props.getObjectCatalogWebserviceClientConnectTimeout());
         factory.setReadTimeout(props.getObjectCatalogWebserviceClientReadTimeout());
         factory.setBufferRequestBody(false);
@@ -24,6 +24,8 @@ public class ObjectCatalogWebServiceClientConfigurationProperties {
     private boolean catalogRegistryIncludeIndexes;
     private int metadataCatalogWebserviceClientMaxTotalConnections = -1;
     private int metadataCatalogWebserviceClientMaxTotalConnectionsPerRoute = -1;
+    private int objectCatalogWebserviceClientConcurrency = 50;
+    private boolean objectCatalogWebserviceClientVirtualThreads = true;
     
     /**
      * Gets the Hostname for the object catalog web service.
@@ -284,5 +286,44 @@ public class ObjectCatalogWebServiceClientConfigurationProperties {
     public void setMetadataCatalogWebserviceClientMaxTotalConnectionsPerRoute(int metadataCatalogWebserviceClientMaxTotalConnectionsPerRoute) {
         this.metadataCatalogWebserviceClientMaxTotalConnectionsPerRoute = metadataCatalogWebserviceClientMaxTotalConnectionsPerRoute;
     }
+
+    /**
+     * Gets the number of requests the client is expected to make at the same time.
+     * <p>
+     * It sizes the connection pool and is the number of threads of the async
+     * client when virtual threads are not used.
+     * 
+     * @return The expected number of concurrent requests
+     */
+    public int getObjectCatalogWebserviceClientConcurrency() {
+        return objectCatalogWebserviceClientConcurrency;
+    }
+
+    /**
+     * Sets the number of requests the client is expected to make at the same time.
+     * 
+     * @param objectCatalogWebserviceClientConcurrency The expected number of concurrent requests
+     */
+    public void setObjectCatalogWebserviceClientConcurrency(int objectCatalogWebserviceClientConcurrency) {
+        this.objectCatalogWebserviceClientConcurrency = objectCatalogWebserviceClientConcurrency;
+    }
+
+    /**
+     * Gets whether the async client runs each request on a virtual thread when the JDK supports them.
+     * 
+     * @return true to use virtual threads
+     */
+    public boolean isObjectCatalogWebserviceClientVirtualThreads() {
+        return objectCatalogWebserviceClientVirtualThreads;
+    }
+
+    /**
+     * Sets whether the async client runs each request on a virtual thread when the JDK supports them.
+     * 
+     * @param objectCatalogWebserviceClientVirtualThreads true to use virtual threads
+     */
+    public void setObjectCatalogWebserviceClientVirtualThreads(boolean objectCatalogWebserviceClientVirtualThreads) {
+        this.objectCatalogWebserviceClientVirtualThreads = objectCatalogWebserviceClientVirtualThreads;
+    }
     
 }
@@ -0,0 +1,171 @@
+package org.datakow.catalogs.subscription;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A set of closed intervals that can be searched for every interval that
+ * overlaps a given range in O(log n + k) time.
+ * <p>
+ * The intervals are kept sorted by their low end in an array that is treated
+ * as a balanced binary tree where every node knows the highest end of its
+ * subtree. Adding or removing an interval discards the tree and it is rebuilt
+ * by the next search, so a burst of changes only pays for one rebuild.
+ * <p>
+ * Searches may run on many threads at the same time but changes must not run
+ * at the same time as searches.
+ *
+ * @author kevin.off
+ * @param <V> The type of value stored with each interval
+ */
+class IntervalTree<V> {
+
+    private final List<Interval<V>> intervals = new ArrayList<>();
+    private volatile Tree<V> tree;
+
+    /**
+     * Adds an interval
+     *
+     * @param low The low end of the interval
+     * @param high The high end of the interval
+     * @param value The value to return when the interval is found
+     */
+    void add(double low, double high, V value){
+        intervals.add(new Interval<>(low, high, value));
+        tree = null;
+    }
+
+    /**
+     * Removes an interval
+     *
+     * @param low The low end of the interval
+     * @param high The high end of the interval
+     * @param value The value stored with the interval
+     * @return true if the interval was found and removed
+     */
+    boolean remove(double low, double high, V value){
+        for(int i = 0; i < intervals.size(); i++){
+            Interval<V> interval = intervals.get(i);
+            if (Double.compare(interval.low, low) == 0 && Double.compare(interval.high, high) == 0 && interval.value.equals(value)){
+                intervals.remove(i);
+                tree = null;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the number of intervals
+     *
+     * @return The number of intervals
+     */
+    int size(){
+        return intervals.size();
+    }
+
+    /**
+     * Determines if there are no intervals
+     *
+     * @return true if there are no intervals
+     */
+    boolean isEmpty(){
+        return intervals.isEmpty();
+    }
+
+    /**
+     * Adds the value of every interval that overlaps the range to the results.
+     *
+     * @param low The low end of the range
+     * @param high The high end of the range
+     * @param results The collection to add the values to
+     */
+    void search(double low, double high, Collection<? super V> results){
+        Tree<V> current = tree;
+        if (current == null){
+            current = build();
+        }
+        current.search(0, current.intervals.length - 1, low, high, results);
+    }
+
+    /**
+     * Adds the value of every interval that contains the point to the results.
+     *
+     * @param point The point
+     * @param results The collection to add the values to
+     */
+    void stab(double point, Collection<? super V> results){
+        search(point, point, results);
+    }
+
+    private synchronized Tree<V> build(){
+        Tree<V> current = tree;
+        if (current == null){
+            current = new Tree<>(intervals);
+            tree = current;
+        }
+        return current;
+    }
+
+    private static final class Interval<V> {
+        final double low;
+        final double high;
+        final V value;
+
+        Interval(double low, double high, V value){
+            this.low = low;
+            this.high = high;
+            this.value = value;
+        }
+    }
+
+    /**
+     * An immutable snapshot of the intervals sorted by their low end.
+     * The middle of every range of the array is the root of that range and
+     * maxHigh holds the highest end found in the range.
+     */
+    private static final class Tree<V> {
+        final Interval<V>[] intervals;
+        final double[] maxHigh;
+
+        Tree(List<Interval<V>> source){
+            intervals = source.toArray(new Interval[source.size()]);
+            Arrays.sort(intervals, Comparator.comparingDouble((Interval<V> i) -> i.low));
+            maxHigh = new double[intervals.length];
+            build(0, intervals.length - 1);
+        }
+
+        private double build(int left, int right){
+            if (left > right){
+                return Double.NEGATIVE_INFINITY;
+            }
+            int middle = (left + right) >>> 1;
+            double max = Math.max(intervals[middle].high, Math.max(build(left, middle - 1), build(middle + 1, right)));
+            maxHigh[middle] = max;
+            return max;
+        }
+
+        void search(int left, int right, double low, double high, Collection<? super V> results){
+            if (left > right){
+                return;
+            }
+            int middle = (left + right) >>> 1;
+            if (maxHigh[middle] < low){
+                //nothing in this range reaches the low end
+                return;
+            }
+            search(left, middle - 1, low, high, results);
+            Interval<V> interval = intervals[middle];
+            if (interval.low <= high){
+                if (interval.high >= low){
+                    results.add(interval.value);
+                }
+                search(middle + 1, right, low, high, results);
+            }
+        }
+    }
+
+}
@@ -1,12 +1,16 @@
 package org.datakow.catalogs.subscription;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import cz.jirutka.rsql.parser.ast.ComparisonOperator;
 import org.datakow.core.components.DatakowObjectMapper;
+import org.datakow.core.components.DotNotationMap;
 import org.datakow.fiql.FiqlOperator;
+import org.datakow.fiql.SubscriptionCriteria;
 import org.datakow.fiql.SubscriptionFiqlParser;
+import org.datakow.fiql.SubscriptionPredicate;
 import java.io.IOException;
 
 
@@ -19,6 +23,7 @@ import java.io.IOException;
 public class QueryStringSubscription extends SimpleSubscription {
     
     private String qs;
+    private SubscriptionPredicate predicate;
 
     /**
      * Creates an instance of a subscription object
@@ -49,10 +54,25 @@ public class QueryStringSubscription extends SimpleSubscription {
     /**
      * Parses the FIQL query string and converts it to a {@link org.datakow.fiql.SubscriptionCriteria} object.
      * Then sets that value in this object.
+     * <p>
+     * The query is also compiled into a {@link SubscriptionPredicate} that is
+     * used by {@link #meetsCriteria(DotNotationMap)}. Its =like= patterns are
+     * run by the default regex engine.
      * 
      * @param queryString The FIQL string to parse and set
      */
     public final void setQueryString(String queryString){
+        setQueryString(queryString, new SubscriptionFiqlParser());
+    }
+    
+    /**
+     * Parses the FIQL query string with the given parser, which decides how
+     * the =like= patterns are run, and sets the criteria and compiled query.
+     * 
+     * @param queryString The FIQL string to parse and set
+     * @param parser The parser to use
+     */
+    public final void setQueryString(String queryString, SubscriptionFiqlParser parser){
         this.qs = queryString;
         if (queryString != null && !queryString.isEmpty()){
             if (queryString.startsWith("s=")){
@@ -61,8 +81,41 @@ public class QueryStringSubscription extends SimpleSubscription {
             if (!isFiql(queryString)){
                 queryString = queryString.replace("&", ";").replace("=", "==");
             }
-            this.setCriteria(new SubscriptionFiqlParser().parse(queryString));
+            this.setCriteria(parser.parse(queryString));
+            this.predicate = parser.compile(queryString);
+        }else{
+            this.predicate = null;
+        }
+    }
+    
+    /**
+     * Sets the internal subscription criteria object.
+     * <p>
+     * Setting the criteria directly discards the compiled query string so
+     * that the new criteria is the one used for comparisons.
+     * 
+     * @param criteria The criteria to use to compare
+     */
+    @Override
+    @JsonIgnore
+    public void setCriteria(SubscriptionCriteria criteria){
+        super.setCriteria(criteria);
+        this.predicate = null;
+    }
+    
+    /**
+     * Compares the metadata document against the compiled query string, or the
+     * {@link SubscriptionCriteria} if the criteria was set directly.
+     * 
+     * @param metadata The metadata record to check.
+     * @return true if the record meets the criteria
+     */
+    @Override
+    public boolean meetsCriteria(DotNotationMap metadata) {
+        if (predicate == null){
+            return super.meetsCriteria(metadata);
         }
+        return metadata != null && predicate.test(metadata);
     }
     
     /**
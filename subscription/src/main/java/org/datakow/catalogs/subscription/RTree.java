@@ -0,0 +1,227 @@
+package org.datakow.catalogs.subscription;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A set of boxes that can be searched for every box that overlaps a given
+ * box in O(log n + k) time.
+ * <p>
+ * The boxes are packed into an R-tree using Sort-Tile-Recursive: they are
+ * sorted into vertical slices by the center of their x range, each slice is
+ * sorted by the center of its y range and cut into leaves, and the same is
+ * done with the leaves until there is a single root. Every node knows the
+ * box that holds all of its children so whole branches are skipped when
+ * they cannot overlap the search box.
+ * <p>
+ * Like {@link IntervalTree}, adding or removing a box discards the tree and
+ * it is rebuilt by the next search, so a burst of changes only pays for one
+ * rebuild. Searches may run on many threads at the same time but changes
+ * must not run at the same time as searches.
+ *
+ * @author kevin.off
+ * @param <V> The type of value stored with each box
+ */
+class RTree<V> {
+
+    /**
+     * The most children of a node
+     */
+    private static final int NODE_SIZE = 16;
+
+    private final List<Entry<V>> entries = new ArrayList<>();
+    private volatile Node tree;
+
+    /**
+     * Adds a box
+     *
+     * @param minX The low end of the x range
+     * @param minY The low end of the y range
+     * @param maxX The high end of the x range
+     * @param maxY The high end of the y range
+     * @param value The value to return when the box is found
+     */
+    void add(double minX, double minY, double maxX, double maxY, V value){
+        entries.add(new Entry<>(minX, minY, maxX, maxY, value));
+        tree = null;
+    }
+
+    /**
+     * Removes a box
+     *
+     * @param minX The low end of the x range
+     * @param minY The low end of the y range
+     * @param maxX The high end of the x range
+     * @param maxY The high end of the y range
+     * @param value The value stored with the box
+     * @return true if the box was found and removed
+     */
+    boolean remove(double minX, double minY, double maxX, double maxY, V value){
+        for(int i = 0; i < entries.size(); i++){
+            Entry<V> entry = entries.get(i);
+            if (Double.compare(entry.minX, minX) == 0 && Double.compare(entry.minY, minY) == 0
+                    && Double.compare(entry.maxX, maxX) == 0 && Double.compare(entry.maxY, maxY) == 0
+                    && entry.value.equals(value)){
+                entries.remove(i);
+                tree = null;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the number of boxes
+     *
+     * @return The number of boxes
+     */
+    int size(){
+        return entries.size();
+    }
+
+    /**
+     * Determines if there are no boxes
+     *
+     * @return true if there are no boxes
+     */
+    boolean isEmpty(){
+        return entries.isEmpty();
+    }
+
+    /**
+     * Adds the value of every box that overlaps the search box to the results.
+     * Boxes that only touch on an edge overlap.
+     *
+     * @param minX The low end of the x range
+     * @param minY The low end of the y range
+     * @param maxX The high end of the x range
+     * @param maxY The high end of the y range
+     * @param results The collection to add the values to
+     */
+    void search(double minX, double minY, double maxX, double maxY, Collection<? super V> results){
+        Node current = tree;
+        if (current == null){
+            current = build();
+        }
+        if (current != EMPTY){
+            current.search(minX, minY, maxX, maxY, results);
+        }
+    }
+
+    private synchronized Node build(){
+        Node current = tree;
+        if (current == null){
+            if (entries.isEmpty()){
+                current = EMPTY;
+            }else{
+                Box[] level = entries.toArray(new Box[entries.size()]);
+                while(level.length > 1 || !(level[0] instanceof Node)){
+                    level = pack(level);
+                }
+                current = (Node)level[0];
+            }
+            tree = current;
+        }
+        return current;
+    }
+
+    /**
+     * Groups the boxes of one level of the tree into the nodes of the next
+     *
+     * @param boxes The boxes to group
+     * @return The nodes
+     */
+    private static Box[] pack(Box[] boxes){
+        int nodeCount = (boxes.length + NODE_SIZE - 1) / NODE_SIZE;
+        int sliceCount = (int)Math.ceil(Math.sqrt(nodeCount));
+        int sliceSize = sliceCount * NODE_SIZE;
+        Box[] sorted = boxes.clone();
+        Arrays.sort(sorted, Comparator.comparingDouble((Box b) -> b.minX + b.maxX));
+        List<Node> nodes = new ArrayList<>(nodeCount);
+        for(int slice = 0; slice < sorted.length; slice += sliceSize){
+            int sliceEnd = Math.min(slice + sliceSize, sorted.length);
+            Arrays.sort(sorted, slice, sliceEnd, Comparator.comparingDouble((Box b) -> b.minY + b.maxY));
+            for(int start = slice; start < sliceEnd; start += NODE_SIZE){
+                nodes.add(new Node(Arrays.copyOfRange(sorted, start, Math.min(start + NODE_SIZE, sliceEnd))));
+            }
+        }
+        return nodes.toArray(new Box[nodes.size()]);
+    }
+
+    private static final Node EMPTY = new Node(new Box[0]);
+
+    /**
+     * A rectangle of the tree. Either a stored entry or a node.
+     */
+    private abstract static class Box {
+        final double minX;
+        final double minY;
+        final double maxX;
+        final double maxY;
+
+        Box(double minX, double minY, double maxX, double maxY){
+            this.minX = minX;
+            this.minY = minY;
+            this.maxX = maxX;
+            this.maxY = maxY;
+        }
+
+        final boolean overlaps(double minX, double minY, double maxX, double maxY){
+            return this.minX <= maxX && this.maxX >= minX && this.minY <= maxY && this.maxY >= minY;
+        }
+    }
+
+    private static final class Entry<V> extends Box {
+        final V value;
+
+        Entry(double minX, double minY, double maxX, double maxY, V value){
+            super(minX, minY, maxX, maxY);
+            this.value = value;
+        }
+    }
+
+    /**
+     * An immutable node that holds the box around all of its children.
+     * The children are either all entries or all nodes.
+     */
+    private static final class Node extends Box {
+        final Box[] children;
+
+        Node(Box[] children){
+            super(min(children, true), min(children, false), max(children, true), max(children, false));
+            this.children = children;
+        }
+
+        void search(double minX, double minY, double maxX, double maxY, Collection results){
+            for(Box child : children){
+                if (child.overlaps(minX, minY, maxX, maxY)){
+                    if (child instanceof Node){
+                        ((Node)child).search(minX, minY, maxX, maxY, results);
+                    }else{
+                        results.add(((Entry)child).value);
+                    }
+                }
+            }
+        }
+
+        private static double min(Box[] boxes, boolean x){
+            double min = Double.POSITIVE_INFINITY;
+            for(Box box : boxes){
+                min = Math.min(min, x ? box.minX : box.minY);
+            }
+            return min;
+        }
+
+        private static double max(Box[] boxes, boolean x){
+            double max = Double.NEGATIVE_INFINITY;
+            for(Box box : boxes){
+                max = Math.max(max, x ? box.maxX : box.maxY);
+            }
+            return max;
+        }
+    }
+
+}
@@ -0,0 +1,746 @@
+package org.datakow.catalogs.subscription;
+
+import org.datakow.core.components.DotNotationMap;
+import org.datakow.core.components.PropertyPath;
+import org.datakow.fiql.ComparisonOperator;
+import org.datakow.fiql.GeoShape;
+import org.datakow.fiql.LogicalOperator;
+import org.datakow.fiql.SubscriptionCriteria;
+import org.datakow.fiql.SubscriptionCriteriaGraph;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An inverted index of subscriptions keyed by the equality (==) and
+ * in (=in=) comparisons in their criteria, with an interval tree per property
+ * for the range (=gt=, =ge=, =lt=, =le=) comparisons and an R-tree per
+ * property for the bounding boxes of the geo (=within=, =intersects=, =near=)
+ * comparisons.
+ * <p>
+ * When a subscription is added its criteria is searched for a set of
+ * property/value terms where at least one of the terms has to be true for
+ * the criteria to be met. The subscription is stored under each of those
+ * terms. Number and date ranges on the same property that are AND'ed
+ * together are combined into one interval. Subscriptions where no such set
+ * exists, like a criteria that only uses =like= or a criteria of null, are
+ * kept in a fallback list that is returned for every record.
+ * <p>
+ * {@link #getCandidates(DotNotationMap)} looks up the values of the indexed
+ * properties in the record and returns only the subscriptions whose terms
+ * were found, plus the fallback list. The candidates still have to be checked
+ * against their criteria, which is what {@link #getMatches(DotNotationMap)}
+ * does. It evaluates them through a {@link SubscriptionCriteriaGraph} of every
+ * criteria in the index so that a comparison shared by many subscriptions,
+ * like the same catalog action, is only run once per record.
+ * <p>
+ * Values are looked up using the same type conversions that
+ * {@link SubscriptionCriteria} uses so that a criteria value of 5.0 is found
+ * for a record value of 5. Subscriptions whose comparison would fail to
+ * convert the record value are not returned as candidates.
+ * <p>
+ * The index may be read by many threads while it is being updated.
+ *
+ * @author kevin.off
+ */
+public class SubscriptionIndex {
+
+    private final Map<String, SimpleSubscription> subscriptions = new LinkedHashMap<>();
+    private final Map<String, List<IndexTerm>> termsBySubscription = new HashMap<>();
+    private final Map<String, PropertyIndex> properties = new HashMap<>();
+    private final Set<String> fallback = new HashSet<>();
+    private final SubscriptionCriteriaGraph<String> graph = new SubscriptionCriteriaGraph<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Creates an empty index
+     */
+    public SubscriptionIndex(){
+
+    }
+
+    /**
+     * Creates an index containing the given subscriptions
+     *
+     * @param subscriptions The subscriptions to index
+     */
+    public SubscriptionIndex(Collection<? extends SimpleSubscription> subscriptions){
+        for(SimpleSubscription subscription : subscriptions){
+            add(subscription);
+        }
+    }
+
+    /**
+     * Adds a subscription to the index, replacing any subscription with the same ID.
+     *
+     * @param subscription The subscription to add
+     */
+    public void add(SimpleSubscription subscription){
+        String id = subscription.getId();
+        if (id == null){
+            throw new IllegalArgumentException("A subscription must have an ID to be indexed");
+        }
+        List<IndexTerm> terms = subscription.getCriteria() == null ? null : findTerms(subscription.getCriteria());
+        lock.writeLock().lock();
+        try{
+            removeInternal(id);
+            graph.put(id, subscription.getCriteria());
+            subscriptions.put(id, subscription);
+            if (terms == null){
+                fallback.add(id);
+            }else{
+                termsBySubscription.put(id, terms);
+                for(IndexTerm term : terms){
+                    properties.computeIfAbsent(term.propertyName, (k) -> new PropertyIndex(k)).add(term.value, id);
+                }
+            }
+        }finally{
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a subscription from the index
+     *
+     * @param subscriptionId The ID of the subscription to remove
+     * @return The subscription that was removed or null
+     */
+    public SimpleSubscription remove(String subscriptionId){
+        lock.writeLock().lock();
+        try{
+            return removeInternal(subscriptionId);
+        }finally{
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the number of subscriptions in the index
+     *
+     * @return The number of subscriptions
+     */
+    public int size(){
+        lock.readLock().lock();
+        try{
+            return subscriptions.size();
+        }finally{
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the number of subscriptions that could not be indexed and are
+     * returned as candidates for every record.
+     *
+     * @return The number of unindexed subscriptions
+     */
+    public int getFallbackSize(){
+        lock.readLock().lock();
+        try{
+            return fallback.size();
+        }finally{
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets all of the subscriptions in the index
+     *
+     * @return The subscriptions
+     */
+    public List<SimpleSubscription> getSubscriptions(){
+        lock.readLock().lock();
+        try{
+            return new ArrayList<>(subscriptions.values());
+        }finally{
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the subscriptions that might meet the criteria for the record.
+     * <p>
+     * Every subscription that meets the criteria is returned, but not every
+     * subscription returned meets the criteria.
+     *
+     * @param record The record to find candidates for
+     * @return The candidate subscriptions
+     */
+    public List<SimpleSubscription> getCandidates(DotNotationMap record){
+        lock.readLock().lock();
+        try{
+            return candidates(record);
+        }finally{
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the subscriptions that meet the criteria for the record.
+     * <p>
+     * The criteria are evaluated from the shared graph, which gives the same
+     * result as {@link SimpleSubscription#meetsCriteria(DotNotationMap)} for
+     * every subscription whose criteria does not throw an exception for the
+     * record. One that throws does not fail the whole call, see
+     * {@link SubscriptionCriteriaGraph}.
+     *
+     * @param record The record to match
+     * @return The subscriptions that meet the criteria
+     */
+    public List<SimpleSubscription> getMatches(DotNotationMap record){
+        List<SimpleSubscription> candidates;
+        SubscriptionCriteriaGraph.Evaluation<String> evaluation;
+        lock.readLock().lock();
+        try{
+            candidates = candidates(record);
+            evaluation = graph.evaluate(record);
+        }finally{
+            lock.readLock().unlock();
+        }
+        List<SimpleSubscription> matches = new ArrayList<>();
+        for(SimpleSubscription subscription : candidates){
+            if (evaluation.test(subscription.getId())){
+                matches.add(subscription);
+            }
+        }
+        return matches;
+    }
+
+    private List<SimpleSubscription> candidates(DotNotationMap record){
+        Set<String> ids = new HashSet<>(fallback);
+        if (record != null){
+            for(PropertyIndex property : properties.values()){
+                property.collect(record, ids);
+            }
+        }
+        List<SimpleSubscription> candidates = new ArrayList<>(ids.size());
+        for(String id : ids){
+            candidates.add(subscriptions.get(id));
+        }
+        return candidates;
+    }
+
+    private SimpleSubscription removeInternal(String id){
+        SimpleSubscription removed = subscriptions.remove(id);
+        graph.remove(id);
+        fallback.remove(id);
+        List<IndexTerm> terms = termsBySubscription.remove(id);
+        if (terms != null){
+            for(IndexTerm term : terms){
+                PropertyIndex propertyIndex = properties.get(term.propertyName);
+                if (propertyIndex != null && propertyIndex.remove(term.value, id)){
+                    properties.remove(term.propertyName);
+                }
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Finds a set of terms where at least one of them must be true for
+     * the criteria to be met.
+     * <p>
+     * This follows the same path through the criteria as
+     * {@link SubscriptionCriteria#meetsCriteria(DotNotationMap)}.
+     *
+     * @param criteria The criteria to search
+     * @return The terms or null if the criteria cannot be indexed
+     */
+    static List<IndexTerm> findTerms(SubscriptionCriteria criteria){
+        String propertyName = criteria.getPropertyName();
+        if (propertyName == null){
+            if (criteria.getChain().size() == 1 && criteria.getChain().get(0) != criteria){
+                return findTerms(criteria.getChain().get(0));
+            }
+            return null;
+        }else if (propertyName.equalsIgnoreCase(LogicalOperator.AND)){
+            //Any one of the AND'ed criteria has to be met so use the most selective one
+            List<List<IndexTerm>> candidates = new ArrayList<>();
+            Map<String, Range> ranges = new LinkedHashMap<>();
+            for(SubscriptionCriteria child : (List<SubscriptionCriteria>)criteria.getValue()){
+                List<IndexTerm> terms = findTerms(child);
+                if (terms == null){
+                    continue;
+                }
+                if (terms.size() == 1 && terms.get(0).value instanceof Range){
+                    //Ranges on the same property are combined, x=gt=1;x=lt=5 is one interval
+                    IndexTerm term = terms.get(0);
+                    Range range = (Range)term.value;
+                    String key = term.propertyName + (range.dates ? "#date" : "#number");
+                    Range existing = ranges.get(key);
+                    ranges.put(key, existing == null ? range : existing.intersect(range));
+                    continue;
+                }
+                candidates.add(terms);
+            }
+            for(Map.Entry<String, Range> range : ranges.entrySet()){
+                String property = range.getKey().substring(0, range.getKey().lastIndexOf('#'));
+                List<IndexTerm> terms = new ArrayList<>();
+                terms.add(new IndexTerm(property, range.getValue()));
+                candidates.add(terms);
+            }
+            List<IndexTerm> best = null;
+            for(List<IndexTerm> terms : candidates){
+                if (best == null || selectivity(terms) < selectivity(best)){
+                    best = terms;
+                }
+            }
+            return best;
+        }else if (propertyName.equalsIgnoreCase(LogicalOperator.OR)){
+            //Every one of the OR'ed criteria has to be indexed
+            List<IndexTerm> all = new ArrayList<>();
+            for(SubscriptionCriteria child : (List<SubscriptionCriteria>)criteria.getValue()){
+                List<IndexTerm> terms = findTerms(child);
+                if (terms == null){
+                    return null;
+                }
+                all.addAll(terms);
+            }
+            return all.isEmpty() ? null : all;
+        }else{
+            Map<String, Object> operators = criteria.getOperators();
+            Collection values;
+            if (operators.isEmpty()){
+                List single = new ArrayList();
+                single.add(criteria.getValue());
+                values = single;
+            }else if (operators.containsKey(ComparisonOperator.IN)){
+                values = (Collection)operators.get(ComparisonOperator.IN);
+            }else if (Box.fromOperators(operators) != null){
+                List<IndexTerm> terms = new ArrayList<>();
+                terms.add(new IndexTerm(propertyName, Box.fromOperators(operators)));
+                return terms;
+            }else{
+                Range range = Range.fromOperators(operators);
+                if (range == null){
+                    return null;
+                }
+                List<IndexTerm> terms = new ArrayList<>();
+                terms.add(new IndexTerm(propertyName, range));
+                return terms;
+            }
+            List<IndexTerm> terms = new ArrayList<>();
+            for(Object value : values){
+                Object key = indexKey(value);
+                if (key == null){
+                    return null;
+                }
+                terms.add(new IndexTerm(propertyName, key));
+            }
+            return terms.isEmpty() ? null : terms;
+        }
+    }
+
+    /**
+     * Ranks a set of terms by how many records they are expected to let through.
+     * Equality terms come first, then boxes and ranges with both ends and then
+     * ranges that are open on one end. Smaller sets are better within each group.
+     *
+     * @param terms The terms
+     * @return The rank, lower is more selective
+     */
+    private static long selectivity(List<IndexTerm> terms){
+        int group = 0;
+        for(IndexTerm term : terms){
+            if (term.value instanceof Range){
+                group = Math.max(group, ((Range)term.value).isBounded() ? 1 : 2);
+            }else if (term.value instanceof Box){
+                group = Math.max(group, 1);
+            }
+        }
+        return ((long)group << 32) + terms.size();
+    }
+
+    /**
+     * Normalizes a criteria value into the key it is indexed by.
+     *
+     * @param value The criteria value
+     * @return The key or null if the value cannot be indexed
+     */
+    private static Object indexKey(Object value){
+        if (value instanceof String){
+            //Strings that look like numbers are converted when compared to a number
+            try{
+                Double.parseDouble((String)value);
+                return null;
+            }catch(NumberFormatException e){
+                return value;
+            }
+        }else if (value instanceof Boolean || value instanceof Date){
+            return value;
+        }else if (isIndexedNumber(value)){
+            return ((Number)value).doubleValue();
+        }
+        return null;
+    }
+
+    private static boolean isIndexedNumber(Object value){
+        return value instanceof Double || value instanceof Float || value instanceof Integer || value instanceof Long;
+    }
+
+    /**
+     * The interval of numbers or dates allowed by the =gt=, =ge=, =lt= and =le=
+     * comparisons of a criteria. Dates are stored as milliseconds.
+     * <p>
+     * Both ends are treated as inclusive. The exact comparison is left
+     * to the subscription.
+     */
+    static class Range {
+        final double low;
+        final double high;
+        final boolean dates;
+
+        Range(double low, double high, boolean dates){
+            this.low = low;
+            this.high = high;
+            this.dates = dates;
+        }
+
+        /**
+         * Creates the range from the comparisons of a criteria.
+         *
+         * @param operators The comparisons keyed by operator
+         * @return The range or null if there are no range comparisons or the
+         * values are not all numbers or all dates
+         */
+        static Range fromOperators(Map<String, Object> operators){
+            double low = Double.NEGATIVE_INFINITY;
+            double high = Double.POSITIVE_INFINITY;
+            Boolean dates = null;
+            for(Map.Entry<String, Object> operator : operators.entrySet()){
+                boolean lower;
+                switch(operator.getKey()){
+                    case ComparisonOperator.GT:
+                    case ComparisonOperator.GTE:
+                        lower = true;
+                        break;
+                    case ComparisonOperator.LT:
+                    case ComparisonOperator.LTE:
+                        lower = false;
+                        break;
+                    default:
+                        continue;
+                }
+                Object value = operator.getValue();
+                double bound;
+                if (value instanceof Date && (dates == null || dates)){
+                    dates = true;
+                    bound = ((Date)value).getTime();
+                }else if (isIndexedNumber(value) && (dates == null || !dates)){
+                    dates = false;
+                    bound = ((Number)value).doubleValue();
+                }else{
+                    return null;
+                }
+                if (lower){
+                    low = Math.max(low, bound);
+                }else{
+                    high = Math.min(high, bound);
+                }
+            }
+            return dates == null ? null : new Range(low, high, dates);
+        }
+
+        Range intersect(Range other){
+            return new Range(Math.max(low, other.low), Math.min(high, other.high), dates);
+        }
+
+        boolean isBounded(){
+            return low != Double.NEGATIVE_INFINITY && high != Double.POSITIVE_INFINITY;
+        }
+    }
+
+    /**
+     * The bounding box of the =within=, =intersects= or =near= comparison of
+     * a criteria. A record shape can only meet the comparison when its own
+     * bounding box overlaps this one.
+     */
+    static class Box {
+        final double minX;
+        final double minY;
+        final double maxX;
+        final double maxY;
+
+        Box(double minX, double minY, double maxX, double maxY){
+            this.minX = minX;
+            this.minY = minY;
+            this.maxX = maxX;
+            this.maxY = maxY;
+        }
+
+        /**
+         * Creates the box from the comparisons of a criteria.
+         *
+         * @param operators The comparisons keyed by operator
+         * @return The box or null if there are no geo comparisons
+         */
+        static Box fromOperators(Map<String, Object> operators){
+            for(Map.Entry<String, Object> operator : operators.entrySet()){
+                switch(operator.getKey()){
+                    case ComparisonOperator.WITHIN:
+                    case ComparisonOperator.INTERSECTS:
+                        GeoShape shape = (GeoShape)operator.getValue();
+                        return new Box(shape.getMinX(), shape.getMinY(), shape.getMaxX(), shape.getMaxY());
+                    case ComparisonOperator.NEAR:
+                        double[] bounds = ((GeoShape.Near)operator.getValue()).getBounds();
+                        return new Box(bounds[0], bounds[1], bounds[2], bounds[3]);
+                    default:
+                        break;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * A single property/value pair that a subscription is indexed by.
+     */
+    static class IndexTerm {
+        final String propertyName;
+        final Object value;
+
+        IndexTerm(String propertyName, Object value){
+            this.propertyName = propertyName;
+            this.value = value;
+        }
+    }
+
+    /**
+     * The index of values for a single property.
+     */
+    private static class PropertyIndex {
+        private final Map<String, Set<String>> strings = new HashMap<>();
+        private final Map<Boolean, Set<String>> booleans = new HashMap<>();
+        private final Map<Date, Set<String>> dates = new HashMap<>();
+        private final NavigableMap<Double, Set<String>> numbers = new TreeMap<>();
+        private final IntervalTree<String> numberRanges = new IntervalTree<>();
+        private final IntervalTree<String> dateRanges = new IntervalTree<>();
+        private final RTree<String> shapes = new RTree<>();
+        private final PropertyPath path;
+
+        PropertyIndex(String propertyName){
+            this.path = new PropertyPath(propertyName);
+        }
+
+        void add(Object key, String id){
+            if (key instanceof Range){
+                Range range = (Range)key;
+                (range.dates ? dateRanges : numberRanges).add(range.low, range.high, id);
+                return;
+            }else if (key instanceof Box){
+                Box box = (Box)key;
+                shapes.add(box.minX, box.minY, box.maxX, box.maxY, id);
+                return;
+            }
+            Map<Object, Set<String>> map = mapFor(key);
+            map.computeIfAbsent(key, (k) -> new HashSet<>()).add(id);
+        }
+
+        /**
+         * Removes the ID from the key
+         *
+         * @param key The key
+         * @param id The subscription ID
+         * @return true if this property index is now empty
+         */
+        boolean remove(Object key, String id){
+            if (key instanceof Range){
+                Range range = (Range)key;
+                (range.dates ? dateRanges : numberRanges).remove(range.low, range.high, id);
+            }else if (key instanceof Box){
+                Box box = (Box)key;
+                shapes.remove(box.minX, box.minY, box.maxX, box.maxY, id);
+            }else{
+                Map<Object, Set<String>> map = mapFor(key);
+                Set<String> ids = map.get(key);
+                if (ids != null){
+                    ids.remove(id);
+                    if (ids.isEmpty()){
+                        map.remove(key);
+                    }
+                }
+            }
+            return strings.isEmpty() && booleans.isEmpty() && dates.isEmpty() && numbers.isEmpty()
+                    && numberRanges.isEmpty() && dateRanges.isEmpty() && shapes.isEmpty();
+        }
+
+        private Map<Object, Set<String>> mapFor(Object key){
+            Map map;
+            if (key instanceof String){
+                map = strings;
+            }else if (key instanceof Boolean){
+                map = booleans;
+            }else if (key instanceof Date){
+                map = dates;
+            }else{
+                map = numbers;
+            }
+            return map;
+        }
+
+        /**
+         * Adds the IDs of the subscriptions whose value for this property
+         * might equal the value in the record.
+         *
+         * @param record The record
+         * @param ids The IDs to add to
+         */
+        void collect(DotNotationMap record, Set<String> ids){
+            Object docValue;
+            try{
+                docValue = record.getProperty(path);
+            }catch(RuntimeException e){
+                //Let the subscriptions decide what to do with this record
+                addAll(ids);
+                return;
+            }
+            if (docValue != null && !shapes.isEmpty()){
+                collectShapes(docValue, ids);
+            }
+            if (docValue instanceof Collection){
+                //Subscription criteria convert to the type of the first element
+                Collection collection = (Collection)docValue;
+                if (collection.isEmpty()){
+                    return;
+                }
+                Object first = collection.iterator().next();
+                Class type = first == null ? null : first.getClass();
+                for(Object element : collection){
+                    if (element != null && element.getClass() == type){
+                        collectValue(element, ids);
+                    }
+                }
+            }else if (docValue != null){
+                collectValue(docValue, ids);
+                collectRanges(docValue, ids);
+            }
+        }
+
+        /**
+         * Adds the IDs of the subscriptions whose range might contain the value.
+         * Collections are never compared by a range.
+         *
+         * @param docValue The value from the record
+         * @param ids The IDs to add to
+         */
+        private void collectRanges(Object docValue, Set<String> ids){
+            if (docValue instanceof Date){
+                if (!dateRanges.isEmpty()){
+                    dateRanges.stab(((Date)docValue).getTime(), ids);
+                }
+            }else if (docValue instanceof Number && !numberRanges.isEmpty()){
+                if (docValue instanceof Double){
+                    double value = (Double)docValue;
+                    //NaN sorts above positive infinity
+                    numberRanges.stab(Double.isNaN(value) ? Double.POSITIVE_INFINITY : value, ids);
+                }else if (docValue instanceof Integer || docValue instanceof Long){
+                    //The bounds are truncated to the record type so anything within one
+                    //of the value might be on the right side of the bound
+                    long value = ((Number)docValue).longValue();
+                    double low = (docValue instanceof Integer && value == Integer.MIN_VALUE) || value == Long.MIN_VALUE ? Double.NEGATIVE_INFINITY : (double)value - 1;
+                    double high = (docValue instanceof Integer && value == Integer.MAX_VALUE) || value == Long.MAX_VALUE ? Double.POSITIVE_INFINITY : (double)value + 1;
+                    numberRanges.search(low, high, ids);
+                }else if (docValue instanceof Float){
+                    float value = (Float)docValue;
+                    numberRanges.search(Math.nextDown(value), Math.nextUp(value), ids);
+                }else{
+                    numberRanges.search(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, ids);
+                }
+            }
+        }
+
+        /**
+         * Adds the IDs of the subscriptions whose box overlaps the box of a
+         * shape in the value. Every shape of a collection is searched.
+         *
+         * @param docValue The value from the record
+         * @param ids The IDs to add to
+         */
+        private void collectShapes(Object docValue, Set<String> ids){
+            GeoShape.anyShape(docValue, (shape) -> {
+                shapes.search(shape.getMinX(), shape.getMinY(), shape.getMaxX(), shape.getMaxY(), ids);
+                //Keep going so that the rest of the shapes are searched
+                return false;
+            });
+        }
+
+        private void collectValue(Object docValue, Set<String> ids){
+            if (docValue instanceof String){
+                addIds(strings.get(docValue), ids);
+                if (docValue.equals("true") || docValue.equals("false")){
+                    addIds(booleans.get(Boolean.valueOf((String)docValue)), ids);
+                }
+            }else if (docValue instanceof Boolean){
+                addIds(booleans.get(docValue), ids);
+                //Strings are compared to booleans using Boolean.valueOf
+                for(Set<String> stringIds : strings.values()){
+                    addIds(stringIds, ids);
+                }
+            }else if (docValue instanceof Date){
+                addIds(dates.get(docValue), ids);
+            }else if (docValue instanceof Double){
+                addIds(numbers.get(docValue), ids);
+            }else if (docValue instanceof Integer || docValue instanceof Long){
+                //Numbers are converted to the record type which truncates the decimals
+                long value = ((Number)docValue).longValue();
+                NavigableMap<Double, Set<String>> range;
+                if (value > 0){
+                    range = numbers.subMap((double)value, true, (double)value + 1, false);
+                }else if (value < 0){
+                    range = numbers.subMap((double)value - 1, false, (double)value, true);
+                }else{
+                    range = numbers.subMap(-1d, false, 1d, false);
+                }
+                addIds(range, ids);
+                if ((docValue instanceof Integer && value == Integer.MAX_VALUE) || value == Long.MAX_VALUE){
+                    addIds(numbers.tailMap((double)value, true), ids);
+                }else if ((docValue instanceof Integer && value == Integer.MIN_VALUE) || value == Long.MIN_VALUE){
+                    addIds(numbers.headMap((double)value, true), ids);
+                }
+                //Booleans are converted to 1 or 0 when compared to an integer
+                if (docValue instanceof Integer && (value == 0 || value == 1)){
+                    addIds(booleans.get(value == 1), ids);
+                }
+            }else if (docValue instanceof Float){
+                float value = (Float)docValue;
+                addIds(numbers.subMap((double)Math.nextDown(value), true, (double)Math.nextUp(value), true), ids);
+            }else if (docValue instanceof Number){
+                //Short, Byte and BigDecimal conversions are not exact
+                addIds(numbers, ids);
+            }
+        }
+
+        private void addIds(Map<?, Set<String>> map, Set<String> ids){
+            for(Set<String> mapIds : map.values()){
+                ids.addAll(mapIds);
+            }
+        }
+
+        private void addIds(Set<String> source, Set<String> ids){
+            if (source != null){
+                ids.addAll(source);
+            }
+        }
+
+        private void addAll(Set<String> ids){
+            addIds(strings, ids);
+            addIds(booleans, ids);
+            addIds(dates, ids);
+            addIds(numbers, ids);
+            numberRanges.search(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, ids);
+            dateRanges.search(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, ids);
+            shapes.search(Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, ids);
+        }
+    }
+
+}
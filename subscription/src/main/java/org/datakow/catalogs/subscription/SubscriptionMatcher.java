@@ -0,0 +1,198 @@
+package org.datakow.catalogs.subscription;
+
+import org.datakow.core.components.DotNotationMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Matches a single record against many subscriptions.
+ * <p>
+ * When the number of subscriptions reaches the parallelism threshold the
+ * subscriptions are split into batches that are evaluated on a
+ * {@link ForkJoinPool}. Below the threshold they are evaluated on the
+ * calling thread.
+ * <p>
+ * The IDs that are returned are always in the same order as the subscriptions
+ * that were passed in. The record is read by several threads at once so it
+ * must not be changed while it is being matched. A subscription whose
+ * criteria throws an exception for the record does not match it, so it
+ * cannot stop the rest of the batch from being matched.
+ *
+ * @author kevin.off
+ */
+public class SubscriptionMatcher implements AutoCloseable {
+
+    /**
+     * The default number of subscriptions at which matching is done in parallel
+     */
+    public static final int DEFAULT_PARALLELISM_THRESHOLD = 1000;
+
+    /**
+     * The smallest batch of subscriptions evaluated by a single task
+     */
+    private static final int MIN_BATCH_SIZE = 64;
+
+    private final ForkJoinPool pool;
+    private final int parallelismThreshold;
+    private final boolean ownsPool;
+
+    /**
+     * Creates a matcher that uses the common pool and the default threshold
+     */
+    public SubscriptionMatcher(){
+        this(DEFAULT_PARALLELISM_THRESHOLD);
+    }
+
+    /**
+     * Creates a matcher that uses the common pool
+     *
+     * @param parallelismThreshold The number of subscriptions at which matching is done in parallel
+     */
+    public SubscriptionMatcher(int parallelismThreshold){
+        this(parallelismThreshold, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a matcher that uses the given pool
+     *
+     * @param parallelismThreshold The number of subscriptions at which matching is done in parallel
+     * @param pool The pool to run the batches on
+     */
+    public SubscriptionMatcher(int parallelismThreshold, ForkJoinPool pool){
+        this(parallelismThreshold, pool, false);
+    }
+
+    /**
+     * Creates a matcher with its own pool that is shut down when the matcher
+     * is closed
+     *
+     * @param parallelismThreshold The number of subscriptions at which matching is done in parallel
+     * @param parallelism The number of threads of the pool
+     */
+    public SubscriptionMatcher(int parallelismThreshold, int parallelism){
+        this(parallelismThreshold, new ForkJoinPool(parallelism), true);
+    }
+
+    private SubscriptionMatcher(int parallelismThreshold, ForkJoinPool pool, boolean ownsPool){
+        if (parallelismThreshold < 1){
+            if (ownsPool){
+                pool.shutdown();
+            }
+            throw new IllegalArgumentException("The parallelism threshold must be at least 1");
+        }
+        this.parallelismThreshold = parallelismThreshold;
+        this.pool = pool;
+        this.ownsPool = ownsPool;
+    }
+
+    /**
+     * Gets the number of subscriptions at which matching is done in parallel
+     *
+     * @return The threshold
+     */
+    public int getParallelismThreshold(){
+        return parallelismThreshold;
+    }
+
+    /**
+     * Gets the IDs of the subscriptions that the record meets the criteria of.
+     *
+     * @param record The record to match
+     * @param subscriptions The subscriptions to check
+     * @return The IDs of the matching subscriptions
+     */
+    public List<String> matchAll(DotNotationMap record, Collection<? extends SimpleSubscription> subscriptions){
+        SimpleSubscription[] array = subscriptions.toArray(new SimpleSubscription[subscriptions.size()]);
+        if (array.length < parallelismThreshold || pool.getParallelism() < 2){
+            List<String> ids = new ArrayList<>();
+            match(record, array, 0, array.length, ids);
+            return ids;
+        }
+        int batchSize = Math.max(MIN_BATCH_SIZE, array.length / (pool.getParallelism() * 4));
+        return pool.invoke(new MatchTask(record, array, 0, array.length, batchSize));
+    }
+
+    /**
+     * Gets the IDs of the subscriptions that the record meets the criteria of,
+     * only checking the candidates that the index returns for the record.
+     *
+     * @param record The record to match
+     * @param index The index of the subscriptions to check
+     * @return The IDs of the matching subscriptions
+     */
+    public List<String> matchAll(DotNotationMap record, SubscriptionIndex index){
+        return matchAll(record, index.getCandidates(record));
+    }
+
+    /**
+     * Shuts down the pool if the matcher created it. A pool that was passed
+     * in is left running.
+     */
+    @Override
+    public void close(){
+        if (ownsPool){
+            pool.shutdown();
+        }
+    }
+
+    private static void match(DotNotationMap record, SimpleSubscription[] subscriptions, int from, int to, List<String> ids){
+        for(int i = from; i < to; i++){
+            boolean meets;
+            try{
+                meets = subscriptions[i].meetsCriteria(record);
+            }catch(RuntimeException ex){
+                //one subscription that cannot be compared must not stop the others from matching
+                Logger.getLogger(SubscriptionMatcher.class.getName()).log(Level.WARNING, 
+                        "Subscription " + subscriptions[i].getId() + " could not be compared to the record", ex);
+                meets = false;
+            }
+            if (meets){
+                ids.add(subscriptions[i].getId());
+            }
+        }
+    }
+
+    /**
+     * Splits the range of subscriptions in half until it is no larger than
+     * the batch size and then evaluates it.
+     */
+    private static class MatchTask extends RecursiveTask<List<String>> {
+
+        private final DotNotationMap record;
+        private final SimpleSubscription[] subscriptions;
+        private final int from;
+        private final int to;
+        private final int batchSize;
+
+        MatchTask(DotNotationMap record, SimpleSubscription[] subscriptions, int from, int to, int batchSize){
+            this.record = record;
+            this.subscriptions = subscriptions;
+            this.from = from;
+            this.to = to;
+            this.batchSize = batchSize;
+        }
+
+        @Override
+        protected List<String> compute(){
+            if (to - from <= batchSize){
+                List<String> ids = new ArrayList<>();
+                match(record, subscriptions, from, to, ids);
+                return ids;
+            }
+            int middle = (from + to) >>> 1;
+            MatchTask left = new MatchTask(record, subscriptions, from, middle, batchSize);
+            MatchTask right = new MatchTask(record, subscriptions, middle, to, batchSize);
+            left.fork();
+            List<String> rightIds = right.compute();
+            List<String> ids = left.join();
+            ids.addAll(rightIds);
+            return ids;
+        }
+    }
+
+}
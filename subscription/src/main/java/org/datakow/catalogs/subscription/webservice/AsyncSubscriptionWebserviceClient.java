@@ -0,0 +1,179 @@
+package org.datakow.catalogs.subscription.webservice;
+
+import org.datakow.catalogs.subscription.QueryStringSubscription;
+import org.datakow.core.components.ClientExecutors;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Runs the calls of a {@link SubscriptionWebserviceClient} on an executor
+ * and returns CompletableFutures instead of blocking the caller.
+ * <p>
+ * Each method behaves exactly like the method of the same name on the
+ * blocking client. The exceptions it would have thrown complete the future
+ * instead. The correlationId of the calling thread is sent with the request.
+ *
+ * @author kevin.off
+ */
+public class AsyncSubscriptionWebserviceClient implements AutoCloseable {
+
+    private final SubscriptionWebserviceClient client;
+    private final ExecutorService executor;
+
+    /**
+     * Creates the client. The executor is shut down when the client is closed.
+     *
+     * @param client The blocking client that makes the requests
+     * @param executor The executor to run the requests on
+     */
+    public AsyncSubscriptionWebserviceClient(SubscriptionWebserviceClient client, ExecutorService executor){
+        this.client = client;
+        this.executor = executor;
+    }
+
+    /**
+     * Gets the blocking client that makes the requests
+     *
+     * @return The blocking client
+     */
+    public SubscriptionWebserviceClient getClient(){
+        return client;
+    }
+
+    /**
+     * Gets a subscription by its ID
+     *
+     * @param subscriptionId The ID
+     * @return The subscription or null if not found
+     * @see SubscriptionWebserviceClient#getById
+     */
+    public CompletableFuture<QueryStringSubscription> getById(String subscriptionId){
+        return call(() -> client.getById(subscriptionId));
+    }
+
+    /**
+     * Gets all subscriptions
+     *
+     * @return A list of all subscriptions
+     * @see SubscriptionWebserviceClient#getAll
+     */
+    public CompletableFuture<List<QueryStringSubscription>> getAll(){
+        return call(client::getAll);
+    }
+
+    /**
+     * Gets subscriptions by the username property
+     *
+     * @param username The username to search for subscriptions by
+     * @return A list of matching subscriptions
+     * @see SubscriptionWebserviceClient#getByUsername
+     */
+    public CompletableFuture<List<QueryStringSubscription>> getByUsername(String username){
+        return call(() -> client.getByUsername(username));
+    }
+
+    /**
+     * Gets subscriptions to a catalog
+     *
+     * @param catalogIdentifier The catalog to search for subscriptions by
+     * @return A list of matching subscriptions
+     * @see SubscriptionWebserviceClient#getByCatalogIdentifier
+     */
+    public CompletableFuture<List<QueryStringSubscription>> getByCatalogIdentifier(String catalogIdentifier){
+        return call(() -> client.getByCatalogIdentifier(catalogIdentifier));
+    }
+
+    /**
+     * Gets subscriptions that use an endpoint
+     *
+     * @param endpointIdentifier The endpoint to search for subscriptions by
+     * @return A list of matching subscriptions
+     * @see SubscriptionWebserviceClient#getByEndpointIdentifier
+     */
+    public CompletableFuture<List<QueryStringSubscription>> getByEndpointIdentifier(String endpointIdentifier){
+        return call(() -> client.getByEndpointIdentifier(endpointIdentifier));
+    }
+
+    /**
+     * Gets subscriptions that match a query
+     *
+     * @param fiql The query
+     * @param limit The most subscriptions to return or -1 for all
+     * @return A list of matching subscriptions
+     * @see SubscriptionWebserviceClient#getByQuery
+     */
+    public CompletableFuture<List<QueryStringSubscription>> getByQuery(String fiql, int limit){
+        return call(() -> client.getByQuery(fiql, limit));
+    }
+
+    /**
+     * Calls the subscription web service's subscribe endpoint.
+     *
+     * @param subscriptionId The subscription ID you would like to use
+     * @param fiql The Subscription Query to use to filter your notifications with
+     * @param endpointIdentifier If there is a specific endpoint that should be used to send you your notifications
+     * @param catalogIdentifier The metadata catalog identifier that your subscription is targeting
+     * @param catalogAction The Action you are interested in (created|associated)
+     * @param additionalProperties If there are any additional parameters that your endpoint will need
+     * @return true on success
+     * @see SubscriptionWebserviceClient#subscribe
+     */
+    public CompletableFuture<Boolean> subscribe(
+            String subscriptionId,
+            String fiql,
+            String endpointIdentifier,
+            String catalogIdentifier,
+            String catalogAction,
+            Map<String, String> additionalProperties){
+        return call(() -> client.subscribe(subscriptionId, fiql, endpointIdentifier, catalogIdentifier, catalogAction, additionalProperties));
+    }
+
+    /**
+     * Deletes a subscription
+     *
+     * @param subscriptionId The subscription ID
+     * @return true on success
+     * @see SubscriptionWebserviceClient#unsubscribe
+     */
+    public CompletableFuture<Boolean> unsubscribe(String subscriptionId){
+        return call(() -> client.unsubscribe(subscriptionId));
+    }
+
+    /**
+     * Pauses a subscription
+     *
+     * @param subscriptionId The subscription ID
+     * @return true on success
+     * @see SubscriptionWebserviceClient#pause
+     */
+    public CompletableFuture<Boolean> pause(String subscriptionId){
+        return call(() -> client.pause(subscriptionId));
+    }
+
+    /**
+     * Resumes a paused subscription
+     *
+     * @param subscriptionId The subscription ID
+     * @return true on success
+     * @see SubscriptionWebserviceClient#resume
+     */
+    public CompletableFuture<Boolean> resume(String subscriptionId){
+        return call(() -> client.resume(subscriptionId));
+    }
+
+    /**
+     * Shuts down the executor. Calls that were already started are finished.
+     */
+    @Override
+    public void close(){
+        executor.shutdown();
+    }
+
+    private <T> CompletableFuture<T> call(Callable<T> call){
+        return ClientExecutors.supplyAsyncWithCorrelationId(call, executor);
+    }
+
+}
@@ -8,6 +8,7 @@ import org.datakow.catalogs.subscription.webservice.configuration.SubscriptionCo
 import org.datakow.core.components.DotNotationList;
 import org.datakow.core.components.DotNotationMap;
 import org.datakow.core.components.JsonInputStreamToIterator;
+import org.datakow.fiql.SubscriptionFiqlParser;
 import java.io.IOException;
 import java.net.ConnectException;
 import java.util.ArrayList;
@@ -27,6 +28,7 @@ import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.conn.HttpHostConnectException;
 import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.commons.io.IOUtils;
 import org.apache.http.Header;
 import org.apache.http.client.config.RequestConfig;
@@ -51,6 +53,13 @@ public class SubscriptionWebserviceClient {
     
     @Autowired
     SubscriptionConfigurationProperties props;
+    
+    SubscriptionFiqlParser fiqlParser = null;
+
+    /**
+     * The number of connections to the web service when it is not given
+     */
+    public static final int DEFAULT_MAX_CONNECTIONS = 20;
 
     /**
      * Creates an instance of the web service client pointing to a base URL
@@ -58,8 +67,23 @@ public class SubscriptionWebserviceClient {
      * @param subscriptionWebServiceBaseUrl The base URL of the web service
      */
     public SubscriptionWebserviceClient(String subscriptionWebServiceBaseUrl) {
+        this(subscriptionWebServiceBaseUrl, DEFAULT_MAX_CONNECTIONS);
+    }
+    
+    /**
+     * Creates an instance of the web service client pointing to a base URL
+     * that can have many requests in flight at once.
+     * 
+     * @param subscriptionWebServiceBaseUrl The base URL of the web service
+     * @param maxConnections The number of connections kept to the web service
+     */
+    public SubscriptionWebserviceClient(String subscriptionWebServiceBaseUrl, int maxConnections) {
         RequestConfig config = RequestConfig.custom().setConnectionRequestTimeout(20000).build();
-        client = HttpClientBuilder.create().setDefaultRequestConfig(config).build();
+        //every request goes to the same host so it can use every connection
+        PoolingHttpClientConnectionManager cm = new PoolingHttpClientConnectionManager();
+        cm.setMaxTotal(maxConnections);
+        cm.setDefaultMaxPerRoute(maxConnections);
+        client = HttpClientBuilder.create().setConnectionManager(cm).setDefaultRequestConfig(config).build();
         baseUrl = subscriptionWebServiceBaseUrl;
     }
     
@@ -91,7 +115,7 @@ public class SubscriptionWebserviceClient {
         try {
             response = client.execute(getRequest);
             if (response.getStatusLine().getStatusCode() == HttpStatus.SC_OK) {
-                record = QueryStringSubscription.fromJson(IOUtils.toString(response.getEntity().getContent()));
+                record = parse(QueryStringSubscription.fromJson(IOUtils.toString(response.getEntity().getContent())));
             } else {
                 Logger.getLogger(SubscriptionWebserviceClient.class.getName()).log(
                         Level.SEVERE, 
@@ -146,7 +170,7 @@ public class SubscriptionWebserviceClient {
                 getRequest.releaseConnection();
                 JsonInputStreamToIterator<QueryStringSubscription> iterator = JsonInputStreamToIterator.makeIterator(response.getEntity().getContent(), QueryStringSubscription.class);
                 while(iterator.hasNext()){
-                    records.add(iterator.next());
+                    records.add(parse(iterator.next()));
                 }
             } else {
                 Logger.getLogger(SubscriptionWebserviceClient.class.getName()).log(
@@ -193,7 +217,7 @@ public class SubscriptionWebserviceClient {
                 getRequest.releaseConnection();
                 DotNotationList recordsJsonArray = DotNotationList.fromJson(recordsJson);
                 for(Object recordObject : recordsJsonArray){
-                    records.add(QueryStringSubscription.fromJson(((DotNotationMap)recordObject).toJson()));
+                    records.add(parse(QueryStringSubscription.fromJson(((DotNotationMap)recordObject).toJson())));
                 }
             } else {
                 Logger.getLogger(SubscriptionWebserviceClient.class.getName()).log(
@@ -240,7 +264,7 @@ public class SubscriptionWebserviceClient {
                 getRequest.releaseConnection();
                 DotNotationList recordsJsonArray = DotNotationList.fromJson(recordsJson);
                 for(Object recordObject : recordsJsonArray){
-                    records.add(QueryStringSubscription.fromJson(((DotNotationMap)recordObject).toJson()));
+                    records.add(parse(QueryStringSubscription.fromJson(((DotNotationMap)recordObject).toJson())));
                 }
             } else {
                 Logger.getLogger(SubscriptionWebserviceClient.class.getName()).log(
@@ -299,7 +323,7 @@ public class SubscriptionWebserviceClient {
                 getRequest.releaseConnection();
                 DotNotationList recordsJsonArray = DotNotationList.fromJson(recordsJson);
                 for(Object recordObject : recordsJsonArray){
-                    records.add(QueryStringSubscription.fromJson(((DotNotationMap)recordObject).toJson()));
+                    records.add(parse(QueryStringSubscription.fromJson(((DotNotationMap)recordObject).toJson())));
                 }
             } else {
                 Logger.getLogger(SubscriptionWebserviceClient.class.getName()).log(
@@ -525,6 +549,41 @@ public class SubscriptionWebserviceClient {
         return success;
     }
 
+    /**
+     * Gets the parser of the query strings of the subscriptions that are read
+     * 
+     * @return The parser or null if the default one is used
+     */
+    public SubscriptionFiqlParser getFiqlParser(){
+        return fiqlParser;
+    }
+    
+    /**
+     * Sets the parser of the query strings of the subscriptions that are read,
+     * which decides the regex engine that runs their =like= comparisons and
+     * whether super-linear patterns are rejected.
+     * 
+     * @param fiqlParser The parser or null to use the default one
+     */
+    public void setFiqlParser(SubscriptionFiqlParser fiqlParser){
+        this.fiqlParser = fiqlParser;
+    }
+    
+    /**
+     * Parses the query string of a subscription that was read with the
+     * configured parser.
+     * 
+     * @param subscription The subscription or null
+     * @return The subscription
+     */
+    private QueryStringSubscription parse(QueryStringSubscription subscription){
+        SubscriptionFiqlParser parser = this.fiqlParser;
+        if (parser != null && subscription != null){
+            subscription.setQueryString(subscription.getQueryString(), parser);
+        }
+        return subscription;
+    }
+
     /**
      * Gets the headers that are required for every request.
      * 
@@ -1,6 +1,10 @@
 package org.datakow.catalogs.subscription.webservice.configuration;
 
+import org.datakow.catalogs.subscription.SubscriptionMatcher;
+import org.datakow.catalogs.subscription.webservice.AsyncSubscriptionWebserviceClient;
 import org.datakow.catalogs.subscription.webservice.SubscriptionWebserviceClient;
+import org.datakow.core.components.ClientExecutors;
+import org.datakow.fiql.SubscriptionFiqlParser;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
@@ -20,14 +24,63 @@ public class SubscriptionAutoConfiguration {
     SubscriptionConfigurationProperties props;
     
     /**
-     * Creates the web service client bean.
+     * Creates the parser of the subscriptions with the configured regex engine
+     * and policy for super-linear =like= patterns. Mongo queries do not use it.
+     * 
+     * @return The bean
+     */
+    @Bean
+    public SubscriptionFiqlParser subscriptionFiqlParser(){
+        return new SubscriptionFiqlParser(props.getRegexEngine(), props.isRejectSuperLinearRegex());
+    }
+    
+    /**
+     * Creates the web service client bean. The subscriptions it reads are
+     * parsed by {@link #subscriptionFiqlParser()}.
      * 
      * @return The bean
      */
     @Bean
     public SubscriptionWebserviceClient subscriptionWebserviceClient(){
-        return new SubscriptionWebserviceClient(
-            "http://" + props.getWebserviceHost() + ":" + props.getWebservicePort()
+        SubscriptionWebserviceClient client = new SubscriptionWebserviceClient(
+            "http://" + props.getWebserviceHost() + ":" + props.getWebservicePort(),
+            props.getWebserviceConcurrency()
         );
+        client.setFiqlParser(subscriptionFiqlParser());
+        return client;
     } 
+    
+    /**
+     * Creates the web service client bean that runs its calls in the background
+     * and returns CompletableFutures.
+     * <p>
+     * Each call runs on its own virtual thread when the JDK supports them. Otherwise
+     * webserviceConcurrency threads are used.
+     * 
+     * @return The bean
+     */
+    @Bean
+    public AsyncSubscriptionWebserviceClient asyncSubscriptionWebserviceClient(){
+        return new AsyncSubscriptionWebserviceClient(
+            subscriptionWebserviceClient(),
+            ClientExecutors.newExecutor("subscription-client", props.getWebserviceConcurrency(), props.isWebserviceVirtualThreads())
+        );
+    }
+    
+    /**
+     * Creates the matcher used to match a record against many subscriptions.
+     * <p>
+     * When matchParallelism is set the matcher creates its own pool, which is
+     * shut down when the matcher is closed with the application context.
+     * Otherwise the common pool is used.
+     * 
+     * @return The bean
+     */
+    @Bean
+    public SubscriptionMatcher subscriptionMatcher(){
+        if (props.getMatchParallelism() > 0){
+            return new SubscriptionMatcher(props.getMatchParallelismThreshold(), props.getMatchParallelism());
+        }
+        return new SubscriptionMatcher(props.getMatchParallelismThreshold());
+    }
 }
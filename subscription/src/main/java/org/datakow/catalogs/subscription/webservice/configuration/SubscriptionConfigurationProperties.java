@@ -1,5 +1,8 @@
 package org.datakow.catalogs.subscription.webservice.configuration;
 
+import org.datakow.catalogs.subscription.SubscriptionMatcher;
+import org.datakow.catalogs.subscription.webservice.SubscriptionWebserviceClient;
+import org.datakow.fiql.RegexEngine;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 /**
@@ -17,6 +20,12 @@ public class SubscriptionConfigurationProperties {
     private int webservicePort;
     private String webserviceUsername;
     private String webservicePassword;
+    private int matchParallelismThreshold = SubscriptionMatcher.DEFAULT_PARALLELISM_THRESHOLD;
+    private int matchParallelism = 0;
+    private int webserviceConcurrency = SubscriptionWebserviceClient.DEFAULT_MAX_CONNECTIONS;
+    private boolean webserviceVirtualThreads = true;
+    private RegexEngine regexEngine = RegexEngine.BACKTRACKING;
+    private boolean rejectSuperLinearRegex = false;
 
     /**
      * Gets the Subscription Web Service's hostname
@@ -89,7 +98,123 @@ public class SubscriptionConfigurationProperties {
     public void setWebservicePassword(String webservicePassword) {
         this.webservicePassword = webservicePassword;
     }
- 
-    
+
+    /**
+     * Gets the number of subscriptions at which a record is matched against
+     * them in parallel.
+     * 
+     * @return The parallelism threshold
+     */
+    public int getMatchParallelismThreshold() {
+        return matchParallelismThreshold;
+    }
+
+    /**
+     * Sets the number of subscriptions at which a record is matched against
+     * them in parallel.
+     * 
+     * @param matchParallelismThreshold The parallelism threshold
+     */
+    public void setMatchParallelismThreshold(int matchParallelismThreshold) {
+        this.matchParallelismThreshold = matchParallelismThreshold;
+    }
+
+    /**
+     * Gets the number of threads used to match subscriptions in parallel.
+     * Zero means the common fork join pool is used.
+     * 
+     * @return The number of threads
+     */
+    public int getMatchParallelism() {
+        return matchParallelism;
+    }
+
+    /**
+     * Sets the number of threads used to match subscriptions in parallel.
+     * Zero means the common fork join pool is used.
+     * 
+     * @param matchParallelism The number of threads
+     */
+    public void setMatchParallelism(int matchParallelism) {
+        this.matchParallelism = matchParallelism;
+    }
+
+    /**
+     * Gets the number of requests the web service client is expected to make at the same time.
+     * It sizes the connection pool and is the number of threads of the async
+     * client when virtual threads are not used.
+     * 
+     * @return The expected number of concurrent requests
+     */
+    public int getWebserviceConcurrency() {
+        return webserviceConcurrency;
+    }
+
+    /**
+     * Sets the number of requests the web service client is expected to make at the same time.
+     * 
+     * @param webserviceConcurrency The expected number of concurrent requests
+     */
+    public void setWebserviceConcurrency(int webserviceConcurrency) {
+        this.webserviceConcurrency = webserviceConcurrency;
+    }
+
+    /**
+     * Gets whether the async client runs each request on a virtual thread when the JDK supports them.
+     * 
+     * @return true to use virtual threads
+     */
+    public boolean isWebserviceVirtualThreads() {
+        return webserviceVirtualThreads;
+    }
+
+    /**
+     * Sets whether the async client runs each request on a virtual thread when the JDK supports them.
+     * 
+     * @param webserviceVirtualThreads true to use virtual threads
+     */
+    public void setWebserviceVirtualThreads(boolean webserviceVirtualThreads) {
+        this.webserviceVirtualThreads = webserviceVirtualThreads;
+    }
+
+    /**
+     * Gets the engine that runs the =like= comparisons of subscriptions.
+     * 
+     * @return The regex engine
+     */
+    public RegexEngine getRegexEngine() {
+        return regexEngine;
+    }
+
+    /**
+     * Sets the engine that runs the =like= comparisons of subscriptions.
+     * LINEAR keeps the time to match a record bounded no matter what
+     * patterns are subscribed to.
+     * 
+     * @param regexEngine The regex engine
+     */
+    public void setRegexEngine(RegexEngine regexEngine) {
+        this.regexEngine = regexEngine;
+    }
+
+    /**
+     * Gets whether =like= patterns that can take super-linear time with the
+     * backtracking engine are rejected instead of logged.
+     * 
+     * @return true to reject them
+     */
+    public boolean isRejectSuperLinearRegex() {
+        return rejectSuperLinearRegex;
+    }
+
+    /**
+     * Sets whether =like= patterns that can take super-linear time with the
+     * backtracking engine are rejected instead of logged.
+     * 
+     * @param rejectSuperLinearRegex true to reject them
+     */
+    public void setRejectSuperLinearRegex(boolean rejectSuperLinearRegex) {
+        this.rejectSuperLinearRegex = rejectSuperLinearRegex;
+    }
     
 }
@@ -0,0 +1,115 @@
+package org.datakow.catalogs.subscription;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author kevin.off
+ */
+public class IntervalTreeTest {
+
+    public IntervalTreeTest() {
+    }
+
+    private static Set<Integer> search(IntervalTree<Integer> tree, double low, double high){
+        Set<Integer> results = new HashSet<>();
+        tree.search(low, high, results);
+        return results;
+    }
+
+    private static Set<Integer> bruteForce(List<double[]> intervals, double low, double high){
+        Set<Integer> results = new HashSet<>();
+        for(int i = 0; i < intervals.size(); i++){
+            double[] interval = intervals.get(i);
+            if (interval != null && interval[0] <= high && interval[1] >= low){
+                results.add(i);
+            }
+        }
+        return results;
+    }
+
+    @Test
+    public void testEdgesAreIncluded() {
+        IntervalTree<Integer> tree = new IntervalTree<>();
+        Assert.assertTrue(search(tree, 0, 10).isEmpty());
+
+        tree.add(0, 5, 1);
+        tree.add(5, 10, 2);
+        tree.add(7, 7, 3);
+        tree.add(Double.NEGATIVE_INFINITY, -1, 4);
+        tree.add(11, Double.POSITIVE_INFINITY, 5);
+
+        Set<Integer> expected = new HashSet<>();
+        expected.add(1);
+        expected.add(2);
+        Assert.assertEquals(expected, search(tree, 5, 5));
+
+        Set<Integer> results = new HashSet<>();
+        tree.stab(7, results);
+        expected.clear();
+        expected.add(2);
+        expected.add(3);
+        Assert.assertEquals(expected, results);
+
+        Assert.assertTrue(search(tree, -0.5, -0.1).isEmpty());
+        Assert.assertTrue(search(tree, 10.1, 10.9).isEmpty());
+        Assert.assertEquals(1, search(tree, -1e300, -1e300).size());
+        Assert.assertEquals(1, search(tree, 1e300, 1e300).size());
+        Assert.assertEquals(5, search(tree, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY).size());
+    }
+
+    @Test
+    public void testRemove() {
+        IntervalTree<Integer> tree = new IntervalTree<>();
+        tree.add(0, 5, 1);
+        tree.add(0, 5, 2);
+        Assert.assertEquals(2, search(tree, 3, 3).size());
+
+        Assert.assertFalse(tree.remove(0, 6, 1));
+        Assert.assertFalse(tree.remove(0, 5, 3));
+        Assert.assertTrue(tree.remove(0, 5, 1));
+        Assert.assertEquals(1, tree.size());
+        Set<Integer> expected = new HashSet<>();
+        expected.add(2);
+        Assert.assertEquals(expected, search(tree, 3, 3));
+
+        Assert.assertTrue(tree.remove(0, 5, 2));
+        Assert.assertTrue(tree.isEmpty());
+        Assert.assertTrue(search(tree, 3, 3).isEmpty());
+    }
+
+    @Test
+    public void testSameAsBruteForce() {
+        Random random = new Random(3);
+        IntervalTree<Integer> tree = new IntervalTree<>();
+        List<double[]> intervals = new ArrayList<>();
+        for(int round = 0; round < 20; round++){
+            for(int i = 0; i < 50; i++){
+                double low = random.nextInt(1000);
+                double high = low + random.nextInt(random.nextBoolean() ? 5 : 200);
+                tree.add(low, high, intervals.size());
+                intervals.add(new double[]{low, high});
+            }
+            for(int i = 0; i < 20; i++){
+                int index = random.nextInt(intervals.size());
+                double[] interval = intervals.get(index);
+                if (interval != null){
+                    Assert.assertTrue(tree.remove(interval[0], interval[1], index));
+                    intervals.set(index, null);
+                }
+            }
+            for(int i = 0; i < 50; i++){
+                double low = random.nextInt(1100) - 50;
+                double high = low + random.nextInt(3) * random.nextInt(50);
+                Assert.assertEquals(low + " " + high, bruteForce(intervals, low, high), search(tree, low, high));
+            }
+        }
+    }
+
+}
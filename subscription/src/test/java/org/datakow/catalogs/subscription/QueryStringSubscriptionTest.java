@@ -0,0 +1,40 @@
+package org.datakow.catalogs.subscription;
+
+import org.datakow.core.components.DotNotationMap;
+import org.datakow.fiql.RegexEngine;
+import org.datakow.fiql.SubscriptionFiqlParser;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author kevin.off
+ */
+public class QueryStringSubscriptionTest {
+
+    public QueryStringSubscriptionTest() {
+    }
+
+    @Test
+    public void testQueryStringIsParsedByTheGivenParser() {
+        QueryStringSubscription subscription = new QueryStringSubscription("s", null, "DATAKOW_OBJECTS", "created", "user", "endpoint");
+        subscription.setQueryString("Name=like='(a+)+b'", new SubscriptionFiqlParser(RegexEngine.LINEAR, true));
+        Assert.assertEquals("Name=like='(a+)+b'", subscription.getQueryString());
+        DotNotationMap record = new DotNotationMap();
+        record.setProperty("Name", "aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa!");
+        Assert.assertFalse(subscription.meetsCriteria(record));
+        record.setProperty("Name", "aaab");
+        Assert.assertTrue(subscription.meetsCriteria(record));
+        
+        try{
+            subscription.setQueryString("Name=like='(a+)+b'", new SubscriptionFiqlParser(RegexEngine.BACKTRACKING, true));
+            Assert.fail("The super-linear pattern was parsed");
+        }catch(IllegalArgumentException e){
+        }
+        
+        //without a parser the pattern is only logged
+        subscription.setQueryString("Name=like='(a+)+b'");
+        Assert.assertTrue(subscription.meetsCriteria(record));
+    }
+
+}
@@ -0,0 +1,110 @@
+package org.datakow.catalogs.subscription;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author kevin.off
+ */
+public class RTreeTest {
+
+    public RTreeTest() {
+    }
+
+    private static Set<Integer> search(RTree<Integer> tree, double minX, double minY, double maxX, double maxY){
+        Set<Integer> results = new HashSet<>();
+        tree.search(minX, minY, maxX, maxY, results);
+        return results;
+    }
+
+    private static Set<Integer> bruteForce(List<double[]> boxes, double minX, double minY, double maxX, double maxY){
+        Set<Integer> results = new HashSet<>();
+        for(int i = 0; i < boxes.size(); i++){
+            double[] box = boxes.get(i);
+            if (box != null && box[0] <= maxX && box[2] >= minX && box[1] <= maxY && box[3] >= minY){
+                results.add(i);
+            }
+        }
+        return results;
+    }
+
+    @Test
+    public void testTouchingBoxesOverlap() {
+        RTree<Integer> tree = new RTree<>();
+        Assert.assertTrue(search(tree, -180, -90, 180, 90).isEmpty());
+
+        tree.add(0, 0, 10, 10, 1);
+        tree.add(10, 10, 20, 20, 2);
+        tree.add(5, 5, 5, 5, 3);
+
+        Set<Integer> expected = new HashSet<>();
+        expected.add(1);
+        expected.add(2);
+        Assert.assertEquals(expected, search(tree, 10, 10, 10, 10));
+        Assert.assertEquals(expected, search(tree, 10, -5, 15, 10));
+
+        expected.clear();
+        expected.add(1);
+        expected.add(3);
+        Assert.assertEquals(expected, search(tree, 5, 5, 5, 5));
+        Assert.assertTrue(search(tree, 20.5, 0, 30, 30).isEmpty());
+        Assert.assertTrue(search(tree, 0, 10.5, 9.5, 30).isEmpty());
+    }
+
+    @Test
+    public void testRemove() {
+        RTree<Integer> tree = new RTree<>();
+        tree.add(0, 0, 10, 10, 1);
+        tree.add(0, 0, 10, 10, 2);
+        Assert.assertFalse(tree.remove(0, 0, 10, 11, 1));
+        Assert.assertFalse(tree.remove(0, 0, 10, 10, 3));
+        Assert.assertTrue(tree.remove(0, 0, 10, 10, 1));
+        Assert.assertEquals(1, tree.size());
+        Set<Integer> expected = new HashSet<>();
+        expected.add(2);
+        Assert.assertEquals(expected, search(tree, 1, 1, 2, 2));
+        Assert.assertTrue(tree.remove(0, 0, 10, 10, 2));
+        Assert.assertTrue(tree.isEmpty());
+        Assert.assertTrue(search(tree, 1, 1, 2, 2).isEmpty());
+    }
+
+    @Test
+    public void testSameAsBruteForce() {
+        Random random = new Random(5);
+        RTree<Integer> tree = new RTree<>();
+        List<double[]> boxes = new ArrayList<>();
+        //enough boxes for several levels of nodes
+        for(int round = 0; round < 10; round++){
+            for(int i = 0; i < 500; i++){
+                double minX = random.nextInt(360) - 180;
+                double minY = random.nextInt(180) - 90;
+                double size = random.nextBoolean() ? 0 : random.nextInt(30);
+                double[] box = {minX, minY, Math.min(180, minX + size), Math.min(90, minY + random.nextInt(10))};
+                tree.add(box[0], box[1], box[2], box[3], boxes.size());
+                boxes.add(box);
+            }
+            for(int i = 0; i < 200; i++){
+                int index = random.nextInt(boxes.size());
+                double[] box = boxes.get(index);
+                if (box != null){
+                    Assert.assertTrue(tree.remove(box[0], box[1], box[2], box[3], index));
+                    boxes.set(index, null);
+                }
+            }
+            for(int i = 0; i < 100; i++){
+                double minX = random.nextInt(400) - 200;
+                double minY = random.nextInt(200) - 100;
+                double maxX = minX + random.nextInt(3) * random.nextInt(20);
+                double maxY = minY + random.nextInt(3) * random.nextInt(20);
+                Assert.assertEquals(bruteForce(boxes, minX, minY, maxX, maxY), search(tree, minX, minY, maxX, maxY));
+            }
+        }
+    }
+
+}
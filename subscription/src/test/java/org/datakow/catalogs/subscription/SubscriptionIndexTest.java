@@ -0,0 +1,274 @@
+package org.datakow.catalogs.subscription;
+
+import org.datakow.core.components.DotNotationMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Checks the index against evaluating the criteria of every subscription.
+ *
+ * @author kevin.off
+ */
+public class SubscriptionIndexTest {
+
+    private static final String[] ACTIONS = {"created", "updated", "deleted"};
+    private static final String[] NAMES = {"kevin", "bob", "alice"};
+
+    public SubscriptionIndexTest() {
+    }
+
+    private static String randomQuery(Random random){
+        switch(random.nextInt(10)){
+            case 0:
+                return "Action==" + ACTIONS[random.nextInt(ACTIONS.length)];
+            case 1:
+                return "Action=in=(" + ACTIONS[random.nextInt(ACTIONS.length)] + "," + ACTIONS[random.nextInt(ACTIONS.length)] + ")";
+            case 2:
+                return "Count=gt=" + random.nextInt(10);
+            case 3:
+                return "Count=ge=" + random.nextInt(10) + ";Count=le=" + random.nextInt(10);
+            case 4:
+                return "Count=lt=" + random.nextInt(10) + ",Score=ge=" + random.nextInt(10) + ".5";
+            case 5:
+                return "Action==" + ACTIONS[random.nextInt(ACTIONS.length)] + ";Count==" + random.nextInt(10);
+            case 6:
+                return "Name=like=" + NAMES[random.nextInt(NAMES.length)].substring(0, 2) + "*";
+            case 7:
+                return "Date=gt=2016-01-0" + (1 + random.nextInt(9)) + "T00:00:00Z;Date=lt=2016-01-0" + (1 + random.nextInt(9)) + "T00:00:00Z";
+            case 8:
+                return "Name!=" + NAMES[random.nextInt(NAMES.length)];
+            default:
+                return "Score==" + random.nextInt(10) + ".0,Name==" + NAMES[random.nextInt(NAMES.length)];
+        }
+    }
+
+    private static DotNotationMap randomRecord(Random random){
+        DotNotationMap record = new DotNotationMap();
+        if (random.nextInt(5) > 0){
+            record.setProperty("Action", ACTIONS[random.nextInt(ACTIONS.length)]);
+        }
+        if (random.nextInt(5) > 0){
+            record.setProperty("Count", random.nextInt(10));
+        }
+        if (random.nextInt(5) > 0){
+            record.setProperty("Score", random.nextInt(20) / 2.0);
+        }
+        if (random.nextInt(5) > 0){
+            record.setProperty("Name", NAMES[random.nextInt(NAMES.length)]);
+        }
+        if (random.nextInt(5) > 0){
+            record.setProperty("Date", "2016-01-0" + (1 + random.nextInt(9)) + "T00:00:00Z");
+        }
+        return record;
+    }
+
+    private static Set<String> bruteForce(List<SimpleSubscription> subscriptions, DotNotationMap record){
+        Set<String> ids = new HashSet<>();
+        for(SimpleSubscription subscription : subscriptions){
+            if (subscription.meetsCriteria(record)){
+                ids.add(subscription.getId());
+            }
+        }
+        return ids;
+    }
+
+    private static Set<String> ids(List<SimpleSubscription> subscriptions){
+        Set<String> ids = new HashSet<>();
+        for(SimpleSubscription subscription : subscriptions){
+            ids.add(subscription.getId());
+        }
+        return ids;
+    }
+
+    private static void assertSameAsBruteForce(SubscriptionIndex index, List<SimpleSubscription> subscriptions, Random random){
+        for(int i = 0; i < 200; i++){
+            DotNotationMap record = randomRecord(random);
+            Set<String> expected = bruteForce(subscriptions, record);
+            Set<String> candidates = ids(index.getCandidates(record));
+            Assert.assertTrue(record + " candidates " + candidates + " expected " + expected, candidates.containsAll(expected));
+            Assert.assertEquals(record.toString(), expected, ids(index.getMatches(record)));
+        }
+    }
+
+    @Test
+    public void testMatchesAreTheSameAsBruteForce() {
+        Random random = new Random(42);
+        List<SimpleSubscription> subscriptions = new ArrayList<>();
+        for(int i = 0; i < 300; i++){
+            subscriptions.add(new QueryStringSubscription("s" + i, randomQuery(random), "DATAKOW_OBJECTS", "created", "user", "endpoint"));
+        }
+        SubscriptionIndex index = new SubscriptionIndex(subscriptions);
+        Assert.assertEquals(subscriptions.size(), index.size());
+        Assert.assertTrue(index.getFallbackSize() < subscriptions.size());
+
+        assertSameAsBruteForce(index, subscriptions, random);
+    }
+
+    @Test
+    public void testRemoveAndReplace() {
+        Random random = new Random(7);
+        List<SimpleSubscription> subscriptions = new ArrayList<>();
+        for(int i = 0; i < 200; i++){
+            subscriptions.add(new QueryStringSubscription("s" + i, randomQuery(random), "DATAKOW_OBJECTS", "created", "user", "endpoint"));
+        }
+        SubscriptionIndex index = new SubscriptionIndex(subscriptions);
+
+        List<SimpleSubscription> remaining = new ArrayList<>();
+        for(SimpleSubscription subscription : subscriptions){
+            if (random.nextBoolean()){
+                Assert.assertSame(subscription, index.remove(subscription.getId()));
+            }else{
+                remaining.add(subscription);
+            }
+        }
+        Assert.assertNull(index.remove("not there"));
+        Assert.assertEquals(remaining.size(), index.size());
+        assertSameAsBruteForce(index, remaining, random);
+
+        //adding with the same id replaces the criteria and the terms it was indexed under
+        for(int i = 0; i < remaining.size(); i += 2){
+            SimpleSubscription replacement = new QueryStringSubscription(remaining.get(i).getId(), randomQuery(random), "DATAKOW_OBJECTS", "created", "user", "endpoint");
+            index.add(replacement);
+            remaining.set(i, replacement);
+        }
+        Assert.assertEquals(remaining.size(), index.size());
+        assertSameAsBruteForce(index, remaining, random);
+
+        for(SimpleSubscription subscription : remaining){
+            index.remove(subscription.getId());
+        }
+        Assert.assertEquals(0, index.size());
+        Assert.assertEquals(0, index.getFallbackSize());
+        Assert.assertTrue(index.getCandidates(randomRecord(random)).isEmpty());
+    }
+
+    private static String randomSquare(Random random, int size){
+        int x = random.nextInt(40) - 20;
+        int y = random.nextInt(40) - 20;
+        return "POLYGON((" + x + " " + y + ", " + (x + size) + " " + y + ", " + (x + size) + " " + (y + size) + ", "
+                + x + " " + (y + size) + ", " + x + " " + y + "))";
+    }
+
+    @Test
+    public void testGeoMatchesAreTheSameAsBruteForce() {
+        Random random = new Random(9);
+        List<SimpleSubscription> subscriptions = new ArrayList<>();
+        for(int i = 0; i < 300; i++){
+            String query;
+            switch(i % 4){
+                case 0:
+                    query = "Location=within='" + randomSquare(random, 1 + random.nextInt(10)) + "'";
+                    break;
+                case 1:
+                    query = "Location=intersects='" + randomSquare(random, 1 + random.nextInt(10)) + "'";
+                    break;
+                case 2:
+                    query = "Location=near=(" + (random.nextInt(40) - 20) + "," + (random.nextInt(40) - 20) + "," + random.nextInt(500000) + ")";
+                    break;
+                default:
+                    query = "Location=within='" + randomSquare(random, 5) + "',Action==created";
+            }
+            subscriptions.add(new QueryStringSubscription("s" + i, query, "DATAKOW_OBJECTS", "created", "user", "endpoint"));
+        }
+        SubscriptionIndex index = new SubscriptionIndex(subscriptions);
+        Assert.assertEquals(0, index.getFallbackSize());
+
+        for(int i = 0; i < 300; i++){
+            if (i == 150){
+                List<SimpleSubscription> remaining = new ArrayList<>();
+                for(SimpleSubscription subscription : subscriptions){
+                    if (random.nextBoolean()){
+                        index.remove(subscription.getId());
+                    }else{
+                        remaining.add(subscription);
+                    }
+                }
+                subscriptions = remaining;
+            }
+            DotNotationMap record = new DotNotationMap();
+            if (random.nextBoolean()){
+                record.setProperty("Location", Arrays.asList(random.nextInt(50) - 25 + random.nextInt(4) / 2.0, random.nextInt(50) - 25.0));
+            }else{
+                record.setProperty("Location", randomSquare(random, random.nextInt(3) + 1));
+            }
+            if (random.nextBoolean()){
+                record.setProperty("Action", "created");
+            }
+            Set<String> expected = bruteForce(subscriptions, record);
+            Assert.assertTrue(record.toString(), ids(index.getCandidates(record)).containsAll(expected));
+            Assert.assertEquals(record.toString(), expected, ids(index.getMatches(record)));
+        }
+    }
+
+    @Test
+    public void testMatchesThroughTheSharedGraph() {
+        SubscriptionIndex index = new SubscriptionIndex();
+        index.add(new QueryStringSubscription("and", "Action==created;Count=gt=5", "DATAKOW_OBJECTS", "created", "user", "endpoint"));
+        index.add(new QueryStringSubscription("reordered", "Count=gt=5;Action==created", "DATAKOW_OBJECTS", "created", "user", "endpoint"));
+        index.add(new QueryStringSubscription("or", "Action==created;Count=gt=5,Name==kevin", "DATAKOW_OBJECTS", "created", "user", "endpoint"));
+        index.add(new QueryStringSubscription("like", "Name=like=k.*", "DATAKOW_OBJECTS", "created", "user", "endpoint"));
+        index.add(new QueryStringSubscription("everything", null, "DATAKOW_OBJECTS", "created", "user", "endpoint"));
+
+        DotNotationMap record = new DotNotationMap();
+        record.setProperty("Action", "created");
+        record.setProperty("Count", 6);
+        Set<String> expected = new HashSet<>();
+        expected.add("and");
+        expected.add("reordered");
+        expected.add("or");
+        expected.add("everything");
+        Assert.assertEquals(expected, ids(index.getMatches(record)));
+
+        record.setProperty("Count", 5);
+        record.setProperty("Name", "kevin");
+        expected.clear();
+        expected.add("or");
+        expected.add("like");
+        expected.add("everything");
+        Assert.assertEquals(expected, ids(index.getMatches(record)));
+
+        //the graph uses the criteria of the replacement and drops the removed
+        index.add(new QueryStringSubscription("and", "Action==created;Count=ge=5", "DATAKOW_OBJECTS", "created", "user", "endpoint"));
+        index.remove("or");
+        expected.remove("or");
+        expected.add("and");
+        Assert.assertEquals(expected, ids(index.getMatches(record)));
+
+        expected.clear();
+        expected.add("everything");
+        Assert.assertEquals(expected, ids(index.getMatches(null)));
+    }
+
+    @Test
+    public void testRangeEdges() {
+        SubscriptionIndex index = new SubscriptionIndex();
+        index.add(new QueryStringSubscription("ge", "Count=ge=5", "DATAKOW_OBJECTS", "created", "user", "endpoint"));
+        index.add(new QueryStringSubscription("gt", "Count=gt=5", "DATAKOW_OBJECTS", "created", "user", "endpoint"));
+        index.add(new QueryStringSubscription("between", "Count=ge=2;Count=le=5", "DATAKOW_OBJECTS", "created", "user", "endpoint"));
+        index.add(new QueryStringSubscription("empty", "Count=gt=5;Count=lt=5", "DATAKOW_OBJECTS", "created", "user", "endpoint"));
+
+        DotNotationMap record = new DotNotationMap();
+        record.setProperty("Count", 5);
+        Set<String> expected = new HashSet<>();
+        expected.add("ge");
+        expected.add("between");
+        Assert.assertEquals(expected, ids(index.getMatches(record)));
+
+        record.setProperty("Count", 5.5);
+        expected.clear();
+        expected.add("ge");
+        expected.add("gt");
+        Assert.assertEquals(expected, ids(index.getMatches(record)));
+
+        record.setProperty("Count", 2);
+        Assert.assertEquals(ids(index.getCandidates(record)), ids(index.getMatches(record)));
+        Assert.assertEquals(1, index.getMatches(record).size());
+    }
+
+}
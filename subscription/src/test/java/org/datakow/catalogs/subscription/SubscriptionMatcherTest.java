@@ -0,0 +1,155 @@
+package org.datakow.catalogs.subscription;
+
+import org.datakow.core.components.DotNotationMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author kevin.off
+ */
+public class SubscriptionMatcherTest {
+
+    public SubscriptionMatcherTest() {
+    }
+
+    private static List<SimpleSubscription> makeSubscriptions(int count){
+        List<SimpleSubscription> subscriptions = new ArrayList<>();
+        for(int i = 0; i < count; i++){
+            String query;
+            switch(i % 4){
+                case 0:
+                    query = "Count=gt=" + (i % 50);
+                    break;
+                case 1:
+                    query = "Name==name" + (i % 7);
+                    break;
+                case 2:
+                    query = "Name=like=name[0-3]";
+                    break;
+                default:
+                    query = "Count=le=" + (i % 50) + ";Name!=name" + (i % 7);
+            }
+            subscriptions.add(new QueryStringSubscription("s" + i, query, "DATAKOW_OBJECTS", "created", "user", "endpoint"));
+        }
+        return subscriptions;
+    }
+
+    private static List<String> bruteForce(List<SimpleSubscription> subscriptions, DotNotationMap record){
+        List<String> ids = new ArrayList<>();
+        for(SimpleSubscription subscription : subscriptions){
+            if (subscription.meetsCriteria(record)){
+                ids.add(subscription.getId());
+            }
+        }
+        return ids;
+    }
+
+    @Test
+    public void testParallelMatchKeepsTheOrder() {
+        List<SimpleSubscription> subscriptions = makeSubscriptions(2000);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try{
+            SubscriptionMatcher parallel = new SubscriptionMatcher(10, pool);
+            SubscriptionMatcher sequential = new SubscriptionMatcher(Integer.MAX_VALUE, pool);
+            for(int i = 0; i < 60; i++){
+                DotNotationMap record = new DotNotationMap();
+                record.setProperty("Count", i);
+                record.setProperty("Name", "name" + (i % 9));
+                List<String> expected = bruteForce(subscriptions, record);
+                Assert.assertEquals(expected, parallel.matchAll(record, subscriptions));
+                Assert.assertEquals(expected, sequential.matchAll(record, subscriptions));
+            }
+            Assert.assertTrue(parallel.matchAll(new DotNotationMap(), new ArrayList<>()).isEmpty());
+        }finally{
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testMatchThroughTheIndex() {
+        List<SimpleSubscription> subscriptions = makeSubscriptions(500);
+        SubscriptionIndex index = new SubscriptionIndex(subscriptions);
+        SubscriptionMatcher matcher = new SubscriptionMatcher(10);
+        for(int i = 0; i < 60; i++){
+            DotNotationMap record = new DotNotationMap();
+            record.setProperty("Count", i);
+            if (i % 5 > 0){
+                record.setProperty("Name", "name" + (i % 9));
+            }
+            Assert.assertEquals(new HashSet<>(bruteForce(subscriptions, record)), new HashSet<>(matcher.matchAll(record, index)));
+        }
+    }
+
+    @Test
+    public void testCloseOnlyShutsDownItsOwnPool() {
+        List<SimpleSubscription> subscriptions = makeSubscriptions(200);
+        DotNotationMap record = new DotNotationMap();
+        record.setProperty("Count", 10);
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try{
+            SubscriptionMatcher shared = new SubscriptionMatcher(10, pool);
+            shared.close();
+            Assert.assertFalse(pool.isShutdown());
+            Assert.assertEquals(bruteForce(subscriptions, record), shared.matchAll(record, subscriptions));
+        }finally{
+            pool.shutdown();
+        }
+        try(SubscriptionMatcher owned = new SubscriptionMatcher(10, 2)){
+            Assert.assertEquals(bruteForce(subscriptions, record), owned.matchAll(record, subscriptions));
+        }
+    }
+
+    @Test
+    public void testFailedSubscriptionsAreLogged() {
+        List<SimpleSubscription> subscriptions = new ArrayList<>();
+        subscriptions.add(new QueryStringSubscription("broken", "Name==name1", "DATAKOW_OBJECTS", "created", "user", "endpoint"){
+            @Override
+            public boolean meetsCriteria(DotNotationMap metadata){
+                throw new UnsupportedOperationException("cannot compare");
+            }
+        });
+        subscriptions.add(new QueryStringSubscription("working", "Name==name1", "DATAKOW_OBJECTS", "created", "user", "endpoint"));
+        List<LogRecord> logged = new ArrayList<>();
+        Handler handler = new Handler(){
+            @Override
+            public void publish(LogRecord record){
+                logged.add(record);
+            }
+            @Override
+            public void flush(){
+            }
+            @Override
+            public void close(){
+            }
+        };
+        Logger logger = Logger.getLogger(SubscriptionMatcher.class.getName());
+        logger.addHandler(handler);
+        try{
+            DotNotationMap record = new DotNotationMap();
+            record.setProperty("Name", "name1");
+            Assert.assertEquals(Arrays.asList("working"), new SubscriptionMatcher(10, ForkJoinPool.commonPool()).matchAll(record, subscriptions));
+        }finally{
+            logger.removeHandler(handler);
+        }
+        Assert.assertEquals(1, logged.size());
+        Assert.assertEquals(Level.WARNING, logged.get(0).getLevel());
+        Assert.assertTrue(logged.get(0).getMessage().contains("broken"));
+        Assert.assertTrue(logged.get(0).getThrown() instanceof UnsupportedOperationException);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testThresholdMustBePositive() {
+        new SubscriptionMatcher(0);
+    }
+
+}